@@ -16,12 +16,17 @@
 package org.modeshape.jcr.index.elasticsearch;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.jcr.query.qom.Constraint;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.api.index.IndexDefinition;
+import org.modeshape.jcr.index.elasticsearch.client.EsBulkRequest;
 import org.modeshape.jcr.index.elasticsearch.client.EsClient;
 import org.modeshape.jcr.index.elasticsearch.client.EsRequest;
 import org.modeshape.jcr.spi.index.IndexConstraints;
@@ -30,16 +35,40 @@ import org.modeshape.jcr.value.basic.ModeShapeDateTime;
 
 /**
  * Index stored in Elasticsearch.
+ * <p>
+ * The documents which are added or removed are buffered and sent to the Elasticsearch engine with a single bulk request,
+ * either when the buffer is full, when the oldest buffered change is older than the flush interval or when the index is
+ * committed.
+ * </p>
  *
  * @author kulikov
  */
 public class EsIndex implements ProvidedIndex {
 
+    /**
+     * The default maximum number of buffered documents.
+     */
+    public static final int DEFAULT_BULK_SIZE = 1000;
+
+    /**
+     * The default maximum number of milliseconds that changes are buffered before the index is committed.
+     */
+    public static final long DEFAULT_BULK_FLUSH_INTERVAL = 1000L;
+
     private final String name;
     private final String workspace;
     private final EsIndexColumns columns;
     private final Operations operations;
     private final EsClient client;
+    private final int bulkSize;
+    private final long bulkFlushInterval;
+
+    // the buffered documents which have to be stored and deleted, keyed by node key
+    private final Map<String, EsRequest> pendingDocs = new LinkedHashMap<>();
+    private final Set<String> pendingDeletes = new LinkedHashSet<>();
+    private long pendingSince;
+    // the keys of the documents stored since all the data was cleared, used to avoid looking up documents which can't exist
+    private Set<String> storedSinceCleared;
     
     /**
      * Creates new index.
@@ -50,12 +79,22 @@ public class EsIndex implements ProvidedIndex {
      * @param workspace workspace name where this index will be created.
      */
     public EsIndex(EsClient client, ExecutionContext context, IndexDefinition defn, String workspace) {
-        this.client = client;
-        this.name = defn.getName();
-        this.workspace = workspace;
-        this.columns = new EsIndexColumns(context, defn);
-        this.operations = new Operations(context.getValueFactories(), columns);
-        this.createIndex();
+        this(client, context, defn, workspace, DEFAULT_BULK_SIZE, DEFAULT_BULK_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Creates new index.
+     * 
+     * @param client provides access to the elasticsearch functions.
+     * @param context Modeshape execution context.
+     * @param defn index definition.
+     * @param workspace workspace name where this index will be created.
+     * @param bulkSize the maximum number of documents buffered before they are sent to elasticsearch.
+     * @param bulkFlushInterval the maximum number of milliseconds changes are buffered before the index is committed.
+     */
+    public EsIndex(EsClient client, ExecutionContext context, IndexDefinition defn, String workspace,
+                   int bulkSize, long bulkFlushInterval) {
+        this(client, new EsIndexColumns(context, defn), context, defn.getName(), workspace, bulkSize, bulkFlushInterval);
     }
 
     /**
@@ -68,11 +107,29 @@ public class EsIndex implements ProvidedIndex {
      * @param workspace workspace name where this index will be created.
      */
     protected EsIndex(EsClient client, EsIndexColumns columns, ExecutionContext context, String name, String workspace) {
+        this(client, columns, context, name, workspace, DEFAULT_BULK_SIZE, DEFAULT_BULK_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Creates new index.
+     * 
+     * @param client provides access to the elasticsearch functions.
+     * @param columns columns definition.
+     * @param context Modeshape execution context.
+     * @param name the name of the index
+     * @param workspace workspace name where this index will be created.
+     * @param bulkSize the maximum number of documents buffered before they are sent to elasticsearch.
+     * @param bulkFlushInterval the maximum number of milliseconds changes are buffered before the index is committed.
+     */
+    protected EsIndex(EsClient client, EsIndexColumns columns, ExecutionContext context, String name, String workspace,
+                      int bulkSize, long bulkFlushInterval) {
         this.client = client;
         this.name = name;
         this.workspace = workspace;
         this.columns = columns;
         this.operations = new Operations(context.getValueFactories(), columns);
+        this.bulkSize = Math.max(1, bulkSize);
+        this.bulkFlushInterval = bulkFlushInterval;
         this.createIndex();
     }
 
@@ -98,7 +155,7 @@ public class EsIndex implements ProvidedIndex {
     }
 
     @Override
-    public void add(String nodeKey, String propertyName, Object value) {
+    public synchronized void add(String nodeKey, String propertyName, Object value) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
         CheckArg.isNotNull(value, "value");
@@ -109,14 +166,14 @@ public class EsIndex implements ProvidedIndex {
         try {
             EsRequest doc = findOrCreateDoc(nodeKey);
             putValue(doc, column, value);
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            store(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
     }
 
     @Override
-    public void add(String nodeKey, String propertyName, Object[] values) {
+    public synchronized void add(String nodeKey, String propertyName, Object[] values) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
         CheckArg.isNotNull(values, "values");
@@ -127,24 +184,22 @@ public class EsIndex implements ProvidedIndex {
         try {
             EsRequest doc = findOrCreateDoc(nodeKey);
             putValues(doc, column, values);
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            store(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
     }
 
     @Override
-    public void remove(String nodeKey) {
+    public synchronized void remove(String nodeKey) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
-        try {
-            client.deleteDocument(name(), workspace, nodeKey);
-        } catch (IOException e) {
-            throw new EsIndexException(e);
-        }
+        pendingDocs.remove(nodeKey);
+        pendingDeletes.add(nodeKey);
+        flushIfNeeded();
     }
 
     @Override
-    public void remove(String nodeKey, String propertyName, Object value) {
+    public synchronized void remove(String nodeKey, String propertyName, Object value) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
 
@@ -154,34 +209,106 @@ public class EsIndex implements ProvidedIndex {
                 return;
             }
             doc.remove(propertyName);            
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            store(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
     }
 
     @Override
-    public void remove(String nodeKey, String propertyName, Object[] values) {
+    public synchronized void remove(String nodeKey, String propertyName, Object[] values) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
 
         try {
             EsRequest doc = find(nodeKey);
+            if (doc == null) {
+                return;
+            }
             doc.remove(propertyName);
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            store(nodeKey, doc);
         } catch (Exception e) {
             throw new EsIndexException(e);
         }
     }
 
     /**
-     * Searches indexed node's properties by node key.
+     * Buffers the document so that it is stored with the next bulk request, replacing any buffered deletion of the same node.
+     * 
+     * @param nodeKey node key being indexed.
+     * @param doc list of stored properties as json document.
+     */
+    private void store(String nodeKey, EsRequest doc) {
+        pendingDeletes.remove(nodeKey);
+        pendingDocs.put(nodeKey, doc);
+        flushIfNeeded();
+    }
+
+    /**
+     * Sends the buffered changes to elasticsearch if there are too many of them or if they have been buffered for too long.
+     */
+    private void flushIfNeeded() {
+        if (pendingSince == 0) {
+            pendingSince = System.currentTimeMillis();
+        }
+        if (pendingDocs.size() + pendingDeletes.size() >= bulkSize
+            || (bulkFlushInterval > 0 && System.currentTimeMillis() - pendingSince >= bulkFlushInterval)) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends all the buffered changes to elasticsearch with a single bulk request.
+     */
+    private void flush() {
+        if (pendingDocs.isEmpty() && pendingDeletes.isEmpty()) {
+            return;
+        }
+        EsBulkRequest actions = new EsBulkRequest();
+        for (String nodeKey : pendingDeletes) {
+            actions.delete(name(), workspace, nodeKey);
+        }
+        for (Map.Entry<String, EsRequest> entry : pendingDocs.entrySet()) {
+            actions.index(name(), workspace, entry.getKey(), entry.getValue());
+        }
+        try {
+            client.bulk(actions);
+            if (storedSinceCleared != null) {
+                storedSinceCleared.addAll(pendingDocs.keySet());
+                storedSinceCleared.removeAll(pendingDeletes);
+            }
+        } catch (IOException e) {
+            throw new EsIndexException(e);
+        } finally {
+            discardPending();
+        }
+    }
+
+    private void discardPending() {
+        pendingDocs.clear();
+        pendingDeletes.clear();
+        pendingSince = 0;
+    }
+
+    /**
+     * Searches indexed node's properties by node key, including the buffered changes which have not yet been sent.
      * 
      * @param nodeKey node key being indexed.
      * @return list of stored properties as json document.
      * @throws IOException 
      */
     private EsRequest find(String nodeKey) throws IOException {
+        EsRequest doc = pendingDocs.get(nodeKey);
+        if (doc != null) {
+            return doc;
+        }
+        if (pendingDeletes.contains(nodeKey)) {
+            return null;
+        }
+        if (storedSinceCleared != null && !storedSinceCleared.contains(nodeKey)) {
+            // all the data was cleared (e.g. while reindexing), so there is no need to ask elasticsearch
+            return null;
+        }
         return client.getDocument(name(), workspace, nodeKey);
     }
 
@@ -194,7 +321,7 @@ public class EsIndex implements ProvidedIndex {
      * @throws IOException 
      */
     private EsRequest findOrCreateDoc(String nodeKey) throws IOException {
-        EsRequest doc = client.getDocument(name(), workspace, nodeKey);
+        EsRequest doc = find(nodeKey);
         return doc != null ? doc : new EsRequest();
     }
 
@@ -245,7 +372,9 @@ public class EsIndex implements ProvidedIndex {
     }
 
     @Override
-    public void commit() {
+    public synchronized void commit() {
+        flush();
+        storedSinceCleared = null;
         try {
             client.refresh(name());
         } catch (IOException e) {
@@ -285,7 +414,9 @@ public class EsIndex implements ProvidedIndex {
     }
 
     @Override
-    public void clearAllData() {
+    public synchronized void clearAllData() {
+        discardPending();
+        storedSinceCleared = new HashSet<>();
         try {
             client.deleteAll(name(), workspace);
         } catch (IOException e) {
@@ -294,13 +425,16 @@ public class EsIndex implements ProvidedIndex {
     }
 
     @Override
-    public void shutdown(boolean destroyed) {
+    public synchronized void shutdown(boolean destroyed) {
         if (destroyed) {
+            discardPending();
             try {
                 client.deleteIndex(name());
             } catch (Exception e) {
                 throw new EsIndexException(e);
             }
+        } else {
+            flush();
         }
     }
 }
@@ -35,6 +35,7 @@ import javax.jcr.query.qom.ChildNodeJoinCondition;
 import javax.jcr.query.qom.DescendantNodeJoinCondition;
 import javax.jcr.query.qom.DynamicOperand;
 import javax.jcr.query.qom.JoinCondition;
+import java.io.IOException;
 import java.util.Collection;
 
 /**
@@ -44,13 +45,16 @@ public class EsIndexProvider extends IndexProvider {
 
     private String host = "localhost";
     private int port = 9200;
+    private int maxConnections = EsClient.DEFAULT_MAX_CONNECTIONS;
+    private int bulkSize = EsIndex.DEFAULT_BULK_SIZE;
+    private long bulkFlushInterval = EsIndex.DEFAULT_BULK_FLUSH_INTERVAL;
     private EsClient client;
 
     @Override
     protected void doInitialize() throws RepositoryException {
         logger().debug("Elasticsearch index provider for repository '{0}' "
                 + "is trying to connect to cluster", getRepositoryName());
-        client = new EsClient(host, port);
+        client = new EsClient(host, port, maxConnections);
     }
 
     /**
@@ -89,9 +93,70 @@ public class EsIndexProvider extends IndexProvider {
         this.port = port;
     }
 
+    /**
+     * Gets the maximum number of persistent connections to the ES instance.
+     *
+     * @return the number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Assigns the maximum number of persistent connections to the ES instance.
+     *
+     * @param maxConnections the number of connections
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Gets the maximum number of documents each index buffers before sending them with a single bulk request.
+     *
+     * @return the number of documents
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    /**
+     * Assigns the maximum number of documents each index buffers before sending them with a single bulk request.
+     *
+     * @param bulkSize the number of documents
+     */
+    public void setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+    }
+
+    /**
+     * Gets the maximum number of milliseconds each index buffers changes before they are committed.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getBulkFlushInterval() {
+        return bulkFlushInterval;
+    }
+
+    /**
+     * Assigns the maximum number of milliseconds each index buffers changes before they are committed.
+     *
+     * @param bulkFlushInterval the interval in milliseconds
+     */
+    public void setBulkFlushInterval(long bulkFlushInterval) {
+        this.bulkFlushInterval = bulkFlushInterval;
+    }
+
     @Override
     protected void postShutdown() {
         logger().debug("Shutting down the elasticsearch index provider '{0}' in repository '{1}'", getName(), getRepositoryName());
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger().debug(e, "Cannot close the connections of the elasticsearch index provider '{0}'", getName());
+            }
+        }
     }
 
     @Override
@@ -112,7 +177,8 @@ public class EsIndexProvider extends IndexProvider {
                                                   String workspaceName,
                                                   NodeTypes.Supplier nodeTypesSupplier,
                                                   ChangeSetAdapter.NodeTypePredicate matcher) {
-        return EsManagedIndexBuilder.create(client, context(), defn, nodeTypesSupplier, workspaceName, matcher);
+        return EsManagedIndexBuilder.create(client, context(), defn, nodeTypesSupplier, workspaceName, matcher, bulkSize,
+                                            bulkFlushInterval);
     }
 
     @Override
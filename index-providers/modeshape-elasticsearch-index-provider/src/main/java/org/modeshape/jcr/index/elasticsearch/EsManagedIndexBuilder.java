@@ -34,6 +34,8 @@ import org.modeshape.jcr.spi.index.provider.ProvidedIndex;
 public class EsManagedIndexBuilder extends ManagedIndexBuilder {
 
     private final EsClient client;
+    private final int bulkSize;
+    private final long bulkFlushInterval;
     
     /**
      * Create a builder for the supplied index definition.
@@ -55,12 +57,43 @@ public class EsManagedIndexBuilder extends ManagedIndexBuilder {
             NodeTypes.Supplier nodeTypesSupplier,
             String workspaceName,
             ChangeSetAdapter.NodeTypePredicate matcher) {
+        return create(client, context, defn, nodeTypesSupplier, workspaceName, matcher, EsIndex.DEFAULT_BULK_SIZE,
+                      EsIndex.DEFAULT_BULK_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create a builder for the supplied index definition.
+     *
+     * @param client interface for elasticsearch cluster.
+     * @param context the execution context in which the index should operate;
+     * may not be null
+     * @param defn the index definition; may not be null
+     * @param nodeTypesSupplier the supplier of the {@link NodeTypes} instance;
+     * may not be null
+     * @param workspaceName the name of the workspace for which to build the
+     * index; may not be null
+     * @param matcher the node type matcher used to determine which nodes should
+     * be included in the index; may not be null
+     * @param bulkSize the maximum number of documents each index buffers before
+     * sending them to elasticsearch
+     * @param bulkFlushInterval the maximum number of milliseconds each index
+     * buffers changes before it is committed
+     * @return the index builder; never null
+     */
+    public static EsManagedIndexBuilder create(EsClient client, ExecutionContext context,
+            IndexDefinition defn,
+            NodeTypes.Supplier nodeTypesSupplier,
+            String workspaceName,
+            ChangeSetAdapter.NodeTypePredicate matcher,
+            int bulkSize,
+            long bulkFlushInterval) {
         SimpleProblems problems = new SimpleProblems();
         validate(defn, problems);
         if (problems.hasErrors()) {
             throw new LocalIndexException(problems.toString());
         }
-        return new EsManagedIndexBuilder(client, context, defn, nodeTypesSupplier, workspaceName, matcher);
+        return new EsManagedIndexBuilder(client, context, defn, nodeTypesSupplier, workspaceName, matcher, bulkSize,
+                                         bulkFlushInterval);
     }
 
     /**
@@ -78,32 +111,45 @@ public class EsManagedIndexBuilder extends ManagedIndexBuilder {
             NodeTypes.Supplier nodeTypesSupplier,
             String workspaceName,
             ChangeSetAdapter.NodeTypePredicate matcher) {
+        this(client, context, defn, nodeTypesSupplier, workspaceName, matcher, EsIndex.DEFAULT_BULK_SIZE,
+             EsIndex.DEFAULT_BULK_FLUSH_INTERVAL);
+    }
+
+    protected EsManagedIndexBuilder(EsClient client, ExecutionContext context,
+            IndexDefinition defn,
+            NodeTypes.Supplier nodeTypesSupplier,
+            String workspaceName,
+            ChangeSetAdapter.NodeTypePredicate matcher,
+            int bulkSize,
+            long bulkFlushInterval) {
         super(context, defn, workspaceName, nodeTypesSupplier, matcher);
         this.client = client;
+        this.bulkSize = bulkSize;
+        this.bulkFlushInterval = bulkFlushInterval;
     }
 
     @Override
     protected ProvidedIndex<?> buildMultiValueIndex(ExecutionContext context, IndexDefinition defn, String workspaceName, NodeTypes.Supplier nodeTypesSupplier, ChangeSetAdapter.NodeTypePredicate matcher) {
-        return new EsIndex(client, context, defn, workspaceName);
+        return new EsIndex(client, context, defn, workspaceName, bulkSize, bulkFlushInterval);
     }
 
     @Override
     protected ProvidedIndex<?> buildUniqueValueIndex(ExecutionContext context, IndexDefinition defn, String workspaceName, NodeTypes.Supplier nodeTypesSupplier, ChangeSetAdapter.NodeTypePredicate matcher) {
-        return new EsIndex(client, context, defn, workspaceName);
+        return new EsIndex(client, context, defn, workspaceName, bulkSize, bulkFlushInterval);
     }
 
     @Override
     protected ProvidedIndex<?> buildEnumeratedIndex(ExecutionContext context, IndexDefinition defn, String workspaceName, NodeTypes.Supplier nodeTypesSupplier, ChangeSetAdapter.NodeTypePredicate matcher) {
-        return new EsIndex(client, context, defn, workspaceName);
+        return new EsIndex(client, context, defn, workspaceName, bulkSize, bulkFlushInterval);
     }
 
     @Override
     protected ProvidedIndex<?> buildTextIndex(ExecutionContext context, IndexDefinition defn, String workspaceName, NodeTypes.Supplier nodeTypesSupplier, ChangeSetAdapter.NodeTypePredicate matcher) {
-        return new EsIndex(client, context, defn, workspaceName);
+        return new EsIndex(client, context, defn, workspaceName, bulkSize, bulkFlushInterval);
     }
 
     @Override
     protected ProvidedIndex<?> buildNodeTypeIndex(ExecutionContext context, IndexDefinition defn, String workspaceName, NodeTypes.Supplier nodeTypesSupplier, ChangeSetAdapter.NodeTypePredicate matcher) {
-        return new EsIndex(client, context, defn, workspaceName);
+        return new EsIndex(client, context, defn, workspaceName, bulkSize, bulkFlushInterval);
     }
 }
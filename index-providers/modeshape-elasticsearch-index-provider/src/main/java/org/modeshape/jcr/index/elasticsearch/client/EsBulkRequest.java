@@ -0,0 +1,88 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.elasticsearch.client;
+
+/**
+ * Batch of index and delete actions which are sent to the Elasticsearch engine in a single request to the bulk API.
+ */
+public class EsBulkRequest {
+
+    private final StringBuilder body = new StringBuilder();
+    private int size;
+
+    /**
+     * Adds an action which stores the document, replacing any existing document with the same id.
+     *
+     * @param name the name of the index.
+     * @param type index type.
+     * @param id document id.
+     * @param doc document.
+     */
+    public void index(String name, String type, String id, EsRequest doc) {
+        action("index", name, type, id);
+        body.append(doc.toString()).append('\n');
+    }
+
+    /**
+     * Adds an action which deletes the document, if it exists.
+     *
+     * @param name the name of the index.
+     * @param type index type.
+     * @param id document id.
+     */
+    public void delete(String name, String type, String id) {
+        action("delete", name, type, id);
+    }
+
+    private void action(String action, String name, String type, String id) {
+        EsRequest target = new EsRequest();
+        target.put("_index", name);
+        target.put("_type", type);
+        target.put("_id", id);
+        EsRequest line = new EsRequest();
+        line.put(action, target);
+        body.append(line.toString()).append('\n');
+        size++;
+    }
+
+    /**
+     * Gets the number of actions in this batch.
+     *
+     * @return the number of actions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests if this batch has no actions.
+     *
+     * @return true if there are no actions.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the newline-delimited content of the request.
+     *
+     * @return the request body.
+     */
+    @Override
+    public String toString() {
+        return body.toString();
+    }
+}
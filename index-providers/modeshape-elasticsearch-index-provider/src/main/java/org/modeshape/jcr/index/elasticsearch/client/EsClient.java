@@ -15,6 +15,7 @@
  */
 package org.modeshape.jcr.index.elasticsearch.client;
 
+import java.io.Closeable;
 import java.io.IOException;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -22,10 +23,13 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.jcr.index.elasticsearch.query.MatchAllQuery;
 
@@ -34,10 +38,17 @@ import org.modeshape.jcr.index.elasticsearch.query.MatchAllQuery;
  *
  * @author kulikov
  */
-public class EsClient {
+public class EsClient implements Closeable {
+
+    /**
+     * The default maximum number of connections kept open to the ES engine.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
 
     private final String host;
     private final int port;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
 
     /**
      * Creates new instance.
@@ -46,8 +57,58 @@ public class EsClient {
      * @param port the port number of ES engine.
      */
     public EsClient(String host, int port) {
+        this(host, port, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Creates new instance which reuses up to the given number of persistent connections to the ES engine.
+     *
+     * @param host the address of the ES engine.
+     * @param port the port number of ES engine.
+     * @param maxConnections the maximum number of connections kept open to the ES engine.
+     */
+    public EsClient(String host, int port, int maxConnections) {
         this.host = host;
         this.port = port;
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxConnections);
+        this.connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.client = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    /**
+     * Executes request and reads the entire response, so that the connection can be reused.
+     *
+     * @param request the request to execute.
+     * @return the status code of the response.
+     * @throws IOException communication exception.
+     */
+    private int execute(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse resp = client.execute(request)) {
+            EntityUtils.consume(resp.getEntity());
+            return resp.getStatusLine().getStatusCode();
+        }
+    }
+
+    /**
+     * Executes request and fails unless the response is successful.
+     *
+     * @param request the request to execute.
+     * @return the content of the response.
+     * @throws IOException communication exception or unsuccessful response.
+     */
+    private EsResponse executeAndRead(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse resp = client.execute(request)) {
+            try {
+                int status = resp.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new IOException(resp.getStatusLine().getReasonPhrase());
+                }
+                return EsResponse.read(resp.getEntity().getContent());
+            } finally {
+                EntityUtils.consume(resp.getEntity());
+            }
+        }
     }
 
     /**
@@ -58,14 +119,8 @@ public class EsClient {
      * @throws IOException communication exception.
      */
     public boolean indexExists(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpHead head = new HttpHead(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            CloseableHttpResponse response = client.execute(head);
-            return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            head.releaseConnection();
-        }
+        return execute(head) == HttpStatus.SC_OK;
     }
 
     /**
@@ -82,16 +137,9 @@ public class EsClient {
             return true;
         }
 
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            StringEntity requestEntity = new StringEntity(mappings.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            CloseableHttpResponse resp = client.execute(method);
-            return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            method.releaseConnection();
-        }
+        method.setEntity(new StringEntity(mappings.toString(), ContentType.APPLICATION_JSON));
+        return execute(method) == HttpStatus.SC_OK;
     }
 
     /**
@@ -102,14 +150,8 @@ public class EsClient {
      * @throws IOException
      */
     public boolean deleteIndex(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpDelete delete = new HttpDelete(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(delete);
-            return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            delete.releaseConnection();
-        }
+        return execute(delete) == HttpStatus.SC_OK;
     }
 
     /**
@@ -124,17 +166,10 @@ public class EsClient {
      */
     public boolean storeDocument(String name, String type, String id,
             EsRequest doc) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            StringEntity requestEntity = new StringEntity(doc.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            CloseableHttpResponse resp = client.execute(method);
-            int statusCode = resp.getStatusLine().getStatusCode();
-            return statusCode == HttpStatus.SC_CREATED || statusCode == HttpStatus.SC_OK;
-        } finally {
-            method.releaseConnection();
-        }
+        method.setEntity(new StringEntity(doc.toString(), ContentType.APPLICATION_JSON));
+        int statusCode = execute(method);
+        return statusCode == HttpStatus.SC_CREATED || statusCode == HttpStatus.SC_OK;
     }
 
     /**
@@ -147,23 +182,23 @@ public class EsClient {
      * @throws IOException
      */
     public EsRequest getDocument(String name, String type, String id) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpGet method = new HttpGet(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            switch (status) {
-                case HttpStatus.SC_OK :
-                    EsResponse doc = EsResponse.read(resp.getEntity().getContent());
-                    return new EsRequest((Document) doc.get("_source"));
-                case HttpStatus.SC_NOT_ACCEPTABLE:
-                case HttpStatus.SC_NOT_FOUND:
-                    return null;
-                default:
-                    throw new IOException(resp.getStatusLine().getReasonPhrase());
+        try (CloseableHttpResponse resp = client.execute(method)) {
+            try {
+                int status = resp.getStatusLine().getStatusCode();
+                switch (status) {
+                    case HttpStatus.SC_OK :
+                        EsResponse doc = EsResponse.read(resp.getEntity().getContent());
+                        return new EsRequest((Document) doc.get("_source"));
+                    case HttpStatus.SC_NOT_ACCEPTABLE:
+                    case HttpStatus.SC_NOT_FOUND:
+                        return null;
+                    default:
+                        throw new IOException(resp.getStatusLine().getReasonPhrase());
+                }
+            } finally {
+                EntityUtils.consume(resp.getEntity());
             }
-        } finally {
-            method.releaseConnection();
         }
     }
 
@@ -177,13 +212,8 @@ public class EsClient {
      * @throws IOException
      */
     public boolean deleteDocument(String name, String type, String id) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpDelete delete = new HttpDelete(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            return client.execute(delete).getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            delete.releaseConnection();
-        }
+        return execute(delete) == HttpStatus.SC_OK;
     }
 
     /**
@@ -194,22 +224,12 @@ public class EsClient {
      * @throws IOException
      */
     public void deleteAll(String name, String type) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s", host, port, name, type));
-        try {
-            EsRequest query = new EsRequest();
-            query.put("query", new MatchAllQuery().build());
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            method.setHeader(" X-HTTP-Method-Override", "DELETE");
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        EsRequest query = new EsRequest();
+        query.put("query", new MatchAllQuery().build());
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        method.setHeader(" X-HTTP-Method-Override", "DELETE");
+        executeAndRead(method);
     }
 
     /**
@@ -219,17 +239,8 @@ public class EsClient {
      * @throws IOException
      */
     public void flush(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/_flush", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        executeAndRead(method);
     }
 
     /**
@@ -239,17 +250,8 @@ public class EsClient {
      * @throws IOException
      */
     public void refresh(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/_refresh", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        executeAndRead(method);
     }
 
     /**
@@ -262,21 +264,9 @@ public class EsClient {
      * @throws IOException
      */
     public EsResponse search(String name, String type, EsRequest query) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/_search", host, port, name, type));
-        try {
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-            return EsResponse.read(resp.getEntity().getContent());
-        } finally {
-            method.releaseConnection();
-        }
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        return executeAndRead(method);
     }
 
     /**
@@ -288,23 +278,38 @@ public class EsClient {
      * @throws IOException
      */
     public long count(String name, String type) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/_count", host, port, name, type));
-        try {
-            EsRequest query = new EsRequest();
-            query.put("query", new MatchAllQuery().build());
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
+        EsRequest query = new EsRequest();
+        query.put("query", new MatchAllQuery().build());
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        return (Integer) executeAndRead(method).get("count");
+    }
 
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-            return (Integer) EsResponse.read(resp.getEntity().getContent()).get("count");
-        } finally {
-            method.releaseConnection();
+    /**
+     * Executes all the actions of the batch with a single request.
+     *
+     * @param actions the batch of index and delete actions.
+     * @throws IOException communication exception or if any of the actions failed.
+     */
+    public void bulk(EsBulkRequest actions) throws IOException {
+        if (actions.isEmpty()) {
+            return;
+        }
+        HttpPost method = new HttpPost(String.format("http://%s:%d/_bulk", host, port));
+        method.setEntity(new StringEntity(actions.toString(), ContentType.APPLICATION_JSON));
+        EsResponse resp = executeAndRead(method);
+        if (Boolean.TRUE.equals(resp.get("errors"))) {
+            throw new IOException("Some of the " + actions.size() + " bulk actions failed");
         }
     }
 
+    /**
+     * Closes all the connections to the ES engine.
+     */
+    @Override
+    public void close() throws IOException {
+        client.close();
+        connectionManager.close();
+    }
+
 }
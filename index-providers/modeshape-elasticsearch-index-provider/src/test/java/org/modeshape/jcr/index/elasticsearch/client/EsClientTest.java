@@ -135,6 +135,28 @@ public class EsClientTest {
         assertEquals(4, ((Object[])doc2.get("field1")).length);
     }
     
+    @Test
+    public void testBulkStoreAndDeleteDocuments() throws Exception {
+        EsRequest doc = new EsRequest();
+        doc.put("field1", "value1");
+        client.storeDocument(INDEX_NAME, TYPE_NAME, "1", doc);
+
+        EsBulkRequest actions = new EsBulkRequest();
+        for (int i = 2; i <= 4; i++) {
+            EsRequest newDoc = new EsRequest();
+            newDoc.put("field1", "value" + i);
+            actions.index(INDEX_NAME, TYPE_NAME, String.valueOf(i), newDoc);
+        }
+        actions.delete(INDEX_NAME, TYPE_NAME, "1");
+        assertEquals(4, actions.size());
+        client.bulk(actions);
+
+        assertTrue(client.getDocument(INDEX_NAME, TYPE_NAME, "1") == null);
+        assertEquals("value3", client.getDocument(INDEX_NAME, TYPE_NAME, "3").get("field1"));
+        client.refresh(INDEX_NAME);
+        assertEquals(3, client.count(INDEX_NAME, TYPE_NAME));
+    }
+
     @Test
     public void shouldReturnNull() throws Exception {
         EsRequest doc1 = client.getDocument(INDEX_NAME, TYPE_NAME, "1");
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CharArraySet;
@@ -57,12 +58,20 @@ public final class LuceneConfig {
 
     protected static final String LAST_SUCCESSFUL_COMMIT_TIME = "last_commit_time";
 
+    /**
+     * The number of milliseconds between the periodic refreshes of the searchers when they are not refreshed before each search.
+     */
+    protected static final long DEFAULT_REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
     private final LockFactory lockFactory;
     private final String directoryClass;
     private final Analyzer analyzer;
     private final Codec codec;
     private final String basePath;   
     private final AtomicLong lastSuccessfulCommitTime;
+    private final long refreshInterval;
+    private final long commitInterval;
+    private final int commitThreshold;
     
     protected static LuceneConfig inMemory() {
         return new LuceneConfig(null, null, null, null, null, null);
@@ -71,15 +80,44 @@ public final class LuceneConfig {
     protected static LuceneConfig onDisk(String baseDir) {
         return new LuceneConfig(baseDir, null, null, null, null, null);
     }
+
+    protected static LuceneConfig onDisk(String baseDir, long refreshInterval, long commitInterval, int commitThreshold) {
+        return new LuceneConfig(baseDir, null, null, null, null, null, refreshInterval, commitInterval, commitThreshold);
+    }
     
     protected LuceneConfig(String baseDir, String lockFactoryClass, String directoryClass, String analyzerClass,
                            String codecName, Environment environment) {
+        this(baseDir, lockFactoryClass, directoryClass, analyzerClass, codecName, environment, 0L, 0L, 0);
+    }
+
+    /**
+     * Creates a new configuration.
+     * 
+     * @param baseDir the directory in which the indexes are stored, or null if the indexes are held in memory
+     * @param lockFactoryClass the name of the Lucene lock factory class; may be null
+     * @param directoryClass the name of the Lucene directory class; may be null
+     * @param analyzerClass the name of the Lucene analyzer class; may be null
+     * @param codecName the name of the Lucene codec; may be null
+     * @param environment the environment used to load the analyzer class; may be null if there is no analyzer class
+     * @param refreshInterval the maximum number of milliseconds that searchers may lag behind the changes written to the
+     * indexes; if not positive, searchers are refreshed before each search so that they always see all changes
+     * @param commitInterval the maximum number of milliseconds that changes may be visible but not yet durably committed; if
+     * not positive, commits are not time-based
+     * @param commitThreshold the number of change sets after which the changes are durably committed; if not positive, commits
+     * are not size-based
+     */
+    protected LuceneConfig(String baseDir, String lockFactoryClass, String directoryClass, String analyzerClass,
+                           String codecName, Environment environment, long refreshInterval, long commitInterval,
+                           int commitThreshold) {
         this.directoryClass = directoryClass;
         this.lockFactory = lockFactory(lockFactoryClass);
         this.analyzer = analyzer(analyzerClass, environment);
         this.codec = codec(codecName);
         this.basePath = baseDir;
         this.lastSuccessfulCommitTime = new AtomicLong(-1);
+        this.refreshInterval = refreshInterval;
+        this.commitInterval = commitInterval;
+        this.commitThreshold = commitThreshold;
     }
     
     protected IndexWriter newWriter( String workspaceName, String indexName ) {
@@ -116,8 +154,58 @@ public final class LuceneConfig {
         return lastSuccessfulCommitTime.get();
     }
     
-    protected int refreshTimeSeconds() {
-        return 30;
+    /**
+     * Returns the number of milliseconds between the periodic refreshes of the searchers.
+     * 
+     * @return the refresh interval in milliseconds; always positive
+     */
+    protected long refreshIntervalMillis() {
+        return refreshInterval > 0 ? refreshInterval : DEFAULT_REFRESH_INTERVAL;
+    }
+
+    /**
+     * Returns whether the searchers should be refreshed before each search, so that they always see all of the changes written to
+     * the indexes, rather than only periodically.
+     * 
+     * @return true if the searchers are refreshed before each search, or false if they are only refreshed periodically
+     */
+    protected boolean refreshBeforeSearch() {
+        return refreshInterval <= 0;
+    }
+
+    /**
+     * Returns whether the changes written to the indexes should be durably committed each time the indexes are committed.
+     * 
+     * @return true if every commit is durable, or false if the commits are time- or size-based
+     */
+    protected boolean commitAlways() {
+        return commitInterval <= 0 && commitThreshold <= 0;
+    }
+
+    /**
+     * Returns whether changes which are visible but not yet durable should now be committed.
+     * 
+     * @param uncommittedChangeSets the number of change sets written since the last durable commit
+     * @param lastCommitTime the time in milliseconds of the last durable commit
+     * @return true if the changes should be durably committed, or false otherwise
+     */
+    protected boolean shouldCommit( int uncommittedChangeSets, long lastCommitTime ) {
+        if (commitAlways()) {
+            return true;
+        }
+        if (commitThreshold > 0 && uncommittedChangeSets >= commitThreshold) {
+            return true;
+        }
+        return commitInterval > 0 && System.currentTimeMillis() - lastCommitTime >= commitInterval;
+    }
+
+    /**
+     * Returns the number of milliseconds between the periodic durable commits.
+     * 
+     * @return the commit interval in milliseconds, or 0 if commits are not time-based
+     */
+    protected long commitIntervalMillis() {
+        return Math.max(0, commitInterval);
     }
 
     /**
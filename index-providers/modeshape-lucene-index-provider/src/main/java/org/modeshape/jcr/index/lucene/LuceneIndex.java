@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.jcr.Binary;
 import javax.jcr.RepositoryException;
 import javax.jcr.query.qom.Constraint;
@@ -63,6 +65,9 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
     protected final LuceneConfig config;
     protected final StringFactory stringFactory;
     protected final Searcher searcher;
+    private final AtomicInteger uncommittedChangeSets;
+    private final ScheduledFuture<?> periodicCommit;
+    private volatile long lastCommitTime;
    
     protected LuceneIndex( String name,
                            String workspaceName, 
@@ -77,6 +82,11 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
         this.config = config;
         this.writer = config.newWriter(workspaceName, name);
         this.searcher = new Searcher(config, writer, name);
+        this.uncommittedChangeSets = new AtomicInteger();
+        this.lastCommitTime = System.currentTimeMillis();
+        long commitInterval = config.commitIntervalMillis();
+        // make sure changes which are visible but not yet durable are committed even if no more changes come in
+        this.periodicCommit = commitInterval > 0 ? searcher.schedule(this::commitIfDue, commitInterval) : null;
     }
 
     @Override
@@ -141,7 +151,33 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
         }
     }
 
+    /**
+     * Commits the changes written to this index since the last call. Depending on the configured commit policy, the changes are
+     * either durably committed right away or only after enough time has passed or enough changes have accumulated. Until then,
+     * the changes are only visible to the searchers (which are refreshed from the writer) and, should the process crash, will be
+     * recovered by reindexing the changes from the journal that were made after the {@link LuceneConfig#lastSuccessfulCommitTime()
+     * last successful commit}.
+     */
     public void commit() {
+        if (!writer.hasUncommittedChanges()) {
+            return;
+        }
+        if (config.shouldCommit(uncommittedChangeSets.incrementAndGet(), lastCommitTime)) {
+            durableCommit();
+        }
+    }
+
+    protected void commitIfDue() {
+        try {
+            if (writer.hasUncommittedChanges() && config.shouldCommit(uncommittedChangeSets.get(), lastCommitTime)) {
+                durableCommit();
+            }
+        } catch (RuntimeException e) {
+            logger.debug(e, "Cannot commit the changes of the '{0}' lucene index", name);
+        }
+    }
+
+    protected synchronized void durableCommit() {
         if (!writer.hasUncommittedChanges()) {
             return;
         }
@@ -151,6 +187,8 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
             preCommit(newData);
             writer.setCommitData(newData);
             writer.commit();
+            uncommittedChangeSets.set(0);
+            lastCommitTime = System.currentTimeMillis();
             postCommit();
         } catch (IOException e) {
             throw new LuceneIndexException("Cannot commit index writer", e);
@@ -166,8 +204,14 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
     }
 
     public void shutdown( boolean destroyed ) {
+        if (periodicCommit != null) {
+            periodicCommit.cancel(false);
+        }
         if (destroyed) {
             clearAllData();
+        } else {
+            // make sure all the changes which are only visible are also durable
+            durableCommit();
         }
         try {
             searcher.close();
@@ -181,6 +225,7 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
         try {
             writer.deleteAll();
             writer.commit();
+            uncommittedChangeSets.set(0);
         } catch (IOException e) {
             throw new LuceneIndexException("Cannot remove all documents from the index");
         }
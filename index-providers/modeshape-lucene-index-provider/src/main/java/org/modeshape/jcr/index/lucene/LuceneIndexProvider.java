@@ -76,13 +76,30 @@ public class LuceneIndexProvider extends IndexProvider {
     private String directoryClass;
     private String analyzerClass;
     private String codec;
+
+    /**
+     * The maximum number of milliseconds that the searchers may lag behind the changes written to the indexes. If not set,
+     * the searchers are refreshed before each search so that queries always see all of the changes.
+     */
+    private Long refreshInterval;
+
+    /**
+     * The maximum number of milliseconds and the number of change sets after which changes written to the indexes are durably
+     * committed. Changes are visible to queries before they are durably committed, and changes which are lost in a crash are
+     * reindexed from the journal (if enabled). If neither is set, the changes are durably committed after each change set.
+     */
+    private Long commitInterval;
+    private Integer commitThreshold;
     
     private LuceneConfig luceneConfig;
     
     @Override
     protected void doInitialize() throws RepositoryException {
         String baseDir = baseDir(); 
-        this.luceneConfig = new LuceneConfig(baseDir, lockFactoryClass, directoryClass, analyzerClass, codec, environment());
+        this.luceneConfig = new LuceneConfig(baseDir, lockFactoryClass, directoryClass, analyzerClass, codec, environment(),
+                                             refreshInterval != null ? refreshInterval : 0L,
+                                             commitInterval != null ? commitInterval : 0L,
+                                             commitThreshold != null ? commitThreshold : 0);
     }
 
     private String baseDir() throws RepositoryException {
@@ -78,16 +78,29 @@ public class Searcher {
     private final ScheduledExecutorService searchManagerRefreshService;
     private final ScheduledFuture<?> searchManagerRefreshResult;
     private final QueryCache queryCache;
+    private final boolean refreshBeforeSearch;
 
     protected Searcher( LuceneConfig config, IndexWriter writer, String name ) {
         this.searchManager = config.searchManager(writer);
         this.queryCache = new LRUQueryCache(MAX_QUERIES_TO_CACHE, MAX_RAM_BYTES_TO_USE);
+        this.refreshBeforeSearch = config.refreshBeforeSearch();
         this.searchManagerRefreshService = Executors.newScheduledThreadPool(1, new NamedThreadFactory(
                 name + "-lucene-search-manager-refresher"));
         this.searchManagerRefreshResult = this.searchManagerRefreshService.scheduleWithFixedDelay(this::refreshSearchManager,
                                                                                                   0,
-                                                                                                  config.refreshTimeSeconds(),
-                                                                                                  TimeUnit.SECONDS);
+                                                                                                  config.refreshIntervalMillis(),
+                                                                                                  TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a task periodically in the same background thread which refreshes the searchers.
+     * 
+     * @param task the task to run; may not be null
+     * @param periodMillis the number of milliseconds between successive runs of the task; must be positive
+     * @return the future which can be used to cancel the task; never null
+     */
+    protected ScheduledFuture<?> schedule( Runnable task, long periodMillis ) {
+        return searchManagerRefreshService.scheduleWithFixedDelay(task, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
     }
     
     protected void close() {
@@ -111,11 +124,11 @@ public class Searcher {
         return search(searcher -> {
             Query query = createQueryFromConstraints(andedConstraints, queryFactory);
             return (long) searcher.count(query);
-        }, true);
+        }, refreshBeforeSearch);
     }
     
     protected Document loadDocumentById(final String id) throws IOException {
-        // this is a potentially costly operation
+        // this is a potentially costly operation and it must always see the latest changes, regardless of the refresh interval
         return search(searcher -> {
             DocumentByIdCollector collector = new DocumentByIdCollector();
             searcher.search(FieldUtil.idQuery(id), collector);
@@ -264,7 +277,7 @@ public class Searcher {
 
                 private void runQuery() {
                     if (keysIterator == null && scoresIterator == null) {
-                        Map<NodeKey, Float> results = search(searcher -> getSearchResults(searcher), true);
+                        Map<NodeKey, Float> results = search(searcher -> getSearchResults(searcher), refreshBeforeSearch);
                         keysIterator = results.keySet().iterator();
                         scoresIterator = results.values().iterator();
                     }
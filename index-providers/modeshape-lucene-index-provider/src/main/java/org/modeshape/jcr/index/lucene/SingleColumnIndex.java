@@ -17,31 +17,56 @@ package org.modeshape.jcr.index.lucene;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.LegacyNumericUtils;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.index.lucene.query.LuceneQueryFactory;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+import org.modeshape.jcr.spi.index.provider.Statistical;
 import org.modeshape.jcr.value.PropertyType;
 
 /**
  * Lucene index which only supports a single column. This should perform better in most cases than {@link MultiColumnIndex}
  * because there is no real document updating. Each document is removed and then added with new fields.
+ * <p>
+ * The {@link IndexStatistics statistics} of the index are collected periodically in the background, from the term dictionary
+ * of its column. Only the number of entries and the number of distinct values are collected.
+ * </p>
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  * @since 4.5
  */
 @Immutable
 @ThreadSafe
-class SingleColumnIndex extends LuceneIndex {
-    
+@SuppressWarnings("deprecation")
+class SingleColumnIndex extends LuceneIndex implements Statistical {
+
+    /**
+     * The number of milliseconds between two collections of the statistics. The statistics are only collected again when the
+     * index has changed.
+     */
+    protected static final long STATISTICS_INTERVAL_MILLIS = 60 * 1000L;
+
+    private final ScheduledFuture<?> statisticsCollection;
+    private volatile IndexStatistics statistics;
+    private volatile long statisticsVersion = -1L;
+
     protected SingleColumnIndex( String name, 
                                  String workspaceName, 
                                  LuceneConfig config,
                                  Map<String, PropertyType> propertyTypesByName,
                                  ExecutionContext context ) {
         super(name, workspaceName, config, propertyTypesByName, context);
+        this.statisticsCollection = searcher.schedule(this::collectStatistics, STATISTICS_INTERVAL_MILLIS);
     }
 
     @Override
@@ -74,6 +99,80 @@ class SingleColumnIndex extends LuceneIndex {
         }
     }
 
+    @Override
+    public IndexStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Collects the statistics of this index if it has changed since they were last collected. This is normally called
+     * periodically, in the background.
+     */
+    protected void collectStatistics() {
+        if (propertyTypesByName.size() != 1) {
+            // the values of the different properties can't be told apart ...
+            return;
+        }
+        Map.Entry<String, PropertyType> column = propertyTypesByName.entrySet().iterator().next();
+        try {
+            searcher.search(indexSearcher -> {
+                IndexReader reader = indexSearcher.getIndexReader();
+                long version = reader instanceof DirectoryReader ? ((DirectoryReader)reader).getVersion() : -1L;
+                if (version < 0 || version != statisticsVersion) {
+                    statistics = collectStatistics(reader, column.getKey(), column.getValue());
+                    statisticsVersion = version;
+                }
+                return null;
+            }, true);
+        } catch (RuntimeException e) {
+            logger.debug(e, "Cannot collect the statistics of the '{0}' lucene index", name);
+        }
+    }
+
+    private static IndexStatistics collectStatistics( IndexReader reader,
+                                                      String field,
+                                                      PropertyType type ) throws IOException {
+        Terms terms = MultiFields.getTerms(reader, field);
+        if (terms == null) {
+            // there are no values, or only their lengths are indexed ...
+            return null;
+        }
+        TermsEnum values = terms.iterator();
+        switch (type) {
+            case BOOLEAN:
+                // numeric values are indexed with additional lower precision terms, which must be skipped ...
+                values = LegacyNumericUtils.filterPrefixCodedInts(values);
+                break;
+            case DATE:
+            case DOUBLE:
+            case LONG:
+                values = LegacyNumericUtils.filterPrefixCodedLongs(values);
+                break;
+            default:
+                break;
+        }
+        long distinctCount = 0L;
+        while (values.next() != null) {
+            ++distinctCount;
+        }
+        // the terms of deleted documents are only removed when the segments are merged ...
+        long totalCount = reader.numDocs();
+        return new IndexStatistics(totalCount, Math.min(distinctCount, totalCount), 0L, null, 0, 0L,
+                                   System.currentTimeMillis());
+    }
+
+    @Override
+    public void clearAllData() {
+        super.clearAllData();
+        statistics = null;
+    }
+
+    @Override
+    public void shutdown( boolean destroyed ) {
+        statisticsCollection.cancel(false);
+        super.shutdown(destroyed);
+    }
+
     @Override
     protected LuceneQueryFactory queryFactory( Map<String, Object> variables ) {
         return LuceneQueryFactory.forSingleColumnIndex(context.getValueFactories(), variables, propertyTypesByName);
@@ -0,0 +1,159 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.jcr.value.PropertyType;
+
+/**
+ * Tests the way the changes written to Lucene indexes become visible and durable, depending on the configured refresh and
+ * commit policies.
+ */
+public class LuceneCommitPolicyTest extends AbstractIndexPersistenceTest {
+
+    private static final String DIR = "target/lucene-commit-policy-test";
+
+    @Override
+    protected LuceneIndex createIndex( String name ) {
+        return new SingleColumnIndex(name + "-single-valued", "default", config, PropertiesTestUtil.ALLOWED_PROPERTIES, context);
+    }
+
+    private void restartWith( long refreshInterval, long commitInterval, int commitThreshold ) {
+        index.shutdown(false);
+        FileUtil.delete(DIR);
+        config = LuceneConfig.onDisk(DIR, refreshInterval, commitInterval, commitThreshold);
+        index = defaultIndex();
+    }
+
+    private String addNode() {
+        String nodeKey = UUID.randomUUID().toString();
+        addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.STRING);
+        return nodeKey;
+    }
+
+    @Test
+    public void shouldCommitDurablyEachTimeByDefault() throws Exception {
+        addNode();
+        index.commit();
+        assertFalse(index.requiresReindexing());
+    }
+
+    @Test
+    public void shouldMakeChangesVisibleBeforeTheyAreDurable() throws Exception {
+        restartWith(0, 0, 3);
+        String nodeKey = addNode();
+        index.commit();
+        // nothing has been committed to the directory yet, but the change can already be seen...
+        assertTrue(index.requiresReindexing());
+        assertEquals(1, index.estimateTotalCount());
+        assertNotNull(index.searcher.loadDocumentById(nodeKey));
+
+        addNode();
+        index.commit();
+        assertTrue(index.requiresReindexing());
+        addNode();
+        index.commit();
+        // the threshold has been reached
+        assertFalse(index.requiresReindexing());
+        assertEquals(3, index.estimateTotalCount());
+    }
+
+    @Test
+    public void shouldCommitPendingChangesPeriodically() throws Exception {
+        restartWith(0, 100, 0);
+        addNode();
+        index.commit();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (index.requiresReindexing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(index.requiresReindexing());
+    }
+
+    @Test
+    public void shouldCommitPendingChangesOnShutdown() throws Exception {
+        restartWith(0, 0, 1000);
+        addNode();
+        index.commit();
+        assertTrue(index.requiresReindexing());
+
+        index.shutdown(false);
+        index = defaultIndex();
+        assertFalse(index.requiresReindexing());
+        assertEquals(1, index.estimateTotalCount());
+    }
+
+    @Test
+    @Ignore("perf test")
+    public void shouldMeasureCommitLatencyForEachPolicy() throws Exception {
+        int threads = 8;
+        int commitsPerThread = 500;
+        measureCommitLatency("commit always", 0, 0, 0, threads, commitsPerThread);
+        measureCommitLatency("commit every 100 change sets", 0, 0, 100, threads, commitsPerThread);
+        measureCommitLatency("commit every second", 0, 1000, 0, threads, commitsPerThread);
+        measureCommitLatency("commit every second, refresh every second", 1000, 1000, 0, threads, commitsPerThread);
+    }
+
+    private void measureCommitLatency( String policy, long refreshInterval, long commitInterval, int commitThreshold,
+                                       int threads, final int commitsPerThread ) throws Exception {
+        restartWith(refreshInterval, commitInterval, commitThreshold);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long total = 0;
+                        for (int j = 0; j < commitsPerThread; j++) {
+                            addNode();
+                            long commitStart = System.nanoTime();
+                            index.commit();
+                            total += System.nanoTime() - commitStart;
+                        }
+                        return total;
+                    }
+                }));
+            }
+            long totalLatency = 0;
+            for (Future<Long> result : results) {
+                totalLatency += result.get();
+            }
+            long elapsed = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long commits = (long)threads * commitsPerThread;
+            System.out.println(policy + ": " + commits + " commits from " + threads + " threads in " + elapsed
+                               + " ms, average commit latency " + (totalLatency / commits / 1000) + " micros");
+            assertEquals(commits, index.estimateTotalCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
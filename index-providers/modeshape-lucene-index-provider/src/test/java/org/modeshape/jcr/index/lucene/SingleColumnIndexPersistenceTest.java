@@ -17,9 +17,11 @@ package org.modeshape.jcr.index.lucene;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -30,6 +32,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.modeshape.jcr.spi.index.IndexStatistics;
 import org.modeshape.jcr.value.PropertyType;
 
 /**
@@ -161,6 +164,60 @@ public class SingleColumnIndexPersistenceTest extends AbstractIndexPersistenceTe
         assertEquals(2, index.estimateTotalCount());
     }
 
+    @Test
+    public void shouldCollectStatisticsOfStringValues() throws Exception {
+        SingleColumnIndex index = statisticalIndex(PropertiesTestUtil.STRING_PROP, PropertyType.STRING);
+        try {
+            assertNull(index.getStatistics());
+            for (String value : Arrays.asList("a", "b", "a", "c", "a")) {
+                index.add(UUID.randomUUID().toString(), PropertiesTestUtil.STRING_PROP, value);
+            }
+            index.commit();
+            index.collectStatistics();
+            IndexStatistics statistics = index.getStatistics();
+            assertEquals(5, statistics.getTotalCount());
+            assertEquals(3, statistics.getDistinctCount());
+
+            index.clearAllData();
+            assertNull(index.getStatistics());
+        } finally {
+            index.shutdown(true);
+        }
+    }
+
+    @Test
+    public void shouldCollectStatisticsOfNumericValues() throws Exception {
+        SingleColumnIndex index = statisticalIndex(PropertiesTestUtil.LONG_PROP, PropertyType.LONG);
+        try {
+            for (int i = 0; i < 10; i++) {
+                index.add(UUID.randomUUID().toString(), PropertiesTestUtil.LONG_PROP, i % 2 == 0 ? 1L : 1000000L);
+            }
+            index.commit();
+            index.collectStatistics();
+            // the lower precision terms of the values are not counted ...
+            IndexStatistics statistics = index.getStatistics();
+            assertEquals(10, statistics.getTotalCount());
+            assertEquals(2, statistics.getDistinctCount());
+        } finally {
+            index.shutdown(true);
+        }
+    }
+
+    @Test
+    public void shouldNotCollectStatisticsOfSeveralProperties() throws Exception {
+        IndexedProperty property = newProperty(PropertyType.STRING);
+        index.add(UUID.randomUUID().toString(), property.getName(), property.getValue());
+        index.commit();
+        ((SingleColumnIndex)index).collectStatistics();
+        assertNull(((SingleColumnIndex)index).getStatistics());
+    }
+
+    private SingleColumnIndex statisticalIndex( String propertyName,
+                                                PropertyType type ) {
+        return new SingleColumnIndex(type.name().toLowerCase() + "-statistics", "default", config,
+                                     Collections.singletonMap(propertyName, type), context);
+    }
+
     @Test
     @Ignore("perf test")
     public void singleThreadIndexCrudPerformance() throws Exception {
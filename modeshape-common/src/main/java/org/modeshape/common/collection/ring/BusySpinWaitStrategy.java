@@ -0,0 +1,47 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+/**
+ * A {@link WaitStrategy} that continuously polls the {@link Pointer} until an entry is available for consumption, without ever
+ * releasing the CPU. This gives the lowest latency between the producer publishing an entry and the consumers seeing it and
+ * requires no signalling from the producer, but each waiting consumer fully occupies a CPU core. It should therefore only be used
+ * when there are fewer consumer threads than available cores.
+ *
+ * @since 5.5
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public long waitFor( long position,
+                         Pointer pointer,
+                         Pointer dependentPointer,
+                         PointerBarrier barrier ) throws InterruptedException {
+        long availablePosition = pointer.get();
+        while (availablePosition < position && !barrier.isComplete()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            availablePosition = pointer.get();
+        }
+        return availablePosition;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nothing is ever blocked ...
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.modeshape.common.util.CheckArg;
+
+/**
+ * A {@link WaitStrategy} that waits for an entry to become available in three phases: it first busy-spins on the {@link Pointer}
+ * for a short amount of time, then {@link Thread#yield() yields} between polls for another amount of time and, if there is still
+ * nothing to consume, falls back to another (typically blocking) strategy. This gives consumers the latency of a spinning
+ * strategy while entries are published in bursts, without burning CPU while the buffer is idle.
+ * <p>
+ * The producer only {@link #signalAllWhenBlocking() signals} the fallback strategy while there are consumers waiting on it, so
+ * a busy producer does not pay the cost of a lock and condition signal for every entry it publishes.
+ * </p>
+ *
+ * @since 5.5
+ */
+public class PhasedBackoffWaitStrategy implements WaitStrategy {
+
+    /**
+     * The default number of microseconds a waiting thread busy-spins before it starts yielding.
+     */
+    public static final long DEFAULT_SPIN_TIMEOUT_MICROS = 10;
+
+    /**
+     * The default number of microseconds a waiting thread yields, after spinning, before it falls back to blocking.
+     */
+    public static final long DEFAULT_YIELD_TIMEOUT_MICROS = 1000;
+
+    private static final int SPIN_TRIES = 1000;
+
+    private final long spinTimeoutNanos;
+    private final long yieldTimeoutNanos;
+    private final WaitStrategy fallbackStrategy;
+    private final AtomicInteger fallbackWaiters = new AtomicInteger();
+
+    /**
+     * Create a new strategy which uses the {@link #DEFAULT_SPIN_TIMEOUT_MICROS default spin} and
+     * {@link #DEFAULT_YIELD_TIMEOUT_MICROS yield} timeouts and falls back to a {@link BlockingWaitStrategy}.
+     */
+    public PhasedBackoffWaitStrategy() {
+        this(DEFAULT_SPIN_TIMEOUT_MICROS, DEFAULT_YIELD_TIMEOUT_MICROS, TimeUnit.MICROSECONDS, new BlockingWaitStrategy());
+    }
+
+    /**
+     * Create a new strategy.
+     *
+     * @param spinTimeout the amount of time a waiting thread busy-spins before it starts yielding; may not be negative
+     * @param yieldTimeout the amount of time a waiting thread yields, after spinning, before it uses the fallback strategy; may
+     *        not be negative
+     * @param unit the unit of the timeouts; may not be null
+     * @param fallbackStrategy the strategy used once the spin and yield phases have elapsed; may not be null
+     */
+    public PhasedBackoffWaitStrategy( long spinTimeout,
+                                      long yieldTimeout,
+                                      TimeUnit unit,
+                                      WaitStrategy fallbackStrategy ) {
+        CheckArg.isNonNegative(spinTimeout, "spinTimeout");
+        CheckArg.isNonNegative(yieldTimeout, "yieldTimeout");
+        CheckArg.isNotNull(unit, "unit");
+        CheckArg.isNotNull(fallbackStrategy, "fallbackStrategy");
+        this.spinTimeoutNanos = unit.toNanos(spinTimeout);
+        this.yieldTimeoutNanos = this.spinTimeoutNanos + unit.toNanos(yieldTimeout);
+        this.fallbackStrategy = fallbackStrategy;
+    }
+
+    @Override
+    public long waitFor( long position,
+                         Pointer pointer,
+                         Pointer dependentPointer,
+                         PointerBarrier barrier ) throws InterruptedException, TimeoutException {
+        long startTime = 0L;
+        int counter = SPIN_TRIES;
+        long availablePosition = pointer.get();
+        while (availablePosition < position && !barrier.isComplete()) {
+            if (--counter == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                if (startTime == 0L) {
+                    startTime = System.nanoTime();
+                } else {
+                    long elapsed = System.nanoTime() - startTime;
+                    if (elapsed > yieldTimeoutNanos) {
+                        return waitUsingFallback(position, pointer, dependentPointer, barrier);
+                    } else if (elapsed > spinTimeoutNanos) {
+                        Thread.yield();
+                    }
+                }
+                counter = SPIN_TRIES;
+            }
+            availablePosition = pointer.get();
+        }
+        return availablePosition;
+    }
+
+    private long waitUsingFallback( long position,
+                                    Pointer pointer,
+                                    Pointer dependentPointer,
+                                    PointerBarrier barrier ) throws InterruptedException, TimeoutException {
+        // Register as a waiter *before* the fallback strategy checks the pointer, so that a producer which advances the pointer
+        // after that check is guaranteed to see the waiter and signal it ...
+        fallbackWaiters.incrementAndGet();
+        try {
+            return fallbackStrategy.waitFor(position, pointer, dependentPointer, barrier);
+        } finally {
+            fallbackWaiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (fallbackWaiters.get() > 0) {
+            fallbackStrategy.signalAllWhenBlocking();
+        }
+    }
+}
@@ -126,7 +126,7 @@ public class SingleProducerCursor implements Cursor {
     @Override
     public PointerBarrier newBarrier() {
         return new PointerBarrier() {
-            private boolean closed = false;
+            private volatile boolean closed = false;
 
             @Override
             public long waitFor( long position ) throws InterruptedException, TimeoutException {
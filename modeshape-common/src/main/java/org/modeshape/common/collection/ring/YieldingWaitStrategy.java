@@ -0,0 +1,79 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+import org.modeshape.common.util.CheckArg;
+
+/**
+ * A {@link WaitStrategy} that polls the {@link Pointer} a number of times and then calls {@link Thread#yield()} between
+ * subsequent polls, until an entry is available for consumption. This keeps the latency low and requires no signalling from the
+ * producer, while allowing other threads to run when a consumer has nothing to do. A waiting consumer still shows up as a busy
+ * thread, so this strategy works best when there are fewer consumer threads than available cores.
+ *
+ * @since 5.5
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    /**
+     * The default number of times the pointer is polled before the waiting thread starts yielding.
+     */
+    public static final int DEFAULT_SPIN_TRIES = 100;
+
+    private final int spinTries;
+
+    /**
+     * Create a new strategy which polls the pointer {@link #DEFAULT_SPIN_TRIES} times before yielding.
+     */
+    public YieldingWaitStrategy() {
+        this(DEFAULT_SPIN_TRIES);
+    }
+
+    /**
+     * Create a new strategy.
+     *
+     * @param spinTries the number of times the pointer is polled before the waiting thread starts yielding; may not be negative
+     */
+    public YieldingWaitStrategy( int spinTries ) {
+        CheckArg.isNonNegative(spinTries, "spinTries");
+        this.spinTries = spinTries;
+    }
+
+    @Override
+    public long waitFor( long position,
+                         Pointer pointer,
+                         Pointer dependentPointer,
+                         PointerBarrier barrier ) throws InterruptedException {
+        int counter = spinTries;
+        long availablePosition = pointer.get();
+        while (availablePosition < position && !barrier.isComplete()) {
+            if (counter > 0) {
+                --counter;
+            } else {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                Thread.yield();
+            }
+            availablePosition = pointer.get();
+        }
+        return availablePosition;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nothing is ever blocked ...
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.util;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import org.modeshape.common.annotation.Immutable;
+
+/**
+ * A single range of bytes of some content, as requested by the "Range" header of an HTTP request. Only one range is supported:
+ * requests for several ranges, invalid "Range" headers, and "If-Range" headers which show that the client has a different
+ * representation of the content are all answered with the whole content.
+ *
+ * @see IoUtil#copy(java.io.InputStream, java.io.OutputStream, long, long)
+ * @since 5.5
+ */
+@Immutable
+public final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * Determine the range of the content which is requested by the "Range" and "If-Range" headers of a request.
+     *
+     * @param rangeHeader the value of the "Range" header; may be null
+     * @param ifRangeHeader the value of the "If-Range" header; may be null
+     * @param entityTag the current entity tag of the content, including its quotes and its "W/" prefix if it is weak; may be
+     *        null if the content has no entity tag
+     * @param lastModified the date when the content was last modified; may be null if it is not known
+     * @param contentLength the length of the whole content
+     * @return the requested range, which may not be {@link #isSatisfiable() satisfiable}; or null if the whole content should
+     *         be sent
+     */
+    public static ByteRange requested( String rangeHeader,
+                                       String ifRangeHeader,
+                                       String entityTag,
+                                       Date lastModified,
+                                       long contentLength ) {
+        if (rangeHeader == null || contentLength <= 0) {
+            return null;
+        }
+        String spec = rangeHeader.trim();
+        if (!spec.startsWith(BYTES_UNIT + "=")) {
+            return null;
+        }
+        if (ifRangeHeader != null && !validatorMatches(ifRangeHeader.trim(), entityTag, lastModified)) {
+            return null;
+        }
+        spec = spec.substring(BYTES_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // the suffix of the content ...
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0) {
+                    return new ByteRange(-1L, -1L, contentLength);
+                }
+                return new ByteRange(Math.max(0L, contentLength - suffixLength), contentLength - 1, contentLength);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= contentLength) {
+                return new ByteRange(-1L, -1L, contentLength);
+            }
+            return new ByteRange(start, Math.min(end, contentLength - 1), contentLength);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean validatorMatches( String ifRange,
+                                             String entityTag,
+                                             Date lastModified ) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith(WEAK_PREFIX)) {
+            // only strong entity tags can be used to combine ranges ...
+            return !ifRange.startsWith(WEAK_PREFIX) && entityTag != null && !entityTag.startsWith(WEAK_PREFIX)
+                   && ifRange.equals(entityTag);
+        }
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            // HTTP dates have a precision of one second ...
+            return lastModified.getTime() / 1000 == date / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private final long first;
+    private final long last;
+    private final long contentLength;
+
+    private ByteRange( long first,
+                       long last,
+                       long contentLength ) {
+        this.first = first;
+        this.last = last;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Determine whether this range can be sent. A "416 Requested Range Not Satisfiable" response should be sent otherwise.
+     *
+     * @return true if the range lies (at least partly) within the content, or false otherwise
+     */
+    public boolean isSatisfiable() {
+        return first >= 0;
+    }
+
+    /**
+     * Get the position of the first byte of this range.
+     *
+     * @return the position of the first byte, or -1 if this range is not {@link #isSatisfiable() satisfiable}
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * Get the position of the last byte of this range, which is always within the content.
+     *
+     * @return the position of the last byte, or -1 if this range is not {@link #isSatisfiable() satisfiable}
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * Get the number of bytes in this range.
+     *
+     * @return the number of bytes, or 0 if this range is not {@link #isSatisfiable() satisfiable}
+     */
+    public long getLength() {
+        return isSatisfiable() ? last - first + 1 : 0L;
+    }
+
+    /**
+     * Get the value of the "Content-Range" header of the response which contains this range or, if this range is not
+     * {@link #isSatisfiable() satisfiable}, which reports the length of the content.
+     *
+     * @return the header value; never null
+     */
+    public String getContentRange() {
+        return BYTES_UNIT + " " + (isSatisfiable() ? first + "-" + last : "*") + "/" + contentLength;
+    }
+
+    @Override
+    public String toString() {
+        return getContentRange();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Implemented by {@link java.io.InputStream input streams} whose content can be transferred directly to a
+ * {@link WritableByteChannel}, typically using {@link FileChannel#transferTo(long, long, WritableByteChannel)}. This avoids
+ * reading the bytes which precede the transferred range and, depending on the target channel, copying the content through user
+ * space.
+ *
+ * @see IoUtil#copy(java.io.InputStream, java.io.OutputStream, long, long)
+ * @since 5.5
+ */
+public interface ChannelTransferable {
+
+    /**
+     * Transfer a range of the content of this stream to the supplied channel, and close this stream.
+     *
+     * @param position the position in the content of the first byte to transfer; may not be negative
+     * @param count the maximum number of bytes to transfer; may not be negative
+     * @param target the channel to which the content is transferred; may not be null
+     * @return the number of bytes which were transferred, which is less than {@code count} only if the content ends before
+     * @throws IOException if the content cannot be read or written
+     */
+    long transferTo( long position,
+                     long count,
+                     WritableByteChannel target ) throws IOException;
+}
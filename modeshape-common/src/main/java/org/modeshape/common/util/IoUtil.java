@@ -31,6 +31,8 @@ import java.io.Reader;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.logging.Logger;
@@ -255,6 +257,63 @@ public class IoUtil {
         }
     }
 
+    /**
+     * Write a range of the contents of the supplied stream to the given stream. If the input is (or wraps) a
+     * {@link ChannelTransferable}, the content is transferred through channels, so that the bytes before the range are not read.
+     * This method always closes the input stream, but unlike {@link #write(InputStream, OutputStream)} it neither flushes nor
+     * closes the output stream.
+     * 
+     * @param input the content to write to the stream; may not be null
+     * @param stream the stream to which the content is to be written; may not be null
+     * @param offset the offset of the first byte of the content which is written; may not be negative
+     * @param length the maximum number of bytes which are written, or a negative number to write all of the content after the
+     *        offset
+     * @return the number of bytes which were written
+     * @throws IOException
+     * @throws IllegalArgumentException if either stream is null or the offset is negative
+     */
+    public static long copy( InputStream input,
+                             OutputStream stream,
+                             long offset,
+                             long length ) throws IOException {
+        CheckArg.isNotNull(input, "input");
+        CheckArg.isNotNull(stream, "destination stream");
+        CheckArg.isNonNegative(offset, "offset");
+        long count = length < 0 ? Long.MAX_VALUE : length;
+        try {
+            InputStream source = input;
+            if (source instanceof SelfClosingInputStream) {
+                source = ((SelfClosingInputStream)source).wrappedStream();
+            }
+            if (source instanceof ChannelTransferable) {
+                WritableByteChannel target = stream instanceof WritableByteChannel ? (WritableByteChannel)stream : Channels
+                        .newChannel(stream);
+                return ((ChannelTransferable)source).transferTo(offset, count, target);
+            }
+            long skipped = 0;
+            while (skipped < offset) {
+                long numSkipped = input.skip(offset - skipped);
+                if (numSkipped <= 0) {
+                    // some streams don't skip at all, so find out whether the content has ended ...
+                    if (input.read() == -1) return 0;
+                    numSkipped = 1;
+                }
+                skipped += numSkipped;
+            }
+            byte[] buffer = new byte[8192];
+            long written = 0;
+            while (written < count) {
+                int numRead = input.read(buffer, 0, (int)Math.min(buffer.length, count - written));
+                if (numRead == -1) break;
+                stream.write(buffer, 0, numRead);
+                written += numRead;
+            }
+            return written;
+        } finally {
+            input.close();
+        }
+    }
+
     /**
      * Write the entire contents of the supplied string to the given writer. This method always flushes and closes the writer when
      * finished.
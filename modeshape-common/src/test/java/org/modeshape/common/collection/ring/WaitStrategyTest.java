@@ -0,0 +1,314 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Unit test for the various {@link WaitStrategy} implementations, which also contains a (manually run) benchmark comparing the
+ * throughput and latency of a {@link RingBuffer} using each of them.
+ */
+public class WaitStrategyTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void beforeEach() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void afterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void consumersShouldSeeAllEntriesInOrderWhenBlocking() throws Exception {
+        assertConsumersSeeAllEntriesInOrder(BlockingWaitStrategy::new);
+    }
+
+    @Test
+    public void consumersShouldSeeAllEntriesInOrderWhenBusySpinning() throws Exception {
+        assertConsumersSeeAllEntriesInOrder(BusySpinWaitStrategy::new);
+    }
+
+    @Test
+    public void consumersShouldSeeAllEntriesInOrderWhenYielding() throws Exception {
+        assertConsumersSeeAllEntriesInOrder(YieldingWaitStrategy::new);
+    }
+
+    @Test
+    public void consumersShouldSeeAllEntriesInOrderWhenBackingOff() throws Exception {
+        assertConsumersSeeAllEntriesInOrder(PhasedBackoffWaitStrategy::new);
+    }
+
+    @Test
+    public void busySpinningShouldStopWaitingWhenBarrierIsComplete() throws Exception {
+        assertStopsWaitingWhenBarrierIsComplete(new BusySpinWaitStrategy());
+    }
+
+    @Test
+    public void yieldingShouldStopWaitingWhenBarrierIsComplete() throws Exception {
+        assertStopsWaitingWhenBarrierIsComplete(new YieldingWaitStrategy());
+    }
+
+    @Test
+    public void backingOffShouldStopWaitingWhenBarrierIsComplete() throws Exception {
+        assertStopsWaitingWhenBarrierIsComplete(new PhasedBackoffWaitStrategy());
+    }
+
+    @Test
+    public void backingOffShouldBeSignalledAfterFallingBackToBlocking() throws Exception {
+        final PhasedBackoffWaitStrategy strategy = new PhasedBackoffWaitStrategy(1, 1, TimeUnit.MILLISECONDS,
+                                                                                 new BlockingWaitStrategy());
+        final Pointer pointer = new Pointer();
+        final TestBarrier barrier = new TestBarrier();
+        Future<Long> result = executor.submit(() -> strategy.waitFor(0L, pointer, pointer, barrier));
+        // Give the waiting thread plenty of time to go past the spinning and yielding phases ...
+        Thread.sleep(100L);
+        pointer.set(0L);
+        strategy.signalAllWhenBlocking();
+        assertEquals(0L, result.get(10, TimeUnit.SECONDS).longValue());
+    }
+
+    @Test
+    public void spinningStrategiesShouldStopWaitingWhenInterrupted() throws Exception {
+        for (WaitStrategy strategy : Arrays.asList(new BusySpinWaitStrategy(), new YieldingWaitStrategy(),
+                                                   new PhasedBackoffWaitStrategy())) {
+            final Pointer pointer = new Pointer();
+            final TestBarrier barrier = new TestBarrier();
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            Future<?> waiting = executor.submit(() -> {
+                try {
+                    strategy.waitFor(0L, pointer, pointer, barrier);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            Thread.sleep(50L);
+            waiting.cancel(true);
+            assertTrue(strategy.getClass().getSimpleName() + " was not interrupted", interrupted.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Compares the publish/consume throughput and the publish-to-consume latency of a ring buffer using each of the wait
+     * strategies, for 1 up to {@link #MAX_CONSUMERS} consumers. The results depend heavily on the number of available cores, so
+     * this is not run as part of the build.
+     */
+    @Test
+    @Ignore( "Benchmark that takes a long time to run" )
+    public void shouldCompareThroughputAndLatencyOfWaitStrategies() throws Exception {
+        List<String> names = Arrays.asList("blocking", "yielding", "busy spin", "phased backoff");
+        List<Supplier<WaitStrategy>> strategies = Arrays.asList(BlockingWaitStrategy::new, YieldingWaitStrategy::new,
+                                                                BusySpinWaitStrategy::new, PhasedBackoffWaitStrategy::new);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int consumers = 1; consumers <= MAX_CONSUMERS; ++consumers) {
+            for (int i = 0; i != strategies.size(); ++i) {
+                if (strategies.get(i).get() instanceof BusySpinWaitStrategy && consumers + 2 > cores) {
+                    // the producer, the garbage collecting consumer and each spinning consumer need their own core ...
+                    System.out.println(String.format("%-15s %d consumer(s): skipped, not enough cores", names.get(i), consumers));
+                    continue;
+                }
+                // warm up first ...
+                measureThroughput(strategies.get(i), consumers);
+                double throughput = measureThroughput(strategies.get(i), consumers);
+                long[] latencies = measureLatencies(strategies.get(i), consumers);
+                System.out.println(String.format("%-15s %d consumer(s): %,12.0f entries/s, latency (ns) median %,8d, 99%% %,10d, max %,10d",
+                                                 names.get(i), consumers, throughput, percentile(latencies, 0.5),
+                                                 percentile(latencies, 0.99), latencies[latencies.length - 1]));
+            }
+        }
+    }
+
+    private static final int MAX_CONSUMERS = 4;
+    private static final int THROUGHPUT_ENTRIES = 1000000;
+    private static final int LATENCY_ENTRIES = 20000;
+
+    private double measureThroughput( Supplier<WaitStrategy> strategy,
+                                      int consumers ) throws InterruptedException {
+        RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withSingleProducer(executor, Long.class).ofSize(1024)
+                                                                       .garbageCollect(true).waitUsing(strategy.get()).build();
+        CountDownLatch done = new CountDownLatch(consumers);
+        for (int i = 0; i != consumers; ++i) {
+            ringBuffer.addConsumer(new CountingConsumer(THROUGHPUT_ENTRIES, done));
+        }
+        long start = System.nanoTime();
+        for (long i = 0; i != THROUGHPUT_ENTRIES; ++i) {
+            ringBuffer.add(i);
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - start;
+        ringBuffer.shutdown();
+        return THROUGHPUT_ENTRIES * 1e9d / elapsed;
+    }
+
+    private long[] measureLatencies( Supplier<WaitStrategy> strategy,
+                                     int consumers ) throws InterruptedException {
+        RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withSingleProducer(executor, Long.class).ofSize(1024)
+                                                                       .garbageCollect(true).waitUsing(strategy.get()).build();
+        CountDownLatch done = new CountDownLatch(consumers);
+        List<LatencyConsumer> latencyConsumers = new ArrayList<>();
+        for (int i = 0; i != consumers; ++i) {
+            LatencyConsumer consumer = new LatencyConsumer(LATENCY_ENTRIES, done);
+            latencyConsumers.add(consumer);
+            ringBuffer.addConsumer(consumer);
+        }
+        for (int i = 0; i != LATENCY_ENTRIES; ++i) {
+            ringBuffer.add(System.nanoTime());
+            // pause a bit, so that the consumers are waiting for each entry (as they do with real world change sets) ...
+            long pauseUntil = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(50);
+            while (System.nanoTime() < pauseUntil) {
+                // spin ...
+            }
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        ringBuffer.shutdown();
+        long[] latencies = new long[LATENCY_ENTRIES * consumers];
+        for (int i = 0; i != consumers; ++i) {
+            System.arraycopy(latencyConsumers.get(i).latencies, 0, latencies, i * LATENCY_ENTRIES, LATENCY_ENTRIES);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile( long[] sortedValues,
+                                    double percentile ) {
+        return sortedValues[(int)Math.min(sortedValues.length - 1, Math.round(sortedValues.length * percentile))];
+    }
+
+    private void assertConsumersSeeAllEntriesInOrder( Supplier<WaitStrategy> strategy ) throws Exception {
+        RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withSingleProducer(executor, Long.class).ofSize(64)
+                                                                       .garbageCollect(true).waitUsing(strategy.get()).build();
+        int count = 10000;
+        CountDownLatch done = new CountDownLatch(3);
+        List<CountingConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i != 3; ++i) {
+            CountingConsumer consumer = new CountingConsumer(count, done);
+            consumers.add(consumer);
+            ringBuffer.addConsumer(consumer);
+        }
+        for (long i = 0; i != count; ++i) {
+            ringBuffer.add(i);
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        ringBuffer.shutdown();
+        for (CountingConsumer consumer : consumers) {
+            assertTrue(consumer.inOrder);
+            assertEquals(count, consumer.count);
+            assertTrue(consumer.closed);
+        }
+    }
+
+    private void assertStopsWaitingWhenBarrierIsComplete( final WaitStrategy strategy ) throws Exception {
+        final Pointer pointer = new Pointer();
+        final TestBarrier barrier = new TestBarrier();
+        Future<Long> result = executor.submit(() -> strategy.waitFor(10L, pointer, pointer, barrier));
+        Thread.sleep(50L);
+        barrier.close();
+        strategy.signalAllWhenBlocking();
+        assertEquals(Pointer.INITIAL_VALUE, result.get(10, TimeUnit.SECONDS).longValue());
+    }
+
+    protected static final class TestBarrier implements PointerBarrier {
+        private volatile boolean closed = false;
+
+        @Override
+        public long waitFor( long position ) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    protected static class CountingConsumer extends Consumer<Long> {
+        private final int expected;
+        private final CountDownLatch done;
+        protected volatile int count = 0;
+        protected volatile boolean inOrder = true;
+        protected volatile boolean closed = false;
+
+        protected CountingConsumer( int expected,
+                                    CountDownLatch done ) {
+            this.expected = expected;
+            this.done = done;
+        }
+
+        @Override
+        public boolean consume( Long entry,
+                                long position,
+                                long maxPosition ) {
+            if (entry.longValue() != count) {
+                inOrder = false;
+            }
+            if (++count == expected) {
+                done.countDown();
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    protected static final class LatencyConsumer extends Consumer<Long> {
+        private final CountDownLatch done;
+        protected final long[] latencies;
+        private int count = 0;
+
+        protected LatencyConsumer( int expected,
+                                   CountDownLatch done ) {
+            this.latencies = new long[expected];
+            this.done = done;
+        }
+
+        @Override
+        public boolean consume( Long publishedAt,
+                                long position,
+                                long maxPosition ) {
+            latencies[count] = System.nanoTime() - publishedAt;
+            if (++count == latencies.length) {
+                done.countDown();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    private static final String TAG = "\"abc\"";
+    private static final Date LAST_MODIFIED = new Date(1500000000000L);
+    private static final long LENGTH = 100L;
+
+    protected static String httpDate( Date date ) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC));
+    }
+
+    protected ByteRange requested( String range ) {
+        return ByteRange.requested(range, null, TAG, LAST_MODIFIED, LENGTH);
+    }
+
+    protected ByteRange requested( String range,
+                                   String ifRange ) {
+        return ByteRange.requested(range, ifRange, TAG, LAST_MODIFIED, LENGTH);
+    }
+
+    protected void assertRange( ByteRange range,
+                                long first,
+                                long last ) {
+        assertThat(range.isSatisfiable(), is(true));
+        assertThat(range.getFirst(), is(first));
+        assertThat(range.getLast(), is(last));
+        assertThat(range.getLength(), is(last - first + 1));
+        assertThat(range.getContentRange(), is("bytes " + first + "-" + last + "/" + LENGTH));
+    }
+
+    @Test
+    public void shouldReturnNullWithoutRangeHeader() {
+        assertThat(requested(null), is(nullValue()));
+    }
+
+    @Test
+    public void shouldParseClosedRange() {
+        assertRange(requested("bytes=10-19"), 10, 19);
+        assertRange(requested(" bytes= 10 - 19 "), 10, 19);
+    }
+
+    @Test
+    public void shouldLimitLastByteToContentLength() {
+        assertRange(requested("bytes=90-1000"), 90, 99);
+    }
+
+    @Test
+    public void shouldParseOpenEndedRange() {
+        assertRange(requested("bytes=90-"), 90, 99);
+        assertRange(requested("bytes=0-"), 0, 99);
+    }
+
+    @Test
+    public void shouldParseSuffixRange() {
+        assertRange(requested("bytes=-10"), 90, 99);
+    }
+
+    @Test
+    public void shouldLimitSuffixRangeToContentLength() {
+        assertRange(requested("bytes=-1000"), 0, 99);
+    }
+
+    @Test
+    public void shouldNotSatisfyRangeStartingAtOrAfterEndOfContent() {
+        ByteRange range = requested("bytes=100-");
+        assertThat(range.isSatisfiable(), is(false));
+        assertThat(range.getLength(), is(0L));
+        assertThat(range.getContentRange(), is("bytes */100"));
+        assertThat(requested("bytes=200-300").isSatisfiable(), is(false));
+    }
+
+    @Test
+    public void shouldNotSatisfyEmptySuffixRange() {
+        assertThat(requested("bytes=-0").isSatisfiable(), is(false));
+    }
+
+    @Test
+    public void shouldReturnNullForMultipleRanges() {
+        assertThat(requested("bytes=0-9,20-29"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldReturnNullForInvalidRanges() {
+        assertThat(requested("bytes=19-10"), is(nullValue()));
+        assertThat(requested("bytes=a-b"), is(nullValue()));
+        assertThat(requested("bytes=10"), is(nullValue()));
+        assertThat(requested("items=0-9"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldReturnNullForEmptyContent() {
+        assertThat(ByteRange.requested("bytes=0-9", null, TAG, LAST_MODIFIED, 0L), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUseRangeWhenIfRangeMatchesStrongEntityTag() {
+        assertRange(requested("bytes=10-19", TAG), 10, 19);
+    }
+
+    @Test
+    public void shouldReturnNullWhenIfRangeDoesNotMatchEntityTag() {
+        assertThat(requested("bytes=10-19", "\"other\""), is(nullValue()));
+    }
+
+    @Test
+    public void shouldReturnNullWhenIfRangeHasWeakEntityTag() {
+        assertThat(requested("bytes=10-19", "W/" + TAG), is(nullValue()));
+        String weakTag = "W/" + TAG;
+        assertThat(ByteRange.requested("bytes=10-19", weakTag, weakTag, LAST_MODIFIED, LENGTH), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUseRangeWhenIfRangeMatchesLastModifiedDate() {
+        assertRange(requested("bytes=10-19", httpDate(LAST_MODIFIED)), 10, 19);
+    }
+
+    @Test
+    public void shouldReturnNullWhenIfRangeDoesNotMatchLastModifiedDate() {
+        assertThat(requested("bytes=10-19", httpDate(new Date(LAST_MODIFIED.getTime() - 60000L))), is(nullValue()));
+        assertThat(ByteRange.requested("bytes=10-19", httpDate(LAST_MODIFIED), TAG, null, LENGTH), is(nullValue()));
+        assertThat(requested("bytes=10-19", "not a date"), is(nullValue()));
+    }
+}
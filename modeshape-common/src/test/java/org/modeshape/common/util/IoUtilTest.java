@@ -18,12 +18,15 @@ package org.modeshape.common.util;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import org.junit.Test;
 
 public class IoUtilTest {
@@ -110,6 +113,65 @@ public class IoUtilTest {
         assertThat(wrapper.isClosed(), is(true));
     }
 
+    @Test
+    public void copyShouldWriteRangeOfInputStreamAndShouldCloseStream() throws Exception {
+        String content = "This is the way to grandma's house.";
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ByteArrayInputStream(content.getBytes()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(IoUtil.copy(wrapper, output, 8, 7), is(7L));
+        assertThat(new String(output.toByteArray()), is("the way"));
+        assertThat(wrapper.isClosed(), is(true));
+    }
+
+    @Test
+    public void copyShouldWriteRestOfInputStreamWhenLengthIsNegativeOrTooLarge() throws Exception {
+        String content = "This is the way to grandma's house.";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(IoUtil.copy(new ByteArrayInputStream(content.getBytes()), output, 19, -1), is(16L));
+        assertThat(new String(output.toByteArray()), is("grandma's house."));
+
+        output = new ByteArrayOutputStream();
+        assertThat(IoUtil.copy(new ByteArrayInputStream(content.getBytes()), output, 19, 1000), is(16L));
+        assertThat(new String(output.toByteArray()), is("grandma's house."));
+    }
+
+    @Test
+    public void copyShouldWriteNothingWhenOffsetIsAfterEndOfInputStream() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(IoUtil.copy(new ByteArrayInputStream("content".getBytes()), output, 100, 10), is(0L));
+        assertThat(output.size(), is(0));
+    }
+
+    @Test
+    public void copyShouldTransferContentOfChannelTransferableInputStream() throws Exception {
+        TransferableInputStream transferable = new TransferableInputStream("This is the way to grandma's house.".getBytes());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(IoUtil.copy(new SelfClosingInputStream(transferable), output, 8, 7), is(7L));
+        assertThat(new String(output.toByteArray()), is("the way"));
+        assertThat(transferable.transferred, is(true));
+        assertThat(transferable.isClosed(), is(true));
+    }
+
+    protected class TransferableInputStream extends InputStreamWrapper implements ChannelTransferable {
+
+        private final byte[] content;
+        protected boolean transferred = false;
+
+        protected TransferableInputStream( byte[] content ) {
+            super(new ByteArrayInputStream(content));
+            this.content = content;
+        }
+
+        @Override
+        public long transferTo( long position,
+                                long count,
+                                WritableByteChannel target ) throws IOException {
+            transferred = true;
+            int length = (int)Math.max(0, Math.min(count, content.length - position));
+            return target.write(ByteBuffer.wrap(content, (int)Math.min(position, content.length), length));
+        }
+    }
+
     protected class InputStreamWrapper extends InputStream {
 
         private boolean closed = false;
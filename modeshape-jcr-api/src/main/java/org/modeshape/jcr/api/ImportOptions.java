@@ -0,0 +1,79 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.api;
+
+/**
+ * Class which allows a customization of the way {@link Workspace#importXML(String, java.io.InputStream, int, ImportOptions)}
+ * saves the imported content.
+ * <p>
+ * By default, all of the imported content is saved in a single transaction once the whole document has been read, which means
+ * that all of the imported nodes are held in memory until then. When a batch size is configured, the imported content is instead
+ * saved in several transactions, each time the configured number of nodes or bytes has been read. Reference properties are only
+ * set once the nodes they point to have been imported, so a batch is only saved when all of the references read so far can be
+ * resolved; documents with many forward references are therefore saved in larger batches.
+ * </p>
+ * <p>
+ * Note that when the content is saved in batches, a failure part way through the import leaves the batches which have already been
+ * saved in the workspace.
+ * </p>
+ *
+ * @since 5.5
+ */
+public abstract class ImportOptions {
+
+    /**
+     * Default import options, which save all of the imported content in a single transaction.
+     */
+    public static final ImportOptions DEFAULT = new ImportOptions() {};
+
+    /**
+     * Return the number of imported nodes after which the imported content should be saved.
+     *
+     * @return the number of nodes, or 0 if the content should not be saved in batches of nodes; defaults to 0
+     */
+    public int batchSize() {
+        return 0;
+    }
+
+    /**
+     * Return the approximate number of bytes of imported property values after which the imported content should be saved.
+     *
+     * @return the number of bytes, or 0 if the content should not be saved in batches of bytes; defaults to 0
+     */
+    public long batchSizeInBytes() {
+        return 0L;
+    }
+
+    /**
+     * Invoked each time the imported content has been saved, including the last time once the whole document has been read.
+     *
+     * @param nodeCount the total number of nodes which have been imported and saved so far
+     * @param byteCount the approximate total number of bytes of property values which have been imported and saved so far
+     */
+    public void batchSaved( long nodeCount,
+                            long byteCount ) {
+        // does nothing by default
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[import_options: ");
+        builder.append("batch size=").append(batchSize());
+        builder.append(", batch size in bytes=").append(batchSizeInBytes());
+        builder.append("]");
+        return builder.toString();
+    }
+}
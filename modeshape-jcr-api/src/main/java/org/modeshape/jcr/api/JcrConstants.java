@@ -30,6 +30,7 @@ public final class JcrConstants {
     public static final String JCR_MIXIN_TYPES = "jcr:mixinTypes";
     public static final String JCR_PRIMARY_TYPE = "jcr:primaryType";
     public static final String JCR_MIME_TYPE = "jcr:mimeType";
+    public static final String JCR_LAST_MODIFIED = "jcr:lastModified";
 
     public static final String NT_UNSTRUCTURED = "nt:unstructured";
     public static final String NT_FOLDER = "nt:folder";
@@ -15,6 +15,8 @@
  */
 package org.modeshape.jcr.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Future;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.RepositoryException;
@@ -146,4 +148,43 @@ public interface Workspace extends javax.jcr.Workspace {
      * @see FederationManager
      */
     FederationManager getFederationManager() throws RepositoryException;
+
+    /**
+     * Returns a SAX content handler which deserializes the XML it receives into the workspace below the node at the supplied
+     * path, like {@link #getImportContentHandler(String, int)} does, but which saves the imported content as described by the
+     * supplied options.
+     *
+     * @param parentAbsPath the absolute path of the node below which the deserialized subgraph is added.
+     * @param uuidBehavior a four-value flag that governs how incoming identifiers are handled.
+     * @param options the options which control how the imported content is saved; may be null if the default options should be
+     *        used
+     * @return an org.xml.sax.ContentHandler whose methods may be called to feed SAX events into the deserializer.
+     * @throws RepositoryException if the content handler cannot be created, for any of the reasons documented by
+     *         {@link #getImportContentHandler(String, int)}
+     * @see ImportOptions
+     * @since 5.5
+     */
+    org.xml.sax.ContentHandler getImportContentHandler( String parentAbsPath,
+                                                        int uuidBehavior,
+                                                        ImportOptions options ) throws RepositoryException;
+
+    /**
+     * Deserializes an XML document and adds the resulting item subgraph below the node at the supplied path, like
+     * {@link #importXML(String, InputStream, int)} does, but saves the imported content as described by the supplied options.
+     *
+     * @param parentAbsPath the absolute path of the node below which the deserialized subgraph is added.
+     * @param in An <code>InputStream</code>, which is closed once this method returns.
+     * @param uuidBehavior a four-value flag that governs how incoming identifiers are handled.
+     * @param options the options which control how the imported content is saved; may be null if the default options should be
+     *        used
+     * @throws IOException if an error occurs while reading from the <code>InputStream</code>.
+     * @throws RepositoryException if the content cannot be imported, for any of the reasons documented by
+     *         {@link #importXML(String, InputStream, int)}
+     * @see ImportOptions
+     * @since 5.5
+     */
+    void importXML( String parentAbsPath,
+                    InputStream in,
+                    int uuidBehavior,
+                    ImportOptions options ) throws IOException, RepositoryException;
 }
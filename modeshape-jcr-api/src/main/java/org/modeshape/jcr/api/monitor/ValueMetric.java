@@ -104,7 +104,86 @@ public enum ValueMetric {
     /**
      * The metric that records the number of nodes that were sequenced.
      */
-    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window.");
+    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window."),
+    /**
+     * The metric that records the number of node lookups that were satisfied by the workspace caches.
+     */
+    WORKSPACE_CACHE_HITS("workspace-cache-hits", false, "Workspace cache hits",
+                         "The number of node lookups that were found in the workspace caches during the window."),
+    /**
+     * The metric that records the number of node lookups that had to be loaded from the persistent store.
+     */
+    WORKSPACE_CACHE_MISSES("workspace-cache-misses", false, "Workspace cache misses",
+                           "The number of node lookups that were not found in the workspace caches during the window."),
+    /**
+     * The metric that records the number of nodes evicted from the workspace caches because of their size or memory bounds.
+     */
+    WORKSPACE_CACHE_EVICTIONS("workspace-cache-evictions", false, "Workspace cache evictions",
+                              "The number of nodes that were evicted from the workspace caches during the window."),
+    /**
+     * The metric that records the number of query buffers which grew past the spill threshold and were moved out of the heap
+     * collections into serialized storage.
+     */
+    QUERY_BUFFER_SPILLS("query-buffer-spills", false, "Query buffer spills",
+                        "The number of query buffers that were spilled into serialized storage during the window."),
+    /**
+     * The metric that records the number of bytes written by query buffers into serialized storage.
+     */
+    QUERY_BUFFER_SPILLED_BYTES("query-buffer-spilled-bytes", false, "Query buffer spilled bytes",
+                               "The number of bytes that query buffers wrote into serialized storage during the window."),
+    /**
+     * The metric that records the number of queries whose optimized plan was found in the repository's query plan cache.
+     */
+    QUERY_PLAN_CACHE_HITS("query-plan-cache-hits", false, "Query plan cache hits",
+                          "The number of queries whose optimized plan was found in the query plan cache during the window."),
+    /**
+     * The metric that records the number of queries which had to be planned and optimized because their plan was not found in
+     * the repository's query plan cache.
+     */
+    QUERY_PLAN_CACHE_MISSES("query-plan-cache-misses", false, "Query plan cache misses",
+                            "The number of queries whose optimized plan was not found in the query plan cache during the window."),
+    /**
+     * The metric that records the number of microseconds of query planning and optimization that were avoided by reusing the
+     * plans in the repository's query plan cache.
+     */
+    QUERY_PLANNING_TIME_SAVED("query-planning-time-saved", false, "Query planning time saved",
+                              "The number of microseconds of query planning that were saved by the query plan cache during the window."),
+    /**
+     * The metric that records the number of changes that were received by the asynchronous indexes but not yet applied to and
+     * committed by those indexes.
+     */
+    INDEXING_BACKLOG("indexing-backlog", true, "Indexing backlog",
+                     "The number of changes at the end of the window that have yet to be committed to the asynchronous indexes."),
+    /**
+     * The metric that records the number of milliseconds between the save of the oldest change in a batch and the commit of that
+     * batch to an asynchronous index.
+     */
+    INDEXING_LAG("indexing-lag", true, "Indexing lag",
+                 "The number of milliseconds between saving changes and committing them to the asynchronous indexes."),
+    /**
+     * The metric that records the number of external documents (or missing external documents) which were found in the document
+     * caches of the connectors.
+     */
+    EXTERNAL_DOCUMENT_CACHE_HITS("external-document-cache-hits", false, "External document cache hits",
+                                 "The number of external documents that were found in the connector document caches during the window."),
+    /**
+     * The metric that records the number of external documents which had to be read from their connectors because they were not
+     * found in the document caches of the connectors.
+     */
+    EXTERNAL_DOCUMENT_CACHE_MISSES("external-document-cache-misses", false, "External document cache misses",
+                                   "The number of external documents that were not found in the connector document caches during the window."),
+    /**
+     * The metric that records the number of documents which were found in the cache that the persistent store keeps outside of
+     * transactions.
+     */
+    DOCUMENT_CACHE_HITS("document-cache-hits", false, "Document cache hits",
+                        "The number of documents that were found in the document cache of the persistent store during the window."),
+    /**
+     * The metric that records the number of documents which had to be read from the persistent store because they were not
+     * found in its document cache.
+     */
+    DOCUMENT_CACHE_MISSES("document-cache-misses", false, "Document cache misses",
+                          "The number of documents that were not found in the document cache of the persistent store during the window.");
 
     private static final Map<String, ValueMetric> BY_LITERAL;
     private static final Map<String, ValueMetric> BY_NAME;
@@ -37,6 +37,15 @@ public interface Query extends javax.jcr.query.Query {
      */
     public void includeSystemContent( boolean includeSystemContent );
 
+    /**
+     * Specify that, when this query is executed, it should first wait until the changes previously saved by the session are
+     * visible in all of the asynchronous indexes of the workspace, so that the results reflect those changes. By default, queries
+     * do not wait and may not include the most recently saved changes in the results obtained from asynchronous indexes.
+     * 
+     * @param timeoutInMillis the maximum number of milliseconds to wait; a value of 0 means the query should not wait
+     */
+    public void waitForIndexes( long timeoutInMillis );
+
     /**
      * Signal that the query, if currently {@link Query#execute() executing}, should be cancelled and stopped (with an exception).
      * This method does not block until the query is actually stopped.
@@ -0,0 +1,239 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.connector.filesystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.StringUtil;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Json;
+
+/**
+ * A cache of the SHA-1 hashes of the content of files, keyed by the canonical path of each file and valid only as long as the
+ * size and the last modification time of the file are unchanged. Files which have not changed are therefore never read again
+ * to compute their hash.
+ * <p>
+ * The cache can optionally be persisted in a JSON file, so that the hashes survive restarts. That file is read when the cache
+ * is created, and is rewritten periodically in the background (when new hashes have been computed) and when the cache is shut
+ * down. Hashes of files which no longer exist are dropped whenever the file is read or written.
+ * </p>
+ */
+@ThreadSafe
+class ContentHashCache {
+
+    /**
+     * The default interval in milliseconds between two background writes of the cache to its file.
+     */
+    protected static final long DEFAULT_SAVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Logger LOGGER = Logger.getLogger(ContentHashCache.class);
+    private static final String SIZE = "size";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String SHA1 = "sha1";
+
+    private final File storeFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger unsavedCount = new AtomicInteger();
+    private final ScheduledFuture<?> scheduledSave;
+
+    /**
+     * Create a cache which is only written to its file when it is {@link #save() saved} explicitly or {@link #shutdown() shut
+     * down}.
+     *
+     * @param storeFile the file in which the cache is persisted; may be null if the cache is only kept in memory
+     */
+    protected ContentHashCache( File storeFile ) {
+        this(storeFile, null, 0L);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param storeFile the file in which the cache is persisted; may be null if the cache is only kept in memory
+     * @param scheduler the executor used to write the cache to its file in the background; may be null if the cache is only
+     *        written when it is {@link #save() saved} explicitly or {@link #shutdown() shut down}
+     * @param saveIntervalMillis the interval in milliseconds between two background writes; ignored unless positive
+     */
+    protected ContentHashCache( File storeFile,
+                                ScheduledExecutorService scheduler,
+                                long saveIntervalMillis ) {
+        this.storeFile = storeFile;
+        if (storeFile != null && storeFile.exists()) {
+            load();
+        }
+        this.scheduledSave = scheduleSave(scheduler, saveIntervalMillis);
+    }
+
+    private ScheduledFuture<?> scheduleSave( ScheduledExecutorService scheduler,
+                                             long saveIntervalMillis ) {
+        if (storeFile == null || scheduler == null || saveIntervalMillis <= 0L) {
+            return null;
+        }
+        try {
+            return scheduler.scheduleWithFixedDelay(this::save, saveIntervalMillis, saveIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler is shutting down, so the cache will only be written when it is shut down ...
+            return null;
+        }
+    }
+
+    /**
+     * Get the file in which this cache is persisted.
+     *
+     * @return the file, or null if the cache is only kept in memory
+     */
+    protected File storeFile() {
+        return storeFile;
+    }
+
+    /**
+     * Get the SHA-1 hash of the content of the file, computing it only if the file is not in the cache or has changed since
+     * its hash was cached.
+     *
+     * @param file the file; may not be null
+     * @return the hexadecimal SHA-1 hash of the content of the file; never null
+     * @throws IOException if the file cannot be read
+     * @throws NoSuchAlgorithmException if the SHA-1 algorithm is not available
+     */
+    protected String sha1( File file ) throws IOException, NoSuchAlgorithmException {
+        String path = file.getCanonicalPath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            return entry.sha1;
+        }
+        String sha1 = StringUtil.getHexString(SecureHash.getHash(SecureHash.Algorithm.SHA_1, file));
+        // Don't cache the hash if the file was changed while it was being read ...
+        if (file.length() == size && file.lastModified() == lastModified) {
+            entries.put(path, new Entry(size, lastModified, sha1));
+            unsavedCount.incrementAndGet();
+        }
+        return sha1;
+    }
+
+    /**
+     * Get the number of cached hashes.
+     *
+     * @return the number of hashes
+     */
+    protected int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stop writing the cache in the background and write it one last time to its file, if it is persisted and has changed since
+     * it was last written.
+     */
+    protected void shutdown() {
+        if (scheduledSave != null) {
+            scheduledSave.cancel(false);
+        }
+        save();
+    }
+
+    /**
+     * Write the cache to its file, if it is persisted and has changed since it was last written. The hashes of files which no
+     * longer exist are dropped.
+     */
+    protected synchronized void save() {
+        if (storeFile == null || unsavedCount.getAndSet(0) == 0) {
+            return;
+        }
+        EditableDocument document = Schematic.newDocument();
+        for (Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<String, Entry> cached = iter.next();
+            if (!new File(cached.getKey()).exists()) {
+                iter.remove();
+                continue;
+            }
+            Entry entry = cached.getValue();
+            EditableDocument value = document.setDocument(cached.getKey());
+            value.setNumber(SIZE, entry.size);
+            value.setNumber(LAST_MODIFIED, entry.lastModified);
+            value.setString(SHA1, entry.sha1);
+        }
+        File tempFile = new File(storeFile.getPath() + ".tmp");
+        try {
+            try (OutputStream stream = new FileOutputStream(tempFile)) {
+                Json.write(document, stream);
+            }
+            // Replace the previous file only once the new one is complete ...
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.debug(e, "Unable to write the content hashes to '{0}'", storeFile);
+            tempFile.delete();
+        }
+    }
+
+    private void load() {
+        try (InputStream stream = new FileInputStream(storeFile)) {
+            Document document = Json.read(stream, false);
+            for (Document.Field field : document.fields()) {
+                Document value = field.getValueAsDocument();
+                if (value == null) continue;
+                if (!new File(field.getName()).exists()) {
+                    // Make sure the file is rewritten without the hash of the file that no longer exists ...
+                    unsavedCount.incrementAndGet();
+                    continue;
+                }
+                Long size = value.getLong(SIZE);
+                Long lastModified = value.getLong(LAST_MODIFIED);
+                String sha1 = value.getString(SHA1);
+                if (size != null && lastModified != null && sha1 != null) {
+                    entries.put(field.getName(), new Entry(size, lastModified, sha1));
+                }
+            }
+        } catch (IOException e) {
+            // The hashes will simply be computed again ...
+            LOGGER.debug(e, "Unable to read the content hashes from '{0}'", storeFile);
+        }
+    }
+
+    private static final class Entry {
+        protected final long size;
+        protected final long lastModified;
+        protected final String sha1;
+
+        protected Entry( long size,
+                         long lastModified,
+                         String sha1 ) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha1 = sha1;
+        }
+    }
+}
@@ -43,6 +43,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.regex.Pattern;
 import javax.jcr.NamespaceRegistry;
 import javax.jcr.RepositoryException;
@@ -147,6 +148,7 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
     private static final String EXTRA_PROPERTIES_JSON = "json";
     private static final String EXTRA_PROPERTIES_LEGACY = "legacy";
     private static final String EXTRA_PROPERTIES_NONE = "none";
+    private static final String CONTENT_HASH_CACHE_THREAD_POOL = "modeshape-fs-connector-content-hashes";
 
     /**
      * The string path for a {@link File} object that represents the top-level directory accessed by this connector. This is set
@@ -224,6 +226,16 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
      */
     private boolean contentBasedSha1 = true;
 
+    /**
+     * The path of the file in which the content-based SHA1 hashes of the files are cached, so that the content of files which
+     * have not changed (based on their size and last modification time) is not read again after a restart. Relative paths are
+     * resolved against the {@link #directoryPath directory}, and the file itself never appears as a node. This field is set via
+     * reflection and is optional; if not set, the hashes are only cached in memory.
+     */
+    private String contentHashCacheFile;
+
+    private ContentHashCache contentHashCache;
+
     private NamespaceRegistry registry;
 
     @Override
@@ -266,6 +278,17 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
         }
         // otherwise use the default extra properties storage
 
+        if (contentBasedSha1) {
+            File storeFile = null;
+            if (contentHashCacheFile != null) {
+                storeFile = new File(contentHashCacheFile);
+                if (!storeFile.isAbsolute()) storeFile = new File(directory, contentHashCacheFile);
+                filenameFilter.setExcludedFile(storeFile);
+            }
+            ScheduledExecutorService scheduler = getContext().getScheduledThreadPool(CONTENT_HASH_CACHE_THREAD_POOL);
+            contentHashCache = new ContentHashCache(storeFile, scheduler, ContentHashCache.DEFAULT_SAVE_INTERVAL_MILLIS);
+        }
+
         if (enableEvents) {
             try {
                 WatchService watchService = FileSystems.getDefault().newWatchService();
@@ -286,6 +309,9 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
                 monitoringTask = null;
             }
         }
+        if (contentHashCache != null) {
+            contentHashCache.shutdown();
+        }
     }
 
     /**
@@ -409,7 +435,8 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
     /**
      * Computes the SHA1 for the given file. By default, this method will look at the
      * {@link FileSystemConnector#contentBasedSha1()} flag and either take the URL of the file (using @see
-     * java.util.File#toURI().toURL() and return the SHA1 of the URL string or return the SHA1 of the entire file content.
+     * java.util.File#toURI().toURL() and return the SHA1 of the URL string or return the SHA1 of the entire file content. The
+     * content-based SHA1 of a file is only computed again if the size or last modification time of the file has changed.
      * 
      * @param file a {@link File} instance; never null
      * @return the SHA1 of the file.
@@ -417,6 +444,9 @@ public class FileSystemConnector extends WritableConnector implements Pageable {
     protected String sha1( File file ) {
         try {
             if (contentBasedSha1()) {
+                if (contentHashCache != null) {
+                    return contentHashCache.sha1(file);
+                }
                 byte[] hash = SecureHash.getHash(SecureHash.Algorithm.SHA_1, file);
                 return StringUtil.getHexString(hash);
             }
@@ -28,6 +28,7 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
     private Pattern inclusion;
     private Pattern exclusion;
     private Pattern extraPropertiesExclusion;
+    private File excludedFile;
 
     public void setExclusionPattern( String exclusionPattern ) {
         this.exclusionPattern = exclusionPattern;
@@ -46,6 +47,16 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
         }
     }
 
+    /**
+     * Exclude a file used internally by the connector, along with any temporary files next to it whose names start with its
+     * name.
+     *
+     * @param excludedFile the file; may be null if no such file is to be excluded
+     */
+    public void setExcludedFile( File excludedFile ) {
+        this.excludedFile = excludedFile != null ? excludedFile.getAbsoluteFile() : null;
+    }
+
     public void setInclusionPattern( String inclusionPattern ) {
         this.inclusionPattern = inclusionPattern;
         if (inclusionPattern == null) {
@@ -66,6 +77,10 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
     @Override
     public boolean accept( File file,
                            String name ) {
+        if (excludedFile != null && file != null && name.startsWith(excludedFile.getName())
+            && excludedFile.getParentFile().equals(file.getAbsoluteFile())) {
+            return false;
+        }
         if (inclusionPattern == null) {
             // Include unless it matches an exclusion ...
             if (exclusionPattern != null && exclusion.matcher(name).matches()) return false;
@@ -426,24 +426,23 @@ public class BackupService {
                     // PHASE 1:
                     // Perform the backup of the repository cache content ...
                     AtomicInteger counter = new AtomicInteger();
-                    List<String> keys = documentStore.keys();
-                    // remove the metadata key since we want that to always export that last
-                    keys.remove(metadataKey.toString());
-                    int startIdx = 0;
-                    int totalDocumentsCount = keys.size();
+                    String metadataKeyString = metadataKey.toString();
                     int batchSize = options.batchSize();
-                    while (startIdx < totalDocumentsCount) {
-                        int estimatedEndIdx = startIdx + batchSize;
-                        int endIdx = estimatedEndIdx < totalDocumentsCount ? estimatedEndIdx : totalDocumentsCount;
-                        LOGGER.debug("writing batch [{0}, {1}] of documents from the content store...", startIdx, endIdx);
-                        List<String> batchKeys = keys.subList(startIdx, endIdx);
-                        batchWriteDocuments(batchKeys, contentWriter);
-                        counter.addAndGet(batchKeys.size());
-                        if (endIdx == totalDocumentsCount) {
-                            break;
+                    // stream the documents from the store rather than loading all of them (or all of their keys) in memory
+                    documentStore.forEach((key, document) -> {
+                        // skip the metadata key since we want that to always export that last
+                        if (metadataKeyString.equals(key)) {
+                            return;
                         }
-                        startIdx += batchSize;
-                    }
+                        SchematicEntry entry = SchematicEntry.fromDocument(document);
+                        if (LOGGER.isTraceEnabled()) {
+                            LOGGER.trace("backing up doc: {0}", entry.source());
+                        }
+                        writeToContentArea(entry, contentWriter);
+                        if (counter.incrementAndGet() % Math.max(batchSize, 1) == 0) {
+                            LOGGER.debug("wrote {0} documents from the content store...", counter);
+                        }
+                    });
                     LOGGER.debug("Wrote {0} documents to {1}", counter, backupDirectory.getAbsolutePath());
 
                     // PHASE 2:
@@ -531,15 +530,6 @@ public class BackupService {
 
             return problems;
         }
-        
-        private void batchWriteDocuments(List<String> keys, BackupDocumentWriter contentWriter) {
-            documentStore.load(keys).forEach(entry -> {
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("backing up doc: {0}", entry.source());
-                }
-                writeToContentArea(entry, contentWriter);
-            });   
-        }
     }
 
     /**
@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.jcr.NamespaceRegistry;
@@ -61,6 +62,8 @@ import org.modeshape.jcr.cache.document.DocumentTranslator;
 import org.modeshape.jcr.cache.document.LocalDocumentStore;
 import org.modeshape.jcr.cache.document.WorkspaceCache;
 import org.modeshape.jcr.federation.ConnectorChangeSetImpl;
+import org.modeshape.jcr.federation.ConnectorDocumentCache;
+import org.modeshape.jcr.federation.PagePrefetcher;
 import org.modeshape.jcr.spi.federation.Connector;
 import org.modeshape.jcr.spi.federation.ConnectorChangeSetFactory;
 import org.modeshape.jcr.spi.federation.ExtraPropertiesStore;
@@ -92,6 +95,8 @@ public final class Connectors {
     private AtomicBoolean started = new AtomicBoolean(false);
     private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
     private volatile DocumentTranslator translator;
+    private final Map<String, ConnectorDocumentCache> documentCachesBySourceName = new ConcurrentHashMap<>();
+    private final Map<String, PagePrefetcher> pagePrefetchersBySourceName = new ConcurrentHashMap<>();
 
     protected Connectors( JcrRepository.RunningState repository,
                           RepositoryConfiguration.Federation config, 
@@ -527,6 +532,18 @@ public final class Connectors {
         // If successful, call the 'postInitialize' method reflectively (due to inability to call directly) ...
         Method postInitialize = Reflection.findMethod(Connector.class, "postInitialize");
         Reflection.invokeAccessibly(connector, postInitialize, new Object[] {});
+
+        // Create the document cache, if the connector is configured to have one ...
+        ConnectorDocumentCache documentCache = ConnectorDocumentCache.create(connector, repository.statistics());
+        if (documentCache != null) {
+            documentCachesBySourceName.put(name, documentCache);
+        }
+
+        // And the page prefetcher, if the connector is pageable and configured to prefetch pages ...
+        PagePrefetcher pagePrefetcher = PagePrefetcher.create(connector, repository.context());
+        if (pagePrefetcher != null) {
+            pagePrefetchersBySourceName.put(name, pagePrefetcher);
+        }
     }
 
     protected RunningState repository() {
@@ -565,6 +582,9 @@ public final class Connectors {
         }
         Snapshot current = this.snapshot.get();
         this.snapshot.set(current.shutdown());
+        documentCachesBySourceName.clear();
+        pagePrefetchersBySourceName.values().forEach(PagePrefetcher::clear);
+        pagePrefetchersBySourceName.clear();
         started.compareAndSet(true, false);
     }
 
@@ -615,6 +635,45 @@ public final class Connectors {
         return this.snapshot.get().getConnectorWithSourceKey(NodeKey.keyForSourceName(sourceName));
     }
 
+    /**
+     * Returns the cache of the documents of the connector which was registered for the given source name.
+     *
+     * @param sourceName a {@code non-null} String; the name of a source
+     * @return either a {@link ConnectorDocumentCache} instance or {@code null} if the documents of the source are not cached
+     */
+    public ConnectorDocumentCache getDocumentCache( String sourceName ) {
+        return documentCachesBySourceName.get(sourceName);
+    }
+
+    /**
+     * Returns the prefetcher of the pages of children of the connector which was registered for the given source name.
+     *
+     * @param sourceName a {@code non-null} String; the name of a source
+     * @return either a {@link PagePrefetcher} instance or {@code null} if the pages of the source are not prefetched
+     */
+    public PagePrefetcher getPagePrefetcher( String sourceName ) {
+        return pagePrefetchersBySourceName.get(sourceName);
+    }
+
+    /**
+     * Signal that the documents with the given identifiers were changed in an external source, so that they (and any prefetched
+     * pages of children) are read again from its connector.
+     *
+     * @param sourceName a {@code non-null} String; the name of a source
+     * @param docIds the identifiers of the changed documents; may not be null
+     */
+    public void externalDocumentsChanged( String sourceName,
+                                          Collection<String> docIds ) {
+        ConnectorDocumentCache documentCache = documentCachesBySourceName.get(sourceName);
+        if (documentCache != null && !docIds.isEmpty()) {
+            documentCache.invalidate(docIds);
+        }
+        PagePrefetcher pagePrefetcher = pagePrefetchersBySourceName.get(sourceName);
+        if (pagePrefetcher != null && !docIds.isEmpty()) {
+            pagePrefetcher.clear();
+        }
+    }
+
     /**
      * Checks if there are any registered connectors.
      * 
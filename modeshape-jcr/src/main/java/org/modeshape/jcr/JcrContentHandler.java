@@ -48,6 +48,7 @@ import org.modeshape.common.text.TextDecoder;
 import org.modeshape.common.text.XmlNameEncoder;
 import org.modeshape.common.util.Base64;
 import org.modeshape.common.util.StringUtil;
+import org.modeshape.jcr.api.ImportOptions;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.CachedNode.ReferenceType;
 import org.modeshape.jcr.cache.MutableCachedNode;
@@ -73,6 +74,12 @@ import org.xml.sax.helpers.DefaultHandler;
  * <p>
  * Each content handler is only intended to be used once and discarded. This class is <b>NOT</b> thread-safe.
  * </p>
+ * <p>
+ * When the imported content is saved once the document has been read, it can also be saved in batches, as described by the
+ * {@link ImportOptions}. A batch is only saved once all of the (hard) references and shares read so far point to nodes which
+ * exist, since the references are only set on the imported nodes when the batch is saved. Weak and simple references may point
+ * to nodes which don't exist, so they never hold back a batch.
+ * </p>
  * 
  * @see JcrSession#getImportContentHandler(String, int)
  * @see JcrWorkspace#getImportContentHandler(String, int)
@@ -117,6 +124,13 @@ class JcrContentHandler extends DefaultHandler {
     private final org.modeshape.jcr.api.NamespaceRegistry jcrNamespaceRegistry;
     private final boolean saveWhenCompleted;
     private final String systemWorkspaceKey;
+    private final ImportOptions importOptions;
+    private final boolean saveInBatches;
+    private final Set<NodeKey> unresolvedReferenceTargets = new HashSet<>();
+    private long nodesInBatch;
+    private long bytesInBatch;
+    private long nodesSaved;
+    private long bytesSaved;
 
     private AbstractJcrNode currentNode;
     private ContentHandler delegate;
@@ -129,7 +143,20 @@ class JcrContentHandler extends DefaultHandler {
                        boolean retentionInfoRetained,
                        boolean lifecycleInfoRetained,
                        String binaryStoreHint ) throws PathNotFoundException, RepositoryException {
+        this(session, parent, uuidBehavior, saveWhenCompleted, retentionInfoRetained, lifecycleInfoRetained, binaryStoreHint,
+             ImportOptions.DEFAULT);
+    }
+
+    JcrContentHandler( JcrSession session,
+                       AbstractJcrNode parent,
+                       int uuidBehavior,
+                       boolean saveWhenCompleted,
+                       boolean retentionInfoRetained,
+                       boolean lifecycleInfoRetained,
+                       String binaryStoreHint,
+                       ImportOptions importOptions ) throws PathNotFoundException, RepositoryException {
         assert session != null;
+        assert importOptions != null;
         assert uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_CREATE_NEW
                || uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING
                || uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REPLACE_EXISTING
@@ -146,6 +173,9 @@ class JcrContentHandler extends DefaultHandler {
         this.retentionInfoRetained = retentionInfoRetained;
         this.lifecycleInfoRetained = lifecycleInfoRetained;
         this.saveWhenCompleted = saveWhenCompleted;
+        this.importOptions = importOptions;
+        // only the imports which save their content can do so in batches ...
+        this.saveInBatches = saveWhenCompleted && (importOptions.batchSize() > 0 || importOptions.batchSizeInBytes() > 0);
 
         this.cache = session.cache();
 
@@ -300,7 +330,7 @@ class JcrContentHandler extends DefaultHandler {
                     // get the actual key of the shareable node
                     String shareableNodeUUID = shareIdsToUUIDMap.get(node.key());
                     assert shareableNodeUUID != null;
-                    NodeKey shareableNodeKey = uuidToNodeKeyMapping.get(shareableNodeUUID);
+                    NodeKey shareableNodeKey = importedNodeKeyFor(shareableNodeUUID, node.key());
                     assert shareableNodeKey != null;
 
                     // unlink the current key from its parent references
@@ -312,6 +342,12 @@ class JcrContentHandler extends DefaultHandler {
                     parent.linkChild(cache, shareableNodeKey, node.name());
                 }
             }
+
+            // everything has been processed, so none of it should be processed again when the next batch is saved ...
+            nodesForPostProcessing.clear();
+            shareIdsToUUIDMap.clear();
+            allReferenceProperties.clear();
+            referrersByNodeKey.clear();
         } catch (RepositoryException e) {
             throw new EnclosingSAXException(e);
         }
@@ -397,23 +433,139 @@ class JcrContentHandler extends DefaultHandler {
         return defn.canCastToTypeAndSatisfyConstraints(property.getValue(), session);
     }
 
+    /**
+     * Record that a reference property to the supplied values will be set on an imported node, so that no batch is saved until
+     * the nodes referenced by hard references exist.
+     *
+     * @param values the reference values; may not be null
+     */
+    protected void referencesImported( Value... values ) {
+        if (!saveInBatches) return;
+        for (Value value : values) {
+            if (value.getType() != PropertyType.REFERENCE) {
+                // weak and simple references may point to nodes which don't exist, so they can be saved in any batch ...
+                continue;
+            }
+            Object reference = ((JcrValue)value).value();
+            if (!(reference instanceof NodeKeyReference)) {
+                // there's no way to tell which node this is ...
+                continue;
+            }
+            NodeKey key = ((NodeKeyReference)reference).getNodeKey();
+            if (!importedNodeKeys.contains(key) && cache.getNode(key) == null) {
+                // the referenced node doesn't exist yet, but it may be further down in the document ...
+                unresolvedReferenceTargets.add(key);
+            }
+        }
+    }
+
+    /**
+     * Record that the node with the supplied key has been imported.
+     *
+     * @param key the key of the imported node; may not be null
+     */
+    protected void nodeImported( NodeKey key ) {
+        importedNodeKeys.add(key);
+        ++nodesInBatch;
+        unresolvedReferenceTargets.remove(key);
+    }
+
+    private boolean isBatchFull() {
+        int batchSize = importOptions.batchSize();
+        long batchSizeInBytes = importOptions.batchSizeInBytes();
+        return (batchSize > 0 && nodesInBatch >= batchSize) || (batchSizeInBytes > 0 && bytesInBatch >= batchSizeInBytes);
+    }
+
+    /**
+     * Find the key of the imported node with the supplied UUID.
+     *
+     * @param uuid the UUID of the node in the imported document; may not be null
+     * @param keyInWorkspace the key of any node in the same workspace as the imported node; may not be null
+     * @return the key of the imported node, or null if no node with that UUID has been imported yet
+     */
+    protected NodeKey importedNodeKeyFor( String uuid,
+                                          NodeKey keyInWorkspace ) {
+        NodeKey key = uuidToNodeKeyMapping.get(uuid);
+        if (key != null || !saveInBatches) return key;
+        // the node may have been imported in a batch which has already been saved ...
+        key = keyInWorkspace.withId(uuid);
+        return cache.getNode(key) != null ? key : null;
+    }
+
+    private boolean canSaveBatch() {
+        if (!unresolvedReferenceTargets.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<NodeKey, String> entry : shareIdsToUUIDMap.entrySet()) {
+            if (importedNodeKeyFor(entry.getValue(), entry.getKey()) == null) {
+                // the shareable node of this share hasn't been imported yet ...
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void save() throws SAXException {
+        postProcessNodes();
+        try {
+            session.save();
+        } catch (RepositoryException e) {
+            throw new SAXException(e);
+        }
+        nodesSaved += nodesInBatch;
+        bytesSaved += bytesInBatch;
+        nodesInBatch = 0;
+        bytesInBatch = 0;
+        importOptions.batchSaved(nodesSaved, bytesSaved);
+    }
+
+    private void saveBatchIfFull() throws SAXException {
+        if (saveInBatches && isBatchFull() && canSaveBatch()) {
+            save();
+            // saving discards the base versions captured so far, and the next batch may have some more ...
+            session.initBaseVersionKeys();
+            batchSaved();
+        }
+    }
+
+    /**
+     * Forget the nodes of the batch which has just been saved, since they can now be found in the cache. Only the random keys
+     * given to shareable nodes are kept, because those can't be derived from the UUIDs of the nodes that share them.
+     */
+    private void batchSaved() {
+        importedNodeKeys.clear();
+        for (Iterator<Map.Entry<String, NodeKey>> iter = uuidToNodeKeyMapping.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<String, NodeKey> entry = iter.next();
+            NodeKey key = entry.getValue();
+            if (key.getIdentifier().equals(entry.getKey()) || !isShareable(key)) {
+                iter.remove();
+            }
+        }
+    }
+
+    private boolean isShareable( NodeKey key ) {
+        try {
+            return session.node(key, null).isShareable();
+        } catch (RepositoryException e) {
+            return false;
+        }
+    }
+
     @Override
     public void characters( char[] ch,
                             int start,
                             int length ) throws SAXException {
         assert this.delegate != null;
+        bytesInBatch += length;
         delegate.characters(ch, start, length);
     }
 
     @Override
     public void endDocument() throws SAXException {
-        postProcessNodes();
         if (saveWhenCompleted) {
-            try {
-                session.save();
-            } catch (RepositoryException e) {
-                throw new SAXException(e);
-            }
+            save();
+        } else {
+            postProcessNodes();
         }
         super.endDocument();
     }
@@ -424,6 +576,7 @@ class JcrContentHandler extends DefaultHandler {
                             String name ) throws SAXException {
         assert this.delegate != null;
         delegate.endElement(uri, localName, name);
+        saveBatchIfFull();
     }
 
     @Override
@@ -433,6 +586,9 @@ class JcrContentHandler extends DefaultHandler {
                               Attributes atts ) throws SAXException {
         checkDelegate(uri);
         assert this.delegate != null;
+        for (int i = 0; i != atts.getLength(); ++i) {
+            bytesInBatch += atts.getValue(i).length();
+        }
 
         delegate.startElement(uri, localName, name, atts);
     }
@@ -795,7 +951,7 @@ class JcrContentHandler extends DefaultHandler {
                         assert uuid != null;
 
                         // check if we already have the key of the shareable node
-                        NodeKey shareableNodeKey = uuidToNodeKeyMapping.get(uuid);
+                        NodeKey shareableNodeKey = importedNodeKeyFor(uuid, parentKey);
                         if (shareableNodeKey != null) {
                             // we already know the key of the shareable node, so we need to just link it and return
                             parent.mutable().linkChild(cache, shareableNodeKey, nodeName);
@@ -878,6 +1034,7 @@ class JcrContentHandler extends DefaultHandler {
                             // if this is a reference, we won't set it on the node until we've finished loading all the nodes
                             ReferenceProperty referenceProperty = new ReferenceProperty(propertyName, value);
                             allReferenceProperties.put(child.key(), referenceProperty);
+                            referencesImported(value);
                             nodesForPostProcessing.add(child);
                         } else {
                             // Don't check references or the protected status ...
@@ -897,6 +1054,7 @@ class JcrContentHandler extends DefaultHandler {
                                 // if this is a reference, we won't set it on the node until we've finished loading all the nodes
                                 ReferenceProperty referenceProperty = new ReferenceProperty(propertyName, processedValues);
                                 allReferenceProperties.put(child.key(), referenceProperty);
+                                referencesImported(processedValues);
                                 nodesForPostProcessing.add(child);
                             } else {
                                 // Don't check references or the protected status ...
@@ -908,7 +1066,7 @@ class JcrContentHandler extends DefaultHandler {
                 }
 
                 node = child;
-                importedNodeKeys.add(node.key());
+                nodeImported(node.key());
 
                 if (postProcessed) {
                     // This node needs to be post-processed ...
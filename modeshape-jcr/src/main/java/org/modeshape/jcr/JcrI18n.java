@@ -43,6 +43,7 @@ public final class JcrI18n {
     public static I18n indexProviderMissingPlanner;
     public static I18n errorNotifyingNodeTypesListener;
     public static I18n errorIndexing;
+    public static I18n errorApplyingIndexChanges;
     public static I18n cannotReindexJournalNotEnabled;
     public static I18n warnIncrementalIndexingJournalNotEnabled;
     public static I18n warnIncrementalIndexingJournalNotStarted;
@@ -416,6 +417,7 @@ public final class JcrI18n {
     public static I18n projectedPathPointsTowardsInternalNode;
 
     public static I18n reindexAll;
+    public static I18n indexDisabledAfterIncompleteReindexing;
 
     public static I18n errorCreatingDatabaseTable;
     public static I18n warnExtractedTextTooLarge;
@@ -439,6 +441,9 @@ public final class JcrI18n {
 
     public static I18n cannotStartJournal;
     public static I18n cannotStopJournal;
+    public static I18n cannotWriteJournalRecords;
+    public static I18n journalSegmentTruncated;
+    public static I18n journalRecordCorrupted;
     public static I18n journalHasNotCompletedReconciliation;
 
     public static I18n indexProviderNameRequired;
@@ -48,6 +48,7 @@ import org.modeshape.jcr.query.CancellableQuery;
 import org.modeshape.jcr.query.JcrQuery;
 import org.modeshape.jcr.query.JcrQueryContext;
 import org.modeshape.jcr.query.JcrTypeSystem;
+import org.modeshape.jcr.query.QueryPlanCache;
 import org.modeshape.jcr.query.model.QueryCommand;
 import org.modeshape.jcr.query.model.QueryObjectModel;
 import org.modeshape.jcr.query.model.QueryObjectModelFactory;
@@ -136,11 +137,17 @@ class JcrQueryManager implements QueryManager {
             throw new InvalidQueryException(JcrI18n.invalidQueryLanguage.text(language, languages));
         }
         try {
-            // Parsing must be done now ...
-            QueryCommand command = parser.parseQuery(expression, typeSystem);
+            // Reuse the parsed form of the same statement, or parse it now ...
+            QueryPlanCache planCache = session.repository().queryManager().getPlanCache();
+            if (planCache != null && !QueryPlanCache.isCacheable(session.context())) planCache = null;
+            QueryCommand command = planCache != null ? planCache.getCommand(parser.getLanguage(), expression) : null;
             if (command == null) {
-                // The query is not well-formed and cannot be parsed ...
-                throw new InvalidQueryException(JcrI18n.queryCannotBeParsedUsingLanguage.text(language, expression));
+                command = parser.parseQuery(expression, typeSystem);
+                if (command == null) {
+                    // The query is not well-formed and cannot be parsed ...
+                    throw new InvalidQueryException(JcrI18n.queryCannotBeParsedUsingLanguage.text(language, expression));
+                }
+                if (planCache != null) planCache.putCommand(parser.getLanguage(), expression, command);
             }
             // Set up the hints ...
             PlanHints hints = new PlanHints();
@@ -281,6 +288,9 @@ class JcrQueryManager implements QueryManager {
             JcrRepository.RunningState state = session.repository().runningState();
             RepositoryQueryManager queryManager = state.queryManager();
             RepositoryCache repoCache = state.repositoryCache();
+            if (hints.indexVisibilityTimeout > 0L) {
+                waitForIndexes(queryManager, workspaceName, hints.indexVisibilityTimeout);
+            }
             NodeCache nodeCache = hints.useSessionContent ? session.cache() : session.cache().getWorkspace();
             Map<String, NodeCache> overriddenNodeCaches = new HashMap<String, NodeCache>();
             overriddenNodeCaches.put(workspaceName, nodeCache);
@@ -296,6 +306,23 @@ class JcrQueryManager implements QueryManager {
                                       nodeTypes, hints, variables);
         }
 
+        private void waitForIndexes( RepositoryQueryManager queryManager,
+                                     String workspaceName,
+                                     long timeoutInMillis ) throws RepositoryException {
+            String changeSetId = session.unindexedChangeSetId();
+            if (changeSetId == null) return;
+            try {
+                // If the changes are still not visible after the timeout, just run the query against what is visible ...
+                queryManager.getIndexManager().waitUntilApplied(workspaceName, changeSetId, timeoutInMillis,
+                                                                TimeUnit.MILLISECONDS);
+                // Either way, don't make later queries wait for the same changes again ...
+                session.changeSetIndexed(changeSetId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException(e);
+            }
+        }
+
         @Override
         public ExecutionContext getExecutionContext() {
             return session.context();
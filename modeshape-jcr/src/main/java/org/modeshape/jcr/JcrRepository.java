@@ -103,6 +103,7 @@ import org.modeshape.jcr.federation.FederatedDocumentStore;
 import org.modeshape.jcr.journal.ChangeJournal;
 import org.modeshape.jcr.journal.ClusteredJournal;
 import org.modeshape.jcr.journal.LocalJournal;
+import org.modeshape.jcr.journal.SegmentedJournal;
 import org.modeshape.jcr.locking.DbLockingService;
 import org.modeshape.jcr.locking.JGroupsLockingService;
 import org.modeshape.jcr.locking.LockingService;
@@ -125,6 +126,7 @@ import org.modeshape.jcr.txn.Transactions;
 import org.modeshape.jcr.value.NamespaceRegistry;
 import org.modeshape.jcr.value.ValueFactories;
 import org.modeshape.jcr.value.binary.BinaryStore;
+import org.modeshape.jmx.ReindexingBean;
 import org.modeshape.jmx.RepositoryStatisticsBean;
 import org.modeshape.schematic.SchematicDb;
 import org.modeshape.schematic.document.Array;
@@ -911,6 +913,7 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
         private final WeakHashMap<JcrSession, Object> internalSessions = new WeakHashMap<>();
         private final RepositoryStatistics statistics;
         private final RepositoryStatisticsBean mbean;
+        private final ReindexingBean reindexingBean;
         private final BinaryStore binaryStore;
         private final ScheduledExecutorService statsRollupService;
         private final Sequencers sequencers;
@@ -1079,7 +1082,8 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     // Create clustering service and event bus
                     this.changeDispatchingQueue = this.context().getCachedTreadPool("modeshape-event-dispatcher", 
                                                                                     Integer.MAX_VALUE);
-                    ChangeBus localBus = new RepositoryChangeBus(name(), changeDispatchingQueue, statistics(), config.getEventBusSize());
+                    ChangeBus localBus = new RepositoryChangeBus(name(), changeDispatchingQueue, statistics(), config.getEventBusSize(),
+                                                                 config.getEventBusWaitStrategy().createWaitStrategy());
                     this.changeBus = clusteringService != null ? new ClusteredChangeBus(localBus, clusteringService) : localBus;
                     this.changeBus.start();
 
@@ -1087,8 +1091,15 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     RepositoryConfiguration.Journaling journaling = config.getJournaling();
                     if (journaling.isEnabled()) {
                         boolean asyncWritesEnabled = journaling.asyncWritesEnabled();
-                        LocalJournal localJournal = new LocalJournal(journaling.location(), asyncWritesEnabled,
-                                                                     journaling.maxDaysToKeepRecords());
+                        LocalJournal localJournal;
+                        if (journaling.format() == RepositoryConfiguration.JournalFormat.SEGMENTED) {
+                            localJournal = new SegmentedJournal(journaling.location(), asyncWritesEnabled,
+                                                                journaling.maxDaysToKeepRecords(),
+                                                                journaling.segmentSizeInMb() * 1024L * 1024L);
+                        } else {
+                            localJournal = new LocalJournal(journaling.location(), asyncWritesEnabled,
+                                                            journaling.maxDaysToKeepRecords());
+                        }
                         this.journal = clusteringService != null ? new ClusteredJournal(localJournal, clusteringService) : localJournal;
                         this.journal.start();
                         if (asyncWritesEnabled) {
@@ -1105,7 +1116,8 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     // Set up the document store and environment
                     final RepositoryEnvironment repositoryEnvironment = new JcrRepositoryEnvironment(transactions,
                                                                                                      this.lockingService,
-                                                                                                     journalId());
+                                                                                                     journalId(),
+                                                                                                     statistics());
                     LocalDocumentStore localStore = new LocalDocumentStore(schematicDb, repositoryEnvironment);
                     this.documentStore = connectors.hasConnectors() ? new FederatedDocumentStore(connectors, localStore) : localStore;
 
@@ -1197,6 +1209,15 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                 } else {
                     this.changeBus.registerInThread(this.repositoryQueryManager);    
                 }
+                if (other != null && other.reindexingBean != null) {
+                    other.reindexingBean.stop();
+                }
+                if (this.config.getMonitoring().enabled()) {
+                    this.reindexingBean = new ReindexingBean(this.repositoryQueryManager.getReindexingProgress(), getName());
+                    this.reindexingBean.start();
+                } else {
+                    this.reindexingBean = null;
+                }
 
                 // Check that we have parsers for all the required languages ...
                 assert this.queryParsers.getParserFor(Query.XPATH) != null;
@@ -1679,6 +1700,10 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                 mbean.stop();
             }
 
+            if (reindexingBean != null) {
+                reindexingBean.stop();
+            }
+
             if (this.context != null) {
                 this.context.terminateAllPools(30, TimeUnit.SECONDS);
             }
@@ -1867,11 +1892,14 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
         private final Transactions transactions;
         private final LockingService lockingService;
         private final String journalId;
+        private final RepositoryStatistics statistics;
         
-        private JcrRepositoryEnvironment(Transactions transactions, LockingService lockingService, String journalId) {
+        private JcrRepositoryEnvironment(Transactions transactions, LockingService lockingService, String journalId,
+                                         RepositoryStatistics statistics) {
             this.transactions = transactions;
             this.lockingService = lockingService;
             this.journalId = journalId;
+            this.statistics = statistics;
         }
 
         @Override
@@ -1889,6 +1917,11 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
             return lockingService;
         }
 
+        @Override
+        public RepositoryStatistics statistics() {
+            return statistics;
+        }
+
         @Override
         public NodeTypes nodeTypes() {
             if (runningState.get() == null) {
@@ -141,6 +141,7 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
     private volatile JcrValueFactory valueFactory;
     private volatile JcrValueFactoryWithHint valueFactoryWithHint;
     private volatile boolean isLive = true;
+    private volatile String indexedChangeSetId;
     private final long nanosCreated;
     private volatile BufferManager bufferMgr;
     private final boolean hasCustomAuthorizationProvider;
@@ -257,7 +258,8 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
 
     final synchronized BufferManager bufferManager() {
         if (bufferMgr == null) {
-            bufferMgr = new BufferManager(this.context);
+            bufferMgr = new BufferManager(this.context, repository.repositoryConfiguration().getQueryBufferSpillThreshold(),
+                                          repository.statistics());
         }
         return bufferMgr;
     }
@@ -1221,6 +1223,25 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
         this.shareableNodeCache().clear();
     }
     
+    /**
+     * Get the identifier of the latest change set saved by this session that queries have not yet waited for.
+     *
+     * @return the identifier of the change set, or null if queries have already waited for all changes saved by this session
+     */
+    final String unindexedChangeSetId() {
+        String changeSetId = cache().getLatestChangeSetId();
+        return changeSetId == null || changeSetId.equals(indexedChangeSetId) ? null : changeSetId;
+    }
+
+    /**
+     * Record that queries have waited for the identified change set, so that later queries need not wait for it again.
+     *
+     * @param changeSetId the identifier of the change set; may not be null
+     */
+    final void changeSetIndexed( String changeSetId ) {
+        this.indexedChangeSetId = changeSetId;
+    }
+
     /**
      * Save a subset of the changes made within this session.
      *
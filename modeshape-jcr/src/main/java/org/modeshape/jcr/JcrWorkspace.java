@@ -45,6 +45,7 @@ import javax.jcr.version.VersionException;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrContentHandler.EnclosingSAXException;
+import org.modeshape.jcr.api.ImportOptions;
 import org.modeshape.jcr.api.federation.FederationManager;
 import org.modeshape.jcr.api.index.IndexManager;
 import org.modeshape.jcr.cache.CachedNode;
@@ -700,6 +701,15 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
                                                    int uuidBehavior )
         throws PathNotFoundException, ConstraintViolationException, VersionException, LockException, AccessDeniedException,
         RepositoryException {
+        return getImportContentHandler(parentAbsPath, uuidBehavior, (ImportOptions)null);
+    }
+
+    @Override
+    public ContentHandler getImportContentHandler( String parentAbsPath,
+                                                   int uuidBehavior,
+                                                   ImportOptions options )
+        throws PathNotFoundException, ConstraintViolationException, VersionException, LockException, AccessDeniedException,
+        RepositoryException {
 
         CheckArg.isNotNull(parentAbsPath, "parentAbsPath");
         session.checkLive();
@@ -718,7 +728,8 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
         Repository repo = getSession().getRepository();
         boolean retainLifecycleInfo = repo.getDescriptorValue(Repository.OPTION_LIFECYCLE_SUPPORTED).getBoolean();
         boolean retainRetentionInfo = repo.getDescriptorValue(Repository.OPTION_RETENTION_SUPPORTED).getBoolean();
-        return new JcrContentHandler(session, parent, uuidBehavior, saveWhenFinished, retainRetentionInfo, retainLifecycleInfo, null);
+        return new JcrContentHandler(session, parent, uuidBehavior, saveWhenFinished, retainRetentionInfo, retainLifecycleInfo, null,
+                                     options != null ? options : ImportOptions.DEFAULT);
     }
 
     @Override
@@ -727,6 +738,16 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
                            int uuidBehavior )
         throws IOException, VersionException, PathNotFoundException, ItemExistsException, ConstraintViolationException,
         InvalidSerializedDataException, LockException, AccessDeniedException, RepositoryException {
+        importXML(parentAbsPath, in, uuidBehavior, (ImportOptions)null);
+    }
+
+    @Override
+    public void importXML( String parentAbsPath,
+                           InputStream in,
+                           int uuidBehavior,
+                           ImportOptions options )
+        throws IOException, VersionException, PathNotFoundException, ItemExistsException, ConstraintViolationException,
+        InvalidSerializedDataException, LockException, AccessDeniedException, RepositoryException {
         CheckArg.isNotNull(parentAbsPath, "parentAbsPath");
         CheckArg.isNotNull(in, "in");
         session.checkLive();
@@ -734,7 +755,7 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
         boolean error = false;
         try {
             XMLReader parser = XMLReaderFactory.createXMLReader();
-            parser.setContentHandler(getImportContentHandler(parentAbsPath, uuidBehavior));
+            parser.setContentHandler(getImportContentHandler(parentAbsPath, uuidBehavior, options));
             parser.parse(new InputSource(in));
         } catch (EnclosingSAXException ese) {
             Exception cause = ese.getException();
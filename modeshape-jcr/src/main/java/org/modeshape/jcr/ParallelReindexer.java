@@ -0,0 +1,327 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.ChildReference;
+import org.modeshape.jcr.cache.ChildReferences;
+import org.modeshape.jcr.cache.NodeCache;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.PathCache;
+import org.modeshape.jcr.spi.index.IndexWriter;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * Reindexes the subgraphs below a node by splitting them into partitions, each holding a batch of sibling nodes, which are
+ * processed by a bounded number of workers. The thread requesting the reindexing is always one of the workers; additional
+ * workers are only started from the supplied thread pool when there are more partitions waiting to be processed than there are
+ * active workers, so reindexing small subgraphs does not incur any threading overhead.
+ * <p>
+ * The number of workers caps the number of cores reindexing can use, and the rate at which nodes are indexed can be limited
+ * further, so that reindexing a large workspace does not starve the rest of the repository.
+ * </p>
+ * <p>
+ * Only the reading of the nodes is parallelized: {@link IndexWriter} implementations are not required to be thread-safe, so
+ * the workers of a reindexing operation take turns in writing the nodes they have read to the indexes.
+ * </p>
+ * <p>
+ * A reindexing operation which is interrupted stops as soon as possible, leaving the indexes with only part of the content.
+ * The interrupt status of the requesting thread is then set, so that the caller can tell the operation did not complete.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+class ParallelReindexer {
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelReindexer.class);
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final ExecutorService workers;
+    private final int maxWorkers;
+    private final int batchSize;
+    private final long maxNodesPerSecond;
+    private final ReindexingProgress progress;
+
+    /**
+     * Create a new reindexer.
+     *
+     * @param workers the pool used to run the additional workers; may not be null
+     * @param maxWorkers the maximum number of workers (including the requesting thread) which reindex the same subgraph
+     * @param batchSize the maximum number of sibling nodes processed together by a worker
+     * @param maxNodesPerSecond the maximum number of nodes indexed per second by each reindexing operation, or 0 if unlimited
+     * @param progress the progress tracker which is informed about the number of indexed nodes; may not be null
+     */
+    ParallelReindexer( ExecutorService workers,
+                       int maxWorkers,
+                       int batchSize,
+                       long maxNodesPerSecond,
+                       ReindexingProgress progress ) {
+        this.workers = workers;
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxNodesPerSecond = Math.max(0, maxNodesPerSecond);
+        this.progress = progress;
+    }
+
+    /**
+     * Reindex the given children of a node which has already been indexed, along with all their descendants up to the given
+     * depth. Nodes which are excluded from search are skipped, along with their descendants.
+     *
+     * @param workspaceName the name of the workspace; may not be null
+     * @param cache the cache of the workspace; may not be null
+     * @param parentKey the key of the node whose children are reindexed; may not be null
+     * @param parentPath the path of the node whose children are reindexed; may not be null
+     * @param childKeys the keys of the children which should be reindexed; may not be null
+     * @param depth the maximum depth (relative to the root) of the nodes whose children are reindexed
+     * @param indexes the writer for the indexes; may not be null
+     * @return {@code true} if at least one index was updated, {@code false} otherwise; if the reindexing was interrupted, the
+     *         interrupt status of the current thread is set
+     */
+    boolean reindex( String workspaceName,
+                     NodeCache cache,
+                     NodeKey parentKey,
+                     Path parentPath,
+                     Collection<NodeKey> childKeys,
+                     int depth,
+                     IndexWriter indexes ) {
+        if (childKeys.isEmpty()) {
+            return false;
+        }
+        Scan scan = new Scan(workspaceName, cache, depth, indexes);
+        List<NodeKey> batch = new ArrayList<>(Math.min(batchSize, childKeys.size()));
+        for (NodeKey childKey : childKeys) {
+            batch.add(childKey);
+            if (batch.size() == batchSize) {
+                scan.push(new Partition(parentKey, parentPath, batch));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            scan.push(new Partition(parentKey, parentPath, batch));
+        }
+        return scan.run();
+    }
+
+    /**
+     * A batch of sibling nodes which is processed by a single worker.
+     */
+    private static final class Partition {
+        protected final NodeKey parentKey;
+        protected final Path parentPath;
+        protected final List<NodeKey> keys;
+
+        protected Partition( NodeKey parentKey,
+                             Path parentPath,
+                             List<NodeKey> keys ) {
+            this.parentKey = parentKey;
+            this.parentPath = parentPath;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * The state of a single reindexing operation, shared by all of its workers.
+     */
+    private final class Scan {
+        private final String workspaceName;
+        private final NodeCache cache;
+        private final int depth;
+        private final IndexWriter indexes;
+        // partitions are taken from the head of the deque, so that the most recently discovered subtrees are processed first
+        // and the number of queued partitions is proportional to the depth of the graph rather than to its breadth ...
+        private final BlockingDeque<Partition> partitions = new LinkedBlockingDeque<>();
+        // the number of partitions which are either queued or being processed ...
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicInteger helpers = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // the writer is not thread-safe, so only one worker at a time may use it ...
+        private final Object writeLock = new Object();
+        private final long startTime = System.nanoTime();
+        private volatile boolean updated = false;
+        private volatile boolean noMoreHelpers = maxWorkers == 1;
+
+        protected Scan( String workspaceName,
+                        NodeCache cache,
+                        int depth,
+                        IndexWriter indexes ) {
+            this.workspaceName = workspaceName;
+            this.cache = cache;
+            this.depth = depth;
+            this.indexes = indexes;
+        }
+
+        protected void push( Partition partition ) {
+            pending.incrementAndGet();
+            partitions.addFirst(partition);
+            if (!noMoreHelpers && pending.get() > helpers.get() + 1) {
+                startHelper();
+            }
+        }
+
+        private void startHelper() {
+            int current = helpers.get();
+            if (current >= maxWorkers - 1 || !helpers.compareAndSet(current, current + 1)) {
+                return;
+            }
+            try {
+                workers.execute(() -> {
+                    try {
+                        work();
+                    } finally {
+                        helpers.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the pool is either shutting down or busy with other reindexing operations, so continue with fewer workers ...
+                helpers.decrementAndGet();
+                noMoreHelpers = true;
+            }
+        }
+
+        protected boolean run() {
+            try {
+                work();
+            } finally {
+                // wait for the helpers to finish the partitions they are processing ...
+                while (helpers.get() > 0) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+            }
+            Throwable t = failure.get();
+            if (t instanceof InterruptedException) {
+                LOGGER.debug("Reindexing of workspace '{0}' was interrupted after {1} nodes", workspaceName, indexed.get());
+                Thread.currentThread().interrupt();
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException)t;
+            } else if (t instanceof Error) {
+                throw (Error)t;
+            } else if (t != null) {
+                throw new RuntimeException(t);
+            }
+            if (LOGGER.isDebugEnabled()) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                LOGGER.debug("Reindexed {0} nodes of workspace '{1}' in {2} ms", indexed.get(), workspaceName, millis);
+            }
+            return updated;
+        }
+
+        private void work() {
+            while (failure.get() == null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    failure.compareAndSet(null, new InterruptedException());
+                    return;
+                }
+                Partition partition = partitions.pollFirst();
+                if (partition == null) {
+                    if (pending.get() == 0) {
+                        // all the partitions have been processed ...
+                        return;
+                    }
+                    // other workers are still processing partitions, which may discover more work ...
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                    continue;
+                }
+                try {
+                    process(partition);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        }
+
+        private void process( Partition partition ) {
+            PathCache paths = new PathCache(cache);
+            paths.put(partition.parentKey, partition.parentPath);
+            boolean indexesUpdated = false;
+            int count = 0;
+            for (NodeKey key : partition.keys) {
+                CachedNode node = cache.getNode(key);
+                if (node == null || node.isExcludedFromSearch(cache)) {
+                    continue;
+                }
+                Path nodePath = paths.getPath(node);
+                Name primaryType = node.getPrimaryType(cache);
+                Set<Name> mixinTypes = node.getMixinTypes(cache);
+                CachedNode.Properties properties = node.getPropertiesByName(cache);
+                synchronized (writeLock) {
+                    indexesUpdated |= indexes.add(workspaceName, key, nodePath, primaryType, mixinTypes, properties);
+                }
+                ++count;
+                if (nodePath.size() <= depth) {
+                    pushChildren(key, nodePath, node.getChildReferences(cache));
+                }
+            }
+            if (indexesUpdated) {
+                updated = true;
+            }
+            if (count > 0) {
+                long total = indexed.addAndGet(count);
+                progress.indexed(workspaceName, count);
+                throttle(total);
+            }
+        }
+
+        private void pushChildren( NodeKey parentKey,
+                                   Path parentPath,
+                                   ChildReferences children ) {
+            if (children.size() == 0) {
+                return;
+            }
+            List<NodeKey> batch = new ArrayList<>();
+            for (ChildReference child : children) {
+                batch.add(child.getKey());
+                if (batch.size() == batchSize) {
+                    push(new Partition(parentKey, parentPath, batch));
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                push(new Partition(parentKey, parentPath, batch));
+            }
+        }
+
+        private void throttle( long total ) {
+            if (maxNodesPerSecond == 0) {
+                return;
+            }
+            long due = startTime + total * TimeUnit.SECONDS.toNanos(1) / maxNodesPerSecond;
+            long delay = due - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+        }
+    }
+}
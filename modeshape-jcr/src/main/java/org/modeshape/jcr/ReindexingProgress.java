@@ -0,0 +1,146 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.modeshape.common.annotation.ThreadSafe;
+
+/**
+ * Keeps track of the reindexing operations of a repository, holding for each workspace the progress of the operation that is
+ * currently running or, if there is none, of the last operation which completed.
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class ReindexingProgress {
+
+    private final ConcurrentMap<String, Run> runsByWorkspaceName = new ConcurrentHashMap<>();
+
+    /**
+     * Get the reindexing operations of all the workspaces.
+     *
+     * @return a snapshot of the operations; never null but possibly empty
+     */
+    public List<Run> getRuns() {
+        return new ArrayList<>(runsByWorkspaceName.values());
+    }
+
+    protected void started( String workspaceName,
+                            List<String> indexNames ) {
+        runsByWorkspaceName.compute(workspaceName, (name, existing) -> {
+            if (existing != null && existing.isActive()) {
+                // another operation is already reindexing this workspace, so count the nodes of both of them together ...
+                existing.operations.incrementAndGet();
+                return existing;
+            }
+            return new Run(name, indexNames);
+        });
+    }
+
+    protected void indexed( String workspaceName,
+                            long count ) {
+        Run run = runsByWorkspaceName.get(workspaceName);
+        if (run != null && run.isActive()) {
+            run.nodesIndexed.addAndGet(count);
+        }
+    }
+
+    protected void finished( String workspaceName ) {
+        runsByWorkspaceName.computeIfPresent(workspaceName, (name, run) -> {
+            if (run.isActive() && run.operations.decrementAndGet() == 0) {
+                run.endTime = System.nanoTime();
+            }
+            return run;
+        });
+    }
+
+    /**
+     * The progress of reindexing one workspace.
+     */
+    @ThreadSafe
+    public static final class Run {
+        private final String workspaceName;
+        private final List<String> indexNames;
+        private final long startTimeMillis = System.currentTimeMillis();
+        private final long startTime = System.nanoTime();
+        private final AtomicLong nodesIndexed = new AtomicLong();
+        private final AtomicLong operations = new AtomicLong(1);
+        private volatile long endTime = 0L;
+
+        protected Run( String workspaceName,
+                       List<String> indexNames ) {
+            this.workspaceName = workspaceName;
+            this.indexNames = Collections.unmodifiableList(new ArrayList<>(indexNames));
+        }
+
+        /**
+         * @return the name of the workspace being reindexed; never null
+         */
+        public String getWorkspaceName() {
+            return workspaceName;
+        }
+
+        /**
+         * @return the names of the indexes defined for the workspace, each prefixed by the name of its provider; never null
+         */
+        public List<String> getIndexNames() {
+            return indexNames;
+        }
+
+        /**
+         * @return the time at which the reindexing started, in milliseconds since the epoch
+         */
+        public long getStartTimeMillis() {
+            return startTimeMillis;
+        }
+
+        /**
+         * @return the number of milliseconds the reindexing has been running for, or took if it has completed
+         */
+        public long getDurationMillis() {
+            long end = endTime;
+            return TimeUnit.NANOSECONDS.toMillis((end != 0L ? end : System.nanoTime()) - startTime);
+        }
+
+        /**
+         * @return the number of nodes which have been reindexed so far
+         */
+        public long getNodesIndexed() {
+            return nodesIndexed.get();
+        }
+
+        /**
+         * @return the average number of nodes reindexed per second
+         */
+        public double getNodesPerSecond() {
+            long millis = getDurationMillis();
+            return millis == 0L ? 0d : getNodesIndexed() * 1000d / millis;
+        }
+
+        /**
+         * @return {@code true} if the reindexing is still running, {@code false} if it has completed
+         */
+        public boolean isActive() {
+            return endTime == 0L;
+        }
+    }
+}
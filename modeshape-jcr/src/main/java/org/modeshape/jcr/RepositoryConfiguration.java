@@ -40,7 +40,12 @@ import javax.security.auth.login.LoginException;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.collection.Problems;
 import org.modeshape.common.collection.SimpleProblems;
+import org.modeshape.common.collection.ring.BlockingWaitStrategy;
+import org.modeshape.common.collection.ring.BusySpinWaitStrategy;
+import org.modeshape.common.collection.ring.PhasedBackoffWaitStrategy;
 import org.modeshape.common.collection.ring.RingBufferBuilder;
+import org.modeshape.common.collection.ring.WaitStrategy;
+import org.modeshape.common.collection.ring.YieldingWaitStrategy;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.text.Inflector;
 import org.modeshape.common.util.CheckArg;
@@ -56,6 +61,8 @@ import org.modeshape.jcr.api.txn.TransactionManagerLookup;
 import org.modeshape.jcr.index.local.LocalIndexProvider;
 import org.modeshape.jcr.mimetype.MimeTypeDetector;
 import org.modeshape.jcr.mimetype.MimeTypeDetectors;
+import org.modeshape.jcr.query.BufferManager;
+import org.modeshape.jcr.query.QueryPlanCache;
 import org.modeshape.jcr.security.AnonymousProvider;
 import org.modeshape.jcr.security.JaasProvider;
 import org.modeshape.jcr.txn.DefaultTransactionManagerLookup;
@@ -231,6 +238,23 @@ public class RepositoryConfiguration {
          */
         public static final String EVENT_BUS_SIZE = "eventBusSize";
 
+        /**
+         * The name for the field whose value is the strategy used by the event bus listeners to wait for new events
+         */
+        public static final String EVENT_BUS_WAIT_STRATEGY = "eventBusWaitStrategy";
+
+        /**
+         * The name for the field whose value is the number of records a query buffer (used for sorting, distinct and similar
+         * operations) can hold in memory before it is spilled into serialized storage
+         */
+        public static final String QUERY_BUFFER_SPILL_THRESHOLD = "queryBufferSpillThreshold";
+
+        /**
+         * The name for the field whose value is the maximum number of optimized query plans (and parsed query statements) that
+         * are cached by the repository
+         */
+        public static final String QUERY_PLAN_CACHE_SIZE = "queryPlanCacheSize";
+
         /**
          * The name for the optional field specifying whether the monitoring system is enabled or disabled.
          */
@@ -338,6 +362,18 @@ public class RepositoryConfiguration {
          */
         public static final String WORKSPACE_CACHE_SIZE = "cacheSize";
 
+        /**
+         * The name for the field containing the maximum amount of memory (in megabytes) which all the workspace caches of a
+         * repository may use together. When set, it takes precedence over {@link #WORKSPACE_CACHE_SIZE}.
+         */
+        public static final String WORKSPACE_CACHE_MAX_MEMORY = "cacheMaxMemoryInMB";
+
+        /**
+         * The name for the field containing the number of nodes which are loaded into the workspace cache with a single call to
+         * the persistent store when iterating over query results.
+         */
+        public static final String WORKSPACE_CACHE_PREFETCH_SIZE = "cachePrefetchSize";
+
         /**
          * The name for the field whose value is a document containing binary storage information.
          */
@@ -432,6 +468,9 @@ public class RepositoryConfiguration {
         public static final String REINDEXING = "reindexing";
         public static final String REINDEXING_ASYNC = "async";
         public static final String REINDEXING_MODE = "mode";
+        public static final String REINDEXING_THREADS = "threads";
+        public static final String REINDEXING_BATCH_SIZE = "batchSize";
+        public static final String REINDEXING_MAX_NODES_PER_SECOND = "maxNodesPerSecond";
         public static final String ADDRESS = "address";
         public static final String DATABASE = "database";
         public static final String HOST = "host";
@@ -483,6 +522,16 @@ public class RepositoryConfiguration {
          * Whether asynchronous writes into the journal should be enabled or not.
          */
         public static final String ASYNC_WRITES_ENABLED = "asyncWritesEnabled";
+
+        /**
+         * The format in which the journal records are stored on disk.
+         */
+        public static final String JOURNAL_FORMAT = "format";
+
+        /**
+         * The maximum size in megabytes of a segment file of a segmented journal.
+         */
+        public static final String JOURNAL_SEGMENT_SIZE_IN_MB = "segmentSizeInMb";
     }
 
     public static class Default {
@@ -491,6 +540,17 @@ public class RepositoryConfiguration {
          * The default number of items the workspace cache can hold in memory
          */
         public static final int WORKSPACE_CACHE_SIZE = 10000;
+
+        /**
+         * The default amount of memory (in megabytes) the workspace caches can use; 0 means the caches are bounded by
+         * {@link #WORKSPACE_CACHE_SIZE} instead
+         */
+        public static final int WORKSPACE_CACHE_MAX_MEMORY_IN_MB = 0;
+
+        /**
+         * The default number of nodes which are loaded together into the workspace cache when iterating over query results
+         */
+        public static final int WORKSPACE_CACHE_PREFETCH_SIZE = 100;
         
         /**
          * The default value of the {@link FieldName#MINIMUM_BINARY_SIZE_IN_BYTES} field is '{@value} ' (4 kilobytes).
@@ -522,6 +582,38 @@ public class RepositoryConfiguration {
          */
         public static final int EVENT_BUS_SIZE = RingBufferBuilder.DEFAULT_BUFFER_SIZE;
 
+        /**
+         * The default value of the {@link FieldName#EVENT_BUS_WAIT_STRATEGY} field is '{@value}'
+         */
+        public static final String EVENT_BUS_WAIT_STRATEGY = "blocking";
+
+        /**
+         * The default value of the {@link FieldName#QUERY_BUFFER_SPILL_THRESHOLD} field is '{@value}'
+         */
+        public static final int QUERY_BUFFER_SPILL_THRESHOLD = BufferManager.DEFAULT_SPILL_THRESHOLD;
+
+        /**
+         * The default value of the {@link FieldName#QUERY_PLAN_CACHE_SIZE} field is '{@value}'
+         */
+        public static final int QUERY_PLAN_CACHE_SIZE = QueryPlanCache.DEFAULT_SIZE;
+
+        /**
+         * The default value of the {@link FieldName#REINDEXING_THREADS} field, which is half the number of available processors
+         * (but at least 1).
+         */
+        public static final int REINDEXING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * The default value of the {@link FieldName#REINDEXING_BATCH_SIZE} field is '{@value}'
+         */
+        public static final int REINDEXING_BATCH_SIZE = 256;
+
+        /**
+         * The default value of the {@link FieldName#REINDEXING_MAX_NODES_PER_SECOND} field is '{@value}', meaning that the
+         * reindexing rate is not limited
+         */
+        public static final long REINDEXING_MAX_NODES_PER_SECOND = 0L;
+
         /**
          * The default value of the {@link FieldName#JAAS_POLICY_NAME} field is '{@value} '.
          */
@@ -560,6 +652,8 @@ public class RepositoryConfiguration {
         // by default journal entries are kept indefinitely
         public static final int MAX_DAYS_TO_KEEP_RECORDS = -1;
         public static final boolean ASYNC_WRITES_ENABLED = false;
+        public static final String JOURNAL_FORMAT = "mapdb";
+        public static final int JOURNAL_SEGMENT_SIZE_IN_MB = 64;
 
         public static final String KIND = IndexKind.VALUE.name();
         public static final String NODE_TYPE = "nt:base";
@@ -950,6 +1044,35 @@ public class RepositoryConfiguration {
         return Default.WORKSPACE_CACHE_SIZE;
     }
 
+    /**
+     * Get the maximum amount of memory which the caches of all the workspaces in this repository may use together.
+     *
+     * @return the number of bytes, or 0 if the workspace caches should be bounded by the {@link #getWorkspaceCacheSize() number
+     *         of nodes} instead
+     */
+    public long getWorkspaceCacheMaxMemory() {
+        Document storage = doc.getDocument(FieldName.WORKSPACES);
+        int megabytes = Default.WORKSPACE_CACHE_MAX_MEMORY_IN_MB;
+        if (storage != null) {
+            megabytes = storage.getInteger(FieldName.WORKSPACE_CACHE_MAX_MEMORY, Default.WORKSPACE_CACHE_MAX_MEMORY_IN_MB);
+        }
+        return megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * Get the number of nodes which are loaded into the workspace cache with a single call to the persistent store when iterating
+     * over the nodes of query results.
+     *
+     * @return the number of nodes; a value of 0 or 1 means the nodes are loaded one by one
+     */
+    public int getWorkspaceCachePrefetchSize() {
+        Document storage = doc.getDocument(FieldName.WORKSPACES);
+        if (storage != null) {
+            return storage.getInteger(FieldName.WORKSPACE_CACHE_PREFETCH_SIZE, Default.WORKSPACE_CACHE_PREFETCH_SIZE);
+        }
+        return Default.WORKSPACE_CACHE_PREFETCH_SIZE;
+    }
+
     public Clustering getClustering() {
         return new Clustering(doc.getDocument(FieldName.CLUSTERING));
     }
@@ -1290,6 +1413,34 @@ public class RepositoryConfiguration {
         return doc.getInteger(FieldName.EVENT_BUS_SIZE, Default.EVENT_BUS_SIZE);
     }
 
+    /**
+     * Get the strategy used by the event bus listeners to wait for new events.
+     *
+     * @return the wait strategy; never null
+     */
+    public EventBusWaitStrategy getEventBusWaitStrategy() {
+        String strategy = doc.getString(FieldName.EVENT_BUS_WAIT_STRATEGY, Default.EVENT_BUS_WAIT_STRATEGY);
+        return EventBusWaitStrategy.valueOf(strategy.toUpperCase());
+    }
+
+    /**
+     * Get the number of records a query buffer can hold in memory before it is spilled into serialized storage.
+     *
+     * @return the threshold; 0 if query buffers should always use serialized storage
+     */
+    public int getQueryBufferSpillThreshold() {
+        return doc.getInteger(FieldName.QUERY_BUFFER_SPILL_THRESHOLD, Default.QUERY_BUFFER_SPILL_THRESHOLD);
+    }
+
+    /**
+     * Get the maximum number of optimized query plans (and parsed query statements) that are cached by the repository.
+     *
+     * @return the size of the cache; 0 if queries should always be parsed and planned
+     */
+    public int getQueryPlanCacheSize() {
+        return doc.getInteger(FieldName.QUERY_PLAN_CACHE_SIZE, Default.QUERY_PLAN_CACHE_SIZE);
+    }
+
     /**
      * Get the name of the workspace that should be used for sessions where the client does not specify the name of the workspace.
      *
@@ -1768,6 +1919,69 @@ public class RepositoryConfiguration {
         return false;
     }
 
+    /**
+     * The strategies the event bus listeners can use to wait for new events.
+     */
+    public enum EventBusWaitStrategy {
+        /**
+         * Listeners block on a lock until they are signalled by the thread publishing an event.
+         */
+        BLOCKING {
+            @Override
+            public WaitStrategy createWaitStrategy() {
+                return new BlockingWaitStrategy();
+            }
+        },
+        /**
+         * Listeners poll for new events, yielding the CPU between polls.
+         */
+        YIELDING {
+            @Override
+            public WaitStrategy createWaitStrategy() {
+                return new YieldingWaitStrategy();
+            }
+        },
+        /**
+         * Listeners continuously poll for new events, each one occupying a CPU core.
+         */
+        BUSY_SPIN {
+            @Override
+            public WaitStrategy createWaitStrategy() {
+                return new BusySpinWaitStrategy();
+            }
+        },
+        /**
+         * Listeners spin, then yield and finally block while waiting for new events.
+         */
+        PHASED_BACKOFF {
+            @Override
+            public WaitStrategy createWaitStrategy() {
+                return new PhasedBackoffWaitStrategy();
+            }
+        };
+
+        /**
+         * Create a new instance of the wait strategy, which should be used by a single event bus.
+         *
+         * @return the wait strategy; never null
+         */
+        public abstract WaitStrategy createWaitStrategy();
+    }
+
+    /**
+     * The formats in which the journal can store its records.
+     */
+    public enum JournalFormat {
+        /**
+         * The records are stored in a MapDB B-tree keyed by their time-based keys.
+         */
+        MAPDB,
+        /**
+         * The records are appended to rolling segment files, which are removed as a whole once all their records are old.
+         */
+        SEGMENTED
+    }
+
     /**
      * Possible reindexing modes.
      */
@@ -1806,6 +2020,41 @@ public class RepositoryConfiguration {
             String reindexingMode = reindexing == null ? defaultMode : reindexing.getString(FieldName.REINDEXING_MODE, defaultMode);
             return ReindexingMode.valueOf(reindexingMode.toUpperCase());
         }
+
+        /**
+         * Get the maximum number of threads which reindex the content of a workspace in parallel. This caps the number of cores
+         * reindexing can use, so that it does not starve the rest of the repository.
+         *
+         * @return the number of threads; always positive
+         */
+        public int threads() {
+            int threads = reindexing == null ? Default.REINDEXING_THREADS :
+                          reindexing.getInteger(FieldName.REINDEXING_THREADS, Default.REINDEXING_THREADS);
+            return Math.max(1, threads);
+        }
+
+        /**
+         * Get the maximum number of sibling nodes which are reindexed together, as one unit of work, by a reindexing thread.
+         *
+         * @return the batch size; always positive
+         */
+        public int batchSize() {
+            int batchSize = reindexing == null ? Default.REINDEXING_BATCH_SIZE :
+                            reindexing.getInteger(FieldName.REINDEXING_BATCH_SIZE, Default.REINDEXING_BATCH_SIZE);
+            return Math.max(1, batchSize);
+        }
+
+        /**
+         * Get the maximum number of nodes a reindexing operation indexes per second.
+         *
+         * @return the maximum rate, or 0 if the rate is not limited
+         */
+        public long maxNodesPerSecond() {
+            long maxNodesPerSecond = reindexing == null ? Default.REINDEXING_MAX_NODES_PER_SECOND :
+                                     reindexing.getLong(FieldName.REINDEXING_MAX_NODES_PER_SECOND,
+                                                        Default.REINDEXING_MAX_NODES_PER_SECOND);
+            return Math.max(0L, maxNodesPerSecond);
+        }
     }
 
     /**
@@ -2353,6 +2602,25 @@ public class RepositoryConfiguration {
             return this.journalingDoc.getBoolean(FieldName.ASYNC_WRITES_ENABLED, Default.ASYNC_WRITES_ENABLED);
         }
 
+        /**
+         * Get the format in which the journal records are stored on disk.
+         *
+         * @return the journal format; never null
+         */
+        public JournalFormat format() {
+            String format = this.journalingDoc.getString(FieldName.JOURNAL_FORMAT, Default.JOURNAL_FORMAT);
+            return JournalFormat.valueOf(format.toUpperCase());
+        }
+
+        /**
+         * Get the maximum size of a segment file, when the journal uses the {@link JournalFormat#SEGMENTED segmented} format.
+         *
+         * @return the maximum size of a segment, in megabytes
+         */
+        public int segmentSizeInMb() {
+            return this.journalingDoc.getInteger(FieldName.JOURNAL_SEGMENT_SIZE_IN_MB, Default.JOURNAL_SEGMENT_SIZE_IN_MB);
+        }
+
         /**
          * Get the name of the thread pool that should be used for garbage collection journal entries.
          *
@@ -51,4 +51,11 @@ public interface RepositoryEnvironment {
      * @return a {@link LockingService} instance, never {@code null}
      */
     LockingService lockingService();
+
+    /**
+     * Returns the statistics of the repository, which subsystems can use to record their metrics.
+     *
+     * @return a {@link RepositoryStatistics} instance or {@code null} if metrics are not being recorded
+     */
+    RepositoryStatistics statistics();
 }
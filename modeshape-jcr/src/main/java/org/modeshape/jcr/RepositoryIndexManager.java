@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -270,6 +271,29 @@ class RepositoryIndexManager implements IndexManager, NodeTypes.Listener {
         return indexWriter;
     }
 
+    /**
+     * Wait until the identified change set in the named workspace has been applied to the indexes of all of the registered
+     * providers.
+     *
+     * @param workspaceName the name of the workspace; may not be null
+     * @param changeSetId the {@link ChangeSet#getUUID() identifier} of the change set; may not be null
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout; may not be null
+     * @return true if the changes are visible, or false if the timeout elapsed before they became visible
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    boolean waitUntilApplied( String workspaceName,
+                              String changeSetId,
+                              long timeout,
+                              TimeUnit unit ) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        for (IndexProvider provider : providers.values()) {
+            long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+            if (!provider.waitUntilApplied(workspaceName, changeSetId, remaining, TimeUnit.MILLISECONDS)) return false;
+        }
+        return true;
+    }
+
     /**
      * Get the query index writer that will delegate to only those registered providers with the given names.
      *
@@ -301,6 +325,9 @@ class RepositoryIndexManager implements IndexManager, NodeTypes.Listener {
         // Set the name of the system workspace
         Reflection.setValue(provider, "systemWorkspaceName", systemWorkspaceName);
 
+        // Set the statistics, used to report the backlog and lag of the asynchronous indexes
+        Reflection.setValue(provider, "statistics", repository.statistics());
+
         if (initialized.get()) {
             // This manager is already initialized, so we have to initialize the new provider ...
             doInitialize(provider);
@@ -18,18 +18,18 @@ package org.modeshape.jcr;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import javax.jcr.RepositoryException;
 import org.modeshape.common.annotation.GuardedBy;
 import org.modeshape.common.logging.Logger;
@@ -60,6 +60,7 @@ import org.modeshape.jcr.query.CompositeIndexWriter;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryEngine;
 import org.modeshape.jcr.query.QueryEngineBuilder;
+import org.modeshape.jcr.query.QueryPlanCache;
 import org.modeshape.jcr.query.QueryResults;
 import org.modeshape.jcr.query.engine.IndexQueryEngine;
 import org.modeshape.jcr.query.engine.ScanningQueryEngine;
@@ -89,6 +90,11 @@ class RepositoryQueryManager implements ChangeSetListener {
     private volatile Future<Void> asyncReindexingResult;
     private volatile ScanningTasks toBeScanned = new ScanningTasks();
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private final ReindexingProgress reindexingProgress = new ReindexingProgress();
+    private final ParallelReindexer reindexer;
+    // the indexes which were disabled because their reindexing did not complete ...
+    private final Set<ManagedIndex> incompleteIndexes = ConcurrentHashMap.newKeySet();
+    private final QueryPlanCache planCache;
 
     RepositoryQueryManager( RunningState runningState,
                             ExecutorService indexingExecutorService,
@@ -99,6 +105,13 @@ class RepositoryQueryManager implements ChangeSetListener {
         this.repoConfig = config;
         this.reindexingCfg = reindexingCfg;
         this.indexManager = new RepositoryIndexManager(runningState, config);
+        int reindexingThreads = reindexingCfg.threads();
+        ExecutorService reindexingWorkers = runningState.context().getCachedTreadPool("modeshape-reindexing-workers",
+                                                                                      reindexingThreads);
+        this.reindexer = new ParallelReindexer(reindexingWorkers, reindexingThreads, reindexingCfg.batchSize(),
+                                               reindexingCfg.maxNodesPerSecond(), reindexingProgress);
+        int planCacheSize = config.getQueryPlanCacheSize();
+        this.planCache = planCacheSize > 0 ? new QueryPlanCache(planCacheSize, runningState.statistics()) : null;
     }
 
     synchronized void initialize() {
@@ -120,6 +133,10 @@ class RepositoryQueryManager implements ChangeSetListener {
         // If not yet initialized, the "reindexIfNeeded" method will be called by the JcrRepository.
     }
 
+    private BufferManager newBufferManager( ExecutionContext context ) {
+        return new BufferManager(context, repoConfig.getQueryBufferSpillThreshold(), runningState.statistics());
+    }
+
     ChangeSetListener getListener() {
         return this;
     }
@@ -176,7 +193,7 @@ class RepositoryQueryManager implements ChangeSetListener {
         final QueryEngine queryEngine = queryEngine();
         final QueryContext queryContext = queryEngine.createQueryContext(context, repositoryCache, workspaceNames,
                                                                          overriddenNodeCachesByWorkspaceName, schemata,
-                                                                         indexDefns, nodeTypes, new BufferManager(context),
+                                                                         indexDefns, nodeTypes, newBufferManager(context),
                                                                          hints, variables);
         final org.modeshape.jcr.query.model.QueryCommand command = (org.modeshape.jcr.query.model.QueryCommand)query;
         return new CancellableQuery() {
@@ -220,6 +237,24 @@ class RepositoryQueryManager implements ChangeSetListener {
         return indexManager;
     }
 
+    /**
+     * Get the progress of the reindexing operations performed by this manager.
+     *
+     * @return the reindexing progress; never null
+     */
+    ReindexingProgress getReindexingProgress() {
+        return reindexingProgress;
+    }
+
+    /**
+     * Get the cache of parsed statements and optimized query plans that is shared by all the sessions.
+     *
+     * @return the plan cache, or null if plans are not cached
+     */
+    QueryPlanCache getPlanCache() {
+        return planCache;
+    }
+
     /**
      * Get an immutable snapshot of the index definitions. This can be used by the query engine to determine which indexes might
      * be usable when quering a specific selector (node type).
@@ -252,7 +287,7 @@ class RepositoryQueryManager implements ChangeSetListener {
                         logger.debug("Queries with no indexes are enabled for the '{0}' repository. Executing queries will always scan the repository contents.",
                                      repoConfig.getName());
                     }
-                    queryEngine = builder.using(repoConfig, indexManager, runningState.context()).build();
+                    queryEngine = builder.using(repoConfig, indexManager, runningState.context()).with(planCache).build();
                 }
             } finally {
                 engineInitLock.unlock();
@@ -374,12 +409,10 @@ class RepositoryQueryManager implements ChangeSetListener {
                             // any of the indexes)
                             boolean scanSystemContent = includeSystemContent ||
                                                         repoCache.getSystemWorkspaceName().equals(workspaceName);
-                            updateIndexesStatus(workspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING);
-                            if (reindexContent(workspaceName, workspaceCache, node, Integer.MAX_VALUE, scanSystemContent, 
-                                               writer)) {
-                                commitChanges(workspaceName);
-                            }
-                            updateIndexesStatus(workspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
+                            final CachedNode startNode = node;
+                            reindexWorkspace(workspaceName, path.isRoot(), () -> reindexContent(workspaceName, workspaceCache,
+                                                                                                  startNode, Integer.MAX_VALUE,
+                                                                                                  scanSystemContent, writer));
                         }
                     }
                 };
@@ -456,30 +489,22 @@ class RepositoryQueryManager implements ChangeSetListener {
 
         if (includeSystemContent) {
             String systemWorkspaceName = repoCache.getSystemWorkspaceName();
-            updateIndexesStatus(systemWorkspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING);
             NodeCache systemWorkspaceCache = repoCache.getWorkspaceCache(systemWorkspaceName);
             CachedNode rootNode = systemWorkspaceCache.getNode(repoCache.getSystemKey());
             // Index the system content ...
             logger.debug("Starting reindex of system content in '{0}' repository.", runningState.name());
-            if (reindexSystemContent(rootNode, Integer.MAX_VALUE, indexes)) {
-                commitChanges(systemWorkspaceName);
-            }
+            reindexWorkspace(systemWorkspaceName, true, () -> reindexSystemContent(rootNode, Integer.MAX_VALUE, indexes));
             logger.debug("Completed reindex of system content in '{0}' repository.", runningState.name());
-            updateIndexesStatus(systemWorkspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
         }
 
         // Index the non-system workspaces ...
         for (String workspaceName : repoCache.getWorkspaceNames()) {
-            // change the status of the indexes to reindexing
-            updateIndexesStatus(workspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING);
             NodeCache workspaceCache = repoCache.getWorkspaceCache(workspaceName);
             CachedNode rootNode = workspaceCache.getNode(workspaceCache.getRootKey());
             logger.debug("Starting reindex of workspace '{0}' content in '{1}' repository.", runningState.name(), workspaceName);
-            if (reindexContent(workspaceName, workspaceCache, rootNode, Integer.MAX_VALUE, false, indexes)) {
-                commitChanges(workspaceName);
-            }
+            reindexWorkspace(workspaceName, true,
+                             () -> reindexContent(workspaceName, workspaceCache, rootNode, Integer.MAX_VALUE, false, indexes));
             logger.debug("Completed reindex of workspace '{0}' content in '{1}' repository.", runningState.name(), workspaceName);
-            updateIndexesStatus(workspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
         }
     }
 
@@ -521,22 +546,25 @@ class RepositoryQueryManager implements ChangeSetListener {
             if (ref == null) return;
             node = cache.getNode(ref);
         }
-        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING);
         // If the node is in the system workspace ...
         RepositoryCache repoCache = runningState.repositoryCache();
         String systemWorkspaceName = repoCache.getSystemWorkspaceName();
         String systemWorkspaceKey = repoCache.getSystemWorkspaceKey();
-        if (node.getKey().getWorkspaceKey().equals(systemWorkspaceKey)) {
-            if (reindexSystemContent(node, depth, getIndexWriter())) {
-                commitChanges(systemWorkspaceName);   
-            }
+        final CachedNode startNode = node;
+        boolean wholeWorkspace = path.isRoot() && depth == Integer.MAX_VALUE;
+        if (startNode.getKey().getWorkspaceKey().equals(systemWorkspaceKey)) {
+            reindexWorkspace(workspaceName, wholeWorkspace, () -> {
+                // the changes are made in the system workspace, so they have to be committed there ...
+                if (reindexSystemContent(startNode, depth, getIndexWriter()) && !Thread.currentThread().isInterrupted()) {
+                    commitChanges(systemWorkspaceName);
+                }
+                return false;
+            });
         } else {
             // It's just a regular node in the workspace ...
-            if (reindexContent(workspaceName, cache, node, depth, path.isRoot(), getIndexWriter())) {
-                commitChanges(workspaceName);
-            }
+            reindexWorkspace(workspaceName, wholeWorkspace,
+                             () -> reindexContent(workspaceName, cache, startNode, depth, path.isRoot(), getIndexWriter()));
         }
-        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
     }
     
     protected void reindexSince( JcrWorkspace workspace,
@@ -560,29 +588,27 @@ class RepositoryQueryManager implements ChangeSetListener {
         }
         String workspaceName = cache.getWorkspaceName();
         String workspaceKey = NodeKey.keyForWorkspaceName(workspaceName);
-        boolean commitRequired = false;
-        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING); 
-        // take each of node keys that have been changed since the given timestamp and reindex each one if they belong to this WS
-        while (changedNodes.hasNext()) {
-            NodeKey nodeKey = changedNodes.next();
-            if (!workspaceKey.equals(nodeKey.getWorkspaceKey())) {
-                // this node does not belong to this WS cache, so ignore it...
-                continue;
-            }
-            CachedNode node = cache.getNode(nodeKey);
-            if (node != null) {
-                // the node still exists in the repository so reindex based on the latest available data...
-                commitRequired |= reindexContent(workspaceName, cache, node, 1, true, writer);
-            } else {
-                // the node has been removed from the repository so clear the information from the indexes...
-                commitRequired |= writer.remove(workspaceName, nodeKey);                 
+        reindexWorkspace(workspaceName, false, () -> {
+            boolean commitRequired = false;
+            // take each of node keys that have been changed since the given timestamp and reindex each one if they belong to
+            // this WS
+            while (changedNodes.hasNext() && !Thread.currentThread().isInterrupted()) {
+                NodeKey nodeKey = changedNodes.next();
+                if (!workspaceKey.equals(nodeKey.getWorkspaceKey())) {
+                    // this node does not belong to this WS cache, so ignore it...
+                    continue;
+                }
+                CachedNode node = cache.getNode(nodeKey);
+                if (node != null) {
+                    // the node still exists in the repository so reindex based on the latest available data...
+                    commitRequired |= reindexContent(workspaceName, cache, node, 1, true, writer);
+                } else {
+                    // the node has been removed from the repository so clear the information from the indexes...
+                    commitRequired |= writer.remove(workspaceName, nodeKey);
+                }
             }
-        }   
-        
-        if (commitRequired) {
-            commitChanges(workspaceName);
-        }
-        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);        
+            return commitRequired;
+        });
     }
 
     protected Future<Boolean> reindexSinceAsync( final JcrWorkspace workspace,
@@ -635,13 +661,16 @@ class RepositoryQueryManager implements ChangeSetListener {
         indexesUpdated |= indexes.add(workspaceName, node.getKey(), nodePath, node.getPrimaryType(cache),
                                       node.getMixinTypes(cache),
                                       node.getPropertiesByName(cache));
+        reindexingProgress.indexed(workspaceName, 1);
 
         if (depth == 1) {
             return indexesUpdated;
         }
 
-        // Create a queue for processing the subgraph
-        final Queue<NodeKey> queue = new LinkedList<NodeKey>();
+        // Collect the children, which (along with their descendants) will be processed in parallel ...
+        final NodeKey startKey = node.getKey();
+        final Path startPath = nodePath;
+        final List<NodeKey> children = new ArrayList<>();
 
         if (reindexSystemContent) {
             // We need to look for the system node, and index it differently ...
@@ -655,52 +684,22 @@ class RepositoryQueryManager implements ChangeSetListener {
                     node = cache.getNode(childKey);
                     indexesUpdated |= reindexSystemContent(node, depth - 1, indexes);
                 } else {
-                    queue.add(childKey);
+                    children.add(childKey);
                 }
             }
         } else {
-            // Add all children to the queue ...
+            // Add all children ...
             for (ChildReference childRef : node.getChildReferences(cache)) {
                 NodeKey childKey = childRef.getKey();
                 // we should not reindex anything which is in the system area
                 if (!childKey.getWorkspaceKey().equals(runningState.systemWorkspaceKey())) {
-                    queue.add(childKey);
+                    children.add(childKey);
                 }
             }
         }
 
-        // Now, process the queue until empty ...
-        while (true) {
-            NodeKey key = queue.poll();
-            if (key == null) {
-                break;
-            }
-
-            // Look up the node and find the path ...
-            node = cache.getNode(key);
-            if (node == null || node.isExcludedFromSearch(cache)) {
-                continue;
-            }
-            nodePath = paths.getPath(node);
-
-            // Index the node ...
-            if (indexLogger.isTraceEnabled()) {
-                String path = runningState.context().getValueFactories().getStringFactory().create(nodePath);
-                indexLogger.debug("Reindexing node '{0}' in workspace '{1}' of repository '{2}': {3}", path, workspaceName,
-                                  runningState.name(), node);
-            }
-            indexesUpdated |= indexes.add(workspaceName, node.getKey(), nodePath, node.getPrimaryType(cache),
-                                          node.getMixinTypes(cache),
-                                          node.getPropertiesByName(cache));
-
-            // Check the depth ...
-            if (nodePath.size() <= depth) {
-                // Add the children to the queue ...
-                for (ChildReference childRef : node.getChildReferences(cache)) {
-                    queue.add(childRef.getKey());
-                }
-            }
-        }
+        // Now, process the subgraphs below the children ...
+        indexesUpdated |= reindexer.reindex(workspaceName, cache, startKey, startPath, children, depth, indexes);
         return indexesUpdated;
     }
     
@@ -715,6 +714,80 @@ class RepositoryQueryManager implements ChangeSetListener {
         }
     }
     
+    protected void reindexingStarted( String workspaceName ) {
+        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.ENABLED, IndexManager.IndexStatus.REINDEXING);
+        List<String> indexNames = new ArrayList<>();
+        for (IndexProvider indexProvider : indexManager.getProviders()) {
+            indexProvider.onEachIndexInWorkspace(workspaceName, (wsName, index, defn) -> {
+                indexNames.add(indexProvider.getName() + ":" + defn.getName());
+            });
+        }
+        reindexingProgress.started(workspaceName, indexNames);
+    }
+
+    /**
+     * Reindex (some of) the content of a workspace. If the reindexing fails or is interrupted, the indexes of the workspace are
+     * missing some of the content, so they are disabled rather than being left enabled for queries.
+     *
+     * @param workspaceName the name of the workspace whose indexes are updated; may not be null
+     * @param wholeWorkspace true if all the content of the workspace is reindexed, or false if only some of it is
+     * @param reindexing the operation which reindexes the content and returns whether the changes need to be committed; may
+     *        not be null
+     */
+    protected void reindexWorkspace( String workspaceName,
+                                     boolean wholeWorkspace,
+                                     BooleanSupplier reindexing ) {
+        reindexingStarted(workspaceName);
+        boolean commitRequired;
+        try {
+            commitRequired = reindexing.getAsBoolean();
+        } catch (RuntimeException | Error e) {
+            reindexingFailed(workspaceName);
+            throw e;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            reindexingFailed(workspaceName);
+            return;
+        }
+        if (commitRequired) {
+            commitChanges(workspaceName);
+        }
+        reindexingFinished(workspaceName, wholeWorkspace);
+    }
+
+    protected void reindexingFinished( String workspaceName,
+                                       boolean wholeWorkspace ) {
+        reindexingProgress.finished(workspaceName);
+        updateIndexesStatus(workspaceName, IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
+        if (wholeWorkspace && !incompleteIndexes.isEmpty()) {
+            // the indexes which were disabled by an earlier incomplete reindexing now have all the content ...
+            for (IndexProvider indexProvider : indexManager.getProviders()) {
+                indexProvider.onEachIndexInWorkspace(workspaceName, (wsName, index, defn) -> {
+                    if (incompleteIndexes.remove(index)) {
+                        logger.debug("Enabling index '{0}' in workspace '{1}' after it has been reindexed", defn.getName(),
+                                     wsName);
+                        index.enable(true);
+                    }
+                });
+            }
+        }
+    }
+
+    protected void reindexingFailed( String workspaceName ) {
+        reindexingProgress.finished(workspaceName);
+        for (IndexProvider indexProvider : indexManager.getProviders()) {
+            indexProvider.onEachIndexInWorkspace(workspaceName, (wsName, index, defn) -> {
+                if (index.getStatus() == IndexManager.IndexStatus.REINDEXING) {
+                    // the index only has part of the content, so queries must not use it until it is reindexed ...
+                    index.updateStatus(IndexManager.IndexStatus.REINDEXING, IndexManager.IndexStatus.ENABLED);
+                    index.enable(false);
+                    incompleteIndexes.add(index);
+                    logger.warn(JcrI18n.indexDisabledAfterIncompleteReindexing, defn.getName(), wsName, runningState.name());
+                }
+            });
+        }
+    }
+
     protected void commitChanges( String workspaceName ) {
         for (IndexProvider indexProvider : indexManager.getProviders()) {
             indexProvider.getIndexWriter().commit(workspaceName);
@@ -22,7 +22,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import org.modeshape.common.collection.ring.BlockingWaitStrategy;
 import org.modeshape.common.collection.ring.RingBuffer;
+import org.modeshape.common.collection.ring.WaitStrategy;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.api.monitor.ValueMetric;
@@ -80,12 +82,31 @@ public final class RepositoryChangeBus implements ChangeBus {
                                 ExecutorService executor,
                                 RepositoryStatistics statistics,
                                 int bufferSize) {
+        this(repositoryName, executor, statistics, bufferSize, new BlockingWaitStrategy());
+    }
+
+    /**
+     * Creates a new change bus
+     * 
+     * @param repositoryName the repository name; may not be null
+     * @param executor the {@link java.util.concurrent.ExecutorService} which will be used internally to submit workers to
+     *        dispatching events to listeners.
+     * @param statistics a {@link RepositoryStatistics} instance used to record various metrics; may be null 
+     * @param bufferSize the total size of the ring buffer
+     * @param waitStrategy the strategy used by the listeners which are waiting for new events; may not be null
+     */
+    public RepositoryChangeBus( String repositoryName,
+                                ExecutorService executor,
+                                RepositoryStatistics statistics,
+                                int bufferSize,
+                                WaitStrategy waitStrategy ) {
         this.ringBuffer = RepositoryRingBufferBuilder.withMultipleProducers(executor, 
                                                                             new ChangeSetListenerConsumerAdapter(),
                                                                             statistics)
                                                      .ofSize(bufferSize)
                                                      .named(repositoryName)
                                                      .garbageCollect(true)
+                                                     .waitUsing(waitStrategy)
                                                      .build();
         this.statistics = statistics;
     }
@@ -41,16 +41,24 @@ import org.modeshape.jcr.ModeShape;
 import org.modeshape.jcr.ModeShapeLexicon;
 import org.modeshape.jcr.RepositoryConfiguration;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.Upgrades;
+import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.api.value.DateTime;
 import org.modeshape.jcr.bus.ChangeBus;
 import org.modeshape.jcr.cache.change.Change;
 import org.modeshape.jcr.cache.change.ChangeSet;
 import org.modeshape.jcr.cache.change.ChangeSetListener;
+import org.modeshape.jcr.cache.change.NodeAdded;
+import org.modeshape.jcr.cache.change.NodeMoved;
+import org.modeshape.jcr.cache.change.NodeRemoved;
+import org.modeshape.jcr.cache.change.NodeReordered;
 import org.modeshape.jcr.cache.change.RecordingChanges;
 import org.modeshape.jcr.cache.change.RepositoryMetadataChanged;
 import org.modeshape.jcr.cache.change.WorkspaceAdded;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
+import org.modeshape.jcr.cache.document.CachedNodeWeigher;
+import org.modeshape.jcr.cache.document.DocumentConstants;
 import org.modeshape.jcr.cache.document.DocumentOptimizer;
 import org.modeshape.jcr.cache.document.DocumentStore;
 import org.modeshape.jcr.cache.document.DocumentTranslator;
@@ -73,6 +81,7 @@ import org.modeshape.schematic.document.EditableArray;
 import org.modeshape.schematic.document.EditableDocument;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 /**
  *
@@ -121,6 +130,9 @@ public class RepositoryCache {
     private volatile boolean upgradingRepository = false;
     private int lastUpgradeId;
     private final int workspaceCacheSize;
+    private final long workspaceCacheMaxMemory;
+    private final Cache<NodeKey, CachedNode> sharedWorkspaceCache;
+    private final int workspaceCachePrefetchSize;
 
     public RepositoryCache(ExecutionContext context,
                            DocumentStore documentStore,
@@ -146,6 +158,12 @@ public class RepositoryCache {
         this.upgrades = upgradeFunctions;
         this.workspaceCacheSize = configuration.getWorkspaceCacheSize();
         CheckArg.isPositive(workspaceCacheSize, "workspaceCacheSize");
+        this.workspaceCacheMaxMemory = configuration.getWorkspaceCacheMaxMemory();
+        CheckArg.isNonNegative(workspaceCacheMaxMemory, "workspaceCacheMaxMemory");
+        // when bounded by memory, all the workspaces share a single budget and therefore a single cache
+        this.sharedWorkspaceCache = workspaceCacheMaxMemory > 0 ? newWeightedWorkspaceCache() : null;
+        this.workspaceCachePrefetchSize = configuration.getWorkspaceCachePrefetchSize();
+        CheckArg.isNonNegative(workspaceCachePrefetchSize, "workspaceCachePrefetchSize");
         
         SchematicEntry repositoryInfo = this.documentStore.localStore().get(REPOSITORY_INFO_KEY);
         boolean upgradeRequired = false;
@@ -283,6 +301,8 @@ public class RepositoryCache {
 
         this.changeBus = changeBus;
         this.changeBus.registerInThread(new ChangesToWorkspacesListener());
+        this.changeBus.registerInThread(new RemoteChangesToDocumentStoreListener());
+        this.documentStore.localStore().setCacheLookupListener(this::documentCacheLookedUp);
 
         // Make sure the system workspace is configured to have a 'jcr:system' node ...
         SessionCache systemSession = createSession(context, systemWorkspaceName, false);
@@ -623,6 +643,70 @@ public class RepositoryCache {
         }
     }
 
+    /**
+     * Listener which discards any documents the persistent store may have cached when they are changed by other processes.
+     */
+    protected class RemoteChangesToDocumentStoreListener implements ChangeSetListener {
+        @Override
+        public void notify( ChangeSet changeSet ) {
+            if (changeSet == null || !getKey().equals(changeSet.getRepositoryKey())
+                || processKey.equals(changeSet.getProcessKey())) {
+                // local changes are discarded by the store itself when they are committed
+                return;
+            }
+            LocalDocumentStore store = documentStore().localStore();
+            if (changeSet.getWorkspaceName() == null) {
+                // repository-level documents don't map to node keys
+                store.invalidateAll();
+                return;
+            }
+            Set<NodeKey> changedNodes = new HashSet<>(changeSet.changedNodes());
+            Set<NodeKey> parents = new HashSet<>();
+            for (Change change : changeSet) {
+                if (change instanceof NodeAdded) {
+                    parents.add(((NodeAdded)change).getParentKey());
+                } else if (change instanceof NodeRemoved) {
+                    parents.add(((NodeRemoved)change).getParentKey());
+                } else if (change instanceof NodeMoved) {
+                    parents.add(((NodeMoved)change).getOldParent());
+                    parents.add(((NodeMoved)change).getNewParent());
+                } else if (change instanceof NodeReordered) {
+                    parents.add(((NodeReordered)change).getParent());
+                }
+                // the parent of a renamed node isn't recorded by its event, but it is always one of the changed nodes ...
+            }
+            parents.remove(null);
+            changedNodes.addAll(parents);
+            if (changedNodes.isEmpty()) {
+                return;
+            }
+            Set<String> keys = new HashSet<>();
+            for (NodeKey key : changedNodes) {
+                keys.add(key.toString());
+            }
+            for (NodeKey parent : parents) {
+                // the other process may also have changed the separate blocks of child references of each parent ...
+                addChildReferenceBlocks(store, parent.toString(), keys);
+            }
+            store.invalidate(keys);
+        }
+
+        private void addChildReferenceBlocks( LocalDocumentStore store,
+                                              String parentKey,
+                                              Set<String> keys ) {
+            // follow the blocks linked from the documents this process may still read, before they are invalidated ...
+            SchematicEntry entry = store.get(parentKey);
+            while (entry != null) {
+                Document childrenInfo = entry.content().getDocument(DocumentConstants.CHILDREN_INFO);
+                String nextBlock = childrenInfo != null ? childrenInfo.getString(DocumentConstants.NEXT_BLOCK) : null;
+                if (nextBlock == null || !keys.add(nextBlock)) {
+                    return;
+                }
+                entry = store.get(nextBlock);
+            }
+        }
+    }
+
     /**
      * Get the key for this repository.
      *
@@ -697,7 +781,7 @@ public class RepositoryCache {
 
             WorkspaceCache result = new WorkspaceCache(context, getKey(), name, systemWorkspaceCache,
                                                        documentStore, translator, rootKey, nodeCache,
-                                                       changeBus, repositoryEnvironment());
+                                                       changeBus, repositoryEnvironment(), sharedWorkspaceCache != null);
 
             if (documentStore.storeIfAbsent(rootKeyString, rootDoc) == null) {
                 // we are the first node to perform the initialization (in a cluster), so we need to link the system node
@@ -730,8 +814,54 @@ public class RepositoryCache {
     }
     
     protected Cache<NodeKey, CachedNode> cacheForWorkspace() {
+        if (sharedWorkspaceCache != null) {
+            return sharedWorkspaceCache;
+        }
+        // make sure eviction runs in the same thread
+        return Caffeine.newBuilder()
+                       .maximumSize(workspaceCacheSize)
+                       .executor(Runnable::run)
+                       .removalListener(this::nodeRemovedFromWorkspaceCache)
+                       .build();
+    }
+
+    private Cache<NodeKey, CachedNode> newWeightedWorkspaceCache() {
+        logger.debug("Workspace caches of repository '{0}' will be bounded to {1} bytes", name, workspaceCacheMaxMemory);
         // make sure eviction runs in the same thread
-        return Caffeine.newBuilder().maximumSize(workspaceCacheSize).executor(Runnable::run).build();
+        return Caffeine.newBuilder()
+                       .maximumWeight(workspaceCacheMaxMemory)
+                       .weigher(CachedNodeWeigher.INSTANCE)
+                       .executor(Runnable::run)
+                       .removalListener(this::nodeRemovedFromWorkspaceCache)
+                       .build();
+    }
+
+    private void documentCacheLookedUp( Boolean hit ) {
+        RepositoryStatistics statistics = repositoryEnvironment.statistics();
+        if (statistics != null) {
+            statistics.increment(hit ? ValueMetric.DOCUMENT_CACHE_HITS : ValueMetric.DOCUMENT_CACHE_MISSES);
+        }
+    }
+
+    private void nodeRemovedFromWorkspaceCache( NodeKey key,
+                                                CachedNode node,
+                                                RemovalCause cause ) {
+        if (cause.wasEvicted()) {
+            RepositoryStatistics statistics = repositoryEnvironment.statistics();
+            if (statistics != null) {
+                statistics.increment(ValueMetric.WORKSPACE_CACHE_EVICTIONS);
+            }
+        }
+    }
+
+    /**
+     * Get the number of nodes which should be {@link WorkspaceCache#prefetch(java.util.Collection) prefetched} into the workspace
+     * caches when iterating over a larger number of nodes, such as query results.
+     *
+     * @return the number of nodes; a value of 0 or 1 means the nodes should not be prefetched
+     */
+    public final int getWorkspaceCachePrefetchSize() {
+        return workspaceCachePrefetchSize;
     }
 
     public final DocumentTranslator getDocumentTranslator() {
@@ -145,6 +145,16 @@ public interface SessionCache extends NodeCache {
      */
     public boolean hasChanges();
 
+    /**
+     * Get the identifier of the latest change set that this session saved in its own workspace and that has been published to
+     * the rest of the repository. Changes saved within a user transaction are only published when that transaction commits,
+     * so they are not reflected here.
+     *
+     * @return the {@link org.modeshape.jcr.cache.change.ChangeSet#getUUID() identifier} of the change set, or null if this
+     *         session has not published any changes
+     */
+    public String getLatestChangeSetId();
+
     /**
      * Returns a set with the {@link NodeKey}s of the transient nodes from this cache. Please note that there may be nodes which
      * have been removed by another session.
@@ -102,6 +102,11 @@ public class SessionCacheWrapper implements SessionCache {
         return delegate.hasChanges();
     }
 
+    @Override
+    public String getLatestChangeSetId() {
+        return delegate.getLatestChangeSetId();
+    }
+
     @Override
     public Set<NodeKey> getChangedNodeKeys() {
         return delegate.getChangedNodeKeys();
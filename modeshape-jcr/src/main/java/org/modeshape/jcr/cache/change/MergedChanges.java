@@ -0,0 +1,313 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.change;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.jcr.api.value.DateTime;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.value.BinaryKey;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Property;
+
+/**
+ * A {@link ChangeSet} that merges the changes of several consecutive {@link ChangeSet}s in the same workspace, so that all of
+ * them can be processed (and committed) at once.
+ * <p>
+ * Successive changes to the same property of a node are coalesced into a single change: for example, a property that is changed
+ * twice results in one {@link PropertyChanged} from the original to the final value, and a property that is added and then
+ * removed results in no change at all. Property changes are never coalesced across a structural change of their node (e.g., the
+ * node being added, removed, moved, renamed or reordered), so the order in which the changes of each node are seen is always
+ * preserved.
+ * </p>
+ */
+@NotThreadSafe
+public class MergedChanges implements ChangeSet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String workspaceName;
+    private final String uuid = UUID.randomUUID().toString();
+    private final List<Change> changes = new ArrayList<>();
+    private final Map<NodeKey, Map<Name, Integer>> coalescablePropertyChanges = new HashMap<>();
+    private final Set<NodeKey> changedNodes = new HashSet<>();
+    private final Set<BinaryKey> unusedBinaries = new HashSet<>();
+    private final Set<BinaryKey> usedBinaries = new HashSet<>();
+    private ChangeSet first;
+    private ChangeSet last;
+    private int size;
+    private int changeSetCount;
+    private int coalescedCount;
+
+    /**
+     * Create an empty set of merged changes.
+     *
+     * @param workspaceName the name of the workspace in which all of the merged changes were made; may not be null
+     */
+    public MergedChanges( String workspaceName ) {
+        assert workspaceName != null;
+        this.workspaceName = workspaceName;
+    }
+
+    /**
+     * Merge the changes in the supplied change set, which must follow all of the change sets merged previously.
+     *
+     * @param changeSet the change set; may not be null and must be in the same workspace
+     */
+    public void merge( ChangeSet changeSet ) {
+        assert workspaceName.equals(changeSet.getWorkspaceName());
+        for (Change change : changeSet) {
+            if (change instanceof AbstractPropertyChange) {
+                mergePropertyChange((AbstractPropertyChange)change);
+                continue;
+            }
+            if (change instanceof AbstractNodeChange && !(change instanceof NodeChanged)) {
+                // Property changes made before this change to the node must be kept separate from those made after it ...
+                coalescablePropertyChanges.remove(((AbstractNodeChange)change).getKey());
+            }
+            append(change);
+        }
+        changedNodes.addAll(changeSet.changedNodes());
+        unusedBinaries.addAll(changeSet.unusedBinaries());
+        usedBinaries.addAll(changeSet.usedBinaries());
+        if (first == null) first = changeSet;
+        last = changeSet;
+        ++changeSetCount;
+    }
+
+    private void append( Change change ) {
+        changes.add(change);
+        ++size;
+    }
+
+    private void mergePropertyChange( AbstractPropertyChange change ) {
+        NodeKey key = change.getKey();
+        Name propertyName = change.getProperty().getName();
+        Map<Name, Integer> indexesByName = coalescablePropertyChanges.get(key);
+        if (indexesByName == null) {
+            indexesByName = new HashMap<>();
+            coalescablePropertyChanges.put(key, indexesByName);
+        } else {
+            Integer index = indexesByName.get(propertyName);
+            if (index != null) {
+                AbstractPropertyChange previous = (AbstractPropertyChange)changes.get(index);
+                AbstractPropertyChange coalesced = coalesce(previous, change);
+                if (coalesced != previous) {
+                    changes.set(index, coalesced);
+                    ++coalescedCount;
+                    if (coalesced == null) {
+                        // The changes cancel each other out ...
+                        indexesByName.remove(propertyName);
+                        --size;
+                    }
+                    return;
+                }
+            }
+        }
+        indexesByName.put(propertyName, changes.size());
+        append(change);
+    }
+
+    /**
+     * Coalesce two successive changes to the same property of a node.
+     *
+     * @param previous the earlier change; never null
+     * @param next the later change; never null
+     * @return the single change that is equivalent to both changes, null if the two changes cancel each other out, or
+     *         {@code previous} if the changes cannot be coalesced
+     */
+    private static AbstractPropertyChange coalesce( AbstractPropertyChange previous,
+                                                    AbstractPropertyChange next ) {
+        if (previous instanceof PropertyAdded) {
+            if (next instanceof PropertyChanged) {
+                return new PropertyAdded(next.getKey(), next.getPrimaryType(), next.getMixinTypes(), next.getPathToNode(),
+                                         next.getProperty());
+            }
+            if (next instanceof PropertyRemoved) return null;
+        } else if (previous instanceof PropertyChanged) {
+            Property original = ((PropertyChanged)previous).getOldProperty();
+            if (next instanceof PropertyChanged) {
+                return new PropertyChanged(next.getKey(), next.getPrimaryType(), next.getMixinTypes(), next.getPathToNode(),
+                                           next.getProperty(), original);
+            }
+            if (next instanceof PropertyRemoved) {
+                return new PropertyRemoved(next.getKey(), next.getPrimaryType(), next.getMixinTypes(), next.getPathToNode(),
+                                           original);
+            }
+        } else if (previous instanceof PropertyRemoved) {
+            if (next instanceof PropertyAdded) {
+                return new PropertyChanged(next.getKey(), next.getPrimaryType(), next.getMixinTypes(), next.getPathToNode(),
+                                           next.getProperty(), previous.getProperty());
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Get the number of change sets that were merged.
+     *
+     * @return the number of change sets; never negative
+     */
+    public int getChangeSetCount() {
+        return changeSetCount;
+    }
+
+    /**
+     * Get the number of property changes that were coalesced with an earlier change to the same property.
+     *
+     * @return the number of coalesced changes; never negative
+     */
+    public int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Get the timestamp of the first change set that was merged.
+     *
+     * @return the timestamp of the earliest changes, or null if no change sets were merged
+     */
+    public DateTime getEarliestTimestamp() {
+        return first != null ? first.getTimestamp() : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0 && changedNodes.isEmpty();
+    }
+
+    @Override
+    public Iterator<Change> iterator() {
+        final Iterator<Change> iter = changes.iterator();
+        return new Iterator<Change>() {
+            private Change next = findNext();
+
+            private Change findNext() {
+                while (iter.hasNext()) {
+                    Change change = iter.next();
+                    if (change != null) return change;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Change next() {
+                if (next == null) throw new NoSuchElementException();
+                Change result = next;
+                next = findNext();
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String getUserId() {
+        return last != null ? last.getUserId() : null;
+    }
+
+    @Override
+    public Map<String, String> getUserData() {
+        return last != null ? last.getUserData() : null;
+    }
+
+    @Override
+    public DateTime getTimestamp() {
+        return last != null ? last.getTimestamp() : null;
+    }
+
+    @Override
+    public String getProcessKey() {
+        return last != null ? last.getProcessKey() : null;
+    }
+
+    @Override
+    public String getRepositoryKey() {
+        return last != null ? last.getRepositoryKey() : null;
+    }
+
+    @Override
+    public String getWorkspaceName() {
+        return workspaceName;
+    }
+
+    @Override
+    public Set<NodeKey> changedNodes() {
+        return changedNodes;
+    }
+
+    @Override
+    public Set<BinaryKey> unusedBinaries() {
+        return unusedBinaries;
+    }
+
+    @Override
+    public Set<BinaryKey> usedBinaries() {
+        return usedBinaries;
+    }
+
+    @Override
+    public boolean hasBinaryChanges() {
+        return !usedBinaries.isEmpty() || !unusedBinaries.isEmpty();
+    }
+
+    @Override
+    public String getSessionId() {
+        return last != null ? last.getSessionId() : null;
+    }
+
+    @Override
+    public String getJournalId() {
+        return last != null ? last.getJournalId() : null;
+    }
+
+    @Override
+    public String getUUID() {
+        return uuid;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(changeSetCount).append(" merged change sets in workspace '").append(workspaceName).append("' with ");
+        sb.append(size).append(" changes (").append(coalescedCount).append(" coalesced)\n");
+        for (Change change : this) {
+            sb.append("  ").append(change).append("\n");
+        }
+        return sb.toString();
+    }
+}
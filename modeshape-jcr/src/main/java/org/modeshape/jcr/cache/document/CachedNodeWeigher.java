@@ -0,0 +1,56 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.schematic.document.Bson;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * A {@link Weigher} which estimates the memory used by a cached node based on the size of its underlying {@link LazyCachedNode#document()
+ * document}. This allows workspace caches to be bounded by the memory they use rather than by the number of nodes they hold.
+ * <p>
+ * The weight is computed once, when the node is placed into the cache, so any state a {@link LazyCachedNode} materializes lazily
+ * afterwards is only covered by the fixed {@link #NODE_OVERHEAD_IN_BYTES per-node overhead}.
+ * </p>
+ */
+public final class CachedNodeWeigher implements Weigher<NodeKey, CachedNode> {
+
+    /**
+     * The estimated number of bytes used by a cached node in addition to the size of its document (the key, the node instance and
+     * the lazily-created properties, parent and child reference structures).
+     */
+    public static final int NODE_OVERHEAD_IN_BYTES = 256;
+
+    /**
+     * The shared instance.
+     */
+    public static final CachedNodeWeigher INSTANCE = new CachedNodeWeigher();
+
+    private CachedNodeWeigher() {
+    }
+
+    @Override
+    public int weigh( NodeKey key,
+                      CachedNode node ) {
+        long weight = NODE_OVERHEAD_IN_BYTES + 2L * key.toString().length();
+        if (node instanceof LazyCachedNode) {
+            weight += Bson.estimateSize(((LazyCachedNode)node).document());
+        }
+        return weight > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)weight;
+    }
+}
@@ -214,6 +214,24 @@ public interface DocumentStore {
      */
     public Document getChildrenBlock( String key );
 
+    /**
+     * Returns the percentage of the block of children which precedes the block with the given key that should be iterated before
+     * the block with the given key (and possibly those which follow it) is {@link #prefetchChildrenBlocks(String) prefetched}.
+     *
+     * @param key a {@code non-null} String the key of the block
+     * @return the percentage, between 0 and 100, or -1 if blocks with such a key are never prefetched
+     */
+    public int getChildrenBlockPrefetchThreshold( String key );
+
+    /**
+     * Starts reading, in the background, the block of children that has the given key and possibly some of the blocks which
+     * follow it, so that they are available when they are requested with {@link #getChildrenBlock(String)}. Stores which cannot
+     * prefetch blocks do nothing.
+     *
+     * @param key a {@code non-null} String the key of the block
+     */
+    public void prefetchChildrenBlocks( String key );
+
     /**
      * Returns a document representing a single child reference from the supplied parent to the supplied child. This method is
      * called when it is too expensive to find the child reference within the child references.
@@ -585,6 +585,7 @@ public class ImmutableChildReferences {
                 private Segment segment = firstSegment;
                 private Iterator<ChildReference> iter = segment != null ? segment.getReferences().iterator(name, context) : ImmutableChildReferences.EMPTY_ITERATOR;
                 private ChildReference next;
+                private int consumed;
 
                 @Override
                 public boolean hasNext() {
@@ -595,10 +596,12 @@ public class ImmutableChildReferences {
                     if (!iter.hasNext()) {
                         while (segment != null) {
                             segment = segment.next(cache);
+                            consumed = 0;
                             if (segment != null) {
                                 iter = segment.getReferences().iterator(name, context);
                                 if (iter.hasNext()) {
                                     next = iter.next();
+                                    segment.consumed(++consumed, cache);
                                     return true;
                                 }
                             }
@@ -606,6 +609,7 @@ public class ImmutableChildReferences {
                         return false;
                     }
                     next = iter.next();
+                    segment.consumed(++consumed, cache);
                     return true;
                 }
 
@@ -636,6 +640,7 @@ public class ImmutableChildReferences {
                 private Segment segment = firstSegment;
                 private Iterator<ChildReference> iter = segment != null ? segment.getReferences().iterator(context) : ImmutableChildReferences.EMPTY_ITERATOR;
                 private ChildReference next;
+                private int consumed;
 
                 @Override
                 public boolean hasNext() {
@@ -646,10 +651,12 @@ public class ImmutableChildReferences {
                     if (!iter.hasNext()) {
                         while (segment != null) {
                             segment = segment.next(cache);
+                            consumed = 0;
                             if (segment != null) {
                                 iter = segment.getReferences().iterator(context);
                                 if (iter.hasNext()) {
                                     next = iter.next();
+                                    segment.consumed(++consumed, cache);
                                     return true;
                                 }
                             }
@@ -657,6 +664,7 @@ public class ImmutableChildReferences {
                         return false;
                     }
                     next = iter.next();
+                    segment.consumed(++consumed, cache);
                     return true;
                 }
 
@@ -687,16 +695,19 @@ public class ImmutableChildReferences {
                 private Segment segment = firstSegment;
                 private Iterator<NodeKey> iter = segment != null ? segment.keys() : ImmutableChildReferences.EMPTY_KEY_ITERATOR;
                 private NodeKey next;
+                private int consumed;
 
                 @Override
                 public boolean hasNext() {
                     if (!iter.hasNext()) {
                         while (segment != null) {
                             segment = segment.next(cache);
+                            consumed = 0;
                             if (segment != null) {
                                 iter = segment.keys();
                                 if (iter.hasNext()) {
                                     next = iter.next();
+                                    segment.consumed(++consumed, cache);
                                     return true;
                                 }
                             }
@@ -704,6 +715,7 @@ public class ImmutableChildReferences {
                         return false;
                     }
                     next = iter.next();
+                    segment.consumed(++consumed, cache);
                     return true;
                 }
 
@@ -843,10 +855,15 @@ public class ImmutableChildReferences {
 
     protected static class Segment {
 
+        private static final int UNKNOWN_THRESHOLD = -2;
+        private static final int NO_PREFETCH = -1;
+
         private final ChildReferences references;
         private final String nextKey;
         private final boolean allowsSNS;
         private Segment next;
+        private volatile int prefetchThreshold = UNKNOWN_THRESHOLD;
+        private volatile boolean prefetched;
 
         protected Segment( ChildReferences references,
                            String nextKey,
@@ -878,6 +895,35 @@ public class ImmutableChildReferences {
             return references.getAllKeys();
         }
 
+        /**
+         * Signal that an iterator has consumed the given number of references of this segment, so that the segments which follow
+         * this one are prefetched once enough of this segment has been consumed.
+         *
+         * @param count the number of references of this segment which have been consumed
+         * @param cache the workspace cache; may not be null
+         */
+        public void consumed( int count,
+                              WorkspaceCache cache ) {
+            if (prefetched || nextKey == null || next != null) {
+                return;
+            }
+            int threshold = prefetchThreshold;
+            if (threshold == UNKNOWN_THRESHOLD) {
+                int percentage = cache.blockPrefetchThreshold(nextKey);
+                long size = references.size();
+                if (percentage < 0) {
+                    threshold = NO_PREFETCH;
+                } else {
+                    threshold = size > 0 ? (int)Math.max(1, size * percentage / 100) : 1;
+                }
+                prefetchThreshold = threshold;
+            }
+            if (threshold != NO_PREFETCH && count >= threshold) {
+                prefetched = true;
+                cache.prefetchBlocks(nextKey);
+            }
+        }
+
         @Override
         public String toString() {
             return toString(new StringBuilder()).toString();
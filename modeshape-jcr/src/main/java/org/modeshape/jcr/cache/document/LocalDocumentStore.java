@@ -22,7 +22,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import javax.transaction.NotSupportedException;
 import javax.transaction.SystemException;
 import org.modeshape.common.SystemFailureException;
@@ -78,6 +80,27 @@ public class LocalDocumentStore implements DocumentStore {
         return database.keys();    
     }
 
+    /**
+     * Performs the given action for each key held by this store, without loading all the keys in memory at once.
+     *
+     * @param action a {@link Consumer} which will be called for each key; may not be null
+     * @see SchematicDb#forEachKey(Consumer)
+     */
+    public void forEachKey( Consumer<String> action ) {
+        database.forEachKey(action);
+    }
+
+    /**
+     * Performs the given action for each key held by this store and its document, without loading all the documents (or all
+     * the keys) in memory at once.
+     *
+     * @param action a {@link BiConsumer} which will be called for each key and document; may not be null
+     * @see SchematicDb#forEach(BiConsumer)
+     */
+    public void forEach( BiConsumer<String, Document> action ) {
+        database.forEach(action);
+    }
+
     @Override
     public List<SchematicEntry> load(Collection<String> keys) {
         return database.load(keys);
@@ -137,6 +160,37 @@ public class LocalDocumentStore implements DocumentStore {
         return database.remove(key);
     }
 
+    /**
+     * Discards any state the underlying database caches for the documents with the given keys, because they were changed by
+     * another process.
+     *
+     * @param keys the keys of the changed documents; may not be null
+     * @see SchematicDb#invalidate(Collection)
+     */
+    public void invalidate( Collection<String> keys ) {
+        database.invalidate(keys);
+    }
+
+    /**
+     * Discards all the state the underlying database caches, because any of the documents may have been changed by another
+     * process.
+     *
+     * @see SchematicDb#invalidateAll()
+     */
+    public void invalidateAll() {
+        database.invalidateAll();
+    }
+
+    /**
+     * Registers a listener which is notified of the lookups in the state the underlying database caches.
+     *
+     * @param listener the listener, which accepts {@code true} for each hit and {@code false} for each miss; may be null
+     * @see SchematicDb#setCacheLookupListener(Consumer)
+     */
+    public void setCacheLookupListener( Consumer<Boolean> listener ) {
+        database.setCacheLookupListener(listener);
+    }
+
     /**
      * Removes all the contents of the document store (i.e. all the documents)
      * 
@@ -213,6 +267,17 @@ public class LocalDocumentStore implements DocumentStore {
         return entry.content();
     }
 
+    @Override
+    public int getChildrenBlockPrefetchThreshold( String key ) {
+        // Local blocks are read quickly enough that they're not worth prefetching ...
+        return -1;
+    }
+
+    @Override
+    public void prefetchChildrenBlocks( String key ) {
+        // do nothing
+    }
+
     @Override
     public Document getChildReference( String parentKey,
                                        String childKey ) {
@@ -248,7 +313,8 @@ public class LocalDocumentStore implements DocumentStore {
      */
     public DocumentOperationResults performOnEachDocument( BiFunction<String, EditableDocument, Boolean> operation ) {
         DocumentOperationResults results = new DocumentOperationResults();
-        database.keys().forEach(key -> 
+        // only the keys are streamed, since each document is read again for writing within its own transaction ...
+        database.forEachKey(key -> 
             runInTransaction(() -> {
                 // We operate upon each document within a transaction ...
                 try {
@@ -39,6 +39,11 @@ public class ReadOnlySessionCache extends AbstractSessionCache {
         return false;
     }
 
+    @Override
+    public String getLatestChangeSetId() {
+        return null;
+    }
+
     @Override
     public Set<NodeKey> getChangedNodeKeys() {
         return Collections.emptySet();
@@ -15,13 +15,18 @@
  */
 package org.modeshape.jcr.cache.document;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.bus.ChangeBus;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.ChildReference;
@@ -39,6 +44,10 @@ import org.modeshape.schematic.document.Document;
 /**
  * A {@link NodeCache} implementation that uses a concurrent LRU map to store nodes. The nodes in this cache represent the actual, 
  * unmodified values.
+ * <p>
+ * The map may be bounded by the number of nodes or by their {@link CachedNodeWeigher estimated size}, in which case it may also be
+ * shared by all the workspace caches of a repository (node keys are unique across workspaces).
+ * </p>
  */
 public class WorkspaceCache implements DocumentCache {
 
@@ -48,6 +57,7 @@ public class WorkspaceCache implements DocumentCache {
     private final ExecutionContext context;
     private final DocumentStore documentStore;
     private final ConcurrentMap<NodeKey, CachedNode> nodesByKey;
+    private final boolean sharedNodeCache;
     private final NodeKey rootKey;
     private final ChildReference childReferenceForRoot;
     private final String repositoryKey;
@@ -60,6 +70,7 @@ public class WorkspaceCache implements DocumentCache {
     private final ChangeSetListener systemChangeNotifier;
     private final ChangeSetListener nonSystemChangeNotifier;
     private final RepositoryEnvironment repositoryEnvironment;
+    private final RepositoryStatistics statistics;
     private volatile boolean closed = false;
 
     public WorkspaceCache( ExecutionContext context,
@@ -72,6 +83,37 @@ public class WorkspaceCache implements DocumentCache {
                            ConcurrentMap<NodeKey, CachedNode> cache,
                            ChangeBus changeBus,
                            RepositoryEnvironment repositoryEnvironment) {
+        this(context, repositoryKey, workspaceName, systemWorkspace, documentStore, translator, rootKey, cache, changeBus,
+             repositoryEnvironment, false);
+    }
+
+    /**
+     * Creates a new workspace cache.
+     *
+     * @param context the execution context; may not be null
+     * @param repositoryKey the key of the repository; may not be null
+     * @param workspaceName the name of the workspace; may not be null
+     * @param systemWorkspace the cache of the system workspace, or null if this is the cache of the system workspace
+     * @param documentStore the document store; may not be null
+     * @param translator the document translator; may not be null
+     * @param rootKey the key of the root node of the workspace; may not be null
+     * @param cache the map of the cached nodes; may not be null
+     * @param changeBus the change bus; may not be null
+     * @param repositoryEnvironment the repository environment; may be null
+     * @param sharedNodeCache true if the map of the cached nodes is shared with the caches of the other workspaces, in which
+     *        case {@link #clear()} only removes the nodes of this workspace
+     */
+    public WorkspaceCache( ExecutionContext context,
+                           String repositoryKey,
+                           String workspaceName,
+                           WorkspaceCache systemWorkspace,
+                           DocumentStore documentStore,
+                           DocumentTranslator translator,
+                           NodeKey rootKey,
+                           ConcurrentMap<NodeKey, CachedNode> cache,
+                           ChangeBus changeBus,
+                           RepositoryEnvironment repositoryEnvironment,
+                           boolean sharedNodeCache ) {
         assert context != null;
         assert repositoryKey != null;
         assert workspaceName != null;
@@ -93,7 +135,9 @@ public class WorkspaceCache implements DocumentCache {
         this.pathFactory = context.getValueFactories().getPathFactory();
         this.nameFactory = context.getValueFactories().getNameFactory();
         this.nodesByKey = cache;
+        this.sharedNodeCache = sharedNodeCache;
         this.repositoryEnvironment = repositoryEnvironment;
+        this.statistics = repositoryEnvironment != null ? repositoryEnvironment.statistics() : null;
         if (systemWorkspace != null) {
             // This is not the system workspace, so we have to listen both asynchronously and synchronously ...
             this.systemChangeNotifier = new SystemChangeNotifier(systemWorkspace.getWorkspaceName());
@@ -122,7 +166,9 @@ public class WorkspaceCache implements DocumentCache {
         this.pathFactory = original.pathFactory;
         this.nameFactory = original.nameFactory;
         this.repositoryEnvironment = original.repositoryEnvironment;
+        this.statistics = original.statistics;
         this.nodesByKey = cache;
+        this.sharedNodeCache = false;
         this.systemChangeNotifier = null;
         this.nonSystemChangeNotifier = null;
         //the change bus is not copied on purpose because this ctr should only be used for creating lightweight, "transient" instances
@@ -199,6 +245,14 @@ public class WorkspaceCache implements DocumentCache {
         return documentStore.getChildrenBlock(key);
     }
 
+    final int blockPrefetchThreshold( String key ) {
+        return documentStore.getChildrenBlockPrefetchThreshold(key);
+    }
+
+    final void prefetchBlocks( String key ) {
+        documentStore.prefetchChildrenBlocks(key);
+    }
+
     final Document documentFor( NodeKey key ) {
         return documentFor(key.toString());
     }
@@ -231,6 +285,9 @@ public class WorkspaceCache implements DocumentCache {
     public CachedNode getNode( NodeKey key ) {
         checkNotClosed();
         CachedNode node = nodesByKey.get(key);
+        if (statistics != null) {
+            statistics.increment(node != null ? ValueMetric.WORKSPACE_CACHE_HITS : ValueMetric.WORKSPACE_CACHE_MISSES);
+        }
         if (node == null) {
             // Load the node from the database ...
             if (LOGGER.isTraceEnabled()) {
@@ -281,7 +338,12 @@ public class WorkspaceCache implements DocumentCache {
 
     @Override
     public void clear() {
-        nodesByKey.clear();
+        if (sharedNodeCache) {
+            // the other workspaces still use their nodes
+            nodesByKey.keySet().removeIf(key -> workspaceKey.equals(key.getWorkspaceKey()));
+        } else {
+            nodesByKey.clear();
+        }
     }
 
     protected void evictChangedNodes( ChangeSet changes ) {
@@ -331,6 +393,38 @@ public class WorkspaceCache implements DocumentCache {
         }
     }
 
+    /**
+     * Load into this cache all of the nodes with the supplied keys that are not already cached, using a single call to the
+     * {@link DocumentStore#load(java.util.Collection) document store}. This is meant to be used by callers which know that they
+     * are about to {@link #getNode(NodeKey) access} a larger number of nodes, so that those nodes are not loaded one at a time.
+     * Keys for which there is no persisted document are ignored.
+     *
+     * @param keys the keys of the nodes which are about to be accessed; may not be null
+     */
+    public void prefetch( Collection<NodeKey> keys ) {
+        checkNotClosed();
+        List<String> missingKeys = new ArrayList<>(keys.size());
+        for (NodeKey key : keys) {
+            if (!nodesByKey.containsKey(key)) {
+                missingKeys.add(key.toString());
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return;
+        }
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Prefetching {0} nodes into the '{1}' workspace cache", missingKeys.size(), workspaceName);
+        }
+        for (SchematicEntry entry : documentStore.load(missingKeys)) {
+            Document document = entry.content();
+            if (translator.isCacheable(document)) {
+                NodeKey nodeKey = new NodeKey(entry.id());
+                // don't replace anything that was loaded concurrently
+                nodesByKey.putIfAbsent(nodeKey, new LazyCachedNode(nodeKey, document));
+            }
+        }
+    }
+
     protected void loadFromDocumentStore(Set<String> keys) {
         this.documentStore.load(keys).forEach(entry -> {
             String key = entry.id();
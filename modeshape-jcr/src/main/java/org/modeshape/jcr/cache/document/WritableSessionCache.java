@@ -129,6 +129,7 @@ public class WritableSessionCache extends AbstractSessionCache {
     private Set<NodeKey> replacedNodes;
     private LinkedHashSet<NodeKey> changedNodesInOrder;
     private Map<NodeKey, ReferrerChanges> referrerChangesForRemovedNodes;
+    private volatile String latestChangeSetId;
 
     /**
      * Track the binary keys which are being referenced/unreferenced by nodes so they can be locked
@@ -388,6 +389,11 @@ public class WritableSessionCache extends AbstractSessionCache {
         }
     }
 
+    @Override
+    public String getLatestChangeSetId() {
+        return latestChangeSetId;
+    }
+
     /**
      * Signal that this session cache should check for an existing transaction and use the appropriate workspace cache. If there
      * is a (new to this session) transaction, then this session will use a transaction-specific workspace cache (shared by other
@@ -574,6 +580,7 @@ public class WritableSessionCache extends AbstractSessionCache {
         }
 
         txns.updateCache(workspaceCache(), events, txn);
+        changesPublished(events);
     }
 
     private void runBeforeLocking(PreSave preSaveOperation) throws Exception {
@@ -741,6 +748,7 @@ public class WritableSessionCache extends AbstractSessionCache {
         // Notify the workspaces of the changes made. This is done outside of our lock but still before the save returns ...
         txns.updateCache(this.workspaceCache(), events1, txn);
         txns.updateCache(that.workspaceCache(), events2, txn);
+        changesPublished(events1);
     }
 
     private void checkNodeNotRemovedByAnotherTransaction( MutableCachedNode node ) {
@@ -860,6 +868,18 @@ public class WritableSessionCache extends AbstractSessionCache {
         // TODO: Events ... these events should be combined, but cannot each ChangeSet only has a single workspace
         txns.updateCache(this.workspaceCache(), events1, txn);
         txns.updateCache(that.workspaceCache(), events2, txn);
+        changesPublished(events1);
+    }
+
+    private void changesPublished( ChangeSet changes ) {
+        if (changes == null || changes.isEmpty()) return;
+        try {
+            // Within a user transaction the changes are only published when that transaction commits ...
+            if (txns.isCurrentlyInTransaction()) return;
+        } catch (SystemException e) {
+            return;
+        }
+        latestChangeSetId = changes.getUUID();
     }
 
     /**
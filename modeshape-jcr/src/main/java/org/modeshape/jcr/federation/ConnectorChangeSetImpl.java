@@ -18,6 +18,7 @@ package org.modeshape.jcr.federation;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +47,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
     private final String repositoryKey;
     private final ChangeBus bus;
     private final Map<String, RecordingChanges> changesByWorkspace = new HashMap<String, RecordingChanges>();
+    private final Set<String> changedDocIds = new HashSet<String>();
     private final DateTimeFactory timeFactory;
     private final String journalId;
     private final String sessionId;
@@ -96,6 +98,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                              Name primaryType,
                              Set<Name> mixinTypes,
                              Map<Name, Property> properties ) {
+        documentsChanged(docId, parentDocId);
         NodeKey key = nodeKey(docId);
         NodeKey parentKey = nodeKey(parentDocId);
         Path externalPath = pathMappings.getPathFactory().create(path);
@@ -113,6 +116,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                              Set<Name> mixinTypes,
                              Name parentPrimaryType,
                              Set<Name> parentMixinTypes ) {
+        documentsChanged(docId, parentDocId);
         NodeKey key = nodeKey(docId);
         NodeKey parentKey = nodeKey(parentDocId);
         Path externalPath = pathMappings.getPathFactory().create(path);
@@ -134,6 +138,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                            String oldParentDocId,
                            String newPath,
                            String oldPath ) {
+        documentsChanged(docId, newParentDocId, oldParentDocId);
         NodeKey key = nodeKey(docId);
         NodeKey newParentKey = nodeKey(newParentDocId);
         NodeKey oldParentKey = nodeKey(oldParentDocId);
@@ -251,6 +256,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                                String newPath,
                                String oldNameSegment,
                                String reorderedBeforeNameSegment ) {
+        documentsChanged(docId, parentDocId);
         NodeKey key = nodeKey(docId);
         NodeKey parentKey = nodeKey(parentDocId);
         PathFactory pathFactory = pathMappings.getPathFactory();
@@ -272,6 +278,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                                Set<Name> nodeMixinTypes,
                                String nodePath,
                                Property property ) {
+        documentsChanged(docId);
         NodeKey key = nodeKey(docId);
         Path externalPath = pathMappings.getPathFactory().create(nodePath);
         // This external path in the connector may be projected into *multiple* nodes in the same or different workspaces ...
@@ -286,6 +293,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                                  Set<Name> nodeMixinTypes,
                                  String nodePath,
                                  Property property ) {
+        documentsChanged(docId);
         NodeKey key = nodeKey(docId);
         Path externalPath = pathMappings.getPathFactory().create(nodePath);
         // This external path in the connector may be projected into *multiple* nodes in the same or different workspaces ...
@@ -301,6 +309,7 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
                                  String nodePath,
                                  Property oldProperty,
                                  Property newProperty ) {
+        documentsChanged(docId);
         NodeKey key = nodeKey(docId);
         Path externalPath = pathMappings.getPathFactory().create(nodePath);
         // This external path in the connector may be projected into *multiple* nodes in the same or different workspaces ...
@@ -314,6 +323,9 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
     public void publish( Map<String, String> data ) {
         DateTime now = timeFactory.create();
         if (data == null) data = Collections.emptyMap();
+        // Make sure the changed documents are read again from the connector before anyone is notified ...
+        connectors.externalDocumentsChanged(connectorSourceName, changedDocIds);
+        changedDocIds.clear();
         // Freeze and then notify the bus of each change set of a given workspace ...
         for (RecordingChanges changes : changesByWorkspace.values()) {
             changes.freeze(connectorSourceName, data, now);
@@ -322,6 +334,12 @@ public class ConnectorChangeSetImpl implements ConnectorChangeSet {
         changesByWorkspace.clear();
     }
 
+    private void documentsChanged( String... docIds ) {
+        for (String docId : docIds) {
+            if (docId != null) changedDocIds.add(docId);
+        }
+    }
+
     private NodeKey nodeKey( String documentId ) {
         return FederatedDocumentStore.documentIdToNodeKey(connectorSourceName, documentId);
     }
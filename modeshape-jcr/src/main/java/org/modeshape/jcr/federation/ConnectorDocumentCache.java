@@ -0,0 +1,235 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.federation;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.ValueMetric;
+import org.modeshape.jcr.spi.federation.Connector;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * A bounded cache of the documents returned by a single {@link Connector}, keyed by their document identifiers. The cache can be
+ * bounded either by the number of documents or by their estimated size, and its entries expire after a configurable time so that
+ * changes made in the external system without the connector publishing events are eventually seen. The cache can also remember
+ * the identifiers of documents which do not exist.
+ * <p>
+ * The cached documents are copies of those returned by the connector, and each call to {@link #get} returns a new copy, so
+ * callers are free to modify the documents they obtain. Entries are invalidated whenever the repository writes to the connector
+ * or the connector publishes changes to its documents.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class ConnectorDocumentCache {
+
+    /**
+     * The estimated number of bytes used by each cache entry in addition to the size of its document.
+     */
+    public static final int ENTRY_OVERHEAD_IN_BYTES = 128;
+
+    private final String sourceName;
+    private final boolean cacheMissingDocuments;
+    private final RepositoryStatistics statistics;
+    private final Cache<String, Optional<Document>> documents;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long generation;
+
+    /**
+     * Create the cache for the documents of the supplied connector, based on its configuration.
+     *
+     * @param connector the connector; may not be null
+     * @param statistics the statistics where the cache hits and misses are recorded; may be null
+     * @return the cache, or null if the connector is not configured to have its documents cached
+     */
+    public static ConnectorDocumentCache create( Connector connector,
+                                                 RepositoryStatistics statistics ) {
+        int maxSize = connector.getDocumentCacheSize();
+        long maxBytes = connector.getDocumentCacheMaxMemory() * 1024L * 1024L;
+        if (maxSize <= 0 && maxBytes <= 0) {
+            return null;
+        }
+        return new ConnectorDocumentCache(connector.getSourceName(), maxSize, maxBytes, connector.getDocumentCacheTtlSeconds(),
+                                          connector.isCacheMissingDocuments(), statistics, Ticker.systemTicker());
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param sourceName the name of the source whose documents are cached; may not be null
+     * @param maxSize the maximum number of cached documents; only used if {@code maxBytes} is not positive
+     * @param maxBytes the maximum estimated size of the cached documents, in bytes, or 0 if the cache is bounded by size
+     * @param ttlSeconds the number of seconds after which a cached document expires, or 0 if documents never expire
+     * @param cacheMissingDocuments true if the identifiers of documents which do not exist should be cached as well
+     * @param statistics the statistics where the cache hits and misses are recorded; may be null
+     * @param ticker the source of time for the expiration of the entries; may not be null
+     */
+    protected ConnectorDocumentCache( String sourceName,
+                                      int maxSize,
+                                      long maxBytes,
+                                      long ttlSeconds,
+                                      boolean cacheMissingDocuments,
+                                      RepositoryStatistics statistics,
+                                      Ticker ticker ) {
+        assert sourceName != null;
+        assert maxSize > 0 || maxBytes > 0;
+        this.sourceName = sourceName;
+        this.cacheMissingDocuments = cacheMissingDocuments;
+        this.statistics = statistics;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().executor(Runnable::run).ticker(ticker);
+        if (ttlSeconds > 0) {
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
+        if (maxBytes > 0) {
+            this.documents = builder.maximumWeight(maxBytes).weigher(ConnectorDocumentCache::weigh).build();
+        } else {
+            this.documents = builder.maximumSize(maxSize).build();
+        }
+    }
+
+    private static int weigh( String docId,
+                              Optional<Document> document ) {
+        long weight = ENTRY_OVERHEAD_IN_BYTES + 2L * docId.length();
+        if (document.isPresent()) {
+            weight += Bson.estimateSize(document.get());
+        }
+        return weight > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)weight;
+    }
+
+    /**
+     * Get the name of the source whose documents are cached.
+     *
+     * @return the source name; never null
+     */
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    /**
+     * Get the document with the supplied identifier, either from this cache or, if it is not cached, from the supplied function
+     * which reads it from the connector.
+     *
+     * @param docId the identifier of the document; may not be null
+     * @param loader the function which reads the document from the connector, and which returns null if there is no such
+     *        document; may not be null
+     * @return the document, which the caller is free to modify, or null if there is no such document
+     */
+    public Document get( String docId,
+                         Function<String, Document> loader ) {
+        Optional<Document> cached = documents.getIfPresent(docId);
+        if (cached != null) {
+            hits.increment();
+            if (statistics != null) statistics.increment(ValueMetric.EXTERNAL_DOCUMENT_CACHE_HITS);
+            return cached.isPresent() ? cached.get().clone() : null;
+        }
+        misses.increment();
+        if (statistics != null) statistics.increment(ValueMetric.EXTERNAL_DOCUMENT_CACHE_MISSES);
+        long generation = currentGeneration();
+        Document document = loader.apply(docId);
+        if (document != null) {
+            // Cache a copy, since the caller may modify the document ...
+            put(docId, Optional.of(document.clone()), generation);
+        } else if (cacheMissingDocuments) {
+            put(docId, Optional.empty(), generation);
+        }
+        return document;
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized void put( String docId,
+                                   Optional<Document> document,
+                                   long generation ) {
+        // Don't cache what was read before the cache was invalidated, since it may already be stale ...
+        if (generation == this.generation) {
+            documents.put(docId, document);
+        }
+    }
+
+    /**
+     * Remove the document with the supplied identifier from this cache.
+     *
+     * @param docId the identifier of the document; may not be null
+     */
+    public synchronized void invalidate( String docId ) {
+        ++generation;
+        documents.invalidate(docId);
+    }
+
+    /**
+     * Remove the documents with the supplied identifiers from this cache.
+     *
+     * @param docIds the identifiers of the documents; may not be null
+     */
+    public synchronized void invalidate( Collection<String> docIds ) {
+        ++generation;
+        documents.invalidateAll(docIds);
+    }
+
+    /**
+     * Remove all of the documents from this cache.
+     */
+    public synchronized void invalidateAll() {
+        ++generation;
+        documents.invalidateAll();
+    }
+
+    /**
+     * Get the approximate number of entries in this cache, including those of missing documents.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        documents.cleanUp();
+        return documents.estimatedSize();
+    }
+
+    /**
+     * Get the number of lookups which were answered by this cache.
+     *
+     * @return the number of cache hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups which had to read the document from the connector.
+     *
+     * @return the number of cache misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Document cache for source '" + sourceName + "' (" + hits() + " hits, " + misses() + " misses)";
+    }
+}
@@ -126,6 +126,7 @@ public class FederatedDocumentStore implements DocumentStore {
             checkConnectorIsWritable(connector);
             EditableDocument editableDocument = replaceNodeKeysWithDocumentIds(document);
             connector.storeDocument(editableDocument);
+            documentsWritten(connector);
         }
         return null;
     }
@@ -146,6 +147,7 @@ public class FederatedDocumentStore implements DocumentStore {
                 DocumentChanges documentChanges = createDocumentChanges(nodeChanges, connector.getSourceName(), editableDocument,
                                                                         documentId);
                 connector.updateDocument(documentChanges);
+                documentsWritten(connector);
             }
         }
     }
@@ -259,7 +261,12 @@ public class FederatedDocumentStore implements DocumentStore {
             } else {
                 // interpret the key as a regular node id
                 String docId = documentIdFromNodeKey(key);
-                document = connector.getDocumentById(docId);
+                ConnectorDocumentCache documentCache = connectors.getDocumentCache(connector.getSourceName());
+                if (documentCache != null) {
+                    document = documentCache.get(docId, connector::getDocumentById);
+                } else {
+                    document = connector.getDocumentById(docId);
+                }
             }
             if (document != null) {
                 // clone the document, so we don't alter the original
@@ -306,6 +313,18 @@ public class FederatedDocumentStore implements DocumentStore {
         return editableDocument;
     }
 
+    private void documentsWritten( Connector connector ) {
+        // A write may change the document, its parents and its children, so no cached document or page can be trusted ...
+        ConnectorDocumentCache documentCache = connectors.getDocumentCache(connector.getSourceName());
+        if (documentCache != null) {
+            documentCache.invalidateAll();
+        }
+        PagePrefetcher prefetcher = connectors.getPagePrefetcher(connector.getSourceName());
+        if (prefetcher != null) {
+            prefetcher.clear();
+        }
+    }
+
     @Override
     public boolean containsKey( String key ) {
         if (isLocalSource(key)) {
@@ -326,6 +345,7 @@ public class FederatedDocumentStore implements DocumentStore {
         if (connector != null) {
             checkConnectorIsWritable(connector);
             boolean result = connector.removeDocument(documentIdFromNodeKey(key));
+            documentsWritten(connector);
             connectors.externalNodeRemoved(key);
             return result;
         }
@@ -390,8 +410,13 @@ public class FederatedDocumentStore implements DocumentStore {
         Connector connector = connectors.getConnectorForSourceKey(sourceKey(key));
         if (connector != null && connector instanceof Pageable) {
             key = documentIdFromNodeKey(key);
-            PageKey blockKey = new PageKey(key);
-            Document childrenBlock = ((Pageable)connector).getChildren(blockKey);
+            PagePrefetcher prefetcher = connectors.getPagePrefetcher(connector.getSourceName());
+            Document childrenBlock = null;
+            if (prefetcher != null) {
+                childrenBlock = prefetcher.getPage(key);
+            } else {
+                childrenBlock = ((Pageable)connector).getChildren(new PageKey(key));
+            }
             if (childrenBlock != null) {
                 return replaceConnectorIdsWithNodeKeys(childrenBlock, connector.getSourceName());
             }
@@ -399,6 +424,29 @@ public class FederatedDocumentStore implements DocumentStore {
         return null;
     }
 
+    @Override
+    public int getChildrenBlockPrefetchThreshold( String key ) {
+        if (isLocalSource(key)) {
+            return localStore().getChildrenBlockPrefetchThreshold(key);
+        }
+        Connector connector = connectors.getConnectorForSourceKey(sourceKey(key));
+        PagePrefetcher prefetcher = connector != null ? connectors.getPagePrefetcher(connector.getSourceName()) : null;
+        return prefetcher != null ? prefetcher.getThreshold() : -1;
+    }
+
+    @Override
+    public void prefetchChildrenBlocks( String key ) {
+        if (isLocalSource(key)) {
+            localStore().prefetchChildrenBlocks(key);
+            return;
+        }
+        Connector connector = connectors.getConnectorForSourceKey(sourceKey(key));
+        PagePrefetcher prefetcher = connector != null ? connectors.getPagePrefetcher(connector.getSourceName()) : null;
+        if (prefetcher != null) {
+            prefetcher.prefetch(documentIdFromNodeKey(key));
+        }
+    }
+
     @Override
     public Document getChildReference( String parentKey,
                                        String childKey ) {
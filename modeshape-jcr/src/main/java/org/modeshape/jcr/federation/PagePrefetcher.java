@@ -0,0 +1,236 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.federation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.cache.document.DocumentTranslator;
+import org.modeshape.jcr.spi.federation.Connector;
+import org.modeshape.jcr.spi.federation.PageKey;
+import org.modeshape.jcr.spi.federation.Pageable;
+import org.modeshape.schematic.document.Document;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Reads, in the background, the pages of children of a {@link Pageable} connector before they are needed, so that the latency of
+ * reading each page from the external system overlaps with the iteration over the children of the previous pages.
+ * <p>
+ * Since the key of a page is only known once the previous page has been read, prefetching follows the chain of pages: each
+ * prefetched page causes the one after it to be prefetched, until the configured number of pages ahead of the iteration has been
+ * reached. The pages are read by a thread pool which is dedicated to the connector and bounded in size. When all of its threads
+ * are busy, pages are simply not prefetched and are read when they are needed.
+ * </p>
+ * <p>
+ * Prefetched pages which are not used expire after a short time, and all of them are discarded when the repository writes to the
+ * connector.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class PagePrefetcher {
+
+    /**
+     * The number of seconds after which a prefetched page which has not been used is discarded.
+     */
+    protected static final int EXPIRATION_IN_SECONDS = 30;
+
+    private static final Logger LOGGER = Logger.getLogger(PagePrefetcher.class);
+
+    private final Pageable connector;
+    private final String sourceName;
+    private final int pageCount;
+    private final int threshold;
+    private final Executor executor;
+    private final Cache<String, CompletableFuture<Document>> pages;
+    private final LongAdder prefetchedPagesUsed = new LongAdder();
+    private long generation;
+
+    /**
+     * Create the prefetcher for the pages of the supplied connector, based on its configuration.
+     *
+     * @param connector the connector; may not be null
+     * @param context the execution context of the repository, used to obtain the thread pool; may not be null
+     * @return the prefetcher, or null if the connector is not {@link Pageable} or is not configured to prefetch pages
+     */
+    public static PagePrefetcher create( Connector connector,
+                                         ExecutionContext context ) {
+        if (!(connector instanceof Pageable) || connector.getPagePrefetchSize() <= 0) {
+            return null;
+        }
+        String poolName = "modeshape-page-prefetch-" + connector.getSourceName();
+        int threads = Math.max(1, connector.getPagePrefetchThreads());
+        return new PagePrefetcher((Pageable)connector, connector.getSourceName(), connector.getPagePrefetchSize(),
+                                  connector.getPagePrefetchThreshold(), context.getCachedTreadPool(poolName, threads));
+    }
+
+    /**
+     * Create a new prefetcher.
+     *
+     * @param connector the connector from which the pages are read; may not be null
+     * @param sourceName the name of the source; may not be null
+     * @param pageCount the maximum number of pages which are read ahead of the iteration; must be positive
+     * @param threshold the percentage of a page which is iterated before the following pages are prefetched
+     * @param executor the executor which reads the pages; may not be null
+     */
+    protected PagePrefetcher( Pageable connector,
+                              String sourceName,
+                              int pageCount,
+                              int threshold,
+                              Executor executor ) {
+        assert connector != null;
+        assert pageCount > 0;
+        this.connector = connector;
+        this.sourceName = sourceName;
+        this.pageCount = pageCount;
+        this.threshold = Math.max(0, Math.min(100, threshold));
+        this.executor = executor;
+        // Bound the pages held in memory, in case iterations are abandoned before they reach the prefetched pages ...
+        this.pages = Caffeine.newBuilder()
+                             .maximumSize(64L * pageCount)
+                             .expireAfterWrite(EXPIRATION_IN_SECONDS, TimeUnit.SECONDS)
+                             .executor(Runnable::run)
+                             .build();
+    }
+
+    /**
+     * Get the percentage of a page of children which should be iterated before the pages which follow it are prefetched.
+     *
+     * @return the percentage, between 0 and 100
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Get the page with the supplied key, using the prefetched page if there is one.
+     *
+     * @param pageKey the key of the page, as used by the connector; may not be null
+     * @return the page, or null if the connector has no such page
+     */
+    public Document getPage( String pageKey ) {
+        CompletableFuture<Document> prefetched = pages.asMap().remove(pageKey);
+        if (prefetched != null) {
+            try {
+                Document page = prefetched.join();
+                if (page != null) {
+                    prefetchedPagesUsed.increment();
+                    return page;
+                }
+            } catch (CompletionException e) {
+                // Read the page again below, so that the caller gets the error ...
+                LOGGER.debug(e, "Unable to prefetch the page '{0}' of source '{1}'", pageKey, sourceName);
+            }
+        }
+        return connector.getChildren(new PageKey(pageKey));
+    }
+
+    /**
+     * Start reading in the background the page with the supplied key and the pages which follow it, up to the configured number
+     * of pages. Pages which have already been prefetched, or are being prefetched, are not read again.
+     *
+     * @param pageKey the key of the first page, as used by the connector; may be null
+     */
+    public void prefetch( String pageKey ) {
+        prefetch(pageKey, pageCount, currentGeneration());
+    }
+
+    private void prefetch( final String pageKey,
+                           final int remaining,
+                           final long generation ) {
+        if (pageKey == null || remaining <= 0 || generation != currentGeneration()) {
+            // Don't follow the chain of pages once they have been cleared, since they may have changed ...
+            return;
+        }
+        ConcurrentMap<String, CompletableFuture<Document>> pagesByKey = pages.asMap();
+        CompletableFuture<Document> future = pagesByKey.get(pageKey);
+        if (future == null) {
+            final CompletableFuture<Document> newFuture = new CompletableFuture<>();
+            future = pagesByKey.putIfAbsent(pageKey, newFuture);
+            if (future == null) {
+                future = newFuture;
+                try {
+                    executor.execute(() -> read(pageKey, newFuture, generation));
+                } catch (RejectedExecutionException e) {
+                    // All of the threads are busy, so the page will be read when it is needed ...
+                    pagesByKey.remove(pageKey, newFuture);
+                    return;
+                }
+            }
+        }
+        future.thenAccept(page -> prefetch(nextPageKey(page), remaining - 1, generation));
+    }
+
+    private void read( String pageKey,
+                       CompletableFuture<Document> future,
+                       long generation ) {
+        if (generation != currentGeneration()) {
+            // The pages were cleared while this one was waiting for a thread, so it will be read when it is needed ...
+            pages.asMap().remove(pageKey, future);
+            future.complete(null);
+            return;
+        }
+        try {
+            future.complete(connector.getChildren(new PageKey(pageKey)));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    private static String nextPageKey( Document page ) {
+        if (page == null) {
+            return null;
+        }
+        Document childrenInfo = page.getDocument(DocumentTranslator.CHILDREN_INFO);
+        return childrenInfo != null ? childrenInfo.getString(DocumentTranslator.NEXT_BLOCK) : null;
+    }
+
+    /**
+     * Discard all of the prefetched pages. The pages which are being read are discarded as well, and the pages which follow them
+     * are not prefetched.
+     */
+    public synchronized void clear() {
+        ++generation;
+        pages.invalidateAll();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the number of prefetched pages which were used.
+     *
+     * @return the number of pages
+     */
+    public long prefetchedPagesUsed() {
+        return prefetchedPagesUsed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Page prefetcher for source '" + sourceName + "' (" + prefetchedPagesUsed() + " prefetched pages used)";
+    }
+}
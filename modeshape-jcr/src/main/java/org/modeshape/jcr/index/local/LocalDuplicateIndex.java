@@ -17,6 +17,7 @@
 package org.modeshape.jcr.index.local;
 
 import java.util.Comparator;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.jcr.query.qom.StaticOperand;
 import org.mapdb.DB;
@@ -46,6 +47,7 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
      * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
      * @param valueSerializer the serializer for the type of value being indexed
      * @param comparator the comparator for the values; may not be null
+     * @param statisticsExecutor the executor used to collect the index statistics; may be null
      * @return the new index; never null
      */
     static <T> LocalDuplicateIndex<T> create( String name,
@@ -53,8 +55,9 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
                                               DB db,
                                               Converter<T> converter,
                                               Serializer<T> valueSerializer,
-                                              Comparator<T> comparator ) {
-        return new LocalDuplicateIndex<>(name, workspaceName, db, converter, valueSerializer, comparator);
+                                              Comparator<T> comparator,
+                                              Executor statisticsExecutor ) {
+        return new LocalDuplicateIndex<>(name, workspaceName, db, converter, valueSerializer, comparator, statisticsExecutor);
     }
 
     private static final String NEXT_COUNTER = "next-counter";
@@ -68,9 +71,19 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
                                    Converter<T> converter,
                                    Serializer<T> valueSerializer,
                                    Comparator<T> comparator ) {
+        this(name, workspaceName, db, converter, valueSerializer, comparator, null);
+    }
+
+    protected LocalDuplicateIndex( String name,
+                                   String workspaceName,
+                                   DB db,
+                                   Converter<T> converter,
+                                   Serializer<T> valueSerializer,
+                                   Comparator<T> comparator,
+                                   Executor statisticsExecutor ) {
         super(name, workspaceName, db, IndexValues.uniqueKeyConverter(converter), MapDB.uniqueKeyBTreeSerializer(valueSerializer,
                                                                                                                  comparator),
-              MapDB.uniqueKeySerializer(valueSerializer, comparator));
+              MapDB.uniqueKeySerializer(valueSerializer, comparator), statisticsExecutor);
         Long nextCounter = (Long)options.get(NEXT_COUNTER);
         this.counter = new AtomicLong(nextCounter != null ? nextCounter : -1L);
     }
@@ -84,6 +97,7 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
         long nextId = (long) options.compute(NEXT_COUNTER, (key, val) -> counter.incrementAndGet());
         // then store the data in the index
         keysByValue.compute(new UniqueKey<T>(value, nextId), (key, val) -> nodeKey);
+        statistics.changed();
     }
 
     @Override
@@ -95,6 +109,7 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
             if (key.actualKey.equals(value)) {
                 logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key.actualKey);
                 keysByValue.remove(key);
+                statistics.changed();
             }
         }
     }
@@ -105,6 +120,12 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
         for (UniqueKey<T> key : Fun.filter(valuesByKey, nodeKey)) {
             logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key.actualKey);
             keysByValue.remove(key);
+            statistics.changed();
         }
     }
+
+    @Override
+    protected Object valueOf( UniqueKey<T> key ) {
+        return key.actualKey;
+    }
 }
@@ -17,6 +17,7 @@
 package org.modeshape.jcr.index.local;
 
 import java.util.Comparator;
+import java.util.concurrent.Executor;
 import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
 import org.mapdb.Serializer;
@@ -71,6 +72,11 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         return new SingleColumnIndexBuilder<>(context, defn, nodeTypesSupplier,workspaceName, matcher, actualPropertyType, db);
     }
 
+    /**
+     * The name of the thread pool used to collect index statistics.
+     */
+    protected static final String STATISTICS_THREAD_POOL = "modeshape-index-statistics";
+
     protected final Serializers serializers;
     
     protected LocalIndexBuilder( ExecutionContext context,
@@ -103,6 +109,15 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         return defn.getName();
     }
 
+    /**
+     * Get the executor used to collect the statistics of the local indexes in the background.
+     *
+     * @return the executor; never null
+     */
+    protected final Executor statisticsExecutor() {
+        return context.getThreadPool(STATISTICS_THREAD_POOL);
+    }
+
     protected abstract Serializer<T> getSerializer();
 
     protected abstract Comparator<T> getComparator();
@@ -172,14 +187,16 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         protected ProvidedIndex<?> buildMultiValueIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                          Supplier nodeTypesSupplier,
                                                          NodeTypePredicate matcher ) {
-            return LocalDuplicateIndex.create(indexName(), workspaceName, db, getConverter(), getSerializer(), getComparator());
+            return LocalDuplicateIndex.create(indexName(), workspaceName, db, getConverter(), getSerializer(), getComparator(),
+                                              statisticsExecutor());
         }
 
         @Override
         protected ProvidedIndex<?> buildUniqueValueIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                           Supplier nodeTypesSupplier,
                                                           NodeTypePredicate matcher ) {
-            return LocalUniqueIndex.create(indexName(), workspaceName, db, getConverter(), getBTreeKeySerializer(), getSerializer());
+            return LocalUniqueIndex.create(indexName(), workspaceName, db, getConverter(), getBTreeKeySerializer(),
+                                           getSerializer(), statisticsExecutor());
         }
 
         @Override
@@ -0,0 +1,284 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.index.local.Operations.Estimator;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+
+/**
+ * The statistics of a {@link LocalMapIndex}, used to estimate the number of node keys in ranges of the index without scanning
+ * those ranges. The statistics consist of an equi-depth histogram, the number of distinct values and the most common values, and
+ * are collected with a single scan of the index. That scan is done in the background whenever a sufficient fraction of the index
+ * has changed since the previous scan, while the total number of entries is always obtained from the index itself.
+ * <p>
+ * Small ranges are always counted exactly, since that is never more expensive than a few lookups in the histogram. Larger ranges
+ * are estimated by counting the histogram boundaries that fall within the range: each boundary stands for one bucket of entries,
+ * so ranges of frequent values (which span many buckets) get much higher estimates than ranges of rare values.
+ * </p>
+ *
+ * @param <T> the type of index key
+ */
+@ThreadSafe
+final class LocalIndexStatistics<T> implements Estimator<T, String> {
+
+    /**
+     * The number of buckets in the histogram.
+     */
+    static final int BUCKET_COUNT = 200;
+
+    /**
+     * The number of most common values that are tracked.
+     */
+    static final int MOST_COMMON_VALUE_COUNT = 10;
+
+    /**
+     * Ranges with fewer entries than this are counted exactly.
+     */
+    static final long EXACT_COUNT_LIMIT = 1000L;
+
+    /**
+     * The fraction of the entries in the index that must have changed before the statistics are collected again.
+     */
+    static final double STALE_RATIO = 0.1d;
+
+    private static final Logger LOGGER = Logger.getLogger(LocalIndexStatistics.class);
+
+    private final String indexName;
+    private final NavigableMap<T, String> keysByValue;
+    private final Function<T, Object> valueExtractor;
+    private final Executor executor;
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    private volatile Histogram<T> histogram;
+
+    /**
+     * Create the statistics for an index.
+     *
+     * @param indexName the name of the index; may not be null
+     * @param keysByValue the index's map of values-to-NodeKey; may not be null
+     * @param valueExtractor the function that obtains the indexed value from a key in the map; may not be null
+     * @param executor the executor used to collect the statistics in the background; may be null if the statistics are to be
+     *        collected in the thread that finds they're stale
+     */
+    LocalIndexStatistics( String indexName,
+                          NavigableMap<T, String> keysByValue,
+                          Function<T, Object> valueExtractor,
+                          Executor executor ) {
+        assert indexName != null;
+        assert keysByValue != null;
+        assert valueExtractor != null;
+        this.indexName = indexName;
+        this.keysByValue = keysByValue;
+        this.valueExtractor = valueExtractor;
+        this.executor = executor;
+    }
+
+    /**
+     * Record that an entry was added to or removed from the index.
+     */
+    void changed() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Discard the statistics, typically because all of the entries were removed from the index.
+     */
+    void clear() {
+        histogram = null;
+        changes.set(0L);
+    }
+
+    /**
+     * Get the most recently collected statistics, and start collecting new statistics if they are stale.
+     *
+     * @return the statistics, or null if they have not yet been collected
+     */
+    IndexStatistics get() {
+        refreshIfStale();
+        Histogram<T> histogram = this.histogram;
+        return histogram != null ? histogram.statistics : null;
+    }
+
+    @Override
+    public long estimateCount( NavigableMap<T, String> range ) {
+        // Count small ranges exactly, which also covers all ranges of small indexes ...
+        long count = countUpTo(range, EXACT_COUNT_LIMIT);
+        if (count < EXACT_COUNT_LIMIT) return count;
+        refreshIfStale();
+        long total = keysByValue.size();
+        Histogram<T> histogram = this.histogram;
+        if (histogram == null) {
+            // The statistics are still being collected, so assume the worst ...
+            return total;
+        }
+        long boundaries = 0L;
+        for (T boundary : histogram.boundaries) {
+            if (range.containsKey(boundary)) ++boundaries;
+        }
+        // Scale the depth of the buckets by the number of entries added or removed since the histogram was built ...
+        long collectedTotal = histogram.statistics.getTotalCount();
+        double depth = histogram.statistics.getBucketDepth();
+        if (collectedTotal > 0L) depth = depth * total / collectedTotal;
+        long estimate = Math.round(boundaries * depth);
+        return Math.max(EXACT_COUNT_LIMIT, Math.min(estimate, total));
+    }
+
+    private static long countUpTo( NavigableMap<?, ?> range,
+                                   long limit ) {
+        long count = 0L;
+        Iterator<?> iter = range.keySet().iterator();
+        while (count < limit && iter.hasNext()) {
+            iter.next();
+            ++count;
+        }
+        return count;
+    }
+
+    private void refreshIfStale() {
+        Histogram<T> histogram = this.histogram;
+        if (histogram != null) {
+            long threshold = Math.max(EXACT_COUNT_LIMIT, (long)(histogram.statistics.getTotalCount() * STALE_RATIO));
+            if (changes.get() < threshold) return;
+        }
+        if (!collecting.compareAndSet(false, true)) {
+            // Another thread is already collecting the statistics ...
+            return;
+        }
+        Runnable collector = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    collect();
+                } catch (RuntimeException e) {
+                    LOGGER.debug(e, "Unable to collect the statistics of the '{0}' index", indexName);
+                } finally {
+                    collecting.set(false);
+                }
+            }
+        };
+        if (executor == null) {
+            collector.run();
+            return;
+        }
+        try {
+            executor.execute(collector);
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down, so just keep the current statistics ...
+            collecting.set(false);
+        }
+    }
+
+    /**
+     * Scan the index and build a new histogram.
+     */
+    protected void collect() {
+        long start = System.currentTimeMillis();
+        // Changes made while scanning will count towards the next collection ...
+        changes.set(0L);
+        long total = keysByValue.size();
+        long depth = Math.max(1L, (total + BUCKET_COUNT - 1) / BUCKET_COUNT);
+        List<T> boundaries = new ArrayList<>(BUCKET_COUNT);
+        PriorityQueue<ValueCount> mostCommon = new PriorityQueue<>(MOST_COMMON_VALUE_COUNT + 1);
+        long entries = 0L;
+        long distinct = 0L;
+        Object previous = null;
+        long run = 0L;
+        for (T key : keysByValue.keySet()) {
+            ++entries;
+            if (entries % depth == 0L) boundaries.add(key);
+            // The keys are sorted, so all entries with the same value are adjacent ...
+            Object value = valueExtractor.apply(key);
+            if (run > 0L && Objects.equals(value, previous)) {
+                ++run;
+                continue;
+            }
+            addRun(mostCommon, previous, run);
+            previous = value;
+            run = 1L;
+            ++distinct;
+        }
+        addRun(mostCommon, previous, run);
+
+        List<ValueCount> sorted = new ArrayList<>(mostCommon);
+        Collections.sort(sorted, Collections.reverseOrder());
+        Map<Object, Long> mostCommonValues = new LinkedHashMap<>();
+        for (ValueCount valueCount : sorted) {
+            mostCommonValues.put(valueCount.value, valueCount.count);
+        }
+        // Null values are never added to the local indexes ...
+        IndexStatistics statistics = new IndexStatistics(entries, distinct, 0L, mostCommonValues, boundaries.size(), depth,
+                                                         System.currentTimeMillis());
+        this.histogram = new Histogram<>(boundaries, statistics);
+        LOGGER.debug("Collected statistics of the '{0}' index in {1} ms: {2}", indexName, System.currentTimeMillis() - start,
+                     statistics);
+    }
+
+    private static void addRun( PriorityQueue<ValueCount> mostCommon,
+                                Object value,
+                                long run ) {
+        // Values that appear only once are not worth remembering ...
+        if (run < 2L) return;
+        if (mostCommon.size() < MOST_COMMON_VALUE_COUNT) {
+            mostCommon.add(new ValueCount(value, run));
+        } else if (mostCommon.peek().count < run) {
+            mostCommon.poll();
+            mostCommon.add(new ValueCount(value, run));
+        }
+    }
+
+    private static final class Histogram<T> {
+        protected final List<T> boundaries;
+        protected final IndexStatistics statistics;
+
+        protected Histogram( List<T> boundaries,
+                             IndexStatistics statistics ) {
+            this.boundaries = boundaries;
+            this.statistics = statistics;
+        }
+    }
+
+    private static final class ValueCount implements Comparable<ValueCount> {
+        protected final Object value;
+        protected final long count;
+
+        protected ValueCount( Object value,
+                              long count ) {
+            this.value = value;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo( ValueCount that ) {
+            return Long.compare(this.count, that.count);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import javax.jcr.query.qom.Constraint;
 import org.mapdb.BTreeKeySerializer;
 import org.mapdb.BTreeMap;
@@ -30,6 +31,8 @@ import org.mapdb.Fun;
 import org.mapdb.Serializer;
 import org.modeshape.jcr.index.local.IndexValues.Converter;
 import org.modeshape.jcr.spi.index.IndexConstraints;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+import org.modeshape.jcr.spi.index.provider.Statistical;
 import org.modeshape.jcr.value.ValueComparators;
 
 /**
@@ -39,11 +42,12 @@ import org.modeshape.jcr.value.ValueComparators;
  * @param <T> the type of value to be indexed
  * @param <V> the raw type of value to be added
  */
-abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
+abstract class LocalMapIndex<T, V> extends LocalIndex<V> implements Statistical {
 
     protected final BTreeMap<T, String> keysByValue;
     protected final NavigableSet<Fun.Tuple2<String, T>> valuesByKey;
     protected final ConcurrentMap<String, Object> options;
+    protected final LocalIndexStatistics<T> statistics;
     private final Converter<T> converter;
    
     protected final Comparator<T> comparator;
@@ -54,7 +58,8 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
                    DB db,
                    Converter<T> converter,
                    BTreeKeySerializer<T> valueSerializer,
-                   Serializer<T> valueRawSerializer ) {
+                   Serializer<T> valueRawSerializer,
+                   Executor statisticsExecutor ) {
         super(name, workspaceName, db);
 
         assert converter != null;
@@ -88,6 +93,17 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
 
         // Bind the map and the set together so the set is auto-updated as the map is changed ...
         Bind.mapInverse(this.keysByValue, this.valuesByKey);
+        this.statistics = new LocalIndexStatistics<>(name, keysByValue, this::valueOf, statisticsExecutor);
+    }
+
+    /**
+     * Get the indexed value from the supplied key in the {@link #keysByValue} map.
+     *
+     * @param key the key in the map; never null
+     * @return the indexed value
+     */
+    protected Object valueOf( T key ) {
+        return key;
     }
 
     @Override
@@ -121,12 +137,18 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
     @Override
     public long estimateCardinality( List<Constraint> andedConstraints,
                                      Map<String, Object> variables ) {
-        return Operations.createFilter(keysByValue, converter, andedConstraints, variables).estimateCount();
+        return Operations.createFilter(keysByValue, converter, andedConstraints, variables, statistics).estimateCount();
+    }
+
+    @Override
+    public IndexStatistics getStatistics() {
+        return statistics.get();
     }
 
     @Override
     public void clearAllData() {
         keysByValue.clear();
+        statistics.clear();
     }
 
     @Override
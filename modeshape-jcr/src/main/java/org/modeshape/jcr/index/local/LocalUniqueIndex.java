@@ -16,6 +16,7 @@
 
 package org.modeshape.jcr.index.local;
 
+import java.util.concurrent.Executor;
 import javax.jcr.query.qom.StaticOperand;
 import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
@@ -43,6 +44,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
      * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
      * @param valueSerializer the serializer for the type of value being indexed; may not be null
      * @param rawSerializer the raw value serializer for the type of value being indexed; may not be null
+     * @param statisticsExecutor the executor used to collect the index statistics; may be null
      * @return the new index; never null
      */
     static <T> LocalUniqueIndex<T> create( String name,
@@ -50,8 +52,9 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
                                            DB db,
                                            Converter<T> converter,
                                            BTreeKeySerializer<T> valueSerializer,
-                                           Serializer<T> rawSerializer ) {
-        return new LocalUniqueIndex<>(name, workspaceName, db, converter, valueSerializer, rawSerializer);
+                                           Serializer<T> rawSerializer,
+                                           Executor statisticsExecutor ) {
+        return new LocalUniqueIndex<>(name, workspaceName, db, converter, valueSerializer, rawSerializer, statisticsExecutor);
     }
 
     /**
@@ -70,8 +73,29 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
                                 Converter<T> converter,
                                 BTreeKeySerializer<T> valueSerializer,
                                 Serializer<T> rawSerializer ) {
-        super(name, workspaceName, db, converter, valueSerializer, rawSerializer);
+        this(name, workspaceName, db, converter, valueSerializer, rawSerializer, null);
+    }
 
+    /**
+     * Create a new unique index.
+     *
+     * @param name the name of the index; may not be null or empty
+     * @param workspaceName the name of the workspace; may not be null
+     * @param db the database in which the index information is to be stored; may not be null
+     * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
+     * @param valueSerializer the serializer for the type of value being indexed; may not be null
+     * @param rawSerializer the raw value serializer for the type of value being indexed; may not be null
+     * @param statisticsExecutor the executor used to collect the index statistics; may be null if they are to be collected in
+     *        the planning thread
+     */
+    protected LocalUniqueIndex( String name,
+                                String workspaceName,
+                                DB db,
+                                Converter<T> converter,
+                                BTreeKeySerializer<T> valueSerializer,
+                                Serializer<T> rawSerializer,
+                                Executor statisticsExecutor ) {
+        super(name, workspaceName, db, converter, valueSerializer, rawSerializer, statisticsExecutor);
     }
 
     @Override
@@ -80,6 +104,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
                      T value ) {
         logger.trace("Adding node '{0}' to '{1}' index with value '{2}'", nodeKey, name, value);
         keysByValue.put(value, nodeKey);
+        statistics.changed();
     }
 
     @Override
@@ -91,6 +116,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
             if (comparator.compare(value, key) == 0) {
                 logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, value);
                 keysByValue.remove(key);
+                statistics.changed();
             }
         }
     }
@@ -101,6 +127,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
         for (T key : Fun.filter(valuesByKey, nodeKey)) {
             logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key);
             keysByValue.remove(key);
+            statistics.changed();
         }
     }
 
@@ -93,6 +93,26 @@ class Operations {
                                                     Converter<T> converter,
                                                     Collection<Constraint> constraints,
                                                     Map<String, Object> variables ) {
+        return createFilter(keysByValue, converter, constraints, variables, Operations.<T, String>exactCount());
+    }
+
+    /**
+     * Create an {@link Results index operation} instance that will use the supplied {@link NavigableMap} (provided by an index)
+     * and the {@link Converter} to return all of the {@link NodeKey}s that satisfy the given constraints, and that uses the
+     * supplied {@link Estimator} to {@link FilterOperation#estimateCount() estimate} the number of those keys.
+     *
+     * @param keysByValue the index's map of values-to-NodeKey; may not be null
+     * @param converter the converter; may not be null
+     * @param constraints the constraints; may not be null but may be empty if there are no constraints
+     * @param variables the bound variables for this query; may not be null but may be empty
+     * @param estimator the estimator for the number of node keys in ranges of the map; may not be null
+     * @return the index operation; never null
+     */
+    public static <T> FilterOperation createFilter( NavigableMap<T, String> keysByValue,
+                                                    Converter<T> converter,
+                                                    Collection<Constraint> constraints,
+                                                    Map<String, Object> variables,
+                                                    Estimator<T, String> estimator ) {
         if (keysByValue.isEmpty()) return EMPTY_FILTER_OPERATION;
         NodeKeysAccessor<T, String> nodeKeysAccessor = new NodeKeysAccessor<T, String>() {
             @Override
@@ -106,7 +126,7 @@ class Operations {
                 matchedKeys.addAll(keysByValue.values());
             }
         };
-        OperationBuilder<T> builder = new BasicOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, variables);
+        OperationBuilder<T> builder = new BasicOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, estimator, variables);
         for (Constraint constraint : constraints) {
             OperationBuilder<T> newBuilder = builder.apply(constraint, false);
             if (newBuilder != null) builder = newBuilder;
@@ -145,7 +165,19 @@ class Operations {
                 }
             }
         };
-        OperationBuilder<T> builder = new BasicOperationBuilder<>(keySetByEnumeratedValue, converter, nodeKeysAccessor, variables);
+        // Each value has a set of node keys, so count the keys rather than the values ...
+        Estimator<T, Set<String>> estimator = new Estimator<T, Set<String>>() {
+            @Override
+            public long estimateCount( NavigableMap<T, Set<String>> keysByValue ) {
+                long count = 0L;
+                for (Set<String> keys : keysByValue.values()) {
+                    count += keys.size();
+                }
+                return count;
+            }
+        };
+        OperationBuilder<T> builder = new BasicOperationBuilder<>(keySetByEnumeratedValue, converter, nodeKeysAccessor, estimator,
+                                                                  variables);
         for (Constraint constraint : constraints) {
             OperationBuilder<T> newBuilder = builder.apply(constraint, false);
             if (newBuilder != null) builder = newBuilder;
@@ -153,6 +185,32 @@ class Operations {
         return builder;
     }
 
+    /**
+     * Estimates the number of node keys in a range of the map of an index, without necessarily iterating over all of the entries
+     * in that range.
+     *
+     * @param <T> the type of index key
+     * @param <V> the type of value in the map
+     */
+    public static interface Estimator<T, V> {
+        /**
+         * Estimate the number of node keys in the supplied range of the index's map.
+         *
+         * @param keysByValue the range of the index's map; never null
+         * @return the estimated number of node keys; either 0 or a positive number
+         */
+        long estimateCount( NavigableMap<T, V> keysByValue );
+    }
+
+    protected static <T, V> Estimator<T, V> exactCount() {
+        return new Estimator<T, V>() {
+            @Override
+            public long estimateCount( NavigableMap<T, V> keysByValue ) {
+                return keysByValue.size();
+            }
+        };
+    }
+
     public static interface FilterOperation {
         Index.Results getResults();
 
@@ -245,20 +303,23 @@ class Operations {
         protected final NavigableMap<T, V> keysByValue;
         protected final Converter<T> converter;
         protected final NodeKeysAccessor<T, V> nodeKeysAccessor;
+        protected final Estimator<T, V> estimator;
         protected final Map<String, Object> variables;
 
         protected BasicOperationBuilder( NavigableMap<T, V> keysByValue,
                                          Converter<T> converter,
                                          NodeKeysAccessor<T, V> nodeKeysAccessor,
+                                         Estimator<T, V> estimator,
                                          Map<String, Object> variables ) {
             this.keysByValue = keysByValue;
             this.converter = converter;
             this.nodeKeysAccessor = nodeKeysAccessor;
+            this.estimator = estimator;
             this.variables = variables;
         }
 
         protected OperationBuilder<T> create( NavigableMap<T, V> keysByValue ) {
-            return new BasicOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, variables);
+            return new BasicOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, estimator, variables);
         }
 
         @Override
@@ -318,7 +379,8 @@ class Operations {
         @Override
         protected OperationBuilder<T> apply( SetCriteria setCriteria,
                                              boolean negated ) {
-            return new SetOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, variables, setCriteria, negated);
+            return new SetOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, estimator, variables, setCriteria,
+                                             negated);
         }
 
         protected Iterator<String> keys() {
@@ -370,7 +432,7 @@ class Operations {
 
         @Override
         public long estimateCount() {
-            return keysByValue.size();
+            return estimator.estimateCount(keysByValue);
         }
     }
 
@@ -389,17 +451,18 @@ class Operations {
         protected SetOperationBuilder( NavigableMap<T, V> keysByValue,
                                        IndexValues.Converter<T> converter,
                                        NodeKeysAccessor<T, V> nodeKeysAccessor,
+                                       Estimator<T, V> estimator,
                                        Map<String, Object> variables,
                                        SetCriteria criteria,
                                        boolean negated ) {
-            super(keysByValue, converter, nodeKeysAccessor, variables);
+            super(keysByValue, converter, nodeKeysAccessor, estimator, variables);
             this.criteria = criteria;
             this.negated = negated;
         }
 
         @Override
         protected OperationBuilder<T> create( NavigableMap<T, V> keysByValue ) {
-            return new SetOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, variables, criteria, negated);
+            return new SetOperationBuilder<>(keysByValue, converter, nodeKeysAccessor, estimator, variables, criteria, negated);
         }
 
         @Override
@@ -530,12 +593,12 @@ class Operations {
                         submap = keysByValue.subMap(lowValue, true, highValue, true);
                     }
                 }
-                count += submap.size();
+                count += estimator.estimateCount(submap);
             }
 
-            if (!negated) {
-                // We've already found all of the keys for the given value, so just return them ...
-                count = keysByValue.size() - count;
+            if (negated) {
+                // We're supposed to find all of the keys that are NOT in the set ...
+                count = estimator.estimateCount(keysByValue) - count;
             }
             return Math.max(count, 0L);
         }
@@ -218,6 +218,14 @@ public class LocalJournal implements ChangeJournal {
         return journalLocation;
     }
 
+    protected boolean asyncWritesEnabled() {
+        return asyncWritesEnabled;
+    }
+
+    protected long maxTimeToKeepEntriesMillis() {
+        return maxTimeToKeepEntriesMillis;
+    }
+
     @Override
     public Records allRecords( boolean descendingOrder ) {
         return recordsFrom(records, descendingOrder);
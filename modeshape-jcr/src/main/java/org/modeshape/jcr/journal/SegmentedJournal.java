@@ -0,0 +1,853 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.modeshape.jcr.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import javax.jcr.RepositoryException;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.StringUtil;
+import org.modeshape.common.util.TimeBasedKeys;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.schematic.annotation.ThreadSafe;
+
+/**
+ * A {@link LocalJournal} which appends the records to a series of rolling segment files instead of a MapDB B-tree.
+ * <p>
+ * Each record is written as a fixed-size header (payload length, checksum, time-based key and change time) followed by the
+ * serialized {@link ChangeSet}. Since the header holds the change time, searching by time only needs to read the headers, starting
+ * from the first segment which may contain matching records and, within that segment, from the closest entry of a sparse index
+ * which is kept in memory for every {@link #INDEX_INTERVAL_BYTES} bytes of records.
+ * </p>
+ * <p>
+ * Concurrent calls to {@link #addRecords(JournalRecord...)} are group-committed: each caller queues its records and the first
+ * thread which obtains the write lock appends all the queued records and syncs the segment to disk once for all of them. Unless
+ * asynchronous writes are enabled, a call only returns once its records are durable.
+ * </p>
+ * <p>
+ * Old records are removed one segment at a time, so a segment is only deleted once all of its records are older than the
+ * retention period.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public class SegmentedJournal extends LocalJournal {
+
+    private static final Logger LOGGER = Logger.getLogger(SegmentedJournal.class);
+    private static final TimeBasedKeys TIME_BASED_KEYS = TimeBasedKeys.create();
+
+    /**
+     * The default maximum size of a segment file, after which a new segment is started.
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The number of bytes of records between consecutive entries of the sparse index of a segment.
+     */
+    protected static final int INDEX_INTERVAL_BYTES = 64 * 1024;
+
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".journal";
+    private static final String JOURNAL_ID_FILE = "journal.id";
+    /**
+     * The size of a record header: the length of the payload (int), the checksum (int), the time-based key (long) and the change
+     * time (long).
+     */
+    private static final int HEADER_SIZE = 24;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final long maxSegmentSizeBytes;
+    private final Object appendLock = new Object();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * An immutable snapshot of the segments, ordered from oldest to newest; replaced while holding the write lock.
+     */
+    private volatile List<Segment> segments = Collections.emptyList();
+    private volatile JournalRecord lastRecord;
+    private volatile boolean running;
+    private String journalId;
+    /**
+     * The channel used to append to the last segment; guarded by the write lock.
+     */
+    private FileChannel writeChannel;
+
+    /**
+     * Creates a new journal instance, in stopped state.
+     *
+     * @param journalLocation the folder location on the FS where the segments should be saved. Must not be {@code null}
+     * @param asyncWritesEnabled flag which indicates if the segments should be synced to disk only when they are rolled over or
+     *        when the journal is shut down, rather than each time records are added
+     * @param maxDaysToKeepEntries the maximum number of days this journal should store entries on disk. A negative value or 0
+     *        means records are never removed
+     * @param maxSegmentSizeBytes the size after which a new segment file is started; must be positive
+     */
+    public SegmentedJournal( String journalLocation,
+                             boolean asyncWritesEnabled,
+                             int maxDaysToKeepEntries,
+                             long maxSegmentSizeBytes ) {
+        super(journalLocation, asyncWritesEnabled, maxDaysToKeepEntries);
+        this.maxSegmentSizeBytes = Math.max(1, maxSegmentSizeBytes);
+    }
+
+    protected SegmentedJournal( String journalLocation,
+                                long maxSegmentSizeBytes ) {
+        this(journalLocation, false, -1, maxSegmentSizeBytes);
+    }
+
+    @Override
+    public boolean started() {
+        return running;
+    }
+
+    @Override
+    public synchronized void start() throws RepositoryException {
+        if (running) {
+            return;
+        }
+        try {
+            File folder = new File(getJournalLocation());
+            if (!folder.exists()) {
+                boolean folderHierarchyCreated = folder.mkdirs();
+                assert folderHierarchyCreated;
+            }
+            this.journalId = readOrCreateJournalId(new File(folder, JOURNAL_ID_FILE));
+
+            List<Segment> loaded = new ArrayList<>();
+            File[] files = folder.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX));
+            if (files != null) {
+                Arrays.sort(files, (file1, file2) -> Long.compare(sequenceOf(file1), sequenceOf(file2)));
+                for (int i = 0; i < files.length; i++) {
+                    // only the last segment may have been left with a partially written record
+                    loaded.add(Segment.load(files[i], sequenceOf(files[i]), i == files.length - 1));
+                }
+            }
+            if (loaded.isEmpty()) {
+                loaded.add(Segment.create(folder, 1));
+            }
+            this.segments = Collections.unmodifiableList(loaded);
+            this.lastRecord = readLastRecord(loaded);
+            this.writeChannel = openForAppend(activeSegment());
+            this.running = true;
+        } catch (Exception e) {
+            throw new RepositoryException(JcrI18n.cannotStartJournal.text(), e);
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            flushPendingWrites();
+            running = false;
+            if (writeChannel.isOpen()) {
+                writeChannel.force(false);
+                writeChannel.close();
+            }
+        } catch (Exception e) {
+            LOGGER.error(e, JcrI18n.cannotStopJournal);
+        } finally {
+            segments.forEach(Segment::close);
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addRecords( JournalRecord... records ) {
+        if (!running || records.length == 0) {
+            return;
+        }
+        LOGGER.debug("Adding {0} records", records.length);
+        // serialize the change sets before taking any lock; the keys are stored in the record headers
+        byte[][] payloads = new byte[records.length][];
+        for (int i = 0; i < records.length; i++) {
+            payloads[i] = serialize(records[i].getChangeSet());
+        }
+        PendingWrite write = new PendingWrite(records, payloads);
+        synchronized (appendLock) {
+            // the keys must be generated in the same order in which the records are queued
+            for (JournalRecord record : records) {
+                if (record.getTimeBasedKey() < 0) {
+                    //generate a unique timestamp only if there isn't one. In some scenarios (i.e. running in a cluster) we
+                    //always want to keep the original TS because otherwise it would be impossible to have a correct order
+                    //and therefore search
+                    record.withTimeBasedKey(TIME_BASED_KEYS.nextKey());
+                }
+            }
+            pendingWrites.add(write);
+        }
+        writeLock.lock();
+        try {
+            if (!write.done) {
+                // we're the leader of this group, so write our records and those of all the threads waiting behind us
+                flushPendingWrites();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (write.failure != null) {
+            throw new IllegalStateException(JcrI18n.cannotWriteJournalRecords.text(getJournalLocation()), write.failure);
+        }
+    }
+
+    private void flushPendingWrites() {
+        assert writeLock.isHeldByCurrentThread();
+        List<PendingWrite> group = new ArrayList<>();
+        PendingWrite next;
+        while ((next = pendingWrites.poll()) != null) {
+            group.add(next);
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            // the journal has been shut down, so the records are discarded just as they would be if they were added later
+            group.forEach(write -> write.done = true);
+            return;
+        }
+        Segment segment = activeSegment();
+        try {
+            if (!writeChannel.isOpen()) {
+                // the channel was closed because a writer was interrupted or a previous write failed
+                writeChannel = openForAppend(segment);
+            }
+            long position = segment.size;
+            JournalRecord written = null;
+            CRC32 checksum = new CRC32();
+            for (PendingWrite write : group) {
+                for (int i = 0; i < write.records.length; i++) {
+                    if (position >= maxSegmentSizeBytes && position > 0) {
+                        segment.committed(position);
+                        segment = rollOver();
+                        position = 0;
+                    }
+                    JournalRecord record = write.records[i];
+                    byte[] payload = write.payloads[i];
+                    long key = record.getTimeBasedKey();
+                    long changeTime = record.getChangeTimeMillis();
+                    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+                    buffer.putInt(payload.length).putInt(0).putLong(key).putLong(changeTime).put(payload);
+                    buffer.putInt(4, checksum(checksum, buffer.array()));
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        writeChannel.write(buffer);
+                    }
+                    segment.appended(position, key, changeTime);
+                    position += HEADER_SIZE + payload.length;
+                    written = record;
+                }
+            }
+            if (!asyncWritesEnabled()) {
+                writeChannel.force(false);
+            }
+            // only now can the readers see the new records
+            segment.committed(position);
+            lastRecord = written;
+        } catch (IOException | RuntimeException e) {
+            group.forEach(write -> write.failure = e);
+            // the next write will reopen the segment and discard whatever was written after the last committed record
+            segment.rolledBack();
+            try {
+                writeChannel.close();
+            } catch (IOException closeError) {
+                LOGGER.debug(closeError, "Cannot close the journal segment {0}", segment.file);
+            }
+        } finally {
+            group.forEach(write -> write.done = true);
+        }
+    }
+
+    private Segment rollOver() throws IOException {
+        assert writeLock.isHeldByCurrentThread();
+        writeChannel.force(false);
+        writeChannel.close();
+        Segment active = activeSegment();
+        Segment segment = Segment.create(active.file.getParentFile(), active.sequence + 1);
+        List<Segment> newSegments = new ArrayList<>(segments);
+        newSegments.add(segment);
+        segments = Collections.unmodifiableList(newSegments);
+        writeChannel = openForAppend(segment);
+        LOGGER.debug("Rolled the journal over to the segment {0}", segment.file);
+        return segment;
+    }
+
+    private Segment activeSegment() {
+        List<Segment> segments = this.segments;
+        return segments.get(segments.size() - 1);
+    }
+
+    @Override
+    public synchronized void removeOldRecords() {
+        //perform cleanup
+        removeRecordsOlderThan(System.currentTimeMillis() - maxTimeToKeepEntriesMillis());
+    }
+
+    @Override
+    protected void removeRecordsOlderThan( long millisInUtc ) {
+        if (millisInUtc <= 0 || !running) {
+            return;
+        }
+        long searchBound = TIME_BASED_KEYS.getCounterEndingAt(millisInUtc);
+        LOGGER.debug("Removing segments with records older than " + searchBound);
+        List<Segment> toRemove = new ArrayList<>();
+        writeLock.lock();
+        try {
+            Segment active = activeSegment();
+            if (active.size > 0 && active.maxKey < searchBound) {
+                // all the records of the active segment are old, so start a new one which can be kept
+                rollOver();
+            }
+            List<Segment> toKeep = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment != activeSegment() && segment.maxKey < searchBound) {
+                    toRemove.add(segment);
+                } else {
+                    toKeep.add(segment);
+                }
+            }
+            segments = Collections.unmodifiableList(toKeep);
+        } catch (IOException e) {
+            LOGGER.debug(e, "Cannot roll over the journal segment while removing old records");
+        } finally {
+            writeLock.unlock();
+        }
+        toRemove.forEach(Segment::delete);
+    }
+
+    @Override
+    public Records allRecords( boolean descendingOrder ) {
+        return running ? new SegmentRecords(segments, Long.MIN_VALUE, descendingOrder) : Records.EMPTY;
+    }
+
+    @Override
+    public JournalRecord lastRecord() {
+        return lastRecord;
+    }
+
+    @Override
+    public Records recordsNewerThan( LocalDateTime changeSetTime,
+                                     boolean inclusive,
+                                     boolean descendingOrder ) {
+        if (!running) {
+            return Records.EMPTY;
+        }
+        long minChangeTime = Long.MIN_VALUE;
+        if (changeSetTime != null) {
+            long changeSetMillisUTC = changeSetTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+            minChangeTime = inclusive ? changeSetMillisUTC : changeSetMillisUTC + 1;
+        }
+        return new SegmentRecords(segments, minChangeTime, descendingOrder);
+    }
+
+    @Override
+    public Iterator<NodeKey> changedNodesSince( final long timestamp ) {
+        if (!running) {
+            return Collections.emptyIterator();
+        }
+        final Iterator<JournalRecord> records = new SegmentRecords(segments, timestamp, false).iterator();
+        return new Iterator<NodeKey>() {
+            private Iterator<NodeKey> currentBatchOfKeys = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!currentBatchOfKeys.hasNext() && records.hasNext()) {
+                    currentBatchOfKeys = records.next().getChangeSet().changedNodes().iterator();
+                }
+                return currentBatchOfKeys.hasNext();
+            }
+
+            @Override
+            public NodeKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return currentBatchOfKeys.next();
+            }
+        };
+    }
+
+    @Override
+    public String journalId() {
+        return journalId;
+    }
+
+    private static String readOrCreateJournalId( File file ) throws IOException {
+        if (file.exists()) {
+            String id = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            if (!StringUtil.isBlank(id)) {
+                return id;
+            }
+        }
+        String id = "Journal_" + UUID.randomUUID().toString();
+        Files.write(file.toPath(), id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    private static JournalRecord readLastRecord( List<Segment> segments ) throws IOException {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment segment = segments.get(i);
+            if (segment.lastRecordPosition >= 0) {
+                SegmentCursor cursor = new SegmentCursor(segment, segment.lastRecordPosition, segment.size);
+                return cursor.next() ? cursor.record() : null;
+            }
+        }
+        return null;
+    }
+
+    private static FileChannel openForAppend( Segment segment ) throws IOException {
+        FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.WRITE);
+        // discard anything which may have been partially written after the last committed record
+        channel.truncate(segment.size);
+        channel.position(segment.size);
+        return channel;
+    }
+
+    private static long sequenceOf( File file ) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_FILE_PREFIX.length(), name.length() - SEGMENT_FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int checksum( CRC32 checksum,
+                                 byte[] recordBytes ) {
+        // the checksum covers the key, the change time and the payload
+        checksum.reset();
+        checksum.update(recordBytes, 8, recordBytes.length - 8);
+        return (int)checksum.getValue();
+    }
+
+    private static byte[] serialize( ChangeSet changeSet ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(changeSet);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize the change set " + changeSet, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ChangeSet deserialize( byte[] payload ) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (ChangeSet)in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot deserialize a journal record", e);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final JournalRecord[] records;
+        private final byte[][] payloads;
+        private volatile boolean done;
+        private volatile Exception failure;
+
+        private PendingWrite( JournalRecord[] records,
+                              byte[][] payloads ) {
+            this.records = records;
+            this.payloads = payloads;
+        }
+    }
+
+    /**
+     * An entry of the sparse index of a segment: all the records located before {@link #position} have a change time which is
+     * less than or equal to {@link #maxChangeTimeBefore}.
+     */
+    private static final class IndexEntry {
+        private final long position;
+        private final long maxChangeTimeBefore;
+
+        private IndexEntry( long position,
+                            long maxChangeTimeBefore ) {
+            this.position = position;
+            this.maxChangeTimeBefore = maxChangeTimeBefore;
+        }
+    }
+
+    /**
+     * A segment file together with its in-memory index. The index fields are only modified by the thread holding the write lock;
+     * readers only look at the records located before the {@link #size committed size}.
+     */
+    private static final class Segment {
+        private final File file;
+        private final long sequence;
+        private final List<IndexEntry> index = new CopyOnWriteArrayList<>();
+        private volatile long size;
+        private volatile long maxKey = Long.MIN_VALUE;
+        private volatile long maxChangeTime = Long.MIN_VALUE;
+        private volatile long lastRecordPosition = -1;
+        private volatile boolean deleted;
+        private FileChannel readChannel;
+
+        private Segment( File file,
+                         long sequence ) {
+            this.file = file;
+            this.sequence = sequence;
+            this.index.add(new IndexEntry(0, Long.MIN_VALUE));
+        }
+
+        private static Segment create( File folder,
+                                       long sequence ) throws IOException {
+            File file = new File(folder, String.format("%s%016d%s", SEGMENT_FILE_PREFIX, sequence, SEGMENT_FILE_SUFFIX));
+            Files.createFile(file.toPath());
+            return new Segment(file, sequence);
+        }
+
+        private static Segment load( File file,
+                                     long sequence,
+                                     boolean verifyChecksums ) throws IOException {
+            Segment segment = new Segment(file, sequence);
+            long fileSize = file.length();
+            SegmentCursor cursor = new SegmentCursor(segment, 0, fileSize);
+            long position = 0;
+            CRC32 checksum = new CRC32();
+            while (cursor.next()) {
+                if (verifyChecksums && !cursor.checksumMatches(checksum)) {
+                    break;
+                }
+                segment.appended(position, cursor.key, cursor.changeTime);
+                position = cursor.position;
+            }
+            if (position < fileSize) {
+                LOGGER.warn(JcrI18n.journalSegmentTruncated, file, position, fileSize - position);
+            }
+            segment.committed(position);
+            segment.close();
+            return segment;
+        }
+
+        private void appended( long position,
+                               long key,
+                               long changeTime ) {
+            IndexEntry lastEntry = index.get(index.size() - 1);
+            if (position - lastEntry.position >= INDEX_INTERVAL_BYTES) {
+                index.add(new IndexEntry(position, maxChangeTime));
+            }
+            maxKey = Math.max(maxKey, key);
+            maxChangeTime = Math.max(maxChangeTime, changeTime);
+            lastRecordPosition = position;
+        }
+
+        private void committed( long size ) {
+            this.size = size;
+        }
+
+        private void rolledBack() {
+            // the entries located after the committed records would describe records which are going to be overwritten
+            index.removeIf(entry -> entry.position > size);
+        }
+
+        /**
+         * Returns the position from which a scan for records with a change time greater than or equal to the given value
+         * should start.
+         */
+        private long startPositionFor( long minChangeTime ) {
+            // the index entries are ordered by their max change time, so look for the last one before the time
+            int low = 0;
+            int high = index.size() - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (index.get(middle).maxChangeTimeBefore < minChangeTime) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return index.get(low).position;
+        }
+
+        private int read( ByteBuffer buffer,
+                          long position ) throws IOException {
+            while (true) {
+                FileChannel channel = readChannel();
+                if (channel == null) {
+                    return -1;
+                }
+                try {
+                    return channel.read(buffer, position);
+                } catch (ClosedChannelException e) {
+                    // the shared channel was closed because another reader was interrupted, so reopen it unless this thread
+                    // is the one which has been interrupted
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private synchronized FileChannel readChannel() throws IOException {
+            if (deleted) {
+                return null;
+            }
+            if (readChannel == null || !readChannel.isOpen()) {
+                try {
+                    readChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                } catch (NoSuchFileException e) {
+                    return null;
+                }
+            }
+            return readChannel;
+        }
+
+        private synchronized void close() {
+            if (readChannel != null) {
+                try {
+                    readChannel.close();
+                } catch (IOException e) {
+                    LOGGER.debug(e, "Cannot close the journal segment {0}", file);
+                }
+                readChannel = null;
+            }
+        }
+
+        private void delete() {
+            synchronized (this) {
+                deleted = true;
+                close();
+            }
+            if (!file.delete()) {
+                LOGGER.debug("Cannot delete the journal segment {0}", file);
+            }
+        }
+    }
+
+    /**
+     * Sequentially reads the records of a segment between two positions, through a read-ahead buffer.
+     */
+    private static final class SegmentCursor {
+        private final Segment segment;
+        private final long end;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private long bufferPosition;
+        private long position;
+        private long recordPosition;
+        private int payloadLength;
+        private int storedChecksum;
+        private long key;
+        private long changeTime;
+
+        private SegmentCursor( Segment segment,
+                               long start,
+                               long end ) {
+            this.segment = segment;
+            this.end = end;
+            this.position = start;
+            this.bufferPosition = start;
+            this.buffer.limit(0);
+        }
+
+        /**
+         * Reads the header of the next record.
+         *
+         * @return {@code true} if there is a complete record, or {@code false} if the end was reached
+         */
+        private boolean next() throws IOException {
+            if (position + HEADER_SIZE > end || !fill(position, HEADER_SIZE)) {
+                return false;
+            }
+            int offset = (int)(position - bufferPosition);
+            payloadLength = buffer.getInt(offset);
+            storedChecksum = buffer.getInt(offset + 4);
+            key = buffer.getLong(offset + 8);
+            changeTime = buffer.getLong(offset + 16);
+            if (payloadLength < 0 || position + HEADER_SIZE + payloadLength > end) {
+                return false;
+            }
+            recordPosition = position;
+            position += HEADER_SIZE + payloadLength;
+            return true;
+        }
+
+        private boolean checksumMatches( CRC32 checksum ) throws IOException {
+            int length = HEADER_SIZE + payloadLength;
+            if (!fill(recordPosition, length)) {
+                return false;
+            }
+            checksum.reset();
+            checksum.update(buffer.array(), (int)(recordPosition - bufferPosition) + 8, length - 8);
+            return (int)checksum.getValue() == storedChecksum;
+        }
+
+        private JournalRecord record() throws IOException {
+            if (!checksumMatches(new CRC32())) {
+                throw new IOException(JcrI18n.journalRecordCorrupted.text(segment.file, recordPosition));
+            }
+            byte[] payload = new byte[payloadLength];
+            System.arraycopy(buffer.array(), (int)(recordPosition - bufferPosition) + HEADER_SIZE, payload, 0, payloadLength);
+            return new JournalRecord(deserialize(payload)).withTimeBasedKey(key);
+        }
+
+        private boolean fill( long from,
+                              int length ) throws IOException {
+            if (from >= bufferPosition && from + length <= bufferPosition + buffer.limit()) {
+                return true;
+            }
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(length);
+            }
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), end - from));
+            bufferPosition = from;
+            while (buffer.hasRemaining()) {
+                if (segment.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.limit() >= length;
+        }
+    }
+
+    /**
+     * The records of a snapshot of the segments which have a change time greater than or equal to a given value.
+     */
+    private static final class SegmentRecords implements Records {
+        private final List<Segment> segments;
+        private final long[] ends;
+        private final long minChangeTime;
+        private final boolean descending;
+        private int size = -1;
+
+        private SegmentRecords( List<Segment> segments,
+                                long minChangeTime,
+                                boolean descending ) {
+            this.segments = new ArrayList<>(segments.size());
+            List<Long> ends = new ArrayList<>(segments.size());
+            for (Segment segment : segments) {
+                // capture the committed size so that records added afterwards are not visible
+                long end = segment.size;
+                if (end > 0 && segment.maxChangeTime >= minChangeTime) {
+                    this.segments.add(segment);
+                    ends.add(end);
+                }
+            }
+            this.ends = ends.stream().mapToLong(Long::longValue).toArray();
+            this.minChangeTime = minChangeTime;
+            this.descending = descending;
+        }
+
+        @Override
+        public synchronized int size() {
+            if (size < 0) {
+                // only the headers need to be read to count the records
+                int count = 0;
+                try {
+                    for (int i = 0; i < segments.size(); i++) {
+                        Segment segment = segments.get(i);
+                        SegmentCursor cursor = new SegmentCursor(segment, segment.startPositionFor(minChangeTime), ends[i]);
+                        while (cursor.next()) {
+                            if (cursor.changeTime >= minChangeTime) {
+                                ++count;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                size = count;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public Iterator<JournalRecord> iterator() {
+            Iterator<JournalRecord> ascending = new Iterator<JournalRecord>() {
+                private int segmentIndex = -1;
+                private SegmentCursor cursor;
+                private JournalRecord next;
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        while (next == null) {
+                            if (cursor == null || !cursor.next()) {
+                                if (++segmentIndex >= segments.size()) {
+                                    return false;
+                                }
+                                Segment segment = segments.get(segmentIndex);
+                                cursor = new SegmentCursor(segment, segment.startPositionFor(minChangeTime), ends[segmentIndex]);
+                                continue;
+                            }
+                            if (cursor.changeTime >= minChangeTime) {
+                                next = cursor.record();
+                            }
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+
+                @Override
+                public JournalRecord next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    JournalRecord result = next;
+                    next = null;
+                    return result;
+                }
+            };
+            if (!descending) {
+                return ascending;
+            }
+            // the segments can only be read forward, so the records have to be collected first
+            List<JournalRecord> records = new ArrayList<>();
+            ascending.forEachRemaining(records::add);
+            Collections.reverse(records);
+            return Collections.unmodifiableList(records).iterator();
+        }
+    }
+}
@@ -15,14 +15,22 @@
  */
 package org.modeshape.jcr.query;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -32,11 +40,13 @@ import org.mapdb.DB;
 import org.mapdb.DB.BTreeMapMaker;
 import org.mapdb.DB.HTreeSetMaker;
 import org.mapdb.DBMaker;
-import org.mapdb.HTreeMap;
+import org.mapdb.DataOutput2;
 import org.mapdb.Serializer;
 import org.modeshape.common.collection.SingleIterator;
 import org.modeshape.common.collection.Supplier;
 import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.index.local.MapDB;
 import org.modeshape.jcr.index.local.MapDB.ComparableUniqueKeyComparator;
 import org.modeshape.jcr.index.local.MapDB.Serializers;
@@ -49,6 +59,11 @@ import org.modeshape.jcr.value.ValueFactories;
 
 /**
  * A manager of temporary buffers used in the query system.
+ * <p>
+ * Buffers hold their records in plain heap collections (which require no serialization) until they contain more than the
+ * {@link #getSpillThreshold() spill threshold}, and only then move their records into MapDB storage. This keeps the many small
+ * buffers used by typical queries cheap, while bounding the heap used by sorting and distinct operations over large results.
+ * </p>
  * 
  * @author Randall Hauch (rhauch@redhat.com)
  */
@@ -201,7 +216,8 @@ public class BufferManager implements Serializers, AutoCloseable {
         /**
          * Specify whether to store the bufer on the heap.
          * 
-         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be used.
+         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be
+         *        used once the buffer is spilled past the {@link BufferManager#getSpillThreshold() spill threshold}
          * @return this maker instance; never null
          */
         QueueBufferMaker<T> useHeap( boolean useHeap );
@@ -225,7 +241,8 @@ public class BufferManager implements Serializers, AutoCloseable {
         /**
          * Specify whether to store the bufer on the heap.
          * 
-         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be used.
+         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be
+         *        used once the buffer is spilled past the {@link BufferManager#getSpillThreshold() spill threshold}
          * @return this maker instance; never null
          */
         DistinctBufferMaker<T> useHeap( boolean useHeap );
@@ -261,7 +278,8 @@ public class BufferManager implements Serializers, AutoCloseable {
         /**
          * Specify whether to store the bufer on the heap.
          * 
-         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be used.
+         * @param useHeap true if the buffer's contents are to be stored on the heap, or false if off-heap storage should be
+         *        used once the buffer is spilled past the {@link BufferManager#getSpillThreshold() spill threshold}
          * @return this maker instance; never null
          */
         SortingBufferMaker<SortType, RecordType> useHeap( boolean useHeap );
@@ -332,20 +350,53 @@ public class BufferManager implements Serializers, AutoCloseable {
         }
     };
 
+    /**
+     * The default number of records a buffer can hold in heap collections before being spilled into MapDB storage.
+     */
+    public static final int DEFAULT_SPILL_THRESHOLD = 4096;
+
     private final Serializers serializers;
     private final DbHolder offheap;
     private final DbHolder onheap;
     private final AtomicLong dbCounter = new AtomicLong();
+    private final int spillThreshold;
+    private final RepositoryStatistics statistics;
+    private final AtomicLong spillCount = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
 
     public BufferManager( ExecutionContext context ) {
-        this(context, OFF_HEAP_DB_SUPPLIER, ON_HEAP_DB_SUPPLIER);
+        this(context, DEFAULT_SPILL_THRESHOLD, null);
+    }
+
+    /**
+     * Create a new buffer manager.
+     * 
+     * @param context the execution context; may not be null
+     * @param spillThreshold the number of records a buffer can hold in heap collections before its records are moved into
+     *        MapDB storage; 0 if buffers should always use MapDB storage
+     * @param statistics the statistics where buffer spills are recorded; may be null
+     */
+    public BufferManager( ExecutionContext context,
+                          int spillThreshold,
+                          RepositoryStatistics statistics ) {
+        this(context, OFF_HEAP_DB_SUPPLIER, ON_HEAP_DB_SUPPLIER, spillThreshold, statistics);
     }
 
     protected BufferManager( ExecutionContext context,
                              Supplier<DB> offheapDbSupplier,
                              Supplier<DB> onheapDbSupplier ) {
+        this(context, offheapDbSupplier, onheapDbSupplier, DEFAULT_SPILL_THRESHOLD, null);
+    }
+
+    protected BufferManager( ExecutionContext context,
+                             Supplier<DB> offheapDbSupplier,
+                             Supplier<DB> onheapDbSupplier,
+                             int spillThreshold,
+                             RepositoryStatistics statistics ) {
         offheap = new DbHolder(offheapDbSupplier);
         onheap = new DbHolder(onheapDbSupplier);
+        this.spillThreshold = Math.max(0, spillThreshold);
+        this.statistics = statistics;
 
         // Create the serializers ...
         ValueFactories factories = context.getValueFactories();
@@ -482,36 +533,176 @@ public class BufferManager implements Serializers, AutoCloseable {
         db(onHeap).delete(name);
     }
 
+    /**
+     * Get the number of records that buffers may hold in plain heap collections before they are spilled into MapDB storage.
+     *
+     * @return the threshold; 0 if buffers always use MapDB storage
+     */
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Get the number of buffers created by this manager which have been spilled into MapDB storage.
+     *
+     * @return the number of spilled buffers
+     */
+    public long getSpillCount() {
+        return spillCount.get();
+    }
+
+    /**
+     * Get the number of bytes written into MapDB storage by the spilled buffers of this manager which have been closed.
+     *
+     * @return the number of spilled bytes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    protected final void recordSpill() {
+        spillCount.incrementAndGet();
+        if (statistics != null) statistics.increment(ValueMetric.QUERY_BUFFER_SPILLS);
+    }
+
+    protected final void recordSpilledBytes( long bytes ) {
+        if (bytes <= 0L) return;
+        spilledBytes.addAndGet(bytes);
+        if (statistics != null) statistics.increment(ValueMetric.QUERY_BUFFER_SPILLED_BYTES, bytes);
+    }
+
+    /**
+     * A counter of the bytes written by a {@link CountingSerializer}.
+     */
+    protected static final class SpillCounter {
+        private long bytes;
+
+        protected void add( long bytes ) {
+            this.bytes += bytes;
+        }
+
+        protected long bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * A serializer which counts the number of bytes written by another serializer. MapDB stores the serializers of its
+     * collections in its catalog, so this must be serializable; the counter is only used by the instance used to create the
+     * collection.
+     *
+     * @param <T> the type of value
+     */
+    protected static final class CountingSerializer<T> implements Serializer<T>, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Serializer<T> delegate;
+        private final transient SpillCounter counter;
+
+        protected CountingSerializer( Serializer<T> delegate,
+                                      SpillCounter counter ) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        @Override
+        public void serialize( DataOutput out,
+                               T value ) throws IOException {
+            if (counter == null || !(out instanceof DataOutput2)) {
+                delegate.serialize(out, value);
+                return;
+            }
+            int start = ((DataOutput2)out).pos;
+            delegate.serialize(out, value);
+            counter.add(((DataOutput2)out).pos - start);
+        }
+
+        @Override
+        public T deserialize( DataInput in,
+                              int available ) throws IOException {
+            return delegate.deserialize(in, available);
+        }
+
+        @Override
+        public int fixedSize() {
+            return delegate.fixedSize();
+        }
+    }
+
+    /**
+     * A buffer which holds its records in plain heap collections until it contains more than the
+     * {@link BufferManager#getSpillThreshold() spill threshold}, at which point the records are moved into MapDB storage (on- or
+     * off-heap, as requested when the buffer was made).
+     */
     protected abstract class CloseableBuffer implements Buffer {
         protected final String name;
         protected final boolean onHeap;
+        private final SpillCounter counter;
+        private boolean spilled;
 
         protected CloseableBuffer( String name,
-                                   boolean onHeap ) {
+                                   boolean onHeap,
+                                   SpillCounter counter ) {
             this.name = name;
             this.onHeap = onHeap;
+            this.counter = counter;
+            this.spilled = spillThreshold <= 0;
+        }
+
+        /**
+         * Determine whether the records of this buffer are held in MapDB storage.
+         *
+         * @return true if the buffer uses MapDB storage, or false if it uses heap collections
+         */
+        protected final boolean isSpilled() {
+            return spilled;
+        }
+
+        /**
+         * Determine whether a buffer holding the given number of records in heap collections should be spilled.
+         *
+         * @param size the number of records
+         * @return true if the records should be moved into MapDB storage
+         */
+        protected final boolean shouldSpill( long size ) {
+            return !spilled && size > spillThreshold;
+        }
+
+        protected final void markSpilled() {
+            spilled = true;
+            recordSpill();
         }
 
         @Override
         public void close() {
-            BufferManager.this.delete(name, onHeap);
+            if (spilled) {
+                recordSpilledBytes(counter.bytes());
+                BufferManager.this.delete(name, onHeap);
+            }
         }
     }
 
     protected final class CloseableQueueBuffer<T> extends CloseableBuffer implements QueueBuffer<T> {
-        protected final Map<Long, T> buffer;
+        private final Supplier<Map<Long, T>> storage;
+        private List<T> heapBuffer;
+        private Map<Long, T> buffer;
         private final AtomicLong size = new AtomicLong();
 
         protected CloseableQueueBuffer( String name,
                                         boolean onHeap,
-                                        Map<Long, T> buffer ) {
-            super(name, onHeap);
-            this.buffer = buffer;
+                                        SpillCounter counter,
+                                        Supplier<Map<Long, T>> storage ) {
+            super(name, onHeap, counter);
+            this.storage = storage;
+            if (isSpilled()) {
+                this.buffer = storage.get();
+            } else {
+                this.heapBuffer = new ArrayList<>();
+            }
         }
 
         @Override
         public boolean isEmpty() {
-            return buffer.isEmpty();
+            return size.get() == 0L;
         }
 
         @Override
@@ -521,23 +712,46 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public void append( T value ) {
+            if (heapBuffer != null) {
+                if (!shouldSpill(heapBuffer.size() + 1)) {
+                    heapBuffer.add(value);
+                    size.incrementAndGet();
+                    return;
+                }
+                spill();
+            }
             buffer.put(size.getAndIncrement(), value);
         }
 
+        private void spill() {
+            buffer = storage.get();
+            long index = 0L;
+            for (T value : heapBuffer) {
+                buffer.put(index++, value);
+            }
+            heapBuffer = null;
+            markSpilled();
+        }
+
+        protected T get( long index ) {
+            List<T> heapBuffer = this.heapBuffer;
+            return heapBuffer != null ? heapBuffer.get((int)index) : buffer.get(index);
+        }
+
         @Override
         public Iterator<T> iterator() {
             final AtomicLong counter = new AtomicLong(0L);
             return new Iterator<T>() {
                 @Override
                 public boolean hasNext() {
-                    return counter.get() < buffer.size();
+                    return counter.get() < size.get();
                 }
 
                 @Override
                 public T next() {
-                    Long key = counter.getAndIncrement();
-                    if (key.intValue() < buffer.size()) {
-                        return buffer.get(key);
+                    long key = counter.getAndIncrement();
+                    if (key < size.get()) {
+                        return get(key);
                     }
                     throw new NoSuchElementException();
                 }
@@ -556,13 +770,16 @@ public class BufferManager implements Serializers, AutoCloseable {
     }
 
     protected final class CloseableDistinctBuffer<T> extends CloseableBuffer implements DistinctBuffer<T> {
-        private final Set<T> buffer;
+        private final Supplier<Set<T>> storage;
+        private Set<T> buffer;
 
         protected CloseableDistinctBuffer( String name,
                                            boolean onHeap,
-                                           Set<T> buffer ) {
-            super(name, onHeap);
-            this.buffer = buffer;
+                                           SpillCounter counter,
+                                           Supplier<Set<T>> storage ) {
+            super(name, onHeap, counter);
+            this.storage = storage;
+            this.buffer = isSpilled() ? storage.get() : new HashSet<T>();
         }
 
         @Override
@@ -577,7 +794,14 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public boolean addIfAbsent( T value ) {
-            return buffer.add(value);
+            if (!buffer.add(value)) return false;
+            if (shouldSpill(buffer.size())) {
+                Set<T> spilled = storage.get();
+                spilled.addAll(buffer);
+                buffer = spilled;
+                markSpilled();
+            }
+            return true;
         }
 
         @Override
@@ -592,13 +816,17 @@ public class BufferManager implements Serializers, AutoCloseable {
     }
 
     protected final class CloseableSortingBuffer<K, V> extends CloseableBuffer implements SortingBuffer<K, V> {
-        private final NavigableMap<K, V> buffer;
+        private final Supplier<NavigableMap<K, V>> storage;
+        private NavigableMap<K, V> buffer;
 
         protected CloseableSortingBuffer( String name,
                                           boolean onHeap,
-                                          NavigableMap<K, V> buffer ) {
-            super(name, onHeap);
-            this.buffer = buffer;
+                                          SpillCounter counter,
+                                          Comparator<K> comparator,
+                                          Supplier<NavigableMap<K, V>> storage ) {
+            super(name, onHeap, counter);
+            this.storage = storage;
+            this.buffer = isSpilled() ? storage.get() : new TreeMap<K, V>(comparator);
         }
 
         @Override
@@ -615,6 +843,12 @@ public class BufferManager implements Serializers, AutoCloseable {
         public void put( K sortable,
                          V record ) {
             buffer.put(sortable, record);
+            if (shouldSpill(buffer.size())) {
+                NavigableMap<K, V> spilled = storage.get();
+                spilled.putAll(buffer);
+                buffer = spilled;
+                markSpilled();
+            }
         }
 
         @Override
@@ -692,14 +926,18 @@ public class BufferManager implements Serializers, AutoCloseable {
 
     protected final class CloseableSortingBufferWithDuplicates<K extends Comparable<K>, V> extends CloseableBuffer
         implements SortingBuffer<K, V> {
-        private final NavigableMap<UniqueKey<K>, V> buffer;
+        private final Supplier<NavigableMap<UniqueKey<K>, V>> storage;
+        private NavigableMap<UniqueKey<K>, V> buffer;
         private final AtomicLong counter = new AtomicLong();
 
         protected CloseableSortingBufferWithDuplicates( String name,
                                                         boolean onHeap,
-                                                        NavigableMap<UniqueKey<K>, V> buffer ) {
-            super(name, onHeap);
-            this.buffer = buffer;
+                                                        SpillCounter counter,
+                                                        Comparator<UniqueKey<K>> comparator,
+                                                        Supplier<NavigableMap<UniqueKey<K>, V>> storage ) {
+            super(name, onHeap, counter);
+            this.storage = storage;
+            this.buffer = isSpilled() ? storage.get() : new TreeMap<UniqueKey<K>, V>(comparator);
         }
 
         @Override
@@ -716,6 +954,12 @@ public class BufferManager implements Serializers, AutoCloseable {
         public void put( K sortable,
                          V record ) {
             buffer.put(new UniqueKey<K>(sortable, counter.incrementAndGet()), record);
+            if (shouldSpill(buffer.size())) {
+                NavigableMap<UniqueKey<K>, V> spilled = storage.get();
+                spilled.putAll(buffer);
+                buffer = spilled;
+                markSpilled();
+            }
         }
 
         @Override
@@ -831,8 +1075,15 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public QueueBuffer<T> make() {
-            HTreeMap<Long, T> values = db(useHeap).createHashMap(name).valueSerializer(serializer).counterEnable().make();
-            return new CloseableQueueBuffer<T>(name, useHeap, values);
+            final boolean useHeap = this.useHeap;
+            final SpillCounter counter = new SpillCounter();
+            return new CloseableQueueBuffer<T>(name, useHeap, counter, new Supplier<Map<Long, T>>() {
+                @Override
+                public Map<Long, T> get() {
+                    return db(useHeap).createHashMap(name).valueSerializer(new CountingSerializer<T>(serializer, counter))
+                                      .counterEnable().make();
+                }
+            });
         }
     }
 
@@ -864,10 +1115,18 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public DistinctBuffer<T> make() {
-            HTreeSetMaker maker = db(useHeap).createHashSet(name).serializer(serializer);
-            if (keepsize) maker = maker.counterEnable();
-            Set<T> buffer = maker.make();
-            return new CloseableDistinctBuffer<T>(name, useHeap, buffer);
+            final boolean useHeap = this.useHeap;
+            final boolean keepsize = this.keepsize;
+            final SpillCounter counter = new SpillCounter();
+            return new CloseableDistinctBuffer<T>(name, useHeap, counter, new Supplier<Set<T>>() {
+                @Override
+                public Set<T> get() {
+                    HTreeSetMaker maker = db(useHeap).createHashSet(name)
+                                                     .serializer(new CountingSerializer<T>(serializer, counter));
+                    if (keepsize) maker = maker.counterEnable();
+                    return maker.make();
+                }
+            });
         }
     }
 
@@ -900,10 +1159,21 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public SortingBuffer<K, V> make() {
-            BTreeMapMaker maker = db(useHeap).createTreeMap(name).keySerializer(keySerializer).valueSerializer(valueSerializer);
-            if (keepsize) maker = maker.counterEnable();
-            NavigableMap<K, V> buffer = maker.make();
-            return new CloseableSortingBuffer<K, V>(name, useHeap, buffer);
+            final boolean useHeap = this.useHeap;
+            final boolean keepsize = this.keepsize;
+            final SpillCounter counter = new SpillCounter();
+            Comparator<K> comparator = keySerializer.getComparator();
+            return new CloseableSortingBuffer<K, V>(name, useHeap, counter, comparator, new Supplier<NavigableMap<K, V>>() {
+                @Override
+                public NavigableMap<K, V> get() {
+                    // store the records outside of the tree nodes so that they are only written once
+                    BTreeMapMaker maker = db(useHeap).createTreeMap(name).keySerializer(keySerializer)
+                                                     .valueSerializer(new CountingSerializer<V>(valueSerializer, counter))
+                                                     .valuesOutsideNodesEnable();
+                    if (keepsize) maker = maker.counterEnable();
+                    return maker.make();
+                }
+            });
         }
     }
 
@@ -940,13 +1210,23 @@ public class BufferManager implements Serializers, AutoCloseable {
 
         @Override
         public SortingBuffer<K, V> make() {
+            final boolean useHeap = this.useHeap;
+            final boolean keepsize = this.keepsize;
+            final SpillCounter counter = new SpillCounter();
             Comparator<UniqueKey<K>> comparator = this.keyComparator != null ? new UniqueKeyComparator<K>(keyComparator) : new ComparableUniqueKeyComparator<K>();
-            BTreeKeySerializer<UniqueKey<K>> uniqueKeySerializer = new UniqueKeyBTreeSerializer<K>(keySerializer, comparator);
-            BTreeMapMaker maker = db(useHeap).createTreeMap(name).keySerializer(uniqueKeySerializer)
-                                             .valueSerializer(valueSerializer);
-            if (keepsize) maker = maker.counterEnable();
-            NavigableMap<UniqueKey<K>, V> buffer = maker.make();
-            return new CloseableSortingBufferWithDuplicates<K, V>(name, useHeap, buffer);
+            final BTreeKeySerializer<UniqueKey<K>> uniqueKeySerializer = new UniqueKeyBTreeSerializer<K>(keySerializer, comparator);
+            return new CloseableSortingBufferWithDuplicates<K, V>(name, useHeap, counter, comparator,
+                                                                  new Supplier<NavigableMap<UniqueKey<K>, V>>() {
+                @Override
+                public NavigableMap<UniqueKey<K>, V> get() {
+                    // store the records outside of the tree nodes so that they are only written once
+                    BTreeMapMaker maker = db(useHeap).createTreeMap(name).keySerializer(uniqueKeySerializer)
+                                                     .valueSerializer(new CountingSerializer<V>(valueSerializer, counter))
+                                                     .valuesOutsideNodesEnable();
+                    if (keepsize) maker = maker.counterEnable();
+                    return maker.make();
+                }
+            });
         }
     }
 }
@@ -79,6 +79,12 @@ public class JcrQuery extends JcrAbstractQuery {
         this.hints.includeSystemContent = includeSystemContent;
     }
 
+    @Override
+    public void waitForIndexes( long timeoutInMillis ) {
+        CheckArg.isNonNegative(timeoutInMillis, "timeoutInMillis");
+        this.hints.indexVisibilityTimeout = timeoutInMillis;
+    }
+
     protected QueryCommand query() {
         return query;
     }
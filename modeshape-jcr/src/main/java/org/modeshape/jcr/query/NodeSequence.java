@@ -27,6 +27,7 @@ import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.NodeCache;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.RepositoryCache;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
 import org.modeshape.jcr.query.QueryResults.Columns;
 
 /**
@@ -796,6 +797,63 @@ public abstract class NodeSequence {
         };
     }
 
+    /**
+     * Wrap the supplied iterator over node keys so that the nodes are {@link WorkspaceCache#prefetch(Collection) prefetched} into
+     * the workspace cache, one window of keys at a time, before they are accessed.
+     *
+     * @param keys the iterator over the node keys; may not be null
+     * @param cache the workspace cache into which the nodes are to be loaded; may not be null
+     * @param windowSize the maximum number of keys that are prefetched at once
+     * @return the iterator over the same keys; never null
+     */
+    protected static Iterator<NodeKey> prefetching( Iterator<NodeKey> keys,
+                                                    WorkspaceCache cache,
+                                                    int windowSize ) {
+        return windowSize > 1 ? new PrefetchingKeyIterator(keys, cache, windowSize) : keys;
+    }
+
+    protected static class PrefetchingKeyIterator implements Iterator<NodeKey> {
+        private final Iterator<NodeKey> keys;
+        private final WorkspaceCache cache;
+        private final List<NodeKey> window;
+        private final int windowSize;
+        private int position = 0;
+
+        protected PrefetchingKeyIterator( Iterator<NodeKey> keys,
+                                          WorkspaceCache cache,
+                                          int windowSize ) {
+            this.keys = keys;
+            this.cache = cache;
+            this.windowSize = windowSize;
+            this.window = new ArrayList<>(windowSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < window.size() || keys.hasNext();
+        }
+
+        @Override
+        public NodeKey next() {
+            if (position == window.size()) {
+                // Read ahead the next window of keys and load all of the nodes which are not yet cached at once ...
+                window.clear();
+                position = 0;
+                while (window.size() < windowSize && keys.hasNext()) {
+                    window.add(keys.next());
+                }
+                if (window.isEmpty()) throw new NoSuchElementException();
+                if (window.size() > 1) cache.prefetch(window);
+            }
+            return window.get(position++);
+        }
+
+        @Override
+        public String toString() {
+            return keys.toString();
+        }
+    }
+
     protected static class LimitBatch implements Batch {
         private final Batch original;
         private final boolean sizeKnown;
@@ -1521,8 +1579,9 @@ public abstract class NodeSequence {
                                      final RepositoryCache repository ) {
         assert nodeCount >= -1;
         if (keys == null) return emptyBatch(workspaceName, 1);
-        final NodeCache cache = repository.getWorkspaceCache(workspaceName);
-        return batchOfKeys(keys, nodeCount, score, workspaceName, cache);
+        final WorkspaceCache cache = repository.getWorkspaceCache(workspaceName);
+        return batchOfKeys(prefetching(keys, cache, repository.getWorkspaceCachePrefetchSize()), nodeCount, score, workspaceName,
+                           cache);
     }
 
     /**
@@ -1547,7 +1606,8 @@ public abstract class NodeSequence {
                                      final RepositoryCache repository ) {
         assert nodeCount >= -1;
         if (keys == null) return emptyBatch(workspaceName, 1);
-        final NodeCache cache = repository.getWorkspaceCache(workspaceName);
+        final WorkspaceCache cache = repository.getWorkspaceCache(workspaceName);
+        final Iterator<NodeKey> prefetchingKeys = prefetching(keys, cache, repository.getWorkspaceCachePrefetchSize());
         return new Batch() {
             private CachedNode current;
             private float score;
@@ -1574,12 +1634,12 @@ public abstract class NodeSequence {
 
             @Override
             public boolean hasNext() {
-                return keys.hasNext();
+                return prefetchingKeys.hasNext();
             }
 
             @Override
             public void nextRow() {
-                NodeKey key = keys.next();
+                NodeKey key = prefetchingKeys.next();
                 current = cache.getNode(key);
                 Float score = scores.next();
                 this.score = score != null ? score.floatValue() : 1.0f;
@@ -110,7 +110,7 @@ public class QueryContext {
         this.schemata = schemata;
         this.nodeTypes = nodeTypes;
         this.problems = problems != null ? problems : new SimpleProblems();
-        this.variables = variables != null ? new HashMap<String, Object>(variables) : new HashMap<String, Object>();
+        this.variables = new RecordingVariables(variables);
         this.overriddenNodeCachesByWorkspaceName = overriddenNodeCachesByWorkspaceName != null ? overriddenNodeCachesByWorkspaceName : Collections.<String, NodeCache>emptyMap();
         this.bufferManager = bufferManager;
         this.id = id;
@@ -365,6 +365,27 @@ public class QueryContext {
         return variables;
     }
 
+    /**
+     * Start recording the variables that are looked up in the {@link #getVariables() variables map}. This is used while a query
+     * is planned to find out which variable values the resulting plan depends upon.
+     * 
+     * @see #stopRecordingVariableReads()
+     */
+    public void startRecordingVariableReads() {
+        ((RecordingVariables)variables).startRecording();
+    }
+
+    /**
+     * Stop recording the variables that are looked up in the {@link #getVariables() variables map}, and return the value each
+     * variable had when it was first looked up.
+     * 
+     * @return the values of the variables that were looked up since {@link #startRecordingVariableReads()} was called, keyed by
+     *         name and with null values for the variables that did not exist; never null but possibly empty
+     */
+    public Map<String, Object> stopRecordingVariableReads() {
+        return ((RecordingVariables)variables).stopRecording();
+    }
+
     @Override
     public int hashCode() {
         return HashCode.compute(this.typeSystem, this.schemata, this.variables);
@@ -436,4 +457,43 @@ public class QueryContext {
                                 indexDefns, nodeTypes, bufferManager, hints, problems, variables);
     }
 
+    /**
+     * The map of variables, which can record the variables that are looked up while a query is planned.
+     */
+    @SuppressWarnings( "serial" )
+    private static final class RecordingVariables extends HashMap<String, Object> {
+        private Map<String, Object> reads;
+
+        protected RecordingVariables( Map<String, Object> variables ) {
+            if (variables != null) putAll(variables);
+        }
+
+        protected void startRecording() {
+            reads = new HashMap<>();
+        }
+
+        protected Map<String, Object> stopRecording() {
+            Map<String, Object> result = reads != null ? reads : Collections.<String, Object>emptyMap();
+            reads = null;
+            return result;
+        }
+
+        private void record( Object key ) {
+            if (reads != null && key instanceof String && !reads.containsKey(key)) {
+                reads.put((String)key, super.get(key));
+            }
+        }
+
+        @Override
+        public Object get( Object key ) {
+            record(key);
+            return super.get(key);
+        }
+
+        @Override
+        public boolean containsKey( Object key ) {
+            record(key);
+            return super.containsKey(key);
+        }
+    }
 }
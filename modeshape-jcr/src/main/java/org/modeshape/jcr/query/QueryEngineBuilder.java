@@ -34,6 +34,7 @@ public abstract class QueryEngineBuilder {
     private ExecutionContext context;
     private Planner planner;
     private Optimizer optimizer;
+    private QueryPlanCache planCache;
 
     public QueryEngineBuilder() {
     }
@@ -57,6 +58,11 @@ public abstract class QueryEngineBuilder {
         return this;
     }
 
+    public QueryEngineBuilder with( QueryPlanCache planCache ) {
+        this.planCache = planCache;
+        return this;
+    }
+
     public abstract QueryEngine build();
 
     protected final RepositoryConfiguration config() {
@@ -83,6 +89,10 @@ public abstract class QueryEngineBuilder {
         return this.optimizer != null ? this.optimizer : defaultOptimizer();
     }
 
+    protected final QueryPlanCache planCache() {
+        return this.planCache;
+    }
+
     protected Planner defaultPlanner() {
         return new CanonicalPlanner();
     }
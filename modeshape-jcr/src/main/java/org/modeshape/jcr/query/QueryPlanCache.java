@@ -0,0 +1,423 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.query;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.util.HashCode;
+import org.modeshape.common.util.ObjectUtil;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.RepositoryIndexes;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.ValueMetric;
+import org.modeshape.jcr.query.model.QueryCommand;
+import org.modeshape.jcr.query.plan.PlanHints;
+import org.modeshape.jcr.query.plan.PlanNode;
+import org.modeshape.jcr.value.NamespaceRegistry;
+import org.modeshape.jcr.value.basic.LocalNamespaceRegistry;
+
+/**
+ * A bounded, repository-wide cache of parsed query commands and of optimized query plans, which evicts the least recently used
+ * entries first.
+ * <p>
+ * Plans are keyed by the parsed {@link QueryCommand} (which is a normalized form of the statement and its language), the names
+ * of the queried workspaces, the {@link PlanHints hints}, the version of the node types and the snapshot of the index
+ * definitions. All cached plans are discarded as soon as a query is planned with newer node types or index definitions.
+ * </p>
+ * <p>
+ * Plans contain the bind variables rather than their values, which are substituted when the plan is executed. Some optimizer
+ * rules and index planners do look at the values of the variables, though, so each cached plan records the values that were
+ * looked up while it was planned. It is only reused for queries that have the same values for those variables.
+ * </p>
+ * <p>
+ * Queries issued by sessions that have remapped namespace prefixes are never cached, since their statements resolve names
+ * differently than those of the other sessions.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class QueryPlanCache {
+
+    /**
+     * The default maximum number of plans (and of parsed commands) held by the cache.
+     */
+    public static final int DEFAULT_SIZE = 512;
+
+    private final int maxSize;
+    private final RepositoryStatistics statistics;
+    private final LinkedHashMap<Key, CachedPlan> plansByKey;
+    private final LinkedHashMap<Statement, QueryCommand> commandsByStatement;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+    private volatile int nodeTypesVersion;
+    private volatile RepositoryIndexes indexDefns;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize the maximum number of plans (and of parsed commands) held by the cache; must be positive
+     * @param statistics the statistics where the cache hits, misses and saved planning time are recorded; may be null
+     */
+    @SuppressWarnings( "serial" )
+    public QueryPlanCache( final int maxSize,
+                           RepositoryStatistics statistics ) {
+        assert maxSize > 0;
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+        this.plansByKey = new LinkedHashMap<Key, CachedPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Key, CachedPlan> eldest ) {
+                return size() > maxSize;
+            }
+        };
+        this.commandsByStatement = new LinkedHashMap<Statement, QueryCommand>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Statement, QueryCommand> eldest ) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Determine whether the queries issued within the supplied context can use this cache.
+     *
+     * @param context the execution context; may not be null
+     * @return true if the queries can be cached, or false if the context remaps namespace prefixes
+     */
+    public static boolean isCacheable( ExecutionContext context ) {
+        NamespaceRegistry namespaces = context.getNamespaceRegistry();
+        return !(namespaces instanceof LocalNamespaceRegistry)
+               || ((LocalNamespaceRegistry)namespaces).getLocalNamespaces().isEmpty();
+    }
+
+    /**
+     * Get the previously parsed form of the supplied statement.
+     *
+     * @param language the query language; may not be null
+     * @param statement the query statement; may not be null
+     * @return the parsed command, or null if the statement is not in the cache
+     */
+    public QueryCommand getCommand( String language,
+                                    String statement ) {
+        synchronized (commandsByStatement) {
+            return commandsByStatement.get(new Statement(language, statement));
+        }
+    }
+
+    /**
+     * Record the parsed form of the supplied statement.
+     *
+     * @param language the query language; may not be null
+     * @param statement the query statement; may not be null
+     * @param command the (immutable) parsed command; may not be null
+     */
+    public void putCommand( String language,
+                            String statement,
+                            QueryCommand command ) {
+        synchronized (commandsByStatement) {
+            commandsByStatement.put(new Statement(language, statement), command);
+        }
+    }
+
+    /**
+     * Compute the key of the plan for the supplied query. This must be called before the query is planned, since planning
+     * changes the hints of the context.
+     *
+     * @param context the context of the query; may not be null
+     * @param query the query; may not be null
+     * @return the key, or null if the plan of the query cannot be cached
+     */
+    public Key keyFor( QueryContext context,
+                       QueryCommand query ) {
+        if (!isCacheable(context.getExecutionContext())) return null;
+        int version = context.getNodeTypes().getVersion();
+        RepositoryIndexes indexes = context.getIndexDefinitions();
+        if (version != this.nodeTypesVersion || indexes != this.indexDefns) {
+            synchronized (plansByKey) {
+                if (version != this.nodeTypesVersion || indexes != this.indexDefns) {
+                    // The node types or index definitions changed, so none of the existing plans will be used again ...
+                    plansByKey.clear();
+                    this.nodeTypesVersion = version;
+                    this.indexDefns = indexes;
+                }
+            }
+        }
+        return new Key(query, context.getWorkspaceNames(), context.getHints(), version, indexes);
+    }
+
+    /**
+     * Get a copy of the cached plan with the supplied key, provided that the plan can be used with the variables of the supplied
+     * context. When a plan is returned, the hints and variables of the context are updated as if the query had been planned.
+     *
+     * @param key the key of the plan; may not be null
+     * @param context the context of the query; may not be null
+     * @return a copy of the optimized plan that the caller is free to modify, or null if there is no such plan
+     */
+    public PlanNode get( Key key,
+                         QueryContext context ) {
+        CachedPlan cached;
+        synchronized (plansByKey) {
+            cached = plansByKey.get(key);
+        }
+        if (cached == null || !cached.isValidFor(context.getVariables())) {
+            misses.increment();
+            if (statistics != null) statistics.increment(ValueMetric.QUERY_PLAN_CACHE_MISSES);
+            return null;
+        }
+        hits.increment();
+        savedNanos.add(cached.planningNanos);
+        if (statistics != null) {
+            statistics.increment(ValueMetric.QUERY_PLAN_CACHE_HITS);
+            statistics.increment(ValueMetric.QUERY_PLANNING_TIME_SAVED, TimeUnit.NANOSECONDS.toMicros(cached.planningNanos));
+        }
+        copyHints(cached.hints, context.getHints());
+        for (String variableName : cached.addedVariables) {
+            context.getVariables().put(variableName, null);
+        }
+        return cached.plan.clone();
+    }
+
+    /**
+     * Place the optimized plan of a query into the cache.
+     *
+     * @param key the key of the plan, as {@link #keyFor computed} before the query was planned; may not be null
+     * @param context the context in which the query was planned; may not be null
+     * @param plan the optimized plan; may not be null
+     * @param variablesRead the values of the variables which were looked up while the query was planned; may not be null
+     * @param variableNamesBefore the names of the variables that existed before the query was planned; may not be null
+     * @param planningNanos the number of nanoseconds spent planning and optimizing the query
+     */
+    public void put( Key key,
+                     QueryContext context,
+                     PlanNode plan,
+                     Map<String, Object> variablesRead,
+                     Set<String> variableNamesBefore,
+                     long planningNanos ) {
+        Set<String> addedVariables = new HashSet<>(context.getVariables().keySet());
+        addedVariables.removeAll(variableNamesBefore);
+        // Variables which were added while planning (e.g., for subqueries) do not depend on the caller ...
+        Map<String, Object> dependencies = new HashMap<>(variablesRead);
+        dependencies.keySet().removeAll(addedVariables);
+        CachedPlan cached = new CachedPlan(plan.clone(), context.getHints().clone(), dependencies, addedVariables, planningNanos);
+        synchronized (plansByKey) {
+            if (key.nodeTypesVersion == this.nodeTypesVersion && key.indexDefns == this.indexDefns) {
+                plansByKey.put(key, cached);
+            }
+        }
+    }
+
+    /**
+     * Remove all of the plans and commands from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (plansByKey) {
+            plansByKey.clear();
+        }
+        synchronized (commandsByStatement) {
+            commandsByStatement.clear();
+        }
+    }
+
+    private static void copyHints( PlanHints from,
+                                   PlanHints to ) {
+        to.hasCriteria = from.hasCriteria;
+        to.hasView = from.hasView;
+        to.hasJoin = from.hasJoin;
+        to.hasSort = from.hasSort;
+        to.hasSetQuery = from.hasSetQuery;
+        to.hasLimit = from.hasLimit;
+        to.hasOptionalJoin = from.hasOptionalJoin;
+        to.hasFullTextSearch = from.hasFullTextSearch;
+        to.hasSubqueries = from.hasSubqueries;
+        to.isExistsQuery = from.isExistsQuery;
+    }
+
+    /**
+     * Returns the maximum number of plans held by the cache.
+     *
+     * @return the maximum size; always positive
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of plans currently held by the cache.
+     *
+     * @return the number of plans; never negative
+     */
+    public int size() {
+        synchronized (plansByKey) {
+            return plansByKey.size();
+        }
+    }
+
+    /**
+     * Returns the number of queries which reused a cached plan.
+     *
+     * @return the number of hits; never negative
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of cacheable queries which had to be planned.
+     *
+     * @return the number of misses; never negative
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of the cacheable queries which reused a cached plan.
+     *
+     * @return the hit rate, between 0.0 and 1.0
+     */
+    public double hitRate() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0L ? 0.0d : (double)hitCount / total;
+    }
+
+    /**
+     * Returns the time that the queries which reused a cached plan would otherwise have spent planning.
+     *
+     * @param unit the time unit; may not be null
+     * @return the saved planning time; never negative
+     */
+    public long savedPlanningTime( TimeUnit unit ) {
+        return unit.convert(savedNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlanCache[size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount() + ", savedMillis="
+               + savedPlanningTime(TimeUnit.MILLISECONDS) + "]";
+    }
+
+    /**
+     * The key of a cached plan.
+     */
+    @Immutable
+    public static final class Key {
+        private final QueryCommand query;
+        private final Set<String> workspaceNames;
+        private final PlanHints hints;
+        private final int nodeTypesVersion;
+        private final RepositoryIndexes indexDefns;
+        private final int hc;
+
+        private Key( QueryCommand query,
+                     Set<String> workspaceNames,
+                     PlanHints hints,
+                     int nodeTypesVersion,
+                     RepositoryIndexes indexDefns ) {
+            this.query = query;
+            this.workspaceNames = Collections.unmodifiableSet(new HashSet<>(workspaceNames));
+            this.hints = hints.clone();
+            this.nodeTypesVersion = nodeTypesVersion;
+            this.indexDefns = indexDefns;
+            this.hc = HashCode.compute(query, this.workspaceNames, this.hints, nodeTypesVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return hc;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (obj == this) return true;
+            if (obj instanceof Key) {
+                Key that = (Key)obj;
+                return this.hc == that.hc && this.nodeTypesVersion == that.nodeTypesVersion && this.indexDefns == that.indexDefns
+                       && this.query.equals(that.query) && this.workspaceNames.equals(that.workspaceNames)
+                       && this.hints.equals(that.hints);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return query + " in " + workspaceNames;
+        }
+    }
+
+    private static final class Statement {
+        private final String language;
+        private final String statement;
+
+        private Statement( String language,
+                           String statement ) {
+            this.language = language;
+            this.statement = statement;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * language.hashCode() + statement.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (obj == this) return true;
+            if (obj instanceof Statement) {
+                Statement that = (Statement)obj;
+                return this.language.equals(that.language) && this.statement.equals(that.statement);
+            }
+            return false;
+        }
+    }
+
+    private static final class CachedPlan {
+        private final PlanNode plan;
+        private final PlanHints hints;
+        private final Map<String, Object> variablesRead;
+        private final Set<String> addedVariables;
+        private final long planningNanos;
+
+        private CachedPlan( PlanNode plan,
+                            PlanHints hints,
+                            Map<String, Object> variablesRead,
+                            Set<String> addedVariables,
+                            long planningNanos ) {
+            this.plan = plan;
+            this.hints = hints;
+            this.variablesRead = variablesRead;
+            this.addedVariables = addedVariables;
+            this.planningNanos = planningNanos;
+        }
+
+        private boolean isValidFor( Map<String, Object> variables ) {
+            for (Map.Entry<String, Object> entry : variablesRead.entrySet()) {
+                if (!ObjectUtil.isEqualWithNulls(entry.getValue(), variables.get(entry.getKey()))) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import javax.jcr.query.qom.Constraint;
 import javax.jcr.query.qom.JoinCondition;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.spi.index.IndexStatistics;
 import org.modeshape.jcr.spi.index.provider.IndexProvider;
 
 @Immutable
@@ -40,6 +41,7 @@ public final class IndexPlan implements Comparable<IndexPlan> {
     private final Collection<Constraint> constraints;
     private final Collection<JoinCondition> joinConditions;
     private final Map<String, Object> parameters;
+    private final IndexStatistics statistics;
 
     public IndexPlan( String name,
                       String workspaceName,
@@ -50,6 +52,20 @@ public final class IndexPlan implements Comparable<IndexPlan> {
                       long cardinalityEstimate,
                       Float selectivityEstimate,
                       Map<String, Object> parameters ) {
+        this(name, workspaceName, providerName, constraints, joinConditions, costEstimate, cardinalityEstimate,
+             selectivityEstimate, parameters, null);
+    }
+
+    public IndexPlan( String name,
+                      String workspaceName,
+                      String providerName,
+                      Collection<Constraint> constraints,
+                      Collection<JoinCondition> joinConditions,
+                      int costEstimate,
+                      long cardinalityEstimate,
+                      Float selectivityEstimate,
+                      Map<String, Object> parameters,
+                      IndexStatistics statistics ) {
         CheckArg.isNotEmpty(name, "name");
         CheckArg.isNonNegative(costEstimate, "costEstimate");
         CheckArg.isNonNegative(cardinalityEstimate, "cardinalityEstimate");
@@ -62,6 +78,7 @@ public final class IndexPlan implements Comparable<IndexPlan> {
         this.cardinalityEstimate = cardinalityEstimate;
         this.selectivityEstimate = (selectivityEstimate == null || selectivityEstimate < 0) ? null : selectivityEstimate;
         this.parameters = parameters == null ? NO_PARAMETERS : parameters;
+        this.statistics = statistics;
     }
 
     /**
@@ -182,6 +199,26 @@ public final class IndexPlan implements Comparable<IndexPlan> {
         return parameters;
     }
 
+    /**
+     * Get the statistics of the index, as collected by the index when the query was planned.
+     *
+     * @return the statistics, or null if the index does not have statistics
+     */
+    public IndexStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Create a copy of this plan that has the supplied statistics.
+     *
+     * @param statistics the statistics of the index; may be null
+     * @return the new plan; never null
+     */
+    public IndexPlan withStatistics( IndexStatistics statistics ) {
+        return new IndexPlan(name, workspaceName, providerName, constraints, joinConditions, costEstimate, cardinalityEstimate,
+                             selectivityEstimate, parameters, statistics);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
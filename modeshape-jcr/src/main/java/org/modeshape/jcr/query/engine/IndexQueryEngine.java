@@ -25,6 +25,7 @@ import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.query.NodeSequence;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryEngine;
+import org.modeshape.jcr.query.QueryPlanCache;
 import org.modeshape.jcr.query.QueryResults.Columns;
 import org.modeshape.jcr.query.model.QueryCommand;
 import org.modeshape.jcr.query.optimize.AddIndexes;
@@ -105,7 +106,7 @@ public class IndexQueryEngine extends ScanningQueryEngine {
                 };
             }
             // Finally create the query engine ...
-            return new IndexQueryEngine(context(), repositoryName(), planner(), optimizer, indexManager());
+            return new IndexQueryEngine(context(), repositoryName(), planner(), optimizer, indexManager(), planCache());
         }
 
         @Override
@@ -158,7 +159,16 @@ public class IndexQueryEngine extends ScanningQueryEngine {
                                 Planner planner,
                                 Optimizer optimizer,
                                 IndexManager indexManager ) {
-        super(context, repositoryName, planner, optimizer);
+        this(context, repositoryName, planner, optimizer, indexManager, null);
+    }
+
+    protected IndexQueryEngine( ExecutionContext context,
+                                String repositoryName,
+                                Planner planner,
+                                Optimizer optimizer,
+                                IndexManager indexManager,
+                                QueryPlanCache planCache ) {
+        super(context, repositoryName, planner, optimizer, planCache);
         this.indexManager = indexManager;
     }
 
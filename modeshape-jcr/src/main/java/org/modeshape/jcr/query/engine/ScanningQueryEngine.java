@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
@@ -62,6 +63,7 @@ import org.modeshape.jcr.query.PseudoColumns;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryEngine;
 import org.modeshape.jcr.query.QueryEngineBuilder;
+import org.modeshape.jcr.query.QueryPlanCache;
 import org.modeshape.jcr.query.QueryResults;
 import org.modeshape.jcr.query.QueryResults.Columns;
 import org.modeshape.jcr.query.QueryResults.Statistics;
@@ -71,6 +73,8 @@ import org.modeshape.jcr.query.engine.process.DependentQuery;
 import org.modeshape.jcr.query.engine.process.DistinctSequence;
 import org.modeshape.jcr.query.engine.process.ExceptSequence;
 import org.modeshape.jcr.query.engine.process.HashJoinSequence;
+import org.modeshape.jcr.query.engine.process.IndexNestedLoopJoinSequence;
+import org.modeshape.jcr.query.engine.process.IndexNestedLoopJoinSequence.IndexProbe;
 import org.modeshape.jcr.query.engine.process.IntersectSequence;
 import org.modeshape.jcr.query.engine.process.JoinSequence.Range;
 import org.modeshape.jcr.query.engine.process.JoinSequence.RangeProducer;
@@ -122,6 +126,7 @@ import org.modeshape.jcr.query.model.TypeSystem;
 import org.modeshape.jcr.query.model.TypeSystem.TypeFactory;
 import org.modeshape.jcr.query.model.UpperCase;
 import org.modeshape.jcr.query.model.Visitors;
+import org.modeshape.jcr.query.optimize.ChooseJoinStrategy;
 import org.modeshape.jcr.query.optimize.Optimizer;
 import org.modeshape.jcr.query.optimize.RuleBasedOptimizer;
 import org.modeshape.jcr.query.plan.JoinAlgorithm;
@@ -159,11 +164,14 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
     /** We don't use the standard logging convention here; we want clients to easily configure logging for the indexes */
     protected static final Logger LOGGER = Logger.getLogger("org.modeshape.jcr.query");
 
+    /** The number of rows in the side of a hash join above which the rows are buffered off the heap */
+    protected static final long MAX_ROWS_IN_HEAP_JOIN_BUFFER = 10000L;
+
     public static class Builder extends QueryEngineBuilder {
 
         @Override
         public QueryEngine build() {
-            return new ScanningQueryEngine(context(), repositoryName(), planner(), optimizer());
+            return new ScanningQueryEngine(context(), repositoryName(), planner(), optimizer(), planCache());
         }
 
         @Override
@@ -179,16 +187,33 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
     protected final String repositoryName;
     protected final Planner planner;
     protected final Optimizer optimizer;
+    protected final QueryPlanCache planCache;
 
     public ScanningQueryEngine( ExecutionContext context,
                                 String repositoryName,
                                 Planner planner,
                                 Optimizer optimizer ) {
+        this(context, repositoryName, planner, optimizer, null);
+    }
+
+    /**
+     * @param context the execution context of the repository
+     * @param repositoryName the name of the repository
+     * @param planner the planner; may not be null
+     * @param optimizer the optimizer; may not be null
+     * @param planCache the cache of optimized plans; may be null if plans should never be reused
+     */
+    public ScanningQueryEngine( ExecutionContext context,
+                                String repositoryName,
+                                Planner planner,
+                                Optimizer optimizer,
+                                QueryPlanCache planCache ) {
         assert planner != null;
         assert optimizer != null;
         this.repositoryName = repositoryName;
         this.planner = planner;
         this.optimizer = optimizer;
+        this.planCache = planCache;
     }
 
     /**
@@ -227,28 +252,55 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
                          context.getWorkspaceNames(), repositoryName, query, context.id());
         }
 
-        // Create the canonical plan ...
+        // Reuse the optimized plan of an equivalent query, or create the canonical plan ...
         long start = System.nanoTime();
-        PlanNode plan = planner.createPlan(context, query);
+        QueryPlanCache.Key planKey = planCache != null ? planCache.keyFor(context, query) : null;
+        PlanNode cachedPlan = planKey != null ? planCache.get(planKey, context) : null;
+        PlanNode plan = cachedPlan;
+        Set<String> variableNames = null;
+        if (cachedPlan == null) {
+            if (planKey != null) {
+                // Record the variables that the planner and optimizer look at, since the plan can only be reused with them ...
+                variableNames = new HashSet<>(context.getVariables().keySet());
+                context.startRecordingVariableReads();
+            }
+            plan = planner.createPlan(context, query);
+        }
         long duration = Math.abs(System.nanoTime() - start);
         Statistics stats = new Statistics(duration);
         final String workspaceName = context.getWorkspaceNames().iterator().next();
 
         if (trace) {
-            LOGGER.trace("Computed canonical query plan for query {0}: {1}", context.id(), plan);
+            if (cachedPlan != null) {
+                LOGGER.trace("Reusing cached query plan for query {0}: {1}", context.id(), plan);
+            } else {
+                LOGGER.trace("Computed canonical query plan for query {0}: {1}", context.id(), plan);
+            }
         }
 
         checkCancelled(context);
         Columns resultColumns = null;
         if (!context.getProblems().hasErrors()) {
-            // Optimize the plan ...
-            start = System.nanoTime();
-            PlanNode optimizedPlan = optimizer.optimize(context, plan);
-            duration = Math.abs(System.nanoTime() - start);
-            stats = stats.withOptimizationTime(duration);
+            PlanNode optimizedPlan = cachedPlan;
+            if (optimizedPlan == null) {
+                // Optimize the plan ...
+                start = System.nanoTime();
+                optimizedPlan = optimizer.optimize(context, plan);
+                duration = Math.abs(System.nanoTime() - start);
+                stats = stats.withOptimizationTime(duration);
 
-            if (trace) {
-                LOGGER.trace("Computed optimized query plan for query {0}:\n{1}", context.id(), optimizedPlan);
+                if (trace) {
+                    LOGGER.trace("Computed optimized query plan for query {0}:\n{1}", context.id(), optimizedPlan);
+                }
+
+                if (planKey != null) {
+                    Map<String, Object> variablesRead = context.stopRecordingVariableReads();
+                    if (!context.getProblems().hasErrors()) {
+                        long planningNanos = stats.getPlanningTime(TimeUnit.NANOSECONDS)
+                                             + stats.getOptimizationTime(TimeUnit.NANOSECONDS);
+                        planCache.put(planKey, context, optimizedPlan, variablesRead, variableNames, planningNanos);
+                    }
+                }
             }
 
             // Find the query result columns ...
@@ -616,16 +668,12 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
                     joinQueryContext = context.with(joinPlanHints);
                 }
 
-                NodeSequence left = createNodeSequence(originalQuery, joinQueryContext, leftPlan, leftColumns, sources);
-                NodeSequence right = createNodeSequence(originalQuery, joinQueryContext, rightPlan, rightColumns, sources);
-
                 // Figure out the join algorithm ...
                 JoinAlgorithm algorithm = plan.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class);
                 JoinType joinType = plan.getProperty(Property.JOIN_TYPE, JoinType.class);
                 JoinCondition joinCondition = plan.getProperty(Property.JOIN_CONDITION, JoinCondition.class);
                 boolean pack = false;
                 boolean useHeap = false;
-                if (0 >= right.getRowCount() && right.getRowCount() < 100) useHeap = true;
                 ExtractFromRow leftExtractor = null;
                 ExtractFromRow rightExtractor = null;
                 RangeProducer<?> rangeProducer = null;
@@ -633,6 +681,8 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
                     case NESTED_LOOP:
                         // rows = new NestedLoopJoinComponent(context, left, right, joinCondition, joinType);
                         // break;
+                    case HASH:
+                    case INDEX_NESTED_LOOP:
                     case MERGE:
                         if (joinCondition instanceof SameNodeJoinCondition) {
                             SameNodeJoinCondition condition = (SameNodeJoinCondition)joinCondition;
@@ -755,8 +805,27 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
                     if (!rightType.equals(commonType)) rightExtractor = RowExtractors.convert(rightExtractor, commonType);
                 }
 
-                rows = new HashJoinSequence(workspaceName, left, right, leftExtractor, rightExtractor, joinType,
-                                            context.getBufferManager(), cache, rangeProducer, pack, useHeap);
+                NodeSequence left = null;
+                if (algorithm == JoinAlgorithm.INDEX_NESTED_LOOP && joinCondition instanceof EquiJoinCondition) {
+                    // Look up the right rows for each batch of left rows ...
+                    left = createNodeSequence(originalQuery, joinQueryContext, leftPlan, leftColumns, sources);
+                    rows = createIndexNestedLoopJoin(originalQuery, joinQueryContext, rightPlan, rightColumns,
+                                                     (EquiJoinCondition)joinCondition, joinType, left, leftExtractor,
+                                                     rightExtractor, sources);
+                }
+                if (rows == null) {
+                    if (left == null) left = createNodeSequence(originalQuery, joinQueryContext, leftPlan, leftColumns, sources);
+                    NodeSequence right = createNodeSequence(originalQuery, joinQueryContext, rightPlan, rightColumns, sources);
+                    // The right side is buffered, so keep it on the heap unless it is known to be large ...
+                    long rightRowCount = right.getRowCount();
+                    if (rightRowCount < 0) {
+                        List<Long> estimates = plan.getPropertyAsList(Property.JOIN_CARDINALITY_ESTIMATES, Long.class);
+                        if (estimates != null && estimates.size() == 2) rightRowCount = estimates.get(1);
+                    }
+                    useHeap = rightRowCount < MAX_ROWS_IN_HEAP_JOIN_BUFFER;
+                    rows = new HashJoinSequence(workspaceName, left, right, leftExtractor, rightExtractor, joinType,
+                                                context.getBufferManager(), cache, rangeProducer, pack, useHeap);
+                }
                 // For each Constraint object applied to the JOIN, simply create a SelectComponent on top ...
                 RowFilter filter = null;
                 List<Constraint> constraints = plan.getPropertyAsList(Property.JOIN_CONSTRAINTS, Constraint.class);
@@ -1022,6 +1091,90 @@ public class ScanningQueryEngine implements org.modeshape.jcr.query.QueryEngine
         return null;
     }
 
+    /**
+     * Create a node sequence for an {@link JoinAlgorithm#INDEX_NESTED_LOOP index nested-loop join}, which looks up the right rows
+     * for each batch of left rows using the index (under the right side's SOURCE) that applies to the join condition.
+     * 
+     * @param originalQuery the original query command; may not be null
+     * @param context the context in which the query is to be executed; may not be null
+     * @param rightPlan the plan node for the right side of the join; may not be null
+     * @param rightColumns the columns of the right side of the join; may not be null
+     * @param condition the join condition; may not be null
+     * @param joinType the type of join; may not be null
+     * @param left the sequence of left rows; may not be null
+     * @param leftExtractor the extractor for the join value of the left rows; may not be null
+     * @param rightExtractor the extractor for the join value of the right rows; may not be null
+     * @param sources the query sources for the repository; may not be null
+     * @return the sequence of joined rows, or null if the right side cannot be found with an index
+     */
+    protected NodeSequence createIndexNestedLoopJoin( final QueryCommand originalQuery,
+                                                      final ScanQueryContext context,
+                                                      PlanNode rightPlan,
+                                                      Columns rightColumns,
+                                                      EquiJoinCondition condition,
+                                                      JoinType joinType,
+                                                      NodeSequence left,
+                                                      ExtractFromRow leftExtractor,
+                                                      ExtractFromRow rightExtractor,
+                                                      final QuerySources sources ) {
+        if (joinType != JoinType.INNER && joinType != JoinType.LEFT_OUTER) return null;
+        // Find the SOURCE on the right side and the criteria that are applied to its rows ...
+        PlanNode node = rightPlan;
+        Columns columns = rightColumns;
+        RowFilter rightFilter = null;
+        while (node.getType() != Type.SOURCE) {
+            switch (node.getType()) {
+                case ACCESS:
+                    break;
+                case PROJECT:
+                    columns = context.columnsFor(node.getFirstChild());
+                    break;
+                case SELECT:
+                    Constraint constraint = node.getProperty(Property.SELECT_CRITERIA, Constraint.class);
+                    rightFilter = NodeSequence.requireBoth(rightFilter, createRowFilter(constraint, context, columns, sources));
+                    break;
+                default:
+                    return null;
+            }
+            node = node.getFirstChild();
+        }
+        final PlanNode sourceNode = node;
+        final Columns sourceColumns = columns;
+        final RowFilter filter = rightFilter;
+        final IndexPlan index = ChooseJoinStrategy.findIndexForJoin(sourceNode, condition);
+        if (index == null) return null;
+
+        // The index is probed for the values of the right selector's property ...
+        boolean rightIsSecond = rightPlan.getSelectors().contains(condition.selector2Name());
+        SelectorName rightSelector = rightIsSecond ? condition.selector2Name() : condition.selector1Name();
+        String rightProperty = rightIsSecond ? condition.getProperty2Name() : condition.getProperty1Name();
+        final PropertyValue rightValue = new PropertyValue(rightSelector, rightProperty);
+        IndexProbe probe = new IndexProbe() {
+            @Override
+            public NodeSequence probe( Collection<Object> joinValues ) {
+                List<Literal> values = new ArrayList<>(joinValues.size());
+                for (Object value : joinValues) {
+                    values.add(new Literal(value));
+                }
+                Constraint probeConstraint = new SetCriteria(rightValue, values);
+                IndexPlan probePlan = new IndexPlan(index.getName(), index.getWorkspaceName(), index.getProviderName(),
+                                                    Collections.<javax.jcr.query.qom.Constraint>singletonList(probeConstraint),
+                                                    null, index.getCostEstimate(), joinValues.size(),
+                                                    index.getSelectivityEstimate(), index.getParameters());
+                NodeSequence rows = createNodeSequenceForSource(originalQuery, context, sourceNode, probePlan, sourceColumns,
+                                                                sources);
+                if (rows == null) {
+                    // The index can't be used anymore, so find the right rows the usual way ...
+                    rows = createNodeSequenceForSource(originalQuery, context, sourceNode, sourceColumns, sources);
+                }
+                return NodeSequence.filter(rows, filter); // even if filter is null
+            }
+        };
+        return new IndexNestedLoopJoinSequence(sources.getWorkspaceName(), left, rightColumns.getSelectorNames().size(),
+                                               leftExtractor, rightExtractor, joinType, probe, context.getBufferManager(),
+                                               context.getNodeCache(sources.getWorkspaceName()));
+    }
+
     /**
      * Create an {@link ExtractFromRow} instance that produces for given row a single object that can be used to sort all rows in
      * the specified order.
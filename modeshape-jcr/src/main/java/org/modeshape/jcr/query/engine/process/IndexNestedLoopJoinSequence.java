@@ -0,0 +1,146 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.query.engine.process;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.jcr.cache.CachedNodeSupplier;
+import org.modeshape.jcr.query.BufferManager;
+import org.modeshape.jcr.query.NodeSequence;
+import org.modeshape.jcr.query.RowExtractors.ExtractFromRow;
+import org.modeshape.jcr.query.model.JoinType;
+
+/**
+ * A {@link NodeSequence} implementation that performs an equijoin by streaming the left sequence and, for each batch of left
+ * rows, looking up the matching right rows with an {@link IndexProbe index probe}. Unlike the {@link HashJoinSequence}, the right
+ * side is never loaded in its entirety: only the right rows matching the join values of one batch of left rows are buffered at
+ * any time. It can only be used for {@link JoinType#INNER inner} and {@link JoinType#LEFT_OUTER left outer} joins.
+ */
+@NotThreadSafe
+public class IndexNestedLoopJoinSequence extends NodeSequence {
+
+    /**
+     * Finds the right rows for a set of join values.
+     */
+    public static interface IndexProbe {
+        /**
+         * Get the right rows that have (at least) one of the supplied join values. The resulting sequence may also contain rows
+         * that do not match any of the values, since the join only uses those rows that do match.
+         *
+         * @param joinValues the distinct, non-null join values of a batch of left rows; never null or empty
+         * @return the sequence of right rows; never null
+         */
+        NodeSequence probe( Collection<Object> joinValues );
+    }
+
+    private final String workspaceName;
+    private final NodeSequence left;
+    private final ExtractFromRow leftExtractor;
+    private final ExtractFromRow rightExtractor;
+    private final JoinType joinType;
+    private final IndexProbe probe;
+    private final int rightWidth;
+    private final BufferManager bufferMgr;
+    private final CachedNodeSupplier nodeCache;
+    private NodeSequence current;
+
+    public IndexNestedLoopJoinSequence( String workspaceName,
+                                        NodeSequence left,
+                                        int rightWidth,
+                                        ExtractFromRow leftExtractor,
+                                        ExtractFromRow rightExtractor,
+                                        JoinType joinType,
+                                        IndexProbe probe,
+                                        BufferManager bufferMgr,
+                                        CachedNodeSupplier nodeCache ) {
+        assert joinType == JoinType.INNER || joinType == JoinType.LEFT_OUTER;
+        this.workspaceName = workspaceName;
+        this.left = left;
+        this.rightWidth = rightWidth;
+        this.leftExtractor = leftExtractor;
+        this.rightExtractor = rightExtractor;
+        this.joinType = joinType;
+        this.probe = probe;
+        this.bufferMgr = bufferMgr;
+        this.nodeCache = nodeCache;
+    }
+
+    @Override
+    public int width() {
+        return left.width() + rightWidth;
+    }
+
+    @Override
+    public long getRowCount() {
+        return -1L; // don't really know how many ...
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return left.isEmpty();
+    }
+
+    @Override
+    public Batch nextBatch() {
+        while (true) {
+            if (current != null) {
+                Batch batch = current.nextBatch();
+                if (batch != null) return batch;
+                current.close();
+                current = null;
+            }
+            Batch leftBatch = left.nextBatch();
+            if (leftBatch == null) return null;
+            // Copy the left rows so we can read them once for the join values and again for the join ...
+            Batch leftRows = NodeSequence.copy(leftBatch);
+            if (leftRows.isEmpty()) continue;
+            Set<Object> joinValues = new LinkedHashSet<>();
+            while (leftRows.hasNext()) {
+                leftRows.nextRow();
+                Object value = leftExtractor.getValueInRow(leftRows);
+                if (value instanceof Object[]) {
+                    for (Object v : (Object[])value) {
+                        if (v != null) joinValues.add(v);
+                    }
+                } else if (value != null) {
+                    joinValues.add(value);
+                }
+            }
+            ((Restartable)leftRows).restart();
+            // Only the right rows for these join values have to be buffered ...
+            NodeSequence rightRows = joinValues.isEmpty() ? NodeSequence.emptySequence(rightWidth) : probe.probe(joinValues);
+            current = new HashJoinSequence(workspaceName, NodeSequence.withBatch(leftRows), rightRows, leftExtractor,
+                                           rightExtractor, joinType, bufferMgr, nodeCache, null, false, true);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (current != null) current.close();
+        } finally {
+            left.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(index-nested-loop-join width=" + width() + " " + joinType + " left=" + left + ", on " + leftExtractor + "="
+               + rightExtractor + " )";
+    }
+}
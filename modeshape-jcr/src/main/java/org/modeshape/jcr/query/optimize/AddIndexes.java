@@ -44,6 +44,7 @@ import org.modeshape.jcr.query.plan.PlanNode.Operation;
 import org.modeshape.jcr.query.plan.PlanNode.Property;
 import org.modeshape.jcr.query.plan.PlanNode.Type;
 import org.modeshape.jcr.spi.index.IndexCostCalculator;
+import org.modeshape.jcr.spi.index.IndexStatistics;
 import org.modeshape.jcr.spi.index.provider.IndexPlanner;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.NameFactory;
@@ -194,6 +195,7 @@ public class AddIndexes implements OptimizerRule {
                 // Add the alias ...
                 nodeTypeNames.add(selectorName.getString());
                 final List<IndexPlan> indexPlans = new LinkedList<>();
+                final Map<String, IndexStatistics> statisticsByIndexName = new HashMap<>();
                 IndexCostCalculator calculator = new IndexCostCalculator() {
                     @Override
                     public Set<String> selectedNodeTypes() {
@@ -215,6 +217,12 @@ public class AddIndexes implements OptimizerRule {
                         return context.getVariables();
                     }
 
+                    @Override
+                    public void addStatistics( String name,
+                                               IndexStatistics statistics ) {
+                        statisticsByIndexName.put(name, statistics);
+                    }
+
                     @Override
                     public void addIndex( String name,
                                           String workspaceName,
@@ -295,6 +303,8 @@ public class AddIndexes implements OptimizerRule {
                     Collections.sort(indexPlans);
                     // Add an index node for each index ...
                     for (IndexPlan indexPlan : indexPlans) {
+                        IndexStatistics statistics = statisticsByIndexName.get(indexPlan.getName());
+                        if (statistics != null) indexPlan = indexPlan.withStatistics(statistics);
                         // Add a plan node for this index ...
                         PlanNode indexNode = new PlanNode(Type.INDEX, source.getSelectors());
                         indexNode.setProperty(Property.INDEX_SPECIFICATION, indexPlan);
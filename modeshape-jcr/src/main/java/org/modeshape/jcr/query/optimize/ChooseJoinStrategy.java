@@ -0,0 +1,276 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.query.optimize;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import org.modeshape.common.annotation.Immutable;
+import org.modeshape.jcr.query.QueryContext;
+import org.modeshape.jcr.query.engine.IndexPlan;
+import org.modeshape.jcr.query.model.DescendantNodeJoinCondition;
+import org.modeshape.jcr.query.model.EquiJoinCondition;
+import org.modeshape.jcr.query.model.JoinCondition;
+import org.modeshape.jcr.query.model.JoinType;
+import org.modeshape.jcr.query.plan.JoinAlgorithm;
+import org.modeshape.jcr.query.plan.PlanNode;
+import org.modeshape.jcr.query.plan.PlanNode.Property;
+import org.modeshape.jcr.query.plan.PlanNode.Type;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+
+/**
+ * An {@link OptimizerRule optimizer rule} that uses the cardinality estimates of the indexes chosen for each side of a JOIN to
+ * pick the {@link JoinAlgorithm join algorithm} and the side of the join that is buffered. This rule must run after the indexes
+ * have been {@link AddIndexes added} and {@link OrderIndexesByCost ordered}, since the estimates come from the
+ * {@link IndexPlan#getCardinalityEstimate() cardinality} of the index that will be used for each SOURCE.
+ * <p>
+ * For each JOIN node where the number of rows on at least one side can be estimated, this rule will:
+ * <ol>
+ * <li>use the {@link JoinAlgorithm#INDEX_NESTED_LOOP index nested-loop} algorithm for an inner or left outer
+ * {@link EquiJoinCondition equi-join} when the left side is smaller than the right side and the right side is a single selector
+ * with an index that applies to the join condition, or otherwise</li>
+ * <li>use the {@link JoinAlgorithm#HASH hash} algorithm, swapping the children so that the side with the smaller estimate is on
+ * the right (and is the side that is buffered).</li>
+ * </ol>
+ * The estimates are recorded in the {@link Property#JOIN_CARDINALITY_ESTIMATES} property so that they are shown in the query
+ * plan. Joins for which nothing can be estimated are left unchanged, as are the sides of {@link DescendantNodeJoinCondition
+ * descendant-node joins}, which always need the ancestors on the left.
+ * </p>
+ */
+@Immutable
+public class ChooseJoinStrategy implements OptimizerRule {
+
+    public static final ChooseJoinStrategy INSTANCE = new ChooseJoinStrategy();
+
+    /**
+     * The value used for an unknown cardinality estimate.
+     */
+    public static final long UNKNOWN = -1L;
+
+    @Override
+    public PlanNode execute( QueryContext context,
+                             PlanNode plan,
+                             LinkedList<OptimizerRule> ruleStack ) {
+        for (PlanNode join : plan.findAllAtOrBelow(Type.JOIN)) {
+            assert join.getChildCount() == 2;
+            long leftEstimate = estimateCardinality(join.getFirstChild());
+            long rightEstimate = estimateCardinality(join.getLastChild());
+            if (leftEstimate == UNKNOWN && rightEstimate == UNKNOWN) {
+                // There's nothing we can base a decision on, so leave the join as is ...
+                continue;
+            }
+            JoinCondition condition = join.getProperty(Property.JOIN_CONDITION, JoinCondition.class);
+            JoinType joinType = join.getProperty(Property.JOIN_TYPE, JoinType.class);
+            JoinAlgorithm algorithm = null;
+
+            if (condition instanceof DescendantNodeJoinCondition) {
+                // The ancestors must remain on the left, and only the hash join can handle the ranges of descendants ...
+                algorithm = JoinAlgorithm.HASH;
+            } else if (isSmaller(leftEstimate, rightEstimate) && usesIndexForJoin(join.getLastChild(), condition, joinType)) {
+                algorithm = JoinAlgorithm.INDEX_NESTED_LOOP;
+            } else if (joinType == JoinType.INNER && isSmaller(rightEstimate, leftEstimate)
+                       && usesIndexForJoin(join.getFirstChild(), condition, joinType)) {
+                // The right side is smaller and the left side can be found with an index, so swap them ...
+                swapChildren(join, joinType);
+                long estimate = leftEstimate;
+                leftEstimate = rightEstimate;
+                rightEstimate = estimate;
+                algorithm = JoinAlgorithm.INDEX_NESTED_LOOP;
+            } else {
+                // Buffer the smaller side, which is always the right side ...
+                if (isSmaller(leftEstimate, rightEstimate)) {
+                    swapChildren(join, joinType);
+                    long estimate = leftEstimate;
+                    leftEstimate = rightEstimate;
+                    rightEstimate = estimate;
+                }
+                algorithm = JoinAlgorithm.HASH;
+            }
+            join.setProperty(Property.JOIN_ALGORITHM, algorithm);
+            join.setProperty(Property.JOIN_CARDINALITY_ESTIMATES, Arrays.asList(leftEstimate, rightEstimate));
+        }
+        return plan;
+    }
+
+    /**
+     * Estimate the number of rows that will be produced by the supplied plan node.
+     *
+     * @param node the plan node; may not be null
+     * @return the estimated number of rows, or {@link #UNKNOWN} if the number cannot be estimated
+     */
+    protected long estimateCardinality( PlanNode node ) {
+        switch (node.getType()) {
+            case ACCESS:
+                if (node.hasProperty(Property.ACCESS_NO_RESULTS)) return 0L;
+                return estimateCardinality(node.getFirstChild());
+            case NULL:
+                return 0L;
+            case SOURCE:
+                // The indexes are ordered by cost, and the first one is the one that will be used ...
+                for (PlanNode child : node.getChildren()) {
+                    if (child.getType() != Type.INDEX) continue;
+                    IndexPlan index = child.getProperty(Property.INDEX_SPECIFICATION, IndexPlan.class);
+                    if (index == null || index.getCardinalityEstimate() == Long.MAX_VALUE) return UNKNOWN;
+                    return index.getCardinalityEstimate();
+                }
+                // All nodes will be scanned ...
+                return UNKNOWN;
+            case LIMIT:
+                long estimate = estimateCardinality(node.getFirstChild());
+                Integer limit = node.getProperty(Property.LIMIT_COUNT, Integer.class);
+                if (limit == null) return estimate;
+                return estimate == UNKNOWN ? limit.longValue() : Math.min(estimate, limit.longValue());
+            case JOIN:
+                long left = estimateCardinality(node.getFirstChild());
+                long right = estimateCardinality(node.getLastChild());
+                if (left == UNKNOWN || right == UNKNOWN) return UNKNOWN;
+                JoinType joinType = node.getProperty(Property.JOIN_TYPE, JoinType.class);
+                if (joinType == JoinType.CROSS) return multiply(left, right);
+                long distinct = estimateDistinctJoinValues(node);
+                // Each join value matches (on average) left/distinct rows on the left and right/distinct rows on the right ...
+                long joined = distinct > 0L ? multiply(left, right) / distinct : Math.max(left, right);
+                if (joinType == JoinType.LEFT_OUTER) return Math.max(joined, left);
+                if (joinType == JoinType.RIGHT_OUTER) return Math.max(joined, right);
+                if (joinType == JoinType.FULL_OUTER) return Math.max(joined, Math.max(left, right));
+                return joined;
+            case SET_OPERATION:
+                long total = 0L;
+                for (PlanNode child : node.getChildren()) {
+                    long childEstimate = estimateCardinality(child);
+                    if (childEstimate == UNKNOWN) return UNKNOWN;
+                    total += childEstimate;
+                }
+                return total;
+            case DEPENDENT_QUERY:
+                return estimateCardinality(node.getLastChild());
+            default:
+                // SELECT, PROJECT, SORT, DUP_REMOVE and the like never produce more rows than their child ...
+                return node.getChildCount() == 1 ? estimateCardinality(node.getFirstChild()) : UNKNOWN;
+        }
+    }
+
+    /**
+     * Estimate the number of distinct join values of an {@link EquiJoinCondition equi-join}, using the {@link IndexStatistics
+     * statistics} of the indexes that apply to the join condition on either side of the join.
+     *
+     * @param join the JOIN node; may not be null
+     * @return the largest number of distinct values of the indexes for the join condition, or 0 if that is not known
+     */
+    protected long estimateDistinctJoinValues( PlanNode join ) {
+        JoinCondition condition = join.getProperty(Property.JOIN_CONDITION, JoinCondition.class);
+        if (!(condition instanceof EquiJoinCondition)) return 0L;
+        long distinct = 0L;
+        for (PlanNode side : join.getChildren()) {
+            PlanNode source = findSource(side);
+            if (source == null) continue;
+            IndexPlan index = findIndexForJoin(source, condition);
+            if (index == null || index.getStatistics() == null) continue;
+            distinct = Math.max(distinct, index.getStatistics().getDistinctCount());
+        }
+        return distinct;
+    }
+
+    /**
+     * Determine whether the supplied plan node is a single selector whose rows can be found with an index that applies to the
+     * given join condition, so that it can be used on the right side of an {@link JoinAlgorithm#INDEX_NESTED_LOOP index
+     * nested-loop join}.
+     *
+     * @param node the plan node on one side of the join; may not be null
+     * @param condition the join condition; may be null
+     * @param joinType the join type; may be null
+     * @return true if the index nested-loop join can be used with the supplied node on the right side, or false otherwise
+     */
+    protected boolean usesIndexForJoin( PlanNode node,
+                                        JoinCondition condition,
+                                        JoinType joinType ) {
+        if (!(condition instanceof EquiJoinCondition)) return false;
+        if (joinType != JoinType.INNER && joinType != JoinType.LEFT_OUTER) return false;
+        PlanNode source = findSource(node);
+        return source != null && findIndexForJoin(source, condition) != null;
+    }
+
+    /**
+     * Find the SOURCE node of the single selector that is accessed by the supplied plan node.
+     *
+     * @param node the plan node; may not be null
+     * @return the SOURCE node, or null if the supplied node is not a single selector or has no results
+     */
+    protected PlanNode findSource( PlanNode node ) {
+        PlanNode source = node;
+        while (source != null && source.getType() != Type.SOURCE) {
+            switch (source.getType()) {
+                case ACCESS:
+                    if (source.hasProperty(Property.ACCESS_NO_RESULTS)) return null;
+                    source = source.getFirstChild();
+                    break;
+                case PROJECT:
+                case SELECT:
+                    source = source.getFirstChild();
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Find the index under the supplied SOURCE node that applies to the given join condition.
+     *
+     * @param source the SOURCE node; may not be null
+     * @param condition the join condition; may not be null
+     * @return the plan for the index that can be used to find the rows matching the join condition, or null if there is none
+     */
+    public static IndexPlan findIndexForJoin( PlanNode source,
+                                              JoinCondition condition ) {
+        for (PlanNode child : source.getChildren()) {
+            if (child.getType() != Type.INDEX) continue;
+            IndexPlan index = child.getProperty(Property.INDEX_SPECIFICATION, IndexPlan.class);
+            if (index == null || index.getProviderName() == null) continue;
+            if (index.getJoinConditions().contains(condition)) return index;
+        }
+        return null;
+    }
+
+    protected void swapChildren( PlanNode join,
+                                 JoinType joinType ) {
+        PlanNode first = join.getFirstChild();
+        first.removeFromParent();
+        join.addLastChild(first);
+        if (joinType == JoinType.LEFT_OUTER) {
+            join.setProperty(Property.JOIN_TYPE, JoinType.RIGHT_OUTER);
+        } else if (joinType == JoinType.RIGHT_OUTER) {
+            join.setProperty(Property.JOIN_TYPE, JoinType.LEFT_OUTER);
+        }
+    }
+
+    private static boolean isSmaller( long estimate,
+                                      long other ) {
+        if (estimate == UNKNOWN) return false;
+        // An unknown estimate means that all nodes will be scanned ...
+        return other == UNKNOWN || estimate < other;
+    }
+
+    private static long multiply( long left,
+                                  long right ) {
+        if (left != 0L && right > Long.MAX_VALUE / left) return Long.MAX_VALUE;
+        return left * right;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+}
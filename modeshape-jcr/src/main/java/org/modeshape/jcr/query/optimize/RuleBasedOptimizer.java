@@ -83,6 +83,10 @@ public class RuleBasedOptimizer implements Optimizer {
         // Add indexes determination last ...
         populateIndexingRules(ruleStack, hints);
         ruleStack.addLast(OrderIndexesByCost.INSTANCE);
+        if (hints.hasJoin) {
+            // Choosing the join algorithms needs the cardinality estimates of the indexes ...
+            ruleStack.addLast(ChooseJoinStrategy.INSTANCE);
+        }
     }
 
     /**
@@ -20,6 +20,24 @@ package org.modeshape.jcr.query.plan;
  */
 public enum JoinAlgorithm {
     // PARTITIONED_SORT,
+    /**
+     * The default algorithm chosen by the planner, which is executed by buffering the right side keyed by its join value and
+     * streaming the left side through that buffer.
+     */
     NESTED_LOOP,
-    MERGE
+    /**
+     * The algorithm chosen by the planner when both sides are sorted before they are joined. The sides are sorted by node key
+     * rather than by their join values, so this is executed like {@link #HASH}.
+     */
+    MERGE,
+    /**
+     * Buffer the right side keyed by its join value and stream the left side through that buffer. The optimizer places the side
+     * with the smaller estimated cardinality on the right, so that the smaller side is the one that is buffered.
+     */
+    HASH,
+    /**
+     * Stream the left side and, for each batch of left rows, look up the matching right rows in an index that applies to the
+     * join condition. This is used when the left side is estimated to be small and the right side can be found with an index.
+     */
+    INDEX_NESTED_LOOP
 }
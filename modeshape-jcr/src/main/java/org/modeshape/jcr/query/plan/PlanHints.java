@@ -18,6 +18,7 @@ package org.modeshape.jcr.query.plan;
 import java.io.Serializable;
 import javax.jcr.query.QueryResult;
 import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.common.util.HashCode;
 import org.modeshape.jcr.query.QueryResults;
 
 @NotThreadSafe
@@ -106,6 +107,13 @@ public final class PlanHints implements Serializable, Cloneable {
      */
     public int rowsKeptInMemory = 200;
 
+    /**
+     * The maximum number of milliseconds that the query waits, before it is executed, for the changes previously saved by the
+     * Session to become visible in the asynchronous indexes. The default value of 0 means that the query never waits, and may
+     * therefore not see the most recent changes in the results obtained from asynchronous indexes.
+     */
+    public long indexVisibilityTimeout = 0L;
+
     public PlanHints() {
     }
 
@@ -129,6 +137,7 @@ public final class PlanHints implements Serializable, Cloneable {
         sb.append(", useSessionContent=").append(useSessionContent);
         sb.append(", restartable=").append(restartable);
         sb.append(", rowsKeptInMemory=").append(rowsKeptInMemory);
+        sb.append(", indexVisibilityTimeout=").append(indexVisibilityTimeout);
         sb.append('}');
         return sb.toString();
     }
@@ -154,6 +163,35 @@ public final class PlanHints implements Serializable, Cloneable {
         clone.qualifyExpandedColumnNames = this.qualifyExpandedColumnNames;
         clone.restartable = this.restartable;
         clone.rowsKeptInMemory = this.rowsKeptInMemory;
+        clone.indexVisibilityTimeout = this.indexVisibilityTimeout;
         return clone;
     }
+
+    @Override
+    public int hashCode() {
+        return HashCode.compute(hasCriteria, hasView, hasJoin, hasSort, hasSetQuery, hasLimit, hasOptionalJoin, hasFullTextSearch,
+                                hasSubqueries, isExistsQuery, showPlan, planOnly, validateColumnExistance, includeSystemContent,
+                                useSessionContent, qualifyExpandedColumnNames, restartable, rowsKeptInMemory,
+                                indexVisibilityTimeout);
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (obj == this) return true;
+        if (obj instanceof PlanHints) {
+            PlanHints that = (PlanHints)obj;
+            return this.hasCriteria == that.hasCriteria && this.hasView == that.hasView && this.hasJoin == that.hasJoin
+                   && this.hasSort == that.hasSort && this.hasSetQuery == that.hasSetQuery && this.hasLimit == that.hasLimit
+                   && this.hasOptionalJoin == that.hasOptionalJoin && this.hasFullTextSearch == that.hasFullTextSearch
+                   && this.hasSubqueries == that.hasSubqueries && this.isExistsQuery == that.isExistsQuery
+                   && this.showPlan == that.showPlan && this.planOnly == that.planOnly
+                   && this.validateColumnExistance == that.validateColumnExistance
+                   && this.includeSystemContent == that.includeSystemContent
+                   && this.useSessionContent == that.useSessionContent
+                   && this.qualifyExpandedColumnNames == that.qualifyExpandedColumnNames
+                   && this.restartable == that.restartable && this.rowsKeptInMemory == that.rowsKeptInMemory
+                   && this.indexVisibilityTimeout == that.indexVisibilityTimeout;
+        }
+        return false;
+    }
 }
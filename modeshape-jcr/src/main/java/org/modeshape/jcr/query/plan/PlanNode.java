@@ -158,6 +158,11 @@ public final class PlanNode implements Iterable<PlanNode>, Readable, Cloneable,
          * object.
          */
         JOIN_CONSTRAINTS,
+        /**
+         * For JOIN nodes, the estimated number of rows on the left and right sides of the join, as used to choose the join
+         * algorithm. Value is a List of two {@link Long} objects, where -1 means the number of rows is unknown.
+         */
+        JOIN_CARDINALITY_ESTIMATES,
 
         /** For SOURCE nodes, the literal name of the selector. Value is a {@link SelectorName} object. */
         SOURCE_NAME,
@@ -115,6 +115,75 @@ public abstract class Connector {
      */
     private boolean queryable = true;
 
+    /**
+     * The maximum number of documents returned by this connector which the repository keeps in a cache dedicated to this source,
+     * so that the same documents are not repeatedly read from the external system. By default this is 0, and the repository
+     * reads every document from the connector.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int documentCacheSize = 0;
+
+    /**
+     * The optional maximum amount of memory, in megabytes, used by the cached documents of this connector. When positive, the
+     * documents are cached and bounded by their estimated size rather than by their number.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int documentCacheMaxMemory = 0;
+
+    /**
+     * The number of seconds after which a cached document of this connector is read again from the external system, which
+     * bounds how stale the cached documents can be when the external system changes without the connector publishing events.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int documentCacheTtlSeconds = 60;
+
+    /**
+     * A flag which indicates whether the document cache of this connector also remembers the identifiers of documents which do
+     * not exist. By default, missing documents are cached as well.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private boolean cacheMissingDocuments = true;
+
+    /**
+     * The number of pages of children which the repository reads in the background ahead of an iteration over the children of a
+     * node, if this connector is {@link Pageable}. By default this is 0, and each page is read only when it is needed.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int pagePrefetchSize = 0;
+
+    /**
+     * The percentage of a page of children which is iterated before the following pages are prefetched.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int pagePrefetchThreshold = 50;
+
+    /**
+     * The maximum number of threads which concurrently prefetch the pages of children of this connector.
+     * <p>
+     * The field is assigned via reflection based upon the configuration of the external source represented by this connector
+     * before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private int pagePrefetchThreads = 2;
+
     private boolean initialized = false;
 
     /**
@@ -261,6 +330,69 @@ public abstract class Connector {
         return queryable;
     }
 
+    /**
+     * Returns the maximum number of documents of this connector which the repository caches.
+     *
+     * @return the maximum number of cached documents; 0 if the repository does not cache the documents of this connector
+     */
+    public int getDocumentCacheSize() {
+        return documentCacheSize;
+    }
+
+    /**
+     * Returns the maximum amount of memory, in megabytes, used by the cached documents of this connector.
+     *
+     * @return the number of megabytes; 0 if the cache is only bounded by its {@link #getDocumentCacheSize() size}
+     */
+    public int getDocumentCacheMaxMemory() {
+        return documentCacheMaxMemory;
+    }
+
+    /**
+     * Returns the number of seconds for which a document of this connector remains in the repository's cache.
+     *
+     * @return the number of seconds; 0 or less if cached documents never expire
+     */
+    public int getDocumentCacheTtlSeconds() {
+        return documentCacheTtlSeconds;
+    }
+
+    /**
+     * Returns whether the repository's cache for this connector also remembers which documents do not exist.
+     *
+     * @return {@code true} if missing documents are cached, {@code false} otherwise.
+     */
+    public boolean isCacheMissingDocuments() {
+        return cacheMissingDocuments;
+    }
+
+    /**
+     * Returns the number of pages of children which are read ahead of an iteration, if this connector is {@link Pageable}.
+     *
+     * @return the number of pages; 0 if pages are not prefetched
+     */
+    public int getPagePrefetchSize() {
+        return pagePrefetchSize;
+    }
+
+    /**
+     * Returns the percentage of a page of children which is iterated before the following pages are prefetched.
+     *
+     * @return the percentage, between 0 and 100
+     */
+    public int getPagePrefetchThreshold() {
+        return pagePrefetchThreshold;
+    }
+
+    /**
+     * Returns the maximum number of threads which concurrently prefetch the pages of children of this connector.
+     *
+     * @return the number of threads
+     */
+    public int getPagePrefetchThreads() {
+        return pagePrefetchThreads;
+    }
+
     protected ExtraProperties extraPropertiesFor( String id,
                                                   boolean update ) {
         return new ExtraProperties(id, update);
@@ -87,6 +87,17 @@ public interface IndexCostCalculator {
      */
     Map<String, Object> getVariables();
 
+    /**
+     * Record the statistics of the supplied index, so that the query planner can use them when estimating the number of rows
+     * produced by the joins and other operations that use the index. This is typically called for those indexes that are
+     * {@link #addIndex added} to the query plan.
+     *
+     * @param name the name of the index; may not be null
+     * @param statistics the statistics of the index; may not be null
+     */
+    void addStatistics( String name,
+                        IndexStatistics statistics );
+
     /**
      * Add to the query plan the information necessary to signal that the supplied index can be used to answer the query.
      *
@@ -0,0 +1,177 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.spi.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.spi.index.provider.Statistical;
+
+/**
+ * A snapshot of the statistics about the values in an index, as collected by a {@link Statistical} index at a particular point in
+ * time. The statistics are used by the query planner to estimate the number of rows produced by the indexes and the joins that
+ * use them.
+ * <p>
+ * The histogram describes how the entries are distributed over the values of the index: it has {@link #getBucketCount() buckets}
+ * that each contain (roughly) the same {@link #getBucketDepth() number of entries}, so that ranges of skewed values span more
+ * buckets than ranges of rare values.
+ * </p>
+ */
+@Immutable
+public final class IndexStatistics {
+
+    private final long totalCount;
+    private final long distinctCount;
+    private final long nullCount;
+    private final Map<Object, Long> mostCommonValues;
+    private final int bucketCount;
+    private final long bucketDepth;
+    private final long collectedTime;
+
+    /**
+     * Create a new snapshot of the statistics for an index.
+     *
+     * @param totalCount the number of entries in the index; must be non-negative
+     * @param distinctCount the number of distinct values in the index; must be non-negative
+     * @param nullCount the number of entries with a null value; must be non-negative
+     * @param mostCommonValues the number of entries for each of the most common values, ordered from the most common to the
+     *        least common; may be null or empty
+     * @param bucketCount the number of buckets in the histogram; must be non-negative
+     * @param bucketDepth the number of entries in each bucket of the histogram; must be non-negative
+     * @param collectedTime the time in milliseconds at which the statistics were collected
+     */
+    public IndexStatistics( long totalCount,
+                            long distinctCount,
+                            long nullCount,
+                            Map<Object, Long> mostCommonValues,
+                            int bucketCount,
+                            long bucketDepth,
+                            long collectedTime ) {
+        CheckArg.isNonNegative(totalCount, "totalCount");
+        CheckArg.isNonNegative(distinctCount, "distinctCount");
+        CheckArg.isNonNegative(nullCount, "nullCount");
+        CheckArg.isNonNegative(bucketCount, "bucketCount");
+        CheckArg.isNonNegative(bucketDepth, "bucketDepth");
+        this.totalCount = totalCount;
+        this.distinctCount = distinctCount;
+        this.nullCount = nullCount;
+        if (mostCommonValues == null || mostCommonValues.isEmpty()) {
+            this.mostCommonValues = Collections.emptyMap();
+        } else {
+            this.mostCommonValues = Collections.unmodifiableMap(new LinkedHashMap<>(mostCommonValues));
+        }
+        this.bucketCount = bucketCount;
+        this.bucketDepth = bucketDepth;
+        this.collectedTime = collectedTime;
+    }
+
+    /**
+     * Get the number of entries in the index at the time the statistics were collected.
+     *
+     * @return the number of entries; never negative
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the number of distinct values in the index at the time the statistics were collected.
+     *
+     * @return the number of distinct values; never negative
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Get the number of entries in the index that have a null value.
+     *
+     * @return the number of entries with a null value; never negative
+     */
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Get the number of entries for each of the most common values, ordered from the most common to the least common.
+     *
+     * @return the immutable map of entry counts keyed by value; never null but possibly empty
+     */
+    public Map<Object, Long> getMostCommonValues() {
+        return mostCommonValues;
+    }
+
+    /**
+     * Get the number of buckets in the equi-depth histogram.
+     *
+     * @return the number of buckets; never negative
+     */
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Get the number of entries in each bucket of the equi-depth histogram.
+     *
+     * @return the number of entries per bucket; never negative
+     */
+    public long getBucketDepth() {
+        return bucketDepth;
+    }
+
+    /**
+     * Get the time at which these statistics were collected.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getCollectedTime() {
+        return collectedTime;
+    }
+
+    /**
+     * Estimate the number of entries in the index that have the supplied value. The estimate is exact for the
+     * {@link #getMostCommonValues() most common values}, and for all other values is the average number of entries of the values
+     * that are not among the most common values.
+     *
+     * @param value the value; may be null
+     * @return the estimated number of entries; never negative
+     */
+    public long estimateEqualityCount( Object value ) {
+        if (value == null) return nullCount;
+        Long count = mostCommonValues.get(value);
+        if (count != null) return count;
+        long remainingEntries = totalCount;
+        for (Long commonCount : mostCommonValues.values()) {
+            remainingEntries -= commonCount;
+        }
+        long remainingValues = distinctCount - mostCommonValues.size();
+        if (remainingValues <= 0L || remainingEntries <= 0L) return 0L;
+        return Math.max(1L, remainingEntries / remainingValues);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("total=").append(totalCount);
+        sb.append(", distinct=").append(distinctCount);
+        sb.append(", nulls=").append(nullCount);
+        sb.append(", buckets=").append(bucketCount).append('x').append(bucketDepth);
+        if (!mostCommonValues.isEmpty()) sb.append(", mostCommon=").append(mostCommonValues);
+        return sb.toString();
+    }
+}
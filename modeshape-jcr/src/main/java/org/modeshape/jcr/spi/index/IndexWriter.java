@@ -24,6 +24,10 @@ import org.modeshape.jcr.value.Path;
 
 /**
  * Interface used to record in the indexes the changes to content.
+ * <p>
+ * Implementations need not be thread-safe: even when content is reindexed by several threads, the calls to a writer are
+ * made by one thread at a time.
+ * </p>
  * 
  * @see IndexProvider#getIndexWriter()
  * @author Randall Hauch (rhauch@redhat.com)
@@ -23,6 +23,7 @@ import javax.jcr.query.qom.Constraint;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.jcr.api.index.IndexManager;
 import org.modeshape.jcr.spi.index.IndexConstraints;
+import org.modeshape.jcr.spi.index.IndexStatistics;
 
 /**
  * A {@link ManagedIndex} implementation which wraps an index instance created by a particular provider, offering
@@ -64,6 +65,11 @@ public final class DefaultManagedIndex implements ManagedIndex {
         return index.estimateCardinality(andedConstraints, variables);
     }
 
+    @Override
+    public IndexStatistics getStatistics() {
+        return index instanceof Statistical ? ((Statistical)index).getStatistics() : null;
+    }
+
     @Override
     public Results filter(IndexConstraints constraints, long cardinalityEstimate) {
         return index.filter(constraints, cardinalityEstimate);
@@ -0,0 +1,331 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.spi.index.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.ValueMetric;
+import org.modeshape.jcr.api.value.DateTime;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.cache.change.ChangeSetListener;
+import org.modeshape.jcr.cache.change.MergedChanges;
+
+/**
+ * Accumulates the {@link ChangeSet}s destined for a single index over a window of time, and applies them to the index all at
+ * once so that the index is committed only once per window rather than once per change set. The window ends when the oldest
+ * pending change set reaches the maximum delay or when the pending changes reach the maximum size, whichever comes first.
+ * <p>
+ * This class also records the identifiers of the change sets that have been applied to the index, which allows a session to
+ * wait until the change set produced by its own save can be seen by queries using the index. Waiting callers do not need to
+ * wait for the end of the window, since the pending changes are applied as soon as anyone is waiting for them.
+ * </p>
+ * <p>
+ * The pending changes are always taken while holding this object's monitor but are written to the index without holding it,
+ * so that a slow index never blocks the threads that deliver or wait for changes. A separate lock ensures that the batches are
+ * still written one at a time and in the order in which their changes were received.
+ * </p>
+ */
+@ThreadSafe
+final class IndexChangeBatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexChangeBatcher.class);
+
+    /**
+     * The number of applied change sets whose identifiers are remembered. A session that looks for a change set after this many
+     * others have been applied simply waits until its timeout, so this only needs to cover the changes applied between a save
+     * and the first query that follows it.
+     */
+    private static final int MAX_APPLIED_CHANGE_SETS = 4096;
+
+    private final String indexName;
+    private final String workspaceName;
+    private final ChangeSetListener target;
+    private final int maxChanges;
+    private final long maxDelayInMillis;
+    private final ScheduledExecutorService scheduler;
+    private final RepositoryStatistics statistics;
+    private final Object writeLock = new Object();
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            flushQuietly();
+        }
+    };
+
+    @GuardedBy( "this" )
+    private MergedChanges pending;
+    @GuardedBy( "this" )
+    private List<String> pendingChangeSetIds;
+    @GuardedBy( "this" )
+    private int pendingChangeCount;
+    @GuardedBy( "this" )
+    private ScheduledFuture<?> scheduled;
+    @GuardedBy( "this" )
+    private final Set<String> appliedChangeSetIds = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Boolean> eldest ) {
+            return size() > MAX_APPLIED_CHANGE_SETS;
+        }
+    });
+    @GuardedBy( "this" )
+    private long visibleTime;
+    @GuardedBy( "this" )
+    private int waiters;
+    @GuardedBy( "this" )
+    private boolean closed;
+
+    /**
+     * Create a batcher for an index.
+     *
+     * @param indexName the name of the index; may not be null
+     * @param workspaceName the name of the workspace of the index; may not be null
+     * @param target the listener that applies the changes to the index; may not be null
+     * @param maxChanges the maximum number of changes in a batch
+     * @param maxDelayInMillis the maximum number of milliseconds that changes are kept before they are applied; changes are
+     *        never batched if this is not positive
+     * @param scheduler the executor used to apply the changes at the end of each window; may be null only if changes are never
+     *        batched
+     * @param statistics the statistics in which the backlog and lag of the index are recorded; may be null
+     */
+    IndexChangeBatcher( String indexName,
+                        String workspaceName,
+                        ChangeSetListener target,
+                        int maxChanges,
+                        long maxDelayInMillis,
+                        ScheduledExecutorService scheduler,
+                        RepositoryStatistics statistics ) {
+        assert indexName != null;
+        assert workspaceName != null;
+        assert target != null;
+        assert maxDelayInMillis <= 0L || scheduler != null;
+        this.indexName = indexName;
+        this.workspaceName = workspaceName;
+        this.target = target;
+        this.maxChanges = Math.max(1, maxChanges);
+        this.maxDelayInMillis = maxDelayInMillis;
+        this.scheduler = scheduler;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Determine whether this batcher accumulates changes, or applies each change set as soon as it is received.
+     *
+     * @return true if changes are batched, or false otherwise
+     */
+    boolean isBatching() {
+        return maxDelayInMillis > 0L;
+    }
+
+    /**
+     * Receive the next change set.
+     *
+     * @param changeSet the change set; may not be null
+     * @param batch true if the changes may be batched, or false if they must be applied before this method returns
+     */
+    void receive( ChangeSet changeSet,
+                  boolean batch ) {
+        if (!workspaceName.equals(changeSet.getWorkspaceName())) {
+            // The changes cannot affect the index ...
+            return;
+        }
+        if (!batch || !isBatching()) {
+            synchronized (writeLock) {
+                // Apply the earlier changes first, so that the index sees all changes in the order they were received ...
+                flush();
+                try {
+                    target.notify(changeSet);
+                } finally {
+                    applied(changeSet, Collections.singletonList(changeSet.getUUID()));
+                }
+            }
+            return;
+        }
+        boolean flushNow = false;
+        synchronized (this) {
+            if (pending == null) {
+                pending = new MergedChanges(workspaceName);
+                pendingChangeSetIds = new ArrayList<>();
+                schedule();
+            }
+            pending.merge(changeSet);
+            pendingChangeSetIds.add(changeSet.getUUID());
+            pendingChangeCount += changeSet.size();
+            if (statistics != null) statistics.increment(ValueMetric.INDEXING_BACKLOG, changeSet.size());
+            // Either the batch is full (so don't let it grow without bounds), or someone is waiting to see the changes ...
+            flushNow = pendingChangeCount >= maxChanges || waiters > 0;
+        }
+        if (flushNow) flush();
+    }
+
+    @GuardedBy( "this" )
+    private void schedule() {
+        try {
+            scheduled = scheduler.schedule(scheduledFlush, maxDelayInMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler is shutting down, so the changes will be applied when the batch is full or the index is shutdown ...
+            scheduled = null;
+        }
+    }
+
+    /**
+     * Apply all pending changes to the index, and commit the index. This blocks while another batch is being applied.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            MergedChanges changes = null;
+            List<String> changeSetIds = null;
+            int changeCount = 0;
+            synchronized (this) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    scheduled = null;
+                }
+                if (pending == null) return;
+                changes = pending;
+                changeSetIds = pendingChangeSetIds;
+                changeCount = pendingChangeCount;
+                pending = null;
+                pendingChangeSetIds = null;
+                pendingChangeCount = 0;
+            }
+            try {
+                LOGGER.trace("Applying {0} change sets with {1} changes ({2} coalesced) to the '{3}' index in workspace '{4}'",
+                             changes.getChangeSetCount(), changes.size(), changes.getCoalescedCount(), indexName,
+                             workspaceName);
+                target.notify(changes);
+            } finally {
+                if (statistics != null) {
+                    statistics.increment(ValueMetric.INDEXING_BACKLOG, -changeCount);
+                    long earliest = timestampOf(changes.getEarliestTimestamp());
+                    if (earliest > 0L) {
+                        statistics.set(ValueMetric.INDEXING_LAG, Math.max(0L, System.currentTimeMillis() - earliest));
+                    }
+                }
+                applied(changes, changeSetIds);
+            }
+        }
+    }
+
+    protected void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error(e, JcrI18n.errorApplyingIndexChanges, indexName, workspaceName, e.getMessage());
+        }
+    }
+
+    /**
+     * Stop batching changes, either applying or discarding the pending changes.
+     *
+     * @param discard true if the pending changes should be discarded (e.g., because the index is being destroyed), or false if
+     *        they should be applied
+     */
+    void close( boolean discard ) {
+        synchronized (this) {
+            if (discard && pending != null) {
+                if (statistics != null) statistics.increment(ValueMetric.INDEXING_BACKLOG, -pendingChangeCount);
+                pending = null;
+                pendingChangeSetIds = null;
+                pendingChangeCount = 0;
+            }
+        }
+        flushQuietly();
+        synchronized (this) {
+            // Wake up anyone still waiting, since no more changes will be applied ...
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Get the time of the latest change set that has been applied to the index.
+     *
+     * @return the time in milliseconds of the latest applied change set, or 0 if no change sets have been applied
+     */
+    synchronized long getVisibleTime() {
+        return visibleTime;
+    }
+
+    /**
+     * Wait until the identified change set has been applied to the index. Changes that are still pending are applied
+     * immediately, as are changes received while this method is waiting.
+     *
+     * @param changeSetId the {@link ChangeSet#getUUID() identifier} of the change set; may not be null
+     * @param timeoutInMillis the maximum number of milliseconds to wait
+     * @return true if the change set was applied, or false if the timeout elapsed before it was applied
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    boolean waitUntilApplied( String changeSetId,
+                              long timeoutInMillis ) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutInMillis;
+        synchronized (this) {
+            ++waiters;
+        }
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (appliedChangeSetIds.contains(changeSetId)) return true;
+                    if (pending == null) {
+                        // The change set has not been received yet, or it is being applied right now ...
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0L || closed) return false;
+                        wait(remaining);
+                        continue;
+                    }
+                }
+                // Don't wait for the end of the window, but don't hold the monitor while the changes are applied ...
+                flush();
+            }
+        } finally {
+            synchronized (this) {
+                --waiters;
+            }
+        }
+    }
+
+    private synchronized void applied( ChangeSet changes,
+                                       List<String> changeSetIds ) {
+        // Even if the changes could not be applied, nobody should wait for them any longer ...
+        appliedChangeSetIds.addAll(changeSetIds);
+        long timestamp = timestampOf(changes.getTimestamp());
+        if (timestamp > visibleTime) visibleTime = timestamp;
+        notifyAll();
+    }
+
+    private static long timestampOf( DateTime timestamp ) {
+        return timestamp != null ? timestamp.getMilliseconds() : 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexChangeBatcher(\"" + indexName + "\" in '" + workspaceName + "')";
+    }
+}
@@ -24,6 +24,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.RepositoryException;
 import javax.jcr.query.qom.Constraint;
 import javax.jcr.query.qom.JoinCondition;
@@ -40,6 +42,7 @@ import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.ModeShapeLexicon;
 import org.modeshape.jcr.NodeTypes;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.api.Logger;
 import org.modeshape.jcr.api.index.IndexColumnDefinition;
 import org.modeshape.jcr.api.index.IndexDefinition;
@@ -59,6 +62,7 @@ import org.modeshape.jcr.spi.index.IndexCostCalculator;
 import org.modeshape.jcr.spi.index.IndexDefinitionChanges;
 import org.modeshape.jcr.spi.index.IndexFeedback;
 import org.modeshape.jcr.spi.index.IndexManager;
+import org.modeshape.jcr.spi.index.IndexStatistics;
 import org.modeshape.jcr.spi.index.IndexWriter;
 import org.modeshape.jcr.spi.index.WorkspaceChanges;
 import org.modeshape.jcr.value.Name;
@@ -129,6 +133,22 @@ public abstract class IndexProvider {
      * The default number of rows in a batch.
      */
     public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * The default maximum number of changes that are accumulated before they are applied to an asynchronous index.
+     */
+    public static final int DEFAULT_INDEXING_BATCH_SIZE = 1000;
+
+    /**
+     * The default maximum number of milliseconds that changes are accumulated before they are applied to an asynchronous index.
+     * The default of 0 means that changes are applied (and committed) as soon as they are received.
+     */
+    public static final long DEFAULT_INDEXING_BATCH_DELAY = 0L;
+
+    /**
+     * The name of the thread pool used to apply the accumulated changes at the end of each batch.
+     */
+    public static final String INDEXING_BATCH_THREAD_POOL = "modeshape-index-batching";
     
     private final static IndexWriter EMPTY_WRITER = NoOpQueryIndexWriter.INSTANCE;
 
@@ -162,6 +182,22 @@ public abstract class IndexProvider {
      */
     private String systemWorkspaceName;
 
+    /**
+     * The repository statistics, set via reflection
+     */
+    private RepositoryStatistics statistics;
+
+    /**
+     * The maximum number of changes that are accumulated before they are applied to an asynchronous index, set via reflection
+     */
+    private Integer indexingBatchSize;
+
+    /**
+     * The maximum number of milliseconds that changes are accumulated before they are applied to an asynchronous index, set via
+     * reflection
+     */
+    private Long indexingBatchDelay;
+
     /**
      * A flag that tracks whether {@link #initialize()} has been called.
      */
@@ -561,6 +597,50 @@ public abstract class IndexProvider {
         return null;
     }
 
+    /**
+     * Get the time of the latest changes in the named workspace that are visible in all of this provider's indexes for that
+     * workspace. Changes made to an asynchronous index only become visible after they are applied and committed, so this is
+     * always the earliest such time of all of the indexes in the workspace.
+     *
+     * @param workspaceName the name of the workspace; may not be null
+     * @return the time in milliseconds of the latest visible changes, or null if this provider has no indexes in the workspace
+     */
+    public final Long getIndexVisibleTime( String workspaceName ) {
+        Collection<AtomicIndex> indexes = providedIndexesFor(workspaceName);
+        if (indexes == null || indexes.isEmpty()) return null;
+        long visibleTime = Long.MAX_VALUE;
+        for (AtomicIndex index : indexes) {
+            visibleTime = Math.min(visibleTime, index.batcher().getVisibleTime());
+        }
+        return visibleTime;
+    }
+
+    /**
+     * Wait until the identified change set in the named workspace has been applied to all of this provider's indexes for that
+     * workspace. Any changes that are still accumulating for an asynchronous index are applied immediately rather than at the
+     * end of their batch.
+     *
+     * @param workspaceName the name of the workspace; may not be null
+     * @param changeSetId the {@link ChangeSet#getUUID() identifier} of the change set; may not be null
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout; may not be null
+     * @return true if the changes are visible, or false if the timeout elapsed before they became visible
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public final boolean waitUntilApplied( String workspaceName,
+                                           String changeSetId,
+                                           long timeout,
+                                           TimeUnit unit ) throws InterruptedException {
+        Collection<AtomicIndex> indexes = providedIndexesFor(workspaceName);
+        if (indexes == null) return true;
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        for (AtomicIndex index : indexes) {
+            long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+            if (!index.batcher().waitUntilApplied(changeSetId, remaining)) return false;
+        }
+        return true;
+    }
+
     /**
      * Get this provider's {@link ManagedIndex} instances for the given workspace.
      *
@@ -792,6 +872,7 @@ public abstract class IndexProvider {
             }
             calculator.addIndex(defn.getName(), workspaceName, getName(), applicableConstraints, costEstimate, cardinality, 
                                 selectivity);
+            addStatistics(calculator, index, defn);
         }
 
         Collection<JoinCondition> joinConditions = calculator.joinConditions();
@@ -813,6 +894,16 @@ public abstract class IndexProvider {
             // in the index (this is a JOIN CONDITON for which there is no literal values) ...
             long total = index.estimateTotalCount();
             calculator.addIndex(defn.getName(), workspaceName, getName(), applicableJoins, costEstimate, total);
+            addStatistics(calculator, index, defn);
+        }
+    }
+
+    private void addStatistics( IndexCostCalculator calculator,
+                                ManagedIndex index,
+                                IndexDefinition defn ) {
+        IndexStatistics statistics = index.getStatistics();
+        if (statistics != null) {
+            calculator.addStatistics(defn.getName(), statistics);
         }
     }
 
@@ -1420,6 +1511,7 @@ public abstract class IndexProvider {
                                       ChangeBus observable ) {
         try {
             observable.unregister(index);
+            index.batcher().close(true);
             removeIndex(index.indexDefinition(), index.managed(), index.workspaceName());
         } catch (RuntimeException e) {
             String msg = "Error removing index '{0}' in workspace '{1}' with definition: {2}";
@@ -1427,6 +1519,15 @@ public abstract class IndexProvider {
         }
     }
 
+    private IndexChangeBatcher newBatcher( String indexName,
+                                           String workspaceName,
+                                           ChangeSetListener target ) {
+        int maxChanges = indexingBatchSize != null ? indexingBatchSize : DEFAULT_INDEXING_BATCH_SIZE;
+        long maxDelay = indexingBatchDelay != null ? indexingBatchDelay : DEFAULT_INDEXING_BATCH_DELAY;
+        ScheduledExecutorService scheduler = maxDelay > 0L ? context().getScheduledThreadPool(INDEXING_BATCH_THREAD_POOL) : null;
+        return new IndexChangeBatcher(indexName, workspaceName, target, maxChanges, maxDelay, scheduler, statistics);
+    }
+
     private NodeTypeMatcher nodeTypePredicate( NodeTypes nodeTypes,
                                                IndexDefinition defn ) {
         // Get the indexed node type ...
@@ -1451,7 +1552,9 @@ public abstract class IndexProvider {
         private volatile ManagedIndex managedIndex;
         private volatile IndexDefinition defn;
         private final NodeTypeMatcher matcher;
+        private final IndexChangeBatcher batcher;
 
+        @SuppressWarnings( "synthetic-access" )
         protected AtomicIndex( IndexDefinition defn,
                                ManagedIndex managedIndex,
                                String workspaceName,
@@ -1460,6 +1563,13 @@ public abstract class IndexProvider {
             this.managedIndex = managedIndex;
             this.workspaceName = workspaceName;
             this.matcher = matcher;
+            this.batcher = newBatcher(defn.getName(), workspaceName, new ChangeSetListener() {
+                @Override
+                public void notify( ChangeSet changeSet ) {
+                    // Always use the current managed index, even if the definition was updated while changes were pending ...
+                    AtomicIndex.this.managedIndex.getIndexChangeAdapter().notify(changeSet);
+                }
+            });
         }
 
         protected final IndexDefinition indexDefinition() {
@@ -1497,17 +1607,20 @@ public abstract class IndexProvider {
 
         @Override
         public final void notify( ChangeSet changeSet ) {
-            if (changeSet.getWorkspaceName() != null) {
-                // This is a change in the content of a workspace ...
-                managedIndex.getIndexChangeAdapter().notify(changeSet);
-            }
+            // Synchronous indexes must be updated before the save completes, so their changes are never batched ...
+            batcher.receive(changeSet, !defn.isSynchronous());
         }
 
         protected ManagedIndex managed() {
             return managedIndex;
         }
 
+        protected IndexChangeBatcher batcher() {
+            return batcher;
+        }
+
         public void shutdown( boolean destroyed ) {
+            batcher.close(destroyed);
             managedIndex.shutdown(destroyed);
         }
 
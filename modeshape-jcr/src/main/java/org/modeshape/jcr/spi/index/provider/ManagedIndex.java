@@ -33,7 +33,7 @@ import org.modeshape.jcr.cache.change.ChangeSetListener;
  * @see ManagedIndexBuilder
  * @see ProvidedIndex
  */
-public interface ManagedIndex extends Filter, Costable, Lifecycle, Reindexable {
+public interface ManagedIndex extends Filter, Costable, Statistical, Lifecycle, Reindexable {
 
     /**
      * Get the ChangeSetAdapter implementation through which changes to content are sent to the index. Each local index has an
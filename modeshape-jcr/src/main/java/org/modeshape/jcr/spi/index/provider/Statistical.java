@@ -0,0 +1,34 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.spi.index.provider;
+
+import org.modeshape.jcr.spi.index.IndexStatistics;
+
+/**
+ * Interface which defines the ability of an index to maintain {@link IndexStatistics statistics} about its values. A
+ * {@link ProvidedIndex} may optionally implement this interface, in which case the statistics are passed to the query planner.
+ */
+public interface Statistical {
+
+    /**
+     * Get the most recently collected statistics of this index. Implementations should never collect the statistics in the
+     * calling thread if that requires scanning the index, but should instead return the previous statistics (if any) and collect
+     * new statistics in the background.
+     *
+     * @return the statistics, or null if no statistics are available
+     */
+    IndexStatistics getStatistics();
+}
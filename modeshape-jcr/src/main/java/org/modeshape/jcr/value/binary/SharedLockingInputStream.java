@@ -20,8 +20,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.Callable;
 import java.util.concurrent.locks.Lock;
+import org.modeshape.common.util.ChannelTransferable;
 import org.modeshape.jcr.value.BinaryKey;
 
 /**
@@ -30,8 +34,12 @@ import org.modeshape.jcr.value.BinaryKey;
  * {@link #close() closed explicitly} or if there are any errors or exceptions while reading. Caution: be very careful when
  * working with this class, as any open without close operations can produce "readLocks" which do not get released, blocking any
  * potential subsequent writes.
+ * <p>
+ * The content can also be {@link #transferTo(long, long, WritableByteChannel) transferred} directly from the file to a channel,
+ * while holding the same locks.
+ * </p>
  */
-public final class SharedLockingInputStream extends InputStream {
+public final class SharedLockingInputStream extends InputStream implements ChannelTransferable {
 
     protected final BinaryKey key;
     protected final File file;
@@ -253,6 +261,32 @@ public final class SharedLockingInputStream extends InputStream {
         });
     }
 
+    @Override
+    public long transferTo( final long position,
+                            final long count,
+                            final WritableByteChannel target ) throws IOException {
+        return doOperation(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                // obtain the locks, which are released when this stream is closed ...
+                open();
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long end = Math.min(channel.size(), position + Math.min(count, Long.MAX_VALUE - position));
+                    long transferred = position;
+                    while (transferred < end) {
+                        long numTransferred = channel.transferTo(transferred, end - transferred, target);
+                        if (numTransferred <= 0) break;
+                        transferred += numTransferred;
+                    }
+                    return Math.max(0L, transferred - position);
+                } finally {
+                    eofReached = true;
+                    close();
+                }
+            }
+        });
+    }
+
     @Override
     public String toString() {
         return key.toString();
@@ -0,0 +1,108 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.ReindexingProgress;
+
+/**
+ * MXBean implementation of {@link ReindexingMXBean}.
+ *
+ * @since 5.5
+ */
+public class ReindexingBean implements ReindexingMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ReindexingBean.class);
+
+    private final ReindexingProgress progress;
+    private final String repositoryName;
+
+    /**
+     * @param progress the progress of the reindexing operations of the repository; may not be null
+     * @param repositoryName a non-null String, the name of the repository.
+     */
+    public ReindexingBean( ReindexingProgress progress,
+                           String repositoryName ) {
+        this.progress = progress;
+        this.repositoryName = repositoryName;
+    }
+
+    /**
+     * Initializes & registers this MBean with the local MBean server.
+     */
+    public void start() {
+        ObjectName beanName = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            beanName = getObjectName();
+            server.registerMBean(this, beanName);
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.warn(JcrI18n.mBeanAlreadyRegistered, beanName);
+        } catch (Exception e) {
+            LOGGER.error(e, JcrI18n.cannotRegisterMBean, beanName);
+        }
+    }
+
+    /**
+     * Un-registers the bean from the JMX server.
+     */
+    public void stop() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName beanName = null;
+        try {
+            beanName = getObjectName();
+            server.unregisterMBean(beanName);
+        } catch (InstanceNotFoundException e) {
+            LOGGER.debug("JMX bean {0} not found", beanName);
+        } catch (Exception e) {
+            LOGGER.error(e, JcrI18n.cannotUnRegisterMBean, beanName);
+        }
+    }
+
+    private ObjectName getObjectName() throws MalformedObjectNameException {
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put("name", repositoryName);
+        props.put("type", "Reindexing");
+        return new ObjectName("org.modeshape", props);
+    }
+
+    @Override
+    public List<ReindexingData> getProgress() {
+        List<ReindexingData> result = new ArrayList<>();
+        for (ReindexingProgress.Run run : progress.getRuns()) {
+            boolean active = run.isActive();
+            long durationMillis = run.getDurationMillis();
+            long nodesIndexed = run.getNodesIndexed();
+            double nodesPerSecond = run.getNodesPerSecond();
+            // all the indexes of a workspace are reindexed together, by the same scan of the workspace content ...
+            for (String indexName : run.getIndexNames()) {
+                result.add(new ReindexingData(indexName, run.getWorkspaceName(), active, run.getStartTimeMillis(), durationMillis,
+                                              nodesIndexed, nodesPerSecond));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jmx;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Values holder which exposes the progress of reindexing an index to JMX.
+ *
+ * @since 5.5
+ */
+public class ReindexingData {
+
+    private final String indexName;
+    private final String workspaceName;
+    private final boolean active;
+    private final long startTimeMillis;
+    private final long durationMillis;
+    private final long nodesIndexed;
+    private final double nodesPerSecond;
+
+    /**
+     * @param indexName the name of the index, prefixed by the name of its provider
+     * @param workspaceName the name of the workspace
+     * @param active whether the reindexing is still running
+     * @param startTimeMillis the time at which the reindexing started, in milliseconds since the epoch
+     * @param durationMillis the number of milliseconds the reindexing has been running for, or took if it has completed
+     * @param nodesIndexed the number of nodes reindexed so far
+     * @param nodesPerSecond the average number of nodes reindexed per second
+     */
+    @ConstructorProperties( {"indexName", "workspaceName", "active", "startTimeMillis", "durationMillis", "nodesIndexed",
+        "nodesPerSecond"} )
+    public ReindexingData( String indexName,
+                           String workspaceName,
+                           boolean active,
+                           long startTimeMillis,
+                           long durationMillis,
+                           long nodesIndexed,
+                           double nodesPerSecond ) {
+        this.indexName = indexName;
+        this.workspaceName = workspaceName;
+        this.active = active;
+        this.startTimeMillis = startTimeMillis;
+        this.durationMillis = durationMillis;
+        this.nodesIndexed = nodesIndexed;
+        this.nodesPerSecond = nodesPerSecond;
+    }
+
+    /**
+     * @return the name of the index, prefixed by the name of its provider
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * @return the name of the workspace
+     */
+    public String getWorkspaceName() {
+        return workspaceName;
+    }
+
+    /**
+     * @return whether the reindexing is still running
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return the time at which the reindexing started, in milliseconds since the epoch
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * @return the number of milliseconds the reindexing has been running for, or took if it has completed
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the number of nodes reindexed so far
+     */
+    public long getNodesIndexed() {
+        return nodesIndexed;
+    }
+
+    /**
+     * @return the average number of nodes reindexed per second
+     */
+    public double getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+}
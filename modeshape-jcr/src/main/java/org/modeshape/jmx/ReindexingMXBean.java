@@ -0,0 +1,37 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jmx;
+
+import java.util.List;
+import javax.management.MXBean;
+
+/**
+ * JMX MXBean interface which exposes the progress of the reindexing operations of a running repository.
+ *
+ * @since 5.5
+ */
+@MXBean
+@Details( "JMX MXBean which exposes the progress of the reindexing operations" )
+public interface ReindexingMXBean {
+
+    /**
+     * Get the progress of reindexing each of the indexes, in each of the workspaces which are being (or have been) reindexed.
+     *
+     * @return the progress of each index; never null but possibly empty if nothing has been reindexed
+     */
+    @Details( "Returns the progress and throughput of reindexing each index, in each workspace" )
+    List<ReindexingData> getProgress();
+}
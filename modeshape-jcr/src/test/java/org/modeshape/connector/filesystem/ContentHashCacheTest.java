@@ -0,0 +1,155 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.connector.filesystem;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.StringUtil;
+
+public class ContentHashCacheTest {
+
+    private File dir;
+    private File file;
+    private File storeFile;
+
+    @Before
+    public void beforeEach() throws Exception {
+        dir = new File("target/content-hash-cache");
+        FileUtil.delete(dir);
+        dir.mkdirs();
+        file = new File(dir, "file.txt");
+        IoUtil.write("some content", file);
+        storeFile = new File(dir, ".hashes.json");
+    }
+
+    protected String expectedSha1( File file ) throws Exception {
+        return StringUtil.getHexString(SecureHash.getHash(SecureHash.Algorithm.SHA_1, file));
+    }
+
+    @Test
+    public void shouldComputeHashOfContent() throws Exception {
+        ContentHashCache cache = new ContentHashCache(null);
+        assertThat(cache.sha1(file), is(expectedSha1(file)));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void shouldComputeHashAgainWhenFileChanges() throws Exception {
+        ContentHashCache cache = new ContentHashCache(null);
+        String original = cache.sha1(file);
+        IoUtil.write("some other, longer content", file);
+        String changed = cache.sha1(file);
+        assertThat(changed, is(not(original)));
+        assertThat(changed, is(expectedSha1(file)));
+    }
+
+    @Test
+    public void shouldNotReadUnchangedFilesAgainAfterRestart() throws Exception {
+        ContentHashCache cache = new ContentHashCache(storeFile);
+        String sha1 = cache.sha1(file);
+        cache.save();
+        assertThat(storeFile.exists(), is(true));
+
+        // Replace the cached hash with a bogus one, which should be used as long as the file is unchanged ...
+        String json = IoUtil.read(storeFile).replace(sha1, "cached");
+        IoUtil.write(json, storeFile);
+        cache = new ContentHashCache(storeFile);
+        assertThat(cache.size(), is(1));
+        assertThat(cache.sha1(file), is("cached"));
+    }
+
+    @Test
+    public void shouldIgnoreCorruptStoreFile() throws Exception {
+        IoUtil.write("not json", storeFile);
+        ContentHashCache cache = new ContentHashCache(storeFile);
+        assertThat(cache.size(), is(0));
+        assertThat(cache.sha1(file), is(expectedSha1(file)));
+    }
+
+    @Test
+    public void shouldDropHashesOfDeletedFilesOnSave() throws Exception {
+        File other = new File(dir, "other.txt");
+        IoUtil.write("other content", other);
+        ContentHashCache cache = new ContentHashCache(storeFile);
+        cache.sha1(file);
+        cache.sha1(other);
+        assertThat(other.delete(), is(true));
+        cache.save();
+        assertThat(cache.size(), is(1));
+        assertThat(IoUtil.read(storeFile).contains("other.txt"), is(false));
+        assertThat(new ContentHashCache(storeFile).size(), is(1));
+    }
+
+    @Test
+    public void shouldDropHashesOfDeletedFilesOnLoad() throws Exception {
+        File other = new File(dir, "other.txt");
+        IoUtil.write("other content", other);
+        ContentHashCache cache = new ContentHashCache(storeFile);
+        cache.sha1(file);
+        cache.sha1(other);
+        cache.save();
+        assertThat(IoUtil.read(storeFile).contains("other.txt"), is(true));
+
+        assertThat(other.delete(), is(true));
+        cache = new ContentHashCache(storeFile);
+        assertThat(cache.size(), is(1));
+        // The file is rewritten without the dropped hash ...
+        cache.save();
+        assertThat(IoUtil.read(storeFile).contains("other.txt"), is(false));
+    }
+
+    @Test
+    public void shouldSaveInBackground() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ContentHashCache cache = new ContentHashCache(storeFile, scheduler, 10L);
+            cache.sha1(file);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (!storeFile.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertThat(storeFile.exists(), is(true));
+            cache.shutdown();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldSaveOnShutdown() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ContentHashCache cache = new ContentHashCache(storeFile, scheduler, TimeUnit.HOURS.toMillis(1));
+            cache.sha1(file);
+            assertThat(storeFile.exists(), is(false));
+            cache.shutdown();
+            assertThat(storeFile.exists(), is(true));
+            assertThat(new ContentHashCache(storeFile).size(), is(1));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -17,6 +17,7 @@ package org.modeshape.connector.filesystem;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import java.io.File;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -59,4 +60,14 @@ public class InclusionExclusionFilenameFilterTest {
         assertFalse(filter.accept(null, "ignore_meinvalidfile.mode"));
     }
 
+    @Test
+    public void testExcludedFile() {
+        File dir = new File("target/filter-test");
+        filter.setExcludedFile(new File(dir, ".hashes.json"));
+        assertFalse(filter.accept(dir, ".hashes.json"));
+        assertFalse(filter.accept(dir, ".hashes.json.tmp"));
+        assertTrue(filter.accept(dir, "hashes.json"));
+        assertTrue(filter.accept(new File(dir, "child"), ".hashes.json"));
+    }
+
 }
@@ -44,6 +44,7 @@ import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
+import javax.jcr.ValueFactory;
 import javax.jcr.nodetype.ConstraintViolationException;
 import javax.jcr.security.AccessControlList;
 import javax.jcr.security.AccessControlManager;
@@ -54,6 +55,7 @@ import org.modeshape.common.FixFor;
 import org.modeshape.common.junit.SkipLongRunning;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.jcr.api.Binary;
+import org.modeshape.jcr.api.ImportOptions;
 import org.modeshape.jcr.api.JcrTools;
 import org.modeshape.jcr.api.Workspace;
 import org.modeshape.jcr.security.SimplePrincipal;
@@ -791,6 +793,103 @@ public class ImportExportTest extends SingleUseAbstractTest {
         session3.logout();
     }
 
+    @Test
+    public void shouldImportIntoWorkspaceInBatchesWithForwardReferences() throws Exception {
+        Node parent = session.getRootNode().addNode("batches");
+        for (int i = 0; i != 20; ++i) {
+            parent.addNode("child" + i).addMixin("mix:referenceable");
+        }
+        // the first child references the tenth one, which comes after it in the document ...
+        parent.getNode("child0").setProperty("next", parent.getNode("child9"));
+        parent.getNode("child9").setProperty("previous", parent.getNode("child0"));
+        session.save();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        session.exportSystemView("/batches", baos, false, false);
+        session.getNode("/batches").remove();
+        session.save();
+
+        final List<Long> savedNodeCounts = new ArrayList<>();
+        ImportOptions options = new ImportOptions() {
+            @Override
+            public int batchSize() {
+                return 5;
+            }
+
+            @Override
+            public void batchSaved( long nodeCount,
+                                    long byteCount ) {
+                savedNodeCounts.add(nodeCount);
+            }
+        };
+        ((Workspace)session.getWorkspace()).importXML("/", new ByteArrayInputStream(baos.toByteArray()),
+                                                      ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW, options);
+
+        // nothing can be saved until the tenth child has been imported, but the rest is saved in batches ...
+        assertThat(savedNodeCounts.get(0), is(11L));
+        assertThat(savedNodeCounts.get(1), is(16L));
+        assertThat(savedNodeCounts.get(savedNodeCounts.size() - 1), is(21L));
+
+        Session otherSession = repository.login();
+        try {
+            Node child0 = otherSession.getNode("/batches/child0");
+            Node child9 = otherSession.getNode("/batches/child9");
+            assertThat(child0.getProperty("next").getNode().getIdentifier(), is(child9.getIdentifier()));
+            assertThat(child9.getProperty("previous").getNode().getIdentifier(), is(child0.getIdentifier()));
+            assertThat(otherSession.getNode("/batches").getNodes().getSize(), is(20L));
+        } finally {
+            otherSession.logout();
+        }
+    }
+
+    @Test
+    public void shouldImportIntoWorkspaceInBatchesWithForwardWeakReferences() throws Exception {
+        Node parent = session.getRootNode().addNode("batches");
+        for (int i = 0; i != 20; ++i) {
+            parent.addNode("child" + i).addMixin("mix:referenceable");
+        }
+        // the first child weakly references the tenth one, which comes after it in the document ...
+        ValueFactory valueFactory = session.getValueFactory();
+        parent.getNode("child0").setProperty("next", valueFactory.createValue(parent.getNode("child9"), true));
+        session.save();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        session.exportSystemView("/batches", baos, false, false);
+        session.getNode("/batches").remove();
+        session.save();
+
+        final List<Long> savedNodeCounts = new ArrayList<>();
+        ImportOptions options = new ImportOptions() {
+            @Override
+            public int batchSize() {
+                return 5;
+            }
+
+            @Override
+            public void batchSaved( long nodeCount,
+                                    long byteCount ) {
+                savedNodeCounts.add(nodeCount);
+            }
+        };
+        ((Workspace)session.getWorkspace()).importXML("/", new ByteArrayInputStream(baos.toByteArray()),
+                                                      ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW, options);
+
+        // weak references may point to nodes that don't exist yet, so they don't hold back any batch ...
+        assertThat(savedNodeCounts.get(0), is(5L));
+        assertThat(savedNodeCounts.get(1), is(10L));
+        assertThat(savedNodeCounts.get(savedNodeCounts.size() - 1), is(21L));
+
+        Session otherSession = repository.login();
+        try {
+            Node child0 = otherSession.getNode("/batches/child0");
+            Node child9 = otherSession.getNode("/batches/child9");
+            assertThat(child0.getProperty("next").getNode().getIdentifier(), is(child9.getIdentifier()));
+            assertThat(otherSession.getNode("/batches").getNodes().getSize(), is(20L));
+        } finally {
+            otherSession.logout();
+        }
+    }
+
     @Test
     public void shouldImportIntoSessionTheDocumentViewOfTheContentUsedInTckTests() throws Exception {
         Session session3 = repository.login();
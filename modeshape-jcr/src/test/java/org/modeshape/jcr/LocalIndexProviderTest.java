@@ -18,6 +18,8 @@ package org.modeshape.jcr;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -1295,6 +1297,38 @@ public class LocalIndexProviderTest extends AbstractIndexProviderTest {
                 .validate(query, query.execute());
     }
     
+    @Test
+    public void shouldReindexLargeHierarchiesInPartitionsAndReportProgress() throws Exception {
+        registerValueIndex("fooIndex", "nt:unstructured", "Foo index", "*", "foo", PropertyType.STRING);
+        int parentCount = 10;
+        int childCount = 600;
+        Node root = session.getRootNode();
+        for (int i = 0; i < parentCount; i++) {
+            Node parent = root.addNode("parent_" + i);
+            parent.setProperty("foo", "parent");
+            for (int j = 0; j < childCount; j++) {
+                parent.addNode("child_" + j).setProperty("foo", "child");
+            }
+            session.save();
+        }
+        session.getWorkspace().reindex();
+
+        Query query = jcrSql2Query("SELECT * FROM [nt:unstructured] WHERE foo = 'child'");
+        validateQuery().rowCount(parentCount * childCount).useIndex("fooIndex").validate(query, query.execute());
+
+        String workspaceName = session.getWorkspace().getName();
+        ReindexingProgress.Run run = null;
+        for (ReindexingProgress.Run candidate : repository.queryManager().getReindexingProgress().getRuns()) {
+            if (candidate.getWorkspaceName().equals(workspaceName)) {
+                run = candidate;
+            }
+        }
+        assertNotNull(run);
+        assertFalse(run.isActive());
+        assertTrue(run.getIndexNames().contains(providerName() + ":fooIndex"));
+        assertTrue(run.getNodesIndexed() >= parentCount * (childCount + 1));
+    }
+
     @Test
     @FixFor( "MODE-2510 ")
     public void snsReorderingsShouldBeReflectedInIndexes() throws Exception {
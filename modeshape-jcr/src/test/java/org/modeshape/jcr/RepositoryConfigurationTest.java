@@ -516,6 +516,45 @@ public class RepositoryConfigurationTest {
         assertEquals(100, config.getLockTimeoutMillis());
     }
     
+    @Test
+    public void shouldUseBlockingEventBusWaitStrategyByDefault() throws Exception {
+        RepositoryConfiguration config = RepositoryConfiguration.read("{ 'name' = 'nm'}");
+        assertEquals(RepositoryConfiguration.EventBusWaitStrategy.BLOCKING, config.getEventBusWaitStrategy());
+    }
+
+    @Test
+    public void shouldUseCustomEventBusWaitStrategy() throws Exception {
+        RepositoryConfiguration config = assertValid("{ 'name' = 'nm', 'eventBusWaitStrategy' : 'phased_backoff'}");
+        assertEquals(RepositoryConfiguration.EventBusWaitStrategy.PHASED_BACKOFF, config.getEventBusWaitStrategy());
+        assertNotValid(1, "{ 'name' = 'nm', 'eventBusWaitStrategy' : 'sleeping'}");
+    }
+
+    @Test
+    public void shouldReadJournalFormat() throws Exception {
+        RepositoryConfiguration.Journaling journaling = assertValid(
+                "{ 'name' = 'nm', 'journaling' : { 'format' : 'segmented', 'segmentSizeInMb' : 16 } }").getJournaling();
+        assertEquals(RepositoryConfiguration.JournalFormat.SEGMENTED, journaling.format());
+        assertEquals(16, journaling.segmentSizeInMb());
+
+        journaling = assertValid("{ 'name' = 'nm', 'journaling' : { } }").getJournaling();
+        assertEquals(RepositoryConfiguration.JournalFormat.MAPDB, journaling.format());
+        assertEquals(Default.JOURNAL_SEGMENT_SIZE_IN_MB, journaling.segmentSizeInMb());
+    }
+
+    @Test
+    public void shouldUseCustomReindexingParallelism() throws Exception {
+        RepositoryConfiguration config = assertValid("{ 'name' = 'nm', 'reindexing' : { 'threads' : 3, 'batchSize' : 100, 'maxNodesPerSecond' : 5000 } }");
+        RepositoryConfiguration.Reindexing reindexing = config.getReindexing();
+        assertEquals(3, reindexing.threads());
+        assertEquals(100, reindexing.batchSize());
+        assertEquals(5000L, reindexing.maxNodesPerSecond());
+
+        reindexing = RepositoryConfiguration.read("{ 'name' = 'nm' }").getReindexing();
+        assertEquals(Default.REINDEXING_THREADS, reindexing.threads());
+        assertEquals(Default.REINDEXING_BATCH_SIZE, reindexing.batchSize());
+        assertEquals(Default.REINDEXING_MAX_NODES_PER_SECOND, reindexing.maxNodesPerSecond());
+    }
+
     protected RepositoryConfiguration assertValid( RepositoryConfiguration config ) {
         Problems results = config.validate();
         assertThat(results.toString(), results.hasProblems(), is(false));
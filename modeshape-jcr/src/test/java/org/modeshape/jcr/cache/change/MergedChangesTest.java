@@ -0,0 +1,159 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.change;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+import org.modeshape.jcr.value.Property;
+
+public class MergedChangesTest {
+
+    private static final String WORKSPACE = "default";
+
+    private ExecutionContext context;
+    private NodeKey key;
+    private Name primaryType;
+    private Set<Name> mixinTypes;
+    private Path path;
+    private MergedChanges merged;
+
+    @Before
+    public void beforeEach() {
+        context = new ExecutionContext();
+        key = new NodeKey("source1", "workspace1", "node1");
+        primaryType = name("nt:unstructured");
+        mixinTypes = Collections.emptySet();
+        path = context.getValueFactories().getPathFactory().create("/a");
+        merged = new MergedChanges(WORKSPACE);
+    }
+
+    protected Name name( String name ) {
+        return context.getValueFactories().getNameFactory().create(name);
+    }
+
+    protected Property property( Object value ) {
+        return context.getPropertyFactory().create(name("prop"), value);
+    }
+
+    protected RecordingChanges changes() {
+        return new RecordingChanges("session", "process", "repository", WORKSPACE, null);
+    }
+
+    protected void merge( RecordingChanges changes ) {
+        changes.freeze("user", null, context.getValueFactories().getDateFactory().create());
+        merged.merge(changes);
+    }
+
+    protected void propertyAdded( Object value ) {
+        RecordingChanges changes = changes();
+        changes.propertyAdded(key, primaryType, mixinTypes, path, property(value));
+        merge(changes);
+    }
+
+    protected void propertyChanged( Object oldValue,
+                                    Object newValue ) {
+        RecordingChanges changes = changes();
+        changes.propertyChanged(key, primaryType, mixinTypes, path, property(newValue), property(oldValue));
+        merge(changes);
+    }
+
+    protected void propertyRemoved( Object value ) {
+        RecordingChanges changes = changes();
+        changes.propertyRemoved(key, primaryType, mixinTypes, path, property(value));
+        merge(changes);
+    }
+
+    protected List<Change> mergedChanges() {
+        List<Change> result = new ArrayList<>();
+        for (Change change : merged) {
+            result.add(change);
+        }
+        assertThat(result.size(), is(merged.size()));
+        return result;
+    }
+
+    @Test
+    public void shouldCoalesceSuccessiveChangesOfProperty() {
+        propertyChanged("v1", "v2");
+        propertyChanged("v2", "v3");
+        propertyChanged("v3", "v4");
+        List<Change> changes = mergedChanges();
+        assertThat(changes.size(), is(1));
+        PropertyChanged change = (PropertyChanged)changes.get(0);
+        assertThat(change.getOldProperty().getFirstValue(), is((Object)"v1"));
+        assertThat(change.getNewProperty().getFirstValue(), is((Object)"v4"));
+        assertThat(merged.getChangeSetCount(), is(3));
+        assertThat(merged.getCoalescedCount(), is(2));
+    }
+
+    @Test
+    public void shouldCoalesceAddedAndChangedPropertyIntoAddedProperty() {
+        propertyAdded("v1");
+        propertyChanged("v1", "v2");
+        List<Change> changes = mergedChanges();
+        assertThat(changes.size(), is(1));
+        assertThat(changes.get(0), is(instanceOf(PropertyAdded.class)));
+        assertThat(((PropertyAdded)changes.get(0)).getProperty().getFirstValue(), is((Object)"v2"));
+    }
+
+    @Test
+    public void shouldDiscardPropertyThatWasAddedAndRemoved() {
+        propertyAdded("v1");
+        propertyRemoved("v1");
+        assertThat(mergedChanges().isEmpty(), is(true));
+        // A property added again afterwards is a new change ...
+        propertyAdded("v2");
+        assertThat(mergedChanges().size(), is(1));
+    }
+
+    @Test
+    public void shouldCoalesceChangedAndRemovedPropertyIntoRemovalOfOriginalValue() {
+        propertyChanged("v1", "v2");
+        propertyRemoved("v2");
+        List<Change> changes = mergedChanges();
+        assertThat(changes.size(), is(1));
+        assertThat(changes.get(0), is(instanceOf(PropertyRemoved.class)));
+        assertThat(((PropertyRemoved)changes.get(0)).getProperty().getFirstValue(), is((Object)"v1"));
+    }
+
+    @Test
+    public void shouldNotCoalescePropertyChangesAcrossStructuralChangeOfNode() {
+        propertyChanged("v1", "v2");
+        RecordingChanges changes = changes();
+        Path newPath = context.getValueFactories().getPathFactory().create("/b");
+        changes.nodeMoved(key, primaryType, mixinTypes, new NodeKey("source1", "workspace1", "parent2"),
+                          new NodeKey("source1", "workspace1", "parent1"), newPath, path);
+        merge(changes);
+        propertyChanged("v2", "v3");
+        List<Change> result = mergedChanges();
+        assertThat(result.size(), is(3));
+        assertThat(result.get(0), is(instanceOf(PropertyChanged.class)));
+        assertThat(result.get(1), is(instanceOf(NodeMoved.class)));
+        assertThat(result.get(2), is(instanceOf(PropertyChanged.class)));
+        assertThat(merged.getCoalescedCount(), is(0));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.EditableDocument;
+
+public class CachedNodeWeigherTest {
+
+    private static final NodeKey KEY = new NodeKey("source1works1-childA");
+
+    @Test
+    public void shouldWeighLargerDocumentsMoreThanSmallerOnes() {
+        EditableDocument small = Schematic.newDocument();
+        small.setString("name", "small");
+        EditableDocument large = Schematic.newDocument();
+        large.setString("name", "large");
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'x');
+        large.setString("description", new String(chars));
+
+        int smallWeight = CachedNodeWeigher.INSTANCE.weigh(KEY, new LazyCachedNode(KEY, small));
+        int largeWeight = CachedNodeWeigher.INSTANCE.weigh(KEY, new LazyCachedNode(KEY, large));
+        assertTrue(smallWeight > CachedNodeWeigher.NODE_OVERHEAD_IN_BYTES);
+        assertTrue(largeWeight > smallWeight + chars.length);
+    }
+
+    @Test
+    public void shouldWeighEqualDocumentsTheSame() {
+        EditableDocument doc1 = Schematic.newDocument();
+        doc1.setString("name", "node");
+        EditableDocument doc2 = Schematic.newDocument();
+        doc2.setString("name", "node");
+        assertThat(CachedNodeWeigher.INSTANCE.weigh(KEY, new LazyCachedNode(KEY, doc1)),
+                   is(CachedNodeWeigher.INSTANCE.weigh(KEY, new LazyCachedNode(KEY, doc2))));
+    }
+}
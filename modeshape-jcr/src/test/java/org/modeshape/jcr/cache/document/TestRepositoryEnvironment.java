@@ -20,6 +20,7 @@ import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.NodeTypes;
 import org.modeshape.jcr.RepositoryConfiguration;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.locking.LockingService;
 import org.modeshape.jcr.locking.StandaloneLockingService;
 import org.modeshape.jcr.txn.Transactions;
@@ -60,4 +61,9 @@ public class TestRepositoryEnvironment implements RepositoryEnvironment {
     public LockingService lockingService() {
         return lockingService;
     }
+
+    @Override
+    public RepositoryStatistics statistics() {
+        return null;
+    }
 }
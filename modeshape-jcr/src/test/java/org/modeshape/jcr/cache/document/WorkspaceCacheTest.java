@@ -15,10 +15,15 @@
  */
 package org.modeshape.jcr.cache.document;
 
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import org.junit.Test;
 import org.modeshape.jcr.bus.RepositoryChangeBus;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.NodeCache;
@@ -28,14 +33,17 @@ public class WorkspaceCacheTest extends AbstractNodeCacheTest {
 
     private ExecutorService executor;
     private RepositoryChangeBus changeBus;
+    private ConcurrentMap<NodeKey, CachedNode> nodeCache;
+    private DocumentStore documentStore;
+    private DocumentTranslator translator;
 
     @Override
     protected NodeCache createCache() {
         executor = Executors.newCachedThreadPool();
         changeBus = new RepositoryChangeBus("repo", executor);
-        ConcurrentMap<NodeKey, CachedNode> nodeCache = new ConcurrentHashMap<>();
-        DocumentStore documentStore = new LocalDocumentStore(schematicDb, repoEnv);
-        DocumentTranslator translator = new DocumentTranslator(context, documentStore, 100L);
+        nodeCache = new ConcurrentHashMap<>();
+        documentStore = new LocalDocumentStore(schematicDb, repoEnv);
+        translator = new DocumentTranslator(context, documentStore, 100L);
         WorkspaceCache workspaceCache = new WorkspaceCache(context, "repo", "ws", null, documentStore, translator, ROOT_KEY_WS1,
                                                            nodeCache, changeBus,  null);
         loadJsonDocuments(resource(resourceNameForWorkspaceContentDocument()));
@@ -51,4 +59,34 @@ public class WorkspaceCacheTest extends AbstractNodeCacheTest {
             executor.shutdownNow();
         }
     }
+
+    @Test
+    public void shouldPrefetchNodesWhichAreNotCached() {
+        NodeKey childA = new NodeKey("source1works1-childA");
+        NodeKey childB = new NodeKey("source1works1-childB");
+        NodeKey missing = new NodeKey("source1works1-missing");
+        CachedNode cachedChildA = cache.getNode(childA);
+        assertThat(nodeCache.containsKey(childB), is(false));
+
+        ((WorkspaceCache)cache).prefetch(Arrays.asList(childA, childB, missing));
+        assertThat(nodeCache.get(childA), sameInstance(cachedChildA));
+        assertThat(nodeCache.containsKey(childB), is(true));
+        assertThat(nodeCache.containsKey(missing), is(false));
+        assertThat(cache.getNode(childB).getKey(), is(childB));
+    }
+
+    @Test
+    public void shouldOnlyRemoveNodesOfDeletedWorkspaceFromSharedCache() {
+        NodeKey childA = new NodeKey("source1works1-childA");
+        CachedNode cachedChildA = cache.getNode(childA);
+        NodeKey otherRootKey = new NodeKey("source1works2-" + ROOT_UUID);
+        NodeKey otherChildA = new NodeKey("source1works2-childA");
+        WorkspaceCache otherWorkspaceCache = new WorkspaceCache(context, "repo", "ws2", null, documentStore, translator,
+                                                                otherRootKey, nodeCache, changeBus, null, true);
+        nodeCache.put(otherChildA, cachedChildA);
+
+        otherWorkspaceCache.signalDeleted();
+        assertThat(nodeCache.containsKey(otherChildA), is(false));
+        assertThat(nodeCache.get(childA), sameInstance(cachedChildA));
+    }
 }
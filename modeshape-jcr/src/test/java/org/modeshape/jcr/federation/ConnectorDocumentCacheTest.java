@@ -0,0 +1,168 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.federation;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+
+public class ConnectorDocumentCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private Map<String, Document> external;
+    private AtomicInteger reads;
+    private Function<String, Document> loader;
+
+    @Before
+    public void beforeEach() {
+        external = new HashMap<>();
+        reads = new AtomicInteger();
+        loader = docId -> {
+            reads.incrementAndGet();
+            return external.get(docId);
+        };
+        external.put("doc1", document("doc1", "v1"));
+        external.put("doc2", document("doc2", "v1"));
+    }
+
+    protected Document document( String id,
+                                 String value ) {
+        EditableDocument doc = Schematic.newDocument();
+        doc.setString("id", id);
+        doc.setDocument("properties").setString("prop", value);
+        return doc;
+    }
+
+    protected ConnectorDocumentCache cache( int maxSize,
+                                            boolean cacheMissingDocuments ) {
+        return new ConnectorDocumentCache("source", maxSize, 0, 60, cacheMissingDocuments, null, nanos::get);
+    }
+
+    protected String valueOf( Document doc ) {
+        return doc.getDocument("properties").getString("prop");
+    }
+
+    @Test
+    public void shouldReadDocumentFromConnectorOnlyOnce() {
+        ConnectorDocumentCache cache = cache(10, true);
+        assertThat(valueOf(cache.get("doc1", loader)), is("v1"));
+        assertThat(valueOf(cache.get("doc1", loader)), is("v1"));
+        assertThat(reads.get(), is(1));
+        assertThat(cache.hits(), is(1L));
+        assertThat(cache.misses(), is(1L));
+    }
+
+    @Test
+    public void shouldReturnCopiesOfCachedDocuments() {
+        ConnectorDocumentCache cache = cache(10, true);
+        EditableDocument first = (EditableDocument)cache.get("doc1", loader);
+        first.getDocument("properties").setString("prop", "changed");
+        EditableDocument second = (EditableDocument)cache.get("doc1", loader);
+        assertThat(valueOf(second), is("v1"));
+        second.getDocument("properties").setString("prop", "changed");
+        assertThat(valueOf(cache.get("doc1", loader)), is("v1"));
+    }
+
+    @Test
+    public void shouldCacheMissingDocuments() {
+        ConnectorDocumentCache cache = cache(10, true);
+        assertThat(cache.get("missing", loader), is(nullValue()));
+        assertThat(cache.get("missing", loader), is(nullValue()));
+        assertThat(reads.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotCacheMissingDocumentsIfDisabled() {
+        ConnectorDocumentCache cache = cache(10, false);
+        assertThat(cache.get("missing", loader), is(nullValue()));
+        assertThat(cache.get("missing", loader), is(nullValue()));
+        assertThat(reads.get(), is(2));
+    }
+
+    @Test
+    public void shouldReadDocumentAgainAfterExpiration() {
+        ConnectorDocumentCache cache = cache(10, true);
+        cache.get("doc1", loader);
+        external.put("doc1", document("doc1", "v2"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertThat(valueOf(cache.get("doc1", loader)), is("v1"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(valueOf(cache.get("doc1", loader)), is("v2"));
+        assertThat(reads.get(), is(2));
+    }
+
+    @Test
+    public void shouldReadDocumentAgainAfterInvalidation() {
+        ConnectorDocumentCache cache = cache(10, true);
+        cache.get("doc1", loader);
+        cache.get("doc2", loader);
+        cache.get("doc3", loader);
+        external.put("doc1", document("doc1", "v2"));
+        external.put("doc3", document("doc3", "v1"));
+        cache.invalidate(Arrays.asList("doc1", "doc3"));
+        assertThat(valueOf(cache.get("doc1", loader)), is("v2"));
+        assertThat(valueOf(cache.get("doc2", loader)), is("v1"));
+        assertThat(valueOf(cache.get("doc3", loader)), is("v1"));
+        assertThat(reads.get(), is(5));
+
+        cache.invalidateAll();
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCacheDocumentReadWhileInvalidated() {
+        ConnectorDocumentCache cache = cache(10, true);
+        cache.get("doc1", docId -> {
+            // the document is changed and invalidated while the stale version is being read ...
+            Document stale = loader.apply(docId);
+            external.put("doc1", document("doc1", "v2"));
+            cache.invalidate(docId);
+            return stale;
+        });
+        assertThat(valueOf(cache.get("doc1", loader)), is("v2"));
+    }
+
+    @Test
+    public void shouldBoundNumberOfCachedDocuments() {
+        ConnectorDocumentCache cache = cache(10, true);
+        for (int i = 0; i != 100; ++i) {
+            cache.get("doc" + i, loader);
+        }
+        assertThat(cache.size() <= 10, is(true));
+    }
+
+    @Test
+    public void shouldBoundMemoryOfCachedDocuments() {
+        ConnectorDocumentCache cache = new ConnectorDocumentCache("source", 0, 10 * ConnectorDocumentCache.ENTRY_OVERHEAD_IN_BYTES,
+                                                                  0, true, null, nanos::get);
+        for (int i = 0; i != 100; ++i) {
+            cache.get("doc" + i, loader);
+        }
+        assertThat(cache.size() < 10, is(true));
+    }
+}
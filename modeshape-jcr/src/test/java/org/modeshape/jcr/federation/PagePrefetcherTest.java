@@ -0,0 +1,189 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.federation;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.cache.document.DocumentTranslator;
+import org.modeshape.jcr.spi.federation.PageKey;
+import org.modeshape.jcr.spi.federation.Pageable;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+
+public class PagePrefetcherTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES = 10;
+
+    private List<String> reads;
+    private boolean failing;
+    private Runnable onRead;
+    private Pageable connector;
+
+    @Before
+    public void beforeEach() {
+        reads = Collections.synchronizedList(new ArrayList<String>());
+        failing = false;
+        onRead = null;
+        connector = pageKey -> {
+            reads.add(pageKey.toString());
+            if (onRead != null) {
+                onRead.run();
+            }
+            if (failing) {
+                throw new IllegalStateException("unavailable");
+            }
+            int offset = pageKey.getOffsetInt();
+            EditableDocument page = Schematic.newDocument();
+            page.setNumber("offset", offset);
+            if (offset + PAGE_SIZE < PAGES * PAGE_SIZE) {
+                page.setDocument(DocumentTranslator.CHILDREN_INFO).setString(DocumentTranslator.NEXT_BLOCK,
+                                                                              pageKey(offset + PAGE_SIZE));
+            }
+            return page;
+        };
+    }
+
+    protected static String pageKey( int offset ) {
+        return new PageKey("parent", String.valueOf(offset), PAGE_SIZE).toString();
+    }
+
+    protected PagePrefetcher prefetcher( int pageCount,
+                                         Executor executor ) {
+        return new PagePrefetcher(connector, "source", pageCount, 50, executor);
+    }
+
+    protected int offsetOf( Document page ) {
+        return page.getInteger("offset");
+    }
+
+    @Test
+    public void shouldReadPageWhenNotPrefetched() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        assertThat(offsetOf(prefetcher.getPage(pageKey(0))), is(0));
+        assertThat(reads.size(), is(1));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(0L));
+    }
+
+    @Test
+    public void shouldPrefetchFollowingPagesUpToConfiguredCount() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        prefetcher.prefetch(pageKey(10));
+        assertThat(reads.size(), is(3));
+        assertThat(reads.get(2), is(pageKey(30)));
+
+        for (int offset = 10; offset <= 30; offset += PAGE_SIZE) {
+            assertThat(offsetOf(prefetcher.getPage(pageKey(offset))), is(offset));
+        }
+        assertThat(reads.size(), is(3));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(3L));
+    }
+
+    @Test
+    public void shouldNotPrefetchPagesTwice() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        prefetcher.prefetch(pageKey(10));
+        prefetcher.prefetch(pageKey(20));
+        // only the page after the last prefetched one is read ...
+        assertThat(reads.size(), is(4));
+        assertThat(reads.get(3), is(pageKey(40)));
+    }
+
+    @Test
+    public void shouldStopPrefetchingAtLastPage() {
+        PagePrefetcher prefetcher = prefetcher(5, Runnable::run);
+        prefetcher.prefetch(pageKey(80));
+        assertThat(reads.size(), is(2));
+    }
+
+    @Test
+    public void shouldReadPageWhenAllThreadsAreBusy() {
+        PagePrefetcher prefetcher = prefetcher(3, runnable -> {
+            throw new RejectedExecutionException();
+        });
+        prefetcher.prefetch(pageKey(10));
+        assertThat(reads.isEmpty(), is(true));
+        assertThat(offsetOf(prefetcher.getPage(pageKey(10))), is(10));
+        assertThat(reads.size(), is(1));
+    }
+
+    @Test
+    public void shouldDiscardPrefetchedPagesWhenCleared() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        prefetcher.prefetch(pageKey(10));
+        prefetcher.clear();
+        prefetcher.getPage(pageKey(10));
+        assertThat(reads.size(), is(4));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(0L));
+    }
+
+    @Test
+    public void shouldNotReadQueuedPagesWhenCleared() {
+        List<Runnable> tasks = new ArrayList<>();
+        PagePrefetcher prefetcher = prefetcher(3, tasks::add);
+        prefetcher.prefetch(pageKey(10));
+        assertThat(tasks.size(), is(1));
+        prefetcher.clear();
+        tasks.remove(0).run();
+        assertThat(reads.isEmpty(), is(true));
+        assertThat(tasks.isEmpty(), is(true));
+        assertThat(offsetOf(prefetcher.getPage(pageKey(10))), is(10));
+        assertThat(reads.size(), is(1));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(0L));
+    }
+
+    @Test
+    public void shouldDiscardPageBeingReadAndStopPrefetchingWhenCleared() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        onRead = () -> {
+            onRead = null;
+            prefetcher.clear();
+        };
+        prefetcher.prefetch(pageKey(10));
+        // the pages which follow the one being read are not prefetched ...
+        assertThat(reads.size(), is(1));
+        assertThat(offsetOf(prefetcher.getPage(pageKey(10))), is(10));
+        assertThat(reads.size(), is(2));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(0L));
+    }
+
+    @Test
+    public void shouldPrefetchAgainAfterCleared() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        prefetcher.clear();
+        prefetcher.prefetch(pageKey(10));
+        assertThat(reads.size(), is(3));
+        assertThat(offsetOf(prefetcher.getPage(pageKey(10))), is(10));
+        assertThat(prefetcher.prefetchedPagesUsed(), is(1L));
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void shouldReadPageAgainWhenPrefetchFailed() {
+        PagePrefetcher prefetcher = prefetcher(3, Runnable::run);
+        failing = true;
+        prefetcher.prefetch(pageKey(10));
+        assertThat(reads.size(), is(1));
+        prefetcher.getPage(pageKey(10));
+    }
+}
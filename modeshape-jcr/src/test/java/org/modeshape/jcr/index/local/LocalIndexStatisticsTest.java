@@ -0,0 +1,139 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.util.Collections;
+import java.util.Map;
+import javax.jcr.query.qom.Constraint;
+import org.junit.Test;
+import org.modeshape.jcr.api.query.qom.Operator;
+import org.modeshape.jcr.query.model.Comparison;
+import org.modeshape.jcr.query.model.Literal;
+import org.modeshape.jcr.query.model.Not;
+import org.modeshape.jcr.query.model.PropertyValue;
+import org.modeshape.jcr.query.model.SetCriteria;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+
+public class LocalIndexStatisticsTest extends AbstractLocalIndexTest {
+
+    private static final long SKEWED_VALUE = 7L;
+
+    protected void loadSkewedIndex( LocalDuplicateIndex<Long> index,
+                                    int numSkewed,
+                                    int numDistinct ) {
+        for (int i = 1; i <= numSkewed; ++i) {
+            index.add(key(i), "test", SKEWED_VALUE);
+        }
+        for (int i = 1; i <= numDistinct; ++i) {
+            index.add(key(numSkewed + i), "test", (long)(i * 10));
+        }
+    }
+
+    protected long estimate( LocalMapIndex<?, ?> index,
+                             Constraint constraint ) {
+        Map<String, Object> variables = Collections.emptyMap();
+        return index.estimateCardinality(Collections.singletonList(constraint), variables);
+    }
+
+    protected Constraint comparison( Operator op,
+                                     Object value ) {
+        return new Comparison(new PropertyValue(selector(), propertyName), op, new Literal(value));
+    }
+
+    @Test
+    public void shouldCollectStatisticsOfSkewedValues() {
+        LocalDuplicateIndex<Long> index = duplicateValueIndex(Long.class);
+        loadSkewedIndex(index, 10000, 10000);
+        IndexStatistics statistics = index.getStatistics();
+        assertThat(statistics, is(notNullValue()));
+        assertThat(statistics.getTotalCount(), is(20000L));
+        assertThat(statistics.getDistinctCount(), is(10001L));
+        assertThat(statistics.getNullCount(), is(0L));
+        assertThat(statistics.getMostCommonValues().size(), is(1));
+        assertThat(statistics.getMostCommonValues().get(SKEWED_VALUE), is(10000L));
+        assertThat(statistics.getBucketCount(), is(LocalIndexStatistics.BUCKET_COUNT));
+        assertThat(statistics.getBucketDepth(), is(100L));
+        assertThat(statistics.estimateEqualityCount(SKEWED_VALUE), is(10000L));
+        assertThat(statistics.estimateEqualityCount(20L), is(1L));
+    }
+
+    @Test
+    public void shouldEstimateCardinalityOfSkewedValueWithHistogram() {
+        LocalDuplicateIndex<Long> index = duplicateValueIndex(Long.class);
+        loadSkewedIndex(index, 10000, 10000);
+        long skewed = estimate(index, comparison(Operator.EQUAL_TO, SKEWED_VALUE));
+        assertTrue("Estimate of " + skewed + " is too far off", skewed >= 9900L && skewed <= 10100L);
+        long range = estimate(index, comparison(Operator.GREATER_THAN, 50000L));
+        assertTrue("Estimate of " + range + " is too far off", range >= 4900L && range <= 5100L);
+    }
+
+    @Test
+    public void shouldCountSmallRangesExactly() {
+        LocalDuplicateIndex<Long> index = duplicateValueIndex(Long.class);
+        loadSkewedIndex(index, 10000, 10000);
+        assertThat(estimate(index, comparison(Operator.EQUAL_TO, 20L)), is(1L));
+        assertThat(estimate(index, comparison(Operator.EQUAL_TO, 25L)), is(0L));
+        assertThat(estimate(index, comparison(Operator.GREATER_THAN, 99000L)), is(100L));
+    }
+
+    @Test
+    public void shouldRefreshStatisticsAfterManyChanges() {
+        LocalUniqueIndex<Long> index = uniqueValueIndex(Long.class);
+        loadLongIndex(index, 5000);
+        assertThat(index.getStatistics().getTotalCount(), is(5000L));
+        assertThat(index.getStatistics().getDistinctCount(), is(5000L));
+        // A few changes do not make the statistics stale ...
+        index.add(key(5001), "test", 50010L);
+        assertThat(index.getStatistics().getTotalCount(), is(5000L));
+        for (int i = 5002; i <= 7000; ++i) {
+            index.add(key(i), "test", (long)(i * 10));
+        }
+        assertThat(index.getStatistics().getTotalCount(), is(7000L));
+        assertThat(index.getStatistics().getMostCommonValues().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldDiscardStatisticsWhenClearingData() {
+        LocalUniqueIndex<Long> index = uniqueValueIndex(Long.class);
+        loadLongIndex(index, 100);
+        assertThat(index.getStatistics().getTotalCount(), is(100L));
+        index.clearAllData();
+        assertThat(index.getStatistics().getTotalCount(), is(0L));
+    }
+
+    @Test
+    public void shouldEstimateCardinalityOfSetCriteria() {
+        LocalUniqueIndex<Long> index = uniqueValueIndex(Long.class);
+        loadLongIndex(index, 10);
+        SetCriteria criteria = new SetCriteria(new PropertyValue(selector(), propertyName), new Literal(10L), new Literal(20L));
+        assertThat(estimate(index, criteria), is(2L));
+        assertThat(estimate(index, new Not(criteria)), is(8L));
+    }
+
+    @Test
+    public void shouldCollectStatisticsOfEmptyIndex() {
+        LocalUniqueIndex<Long> index = uniqueValueIndex(Long.class);
+        IndexStatistics statistics = index.getStatistics();
+        assertThat(statistics.getTotalCount(), is(0L));
+        assertThat(statistics.getDistinctCount(), is(0L));
+        assertThat(statistics.getBucketCount(), is(0));
+        assertThat(estimate(index, comparison(Operator.EQUAL_TO, 10L)), is(0L));
+    }
+}
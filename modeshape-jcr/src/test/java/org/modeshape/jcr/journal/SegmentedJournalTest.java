@@ -0,0 +1,126 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SegmentedJournal}, which runs all the {@link LocalJournalTest} tests against a journal which starts a new
+ * segment for each group of records.
+ */
+public class SegmentedJournalTest extends LocalJournalTest {
+
+    private static final FileFilter SEGMENT_FILES = file -> file.getName().endsWith(".journal");
+
+    @Override
+    protected ChangeJournal journal() throws Exception {
+        return new SegmentedJournal("target/local_journal", 1);
+    }
+
+    @Test
+    public void shouldRollOverSegmentsAndDeleteWholeSegments() throws Exception {
+        File folder = new File(localJournal().getJournalLocation());
+        int segmentCount = folder.listFiles(SEGMENT_FILES).length;
+        assertTrue(segmentCount > 1);
+
+        Thread.sleep(1);
+        localJournal().removeRecordsOlderThan(System.currentTimeMillis());
+        assertEquals(0, journal.allRecords(false).size());
+        assertEquals(1, folder.listFiles(SEGMENT_FILES).length);
+    }
+
+    @Test
+    public void shouldKeepRecordsAfterRestart() throws Exception {
+        int recordCount = journal.allRecords(false).size();
+        JournalRecord lastRecord = journal.lastRecord();
+        journal.shutdown();
+        journal.start();
+        assertEquals(recordCount, journal.allRecords(false).size());
+        assertEquals(lastRecord, journal.lastRecord());
+        assertEquals(lastRecord.getTimeBasedKey(), journal.lastRecord().getTimeBasedKey());
+        assertEquals(lastRecord, journal.allRecords(true).iterator().next());
+    }
+
+    @Test
+    public void shouldDiscardPartiallyWrittenRecordOnRestart() throws Exception {
+        int recordCount = journal.allRecords(false).size();
+        journal.shutdown();
+
+        File[] segments = new File(localJournal().getJournalLocation()).listFiles(SEGMENT_FILES);
+        File lastSegment = segments[0];
+        for (File segment : segments) {
+            if (segment.getName().compareTo(lastSegment.getName()) > 0) {
+                lastSegment = segment;
+            }
+        }
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        journal.start();
+        assertEquals(recordCount - 1, journal.allRecords(false).size());
+        journal.notify(TestChangeSet.create("j4", 2));
+        assertEquals(recordCount, journal.allRecords(false).size());
+    }
+
+    @Test
+    public void shouldGroupConcurrentWrites() throws Exception {
+        journal.shutdown();
+        journal = new SegmentedJournal("target/local_journal", SegmentedJournal.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        journal.start();
+        int initialCount = journal.allRecords(false).size();
+
+        int threads = 8;
+        int recordsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit((Callable<Void>)() -> {
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        journal.notify(TestChangeSet.create("j5", 1));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(initialCount + threads * recordsPerThread, journal.allRecords(false).size());
+
+        long previousKey = -1;
+        for (JournalRecord record : journal.allRecords(false)) {
+            assertNotNull(record.getChangeSet());
+            assertTrue(record.getTimeBasedKey() > previousKey);
+            previousKey = record.getTimeBasedKey();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.mapdb.BTreeKeySerializer;
 import org.mapdb.Serializer;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.query.BufferManager.DistinctBuffer;
+import org.modeshape.jcr.query.BufferManager.QueueBuffer;
 import org.modeshape.jcr.query.BufferManager.SortingBuffer;
 import org.modeshape.jcr.query.model.TypeSystem;
 import org.modeshape.jcr.query.model.TypeSystem.TypeFactory;
@@ -194,4 +195,96 @@ public class BufferManagerTest {
             assertThat(iter.hasNext(), is(false));
         }
     }
+
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void shouldSpillSortBufferPastThreshold() {
+        try (BufferManager spillingMgr = new BufferManager(context, 2, null)) {
+            TypeFactory<String> stringType = types.getStringFactory();
+            BTreeKeySerializer<String> strKeySerializer = (BTreeKeySerializer<String>)spillingMgr.bTreeKeySerializerFor(stringType,
+                                                                                                                       false);
+            Serializer<String> strSerializer = (Serializer<String>)spillingMgr.serializerFor(stringType);
+            try (SortingBuffer<String, String> buffer = spillingMgr.createSortingBuffer(strKeySerializer, strSerializer)
+                                                                   .useHeap(false).keepSize(true).make()) {
+                buffer.put("value3", "third");
+                buffer.put("value1", "first");
+                assertThat(spillingMgr.getSpillCount(), is(0L));
+                buffer.put("value2", "second");
+                assertThat(spillingMgr.getSpillCount(), is(1L));
+                buffer.put("value4", "fourth");
+                assertThat(buffer.size(), is(4L));
+
+                Iterator<String> iter = buffer.ascending();
+                assertThat(iter.next(), is("first"));
+                assertThat(iter.next(), is("second"));
+                assertThat(iter.next(), is("third"));
+                assertThat(iter.next(), is("fourth"));
+                assertThat(iter.hasNext(), is(false));
+            }
+            assertTrue(spillingMgr.getSpilledBytes() > 0L);
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void shouldSpillSortWithDuplicateKeysBufferPastThreshold() {
+        try (BufferManager spillingMgr = new BufferManager(context, 2, null)) {
+            TypeFactory<String> stringType = types.getStringFactory();
+            Serializer<String> strSerializer = (Serializer<String>)spillingMgr.serializerFor(stringType);
+            try (SortingBuffer<String, String> buffer = spillingMgr.createSortingWithDuplicatesBuffer(strSerializer,
+                                                                                                      stringType.getComparator(),
+                                                                                                      strSerializer)
+                                                                   .useHeap(true).keepSize(true).make()) {
+                buffer.put("value2", "first");
+                buffer.put("value1", "first");
+                buffer.put("value1", "second");
+                buffer.put("value2", "second");
+                assertThat(spillingMgr.getSpillCount(), is(1L));
+                assertThat(buffer.size(), is(4L));
+
+                Iterator<String> iter = buffer.getAll("value1");
+                assertThat(iter.next(), is("first"));
+                assertThat(iter.next(), is("second"));
+                assertThat(iter.hasNext(), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSpillDistinctAndQueueBuffersPastThreshold() {
+        try (BufferManager spillingMgr = new BufferManager(context, 2, null)) {
+            try (DistinctBuffer<String> buffer = spillingMgr.createDistinctBuffer(Serializer.STRING).useHeap(false).keepSize(true)
+                                                            .make()) {
+                assertTrue(buffer.addIfAbsent("first"));
+                assertTrue(buffer.addIfAbsent("second"));
+                assertTrue(buffer.addIfAbsent("third"));
+                assertFalse(buffer.addIfAbsent("first"));
+                assertFalse(buffer.addIfAbsent("third"));
+                assertThat(buffer.size(), is(3L));
+            }
+            try (QueueBuffer<String> buffer = spillingMgr.createQueueBuffer(Serializer.STRING).useHeap(false).make()) {
+                buffer.append("first");
+                buffer.append("second");
+                buffer.append("third");
+                assertThat(buffer.size(), is(3L));
+                Iterator<String> iter = buffer.iterator();
+                assertThat(iter.next(), is("first"));
+                assertThat(iter.next(), is("second"));
+                assertThat(iter.next(), is("third"));
+                assertThat(iter.hasNext(), is(false));
+            }
+            assertThat(spillingMgr.getSpillCount(), is(2L));
+        }
+    }
+
+    @Test
+    public void shouldNotSpillBuffersBelowThreshold() {
+        try (QueueBuffer<String> buffer = mgr.createQueueBuffer(Serializer.STRING).useHeap(false).make()) {
+            for (int i = 0; i != mgr.getSpillThreshold(); ++i) {
+                buffer.append("value" + i);
+            }
+            assertThat(buffer.size(), is((long)mgr.getSpillThreshold()));
+        }
+        assertThat(mgr.getSpillCount(), is(0L));
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.query;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.NodeTypes;
+import org.modeshape.jcr.RepositoryIndexes;
+import org.modeshape.jcr.cache.RepositoryCache;
+import org.modeshape.jcr.query.model.QueryCommand;
+import org.modeshape.jcr.query.parse.BasicSqlQueryParser;
+import org.modeshape.jcr.query.plan.PlanNode;
+import org.modeshape.jcr.query.plan.PlanNode.Type;
+import org.modeshape.jcr.query.validate.Schemata;
+
+public class QueryPlanCacheTest {
+
+    private ExecutionContext executionContext;
+    private NodeTypes nodeTypes;
+    private RepositoryIndexes indexes;
+    private QueryPlanCache cache;
+    private QueryCommand query;
+
+    @Before
+    public void beforeEach() {
+        executionContext = new ExecutionContext();
+        nodeTypes = mock(NodeTypes.class);
+        indexes = mock(RepositoryIndexes.class);
+        cache = new QueryPlanCache(2, null);
+        query = parse("SELECT * FROM [nt:unstructured] WHERE [p] = $v");
+    }
+
+    private QueryCommand parse( String statement ) {
+        return new BasicSqlQueryParser().parseQuery(statement, executionContext.getValueFactories().getTypeSystem());
+    }
+
+    private QueryContext newContext( Map<String, Object> variables ) {
+        return new QueryContext(executionContext, mock(RepositoryCache.class), Collections.singleton("workspace"),
+                                mock(Schemata.class), indexes, nodeTypes, mock(BufferManager.class)).with(variables);
+    }
+
+    private PlanNode plan( QueryContext context,
+                           QueryCommand query,
+                           boolean readVariable ) {
+        QueryPlanCache.Key key = cache.keyFor(context, query);
+        Set<String> variableNames = new HashSet<>(context.getVariables().keySet());
+        context.startRecordingVariableReads();
+        if (readVariable) context.getVariables().get("v");
+        context.getHints().hasCriteria = true;
+        PlanNode plan = new PlanNode(Type.ACCESS);
+        plan.addLastChild(new PlanNode(Type.SOURCE));
+        cache.put(key, context, plan, context.stopRecordingVariableReads(), variableNames, 1000L);
+        return plan;
+    }
+
+    @Test
+    public void shouldReturnCopyOfCachedPlanAndRestoreHints() {
+        PlanNode plan = plan(newContext(Collections.<String, Object>singletonMap("v", "a")), query, false);
+        QueryContext context = newContext(Collections.<String, Object>singletonMap("v", "b"));
+        PlanNode cached = cache.get(cache.keyFor(context, query), context);
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached, is(not(sameInstance(plan))));
+        assertTrue(cached.isSameAs(plan));
+        assertThat(context.getHints().hasCriteria, is(true));
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(0L));
+    }
+
+    @Test
+    public void shouldNotReusePlanWhenValueOfVariableReadWhilePlanningIsDifferent() {
+        plan(newContext(Collections.<String, Object>singletonMap("v", "a")), query, true);
+        QueryContext context = newContext(Collections.<String, Object>singletonMap("v", "b"));
+        assertThat(cache.get(cache.keyFor(context, query), context), is(nullValue()));
+        context = newContext(Collections.<String, Object>singletonMap("v", "a"));
+        assertThat(cache.get(cache.keyFor(context, query), context), is(notNullValue()));
+        assertThat(cache.hitRate(), is(0.5d));
+    }
+
+    @Test
+    public void shouldDiscardPlansWhenNodeTypesChange() {
+        plan(newContext(null), query, false);
+        assertThat(cache.size(), is(1));
+        when(nodeTypes.getVersion()).thenReturn(1);
+        QueryContext context = newContext(null);
+        assertThat(cache.get(cache.keyFor(context, query), context), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPlans() {
+        plan(newContext(null), query, false);
+        plan(newContext(null), parse("SELECT * FROM [nt:base]"), false);
+        plan(newContext(null), parse("SELECT * FROM [nt:folder]"), false);
+        assertThat(cache.size(), is(2));
+        QueryContext context = newContext(null);
+        assertThat(cache.get(cache.keyFor(context, query), context), is(nullValue()));
+    }
+
+    @Test
+    public void shouldCacheParsedCommands() {
+        assertThat(cache.getCommand("JCR-SQL2", "SELECT * FROM [nt:base]"), is(nullValue()));
+        cache.putCommand("JCR-SQL2", "SELECT * FROM [nt:base]", query);
+        assertThat(cache.getCommand("JCR-SQL2", "SELECT * FROM [nt:base]"), is(sameInstance(query)));
+        assertThat(cache.getCommand("xpath", "SELECT * FROM [nt:base]"), is(nullValue()));
+    }
+}
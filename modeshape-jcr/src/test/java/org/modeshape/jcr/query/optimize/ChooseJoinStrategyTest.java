@@ -0,0 +1,253 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.query.optimize;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import javax.jcr.query.qom.Constraint;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.NodeTypes;
+import org.modeshape.jcr.RepositoryIndexes;
+import org.modeshape.jcr.cache.RepositoryCache;
+import org.modeshape.jcr.query.AbstractQueryTest;
+import org.modeshape.jcr.query.BufferManager;
+import org.modeshape.jcr.query.QueryContext;
+import org.modeshape.jcr.query.engine.IndexPlan;
+import org.modeshape.jcr.query.model.ChildNodeJoinCondition;
+import org.modeshape.jcr.query.model.DescendantNodeJoinCondition;
+import org.modeshape.jcr.query.model.EquiJoinCondition;
+import org.modeshape.jcr.query.model.JoinCondition;
+import org.modeshape.jcr.query.model.JoinType;
+import org.modeshape.jcr.query.plan.JoinAlgorithm;
+import org.modeshape.jcr.query.plan.PlanNode;
+import org.modeshape.jcr.query.plan.PlanNode.Property;
+import org.modeshape.jcr.query.plan.PlanNode.Type;
+import org.modeshape.jcr.query.validate.Schemata;
+import org.modeshape.jcr.spi.index.IndexStatistics;
+
+public class ChooseJoinStrategyTest extends AbstractQueryTest {
+
+    private ChooseJoinStrategy rule;
+    private QueryContext context;
+    private PlanNode join;
+
+    @Before
+    public void beforeEach() {
+        context = new QueryContext(new ExecutionContext(), mock(RepositoryCache.class), Collections.singleton("workspace"),
+                                   mock(Schemata.class), mock(RepositoryIndexes.class), mock(NodeTypes.class),
+                                   mock(BufferManager.class));
+        rule = ChooseJoinStrategy.INSTANCE;
+        join = new PlanNode(Type.JOIN, selector("t1"), selector("t2"));
+        join.setProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.NESTED_LOOP);
+        join.setProperty(Property.JOIN_TYPE, JoinType.INNER);
+        join.setProperty(Property.JOIN_CONDITION, new EquiJoinCondition(selector("t1"), "c11", selector("t2"), "c21"));
+    }
+
+    protected PlanNode source( String selectorName ) {
+        PlanNode access = new PlanNode(Type.ACCESS, join, selector(selectorName));
+        PlanNode select = new PlanNode(Type.SELECT, access, selector(selectorName));
+        return new PlanNode(Type.SOURCE, select, selector(selectorName));
+    }
+
+    protected void addIndex( PlanNode source,
+                             long cardinality ) {
+        PlanNode index = new PlanNode(Type.INDEX, source, source.getSelectors());
+        index.setProperty(Property.INDEX_SPECIFICATION, new IndexPlan("index", "workspace", "provider",
+                                                                      Collections.<Constraint>emptyList(), null, 1,
+                                                                      cardinality, 1.0f, null));
+    }
+
+    protected void addJoinIndex( PlanNode source,
+                                 long cardinality ) {
+        PlanNode index = new PlanNode(Type.INDEX, source, source.getSelectors());
+        JoinCondition condition = join.getProperty(Property.JOIN_CONDITION, JoinCondition.class);
+        index.setProperty(Property.INDEX_SPECIFICATION, new IndexPlan("joinIndex", "workspace", "provider", null,
+                                                                      Collections.<javax.jcr.query.qom.JoinCondition>singletonList(condition),
+                                                                      1, cardinality, 1.0f, null));
+    }
+
+    protected void addJoinIndex( PlanNode source,
+                                 long cardinality,
+                                 long distinctValues ) {
+        PlanNode index = new PlanNode(Type.INDEX, source, source.getSelectors());
+        JoinCondition condition = join.getProperty(Property.JOIN_CONDITION, JoinCondition.class);
+        IndexStatistics statistics = new IndexStatistics(cardinality, distinctValues, 0L, null, 0, 0L, 0L);
+        index.setProperty(Property.INDEX_SPECIFICATION, new IndexPlan("joinIndex", "workspace", "provider", null,
+                                                                      Collections.<javax.jcr.query.qom.JoinCondition>singletonList(condition),
+                                                                      1, cardinality, 1.0f, null, statistics));
+    }
+
+    protected PlanNode execute() {
+        PlanNode result = rule.execute(context, join, new LinkedList<OptimizerRule>());
+        assertThat(result, is(sameInstance(join)));
+        return result;
+    }
+
+    @Test
+    public void shouldNotChangeJoinWithoutAnyEstimates() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.NESTED_LOOP));
+        assertThat(join.getProperty(Property.JOIN_CARDINALITY_ESTIMATES), is(nullValue()));
+        assertThat(join.getFirstChild(), is(sameInstance(left.getParent().getParent())));
+        assertThat(join.getLastChild(), is(sameInstance(right.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldBufferTheSmallerSideOfHashJoin() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 10L);
+        addIndex(right, 5000L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+        assertThat(join.getFirstChild(), is(sameInstance(right.getParent().getParent())));
+        assertThat(join.getLastChild(), is(sameInstance(left.getParent().getParent())));
+        assertThat(join.getPropertyAsList(Property.JOIN_CARDINALITY_ESTIMATES, Long.class), is(Arrays.asList(5000L, 10L)));
+    }
+
+    @Test
+    public void shouldBufferTheSideWithAnEstimateRatherThanTheSideThatIsScanned() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+        assertThat(join.getLastChild(), is(sameInstance(left.getParent().getParent())));
+        assertThat(join.getFirstChild(), is(sameInstance(right.getParent().getParent())));
+        assertThat(join.getPropertyAsList(Property.JOIN_CARDINALITY_ESTIMATES, Long.class),
+                   is(Arrays.asList(ChooseJoinStrategy.UNKNOWN, 10L)));
+    }
+
+    @Test
+    public void shouldSwapOuterJoinTypeWhenSwappingSides() {
+        join.setProperty(Property.JOIN_TYPE, JoinType.LEFT_OUTER);
+        PlanNode left = source("t1");
+        source("t2");
+        addIndex(left, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_TYPE, JoinType.class), is(JoinType.RIGHT_OUTER));
+        assertThat(join.getLastChild(), is(sameInstance(left.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldUseIndexNestedLoopWhenSmallerLeftSideAndIndexForRightSide() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 10L);
+        addJoinIndex(right, 5000L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.INDEX_NESTED_LOOP));
+        assertThat(join.getFirstChild(), is(sameInstance(left.getParent().getParent())));
+        assertThat(join.getLastChild(), is(sameInstance(right.getParent().getParent())));
+        assertThat(join.getPropertyAsList(Property.JOIN_CARDINALITY_ESTIMATES, Long.class), is(Arrays.asList(10L, 5000L)));
+    }
+
+    @Test
+    public void shouldSwapSidesToUseIndexNestedLoopForInnerJoin() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addJoinIndex(left, 5000L);
+        addIndex(right, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.INDEX_NESTED_LOOP));
+        assertThat(join.getFirstChild(), is(sameInstance(right.getParent().getParent())));
+        assertThat(join.getLastChild(), is(sameInstance(left.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldNotUseIndexNestedLoopWhenRightSideIsSmaller() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 5000L);
+        addJoinIndex(right, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+        assertThat(join.getFirstChild(), is(sameInstance(left.getParent().getParent())));
+        assertThat(join.getLastChild(), is(sameInstance(right.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldNeverSwapSidesOfDescendantNodeJoin() {
+        join.setProperty(Property.JOIN_CONDITION, new DescendantNodeJoinCondition(selector("t1"), selector("t2")));
+        PlanNode left = source("t1");
+        source("t2");
+        addIndex(left, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+        assertThat(join.getFirstChild(), is(sameInstance(left.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldReplaceMergeJoinForChildNodeJoin() {
+        join.setProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.MERGE);
+        join.setProperty(Property.JOIN_CONDITION, new ChildNodeJoinCondition(selector("t1"), selector("t2")));
+        PlanNode left = source("t1");
+        source("t2");
+        addIndex(left, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+        assertThat(join.getLastChild(), is(sameInstance(left.getParent().getParent())));
+    }
+
+    @Test
+    public void shouldReplaceMergeJoinForEquiJoin() {
+        join.setProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.MERGE);
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 5000L);
+        addIndex(right, 10L);
+        execute();
+        assertThat(join.getProperty(Property.JOIN_ALGORITHM, JoinAlgorithm.class), is(JoinAlgorithm.HASH));
+    }
+
+    @Test
+    public void shouldEstimateCardinalityOfEquiJoinWithDistinctValuesOfJoinIndex() {
+        PlanNode left = source("t1");
+        PlanNode right = source("t2");
+        addIndex(left, 1000L);
+        addJoinIndex(right, 5000L, 100L);
+        assertThat(rule.estimateCardinality(join), is(50000L));
+        join.setProperty(Property.JOIN_TYPE, JoinType.LEFT_OUTER);
+        assertThat(rule.estimateCardinality(join), is(50000L));
+        right.getFirstChild().setProperty(Property.INDEX_SPECIFICATION,
+                                          right.getFirstChild().getProperty(Property.INDEX_SPECIFICATION, IndexPlan.class)
+                                               .withStatistics(null));
+        assertThat(rule.estimateCardinality(join), is(5000L));
+    }
+
+    @Test
+    public void shouldEstimateCardinalityOfLimitAndEmptyAccess() {
+        PlanNode limit = new PlanNode(Type.LIMIT, selector("t1"));
+        limit.setProperty(Property.LIMIT_COUNT, 3);
+        PlanNode source = new PlanNode(Type.SOURCE, limit, selector("t1"));
+        assertThat(rule.estimateCardinality(limit), is(3L));
+        addIndex(source, 2L);
+        assertThat(rule.estimateCardinality(limit), is(2L));
+        PlanNode access = new PlanNode(Type.ACCESS, selector("t1"));
+        access.setProperty(Property.ACCESS_NO_RESULTS, Boolean.TRUE);
+        assertThat(rule.estimateCardinality(access), is(0L));
+    }
+}
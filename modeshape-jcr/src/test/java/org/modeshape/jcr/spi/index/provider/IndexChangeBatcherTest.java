@@ -0,0 +1,146 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.spi.index.provider;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.cache.change.ChangeSetListener;
+import org.modeshape.jcr.cache.change.RecordingChanges;
+
+public class IndexChangeBatcherTest {
+
+    private static final String WORKSPACE = "default";
+
+    private final List<ChangeSet> applied = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch applying;
+    private volatile CountDownLatch release;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private IndexChangeBatcher batcher;
+
+    @Before
+    public void beforeEach() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        executor = Executors.newCachedThreadPool();
+        ChangeSetListener target = new ChangeSetListener() {
+            @Override
+            public void notify( ChangeSet changeSet ) {
+                if (applying != null) applying.countDown();
+                if (release != null) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                applied.add(changeSet);
+            }
+        };
+        // Use a window long enough that only waiting callers (or explicit flushes) apply the changes ...
+        batcher = new IndexChangeBatcher("index", WORKSPACE, target, 100, TimeUnit.HOURS.toMillis(1), scheduler, null);
+    }
+
+    @After
+    public void afterEach() {
+        if (release != null) release.countDown();
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    protected RecordingChanges changes( String workspaceName ) {
+        return new RecordingChanges("session", "process", "repository", workspaceName, null);
+    }
+
+    @Test
+    public void shouldApplyPendingChangesAsSoonAsSomeoneWaitsForThem() throws Exception {
+        ChangeSet changes = changes(WORKSPACE);
+        batcher.receive(changes, true);
+        assertThat(applied.isEmpty(), is(true));
+        assertThat(batcher.waitUntilApplied(changes.getUUID(), 1000L), is(true));
+        assertThat(applied.size(), is(1));
+    }
+
+    @Test
+    public void shouldWaitForChangesThatAreReceivedWhileWaiting() throws Exception {
+        final ChangeSet changes = changes(WORKSPACE);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batcher.receive(changes, true);
+            }
+        });
+        assertThat(batcher.waitUntilApplied(changes.getUUID(), 10000L), is(true));
+        assertThat(applied.size(), is(1));
+    }
+
+    @Test
+    public void shouldNotConsiderChangesInOtherWorkspacesOrUnknownChanges() throws Exception {
+        batcher.receive(changes(WORKSPACE), true);
+        ChangeSet otherWorkspace = changes("other");
+        batcher.receive(otherWorkspace, true);
+        assertThat(batcher.waitUntilApplied(otherWorkspace.getUUID(), 100L), is(false));
+        assertThat(batcher.waitUntilApplied(changes(WORKSPACE).getUUID(), 100L), is(false));
+    }
+
+    @Test
+    public void shouldReceiveChangesWhileEarlierChangesAreBeingApplied() throws Exception {
+        applying = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        ChangeSet first = changes(WORKSPACE);
+        batcher.receive(first, true);
+        Future<?> flush = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                batcher.flush();
+            }
+        });
+        assertThat(applying.await(10, TimeUnit.SECONDS), is(true));
+
+        // The first batch is still being written, but that must not block the delivery of more changes ...
+        final ChangeSet second = changes(WORKSPACE);
+        Future<?> receive = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                batcher.receive(second, true);
+            }
+        });
+        receive.get(10, TimeUnit.SECONDS);
+        assertThat(applied.isEmpty(), is(true));
+
+        release.countDown();
+        flush.get(10, TimeUnit.SECONDS);
+        assertThat(batcher.waitUntilApplied(first.getUUID(), 0L), is(true));
+        assertThat(batcher.waitUntilApplied(second.getUUID(), 10000L), is(true));
+        assertThat(applied.size(), is(2));
+    }
+}
@@ -33,6 +33,7 @@ class JcrStatement implements Statement {
     private SQLWarning warning;
     private int rowLimit = -1;
     private int fetchDirection = ResultSet.FETCH_FORWARD;
+    private int fetchSize = 0;
     private boolean poolable;
     private int moreResults = 0;
 
@@ -54,7 +55,7 @@ class JcrStatement implements Statement {
     /**
      * {@inheritDoc}
      * <p>
-     * This driver doesn't have a way to set the fetch size, so this method always returns 0.
+     * The default fetch size is 0, meaning that all of the rows are fetched at once.
      * </p>
      * 
      * @see java.sql.Statement#getFetchSize()
@@ -62,13 +63,20 @@ class JcrStatement implements Statement {
     @Override
     public int getFetchSize() throws SQLException {
         notClosed();
-        return 0;
+        return fetchSize;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * This driver doesn't have a way to set the fetch size, so this method is ignored and does nothing.
+     * The fetch size is only a hint: the local driver always has access to all of the rows, while the remote driver fetches the
+     * rows from the server in pages of this size.
+     * </p>
+     * <p>
+     * The REST service used by the remote driver keeps no state between requests, so every page executes the query again and
+     * skips the rows of the previous pages. Reading all the rows of a large result therefore costs more the smaller the fetch
+     * size is, and the rows are only paged consistently when the query has an ORDER BY clause that orders all the rows and the
+     * content doesn't change while the rows are read. Otherwise, rows can be repeated or missed at the page boundaries.
      * </p>
      * 
      * @see java.sql.Statement#setFetchSize(int)
@@ -76,6 +84,10 @@ class JcrStatement implements Statement {
     @Override
     public void setFetchSize( int rows ) throws SQLException {
         notClosed();
+        if (rows < 0) {
+            throw new SQLException(JdbcLocalI18n.invalidArgument.text(rows, "a non-negative number"));
+        }
+        fetchSize = rows;
     }
 
     @Override
@@ -296,7 +308,7 @@ class JcrStatement implements Statement {
             // Convert the supplied SQL into JCR-SQL2 ...
             String jcrSql2 = connection.nativeSQL(sql);
             // Create the query ...
-            final QueryResult jcrResults = getJcrRepositoryDelegate().execute(jcrSql2, this.sqlLanguage);
+            final QueryResult jcrResults = getJcrRepositoryDelegate().execute(jcrSql2, this.sqlLanguage, fetchSize);
             results = new JcrResultSet(this, jcrResults, null);
             moreResults = 1;
         } catch (RepositoryException e) {
@@ -79,6 +79,22 @@ public interface RepositoryDelegate {
     QueryResult execute( String query,
                          String language ) throws RepositoryException;
 
+    /**
+     * Call to execute the <code>query</code> based on the specified JCR language, fetching the rows of the result in batches of
+     * the given size. Delegates which don't fetch the rows in batches ignore the fetch size.
+     * 
+     * @param query is the query expression to execute
+     * @param language is the JCR language the <code>query</code> should be executed based on.
+     * @param fetchSize the number of rows which should be fetched at a time, or 0 if all of the rows should be fetched at once
+     * @return QueryResult is the JCR query result
+     * @throws RepositoryException
+     */
+    default QueryResult execute( String query,
+                                 String language,
+                                 int fetchSize ) throws RepositoryException {
+        return execute(query, language);
+    }
+
     /**
      * Generate the plan for the <code>query</code> based on the specified JCR language.
      * 
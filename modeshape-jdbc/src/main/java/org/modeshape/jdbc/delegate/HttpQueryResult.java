@@ -23,6 +23,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Value;
@@ -33,6 +37,11 @@ import org.modeshape.jdbc.JdbcJcrValueFactory;
 
 /**
  * A simple implementation of the {@link QueryResult} interface.
+ * <p>
+ * The rows are either all read up front, or are read in pages of a fixed size. In the latter case only the page which is being
+ * iterated over and the page which follows it are held in memory, and the next page is read in the background while the rows of
+ * the current page are consumed.
+ * </p>
  * 
  * @author Horia Chiorean
  */
@@ -40,17 +49,53 @@ public final class HttpQueryResult implements QueryResult {
 
     protected final List<HttpRow> rows = new ArrayList<>();
     protected final Map<String, String> columnTypesByName = new LinkedHashMap<>();
+    private final int pageSize;
+    private final LongFunction<org.modeshape.jdbc.rest.QueryResult> pageLoader;
+    private final Executor executor;
+    private final boolean empty;
+    private volatile HttpRowIterator pagedIterator;
 
     protected HttpQueryResult( org.modeshape.jdbc.rest.QueryResult queryResult ) {
-        assert queryResult != null;
+        this(queryResult, 0, null, null);
+    }
 
-        if (!queryResult.isEmpty()) {
-            this.columnTypesByName.putAll(queryResult.getColumns());
+    /**
+     * Creates a query result whose rows are read in pages.
+     *
+     * @param firstPage the first page of the result, never {@code null}
+     * @param pageSize the number of rows in each page; if not positive, {@code firstPage} holds all the rows of the result
+     * @param pageLoader the function which reads the page starting at the supplied offset; may be null only if {@code pageSize}
+     *        is not positive
+     * @param executor the executor used to read the pages in the background; may be null only if {@code pageSize} is not
+     *        positive
+     */
+    protected HttpQueryResult( org.modeshape.jdbc.rest.QueryResult firstPage,
+                               int pageSize,
+                               LongFunction<org.modeshape.jdbc.rest.QueryResult> pageLoader,
+                               Executor executor ) {
+        assert firstPage != null;
+        assert pageSize <= 0 || (pageLoader != null && executor != null);
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+        this.executor = executor;
+
+        if (!firstPage.isEmpty()) {
+            this.columnTypesByName.putAll(firstPage.getColumns());
+            rows.addAll(toRows(firstPage));
+        }
+        this.empty = rows.isEmpty();
+    }
 
-            for (org.modeshape.jdbc.rest.QueryResult.Row queryRow : queryResult) {
-                rows.add(new HttpRow(queryRow));
-            }
+    protected boolean isPaged() {
+        return pageSize > 0;
+    }
+
+    protected List<HttpRow> toRows( org.modeshape.jdbc.rest.QueryResult page ) {
+        List<HttpRow> result = new ArrayList<>(page.getRows().size());
+        for (org.modeshape.jdbc.rest.QueryResult.Row queryRow : page) {
+            result.add(new HttpRow(queryRow));
         }
+        return result;
     }
 
     @Override
@@ -70,12 +115,20 @@ public final class HttpQueryResult implements QueryResult {
 
     @Override
     public boolean isEmpty() {
-        return rows.isEmpty();
+        return empty;
     }
 
     @Override
     public RowIterator getRows() {
-        return new HttpRowIterator();
+        if (!isPaged()) {
+            return new HttpRowIterator();
+        }
+        // the rows of the first page are only held once, so the paged rows can only be iterated over once ...
+        if (pagedIterator != null) {
+            throw new IllegalStateException("The rows of a paged query result can only be iterated over once");
+        }
+        pagedIterator = new PagedRowIterator();
+        return pagedIterator;
     }
 
     @Override
@@ -90,7 +143,10 @@ public final class HttpQueryResult implements QueryResult {
 
     @Override
     public void close() {
-        // do nothing
+        HttpRowIterator iterator = pagedIterator;
+        if (iterator != null) {
+            iterator.close();
+        }
     }
 
     @Override
@@ -106,6 +162,10 @@ public final class HttpQueryResult implements QueryResult {
         protected HttpRowIterator() {
         }
 
+        protected void close() {
+            // do nothing
+        }
+
         @Override
         public Row nextRow() {
             if (cursor == -1 || cursor >= rows.size()) {
@@ -152,6 +212,106 @@ public final class HttpQueryResult implements QueryResult {
         }
     }
 
+    private final class PagedRowIterator extends HttpRowIterator {
+
+        private List<HttpRow> page = rows;
+        private long pageOffset = 0;
+        private int index = 0;
+        private boolean lastPage = page.size() < pageSize;
+        private CompletableFuture<List<HttpRow>> nextPage;
+
+        protected PagedRowIterator() {
+            prefetchNextPage();
+        }
+
+        private void prefetchNextPage() {
+            if (!lastPage) {
+                final long offset = pageOffset + page.size();
+                nextPage = CompletableFuture.supplyAsync(() -> toRows(pageLoader.apply(offset)), executor);
+            }
+        }
+
+        private boolean advance() {
+            while (index >= page.size()) {
+                if (lastPage || nextPage == null) {
+                    return false;
+                }
+                List<HttpRow> next;
+                try {
+                    next = nextPage.join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }
+                    throw e;
+                } finally {
+                    nextPage = null;
+                }
+                pageOffset += page.size();
+                if (page == rows) {
+                    // don't hold on to the rows of the first page once they have been iterated over ...
+                    rows.clear();
+                }
+                page = next;
+                index = 0;
+                lastPage = next.size() < pageSize;
+                prefetchNextPage();
+            }
+            return true;
+        }
+
+        @Override
+        public Row nextRow() {
+            if (!advance()) {
+                throw new NoSuchElementException("No more rows to iterate over");
+            }
+            return page.get(index++);
+        }
+
+        @Override
+        public void skip( long skipNum ) {
+            if (skipNum < 0) {
+                throw new IllegalArgumentException("skipNum must be a positive value");
+            }
+            while (skipNum > 0) {
+                if (!advance()) {
+                    throw new NoSuchElementException("Skip would go past collection end");
+                }
+                int skipped = (int)Math.min(skipNum, page.size() - index);
+                index += skipped;
+                skipNum -= skipped;
+            }
+        }
+
+        @Override
+        public long getSize() {
+            // the size is only known once the last page has been read ...
+            return lastPage ? pageOffset + page.size() : -1;
+        }
+
+        @Override
+        public long getPosition() {
+            return pageOffset + index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return advance();
+        }
+
+        @Override
+        protected void close() {
+            CompletableFuture<List<HttpRow>> pending = nextPage;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            lastPage = true;
+            page = Collections.emptyList();
+            index = 0;
+        }
+    }
+
     private class HttpRow implements Row {
         private final Map<String, Value> valuesMap = new LinkedHashMap<>();
 
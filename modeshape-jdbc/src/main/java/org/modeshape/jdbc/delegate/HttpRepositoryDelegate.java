@@ -22,6 +22,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.jcr.RepositoryException;
 import javax.jcr.nodetype.NodeType;
@@ -67,6 +69,7 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
     private AtomicReference<Map<String, NodeType>> nodeTypes = new AtomicReference<>();
     private AtomicReference<Repositories.Repository> repository = new AtomicReference<>();
     private ModeShapeRestClient restClient;
+    private ExecutorService prefetchExecutor;
 
     protected HttpRepositoryDelegate( String url,
                                       Properties info ) {
@@ -95,6 +98,49 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the fetch size is positive, the rows of the result are requested from the server in pages of that size, and the page
+     * which follows the one being iterated over is read in the background.
+     * </p>
+     * <p>
+     * The server has no cursors, so each page re-executes the query and skips the rows of the earlier pages: reading N rows
+     * executes the query N / fetchSize times and skips O(N<sup>2</sup> / fetchSize) rows in total. The pages are only consistent
+     * with each other when the query orders all of its rows and the content isn't changed while they are read; otherwise rows
+     * may be repeated or missed.
+     * </p>
+     */
+    @Override
+    public QueryResult execute( final String query,
+                                final String language,
+                                final int fetchSize ) throws RepositoryException {
+        if (fetchSize <= 0) {
+            return execute(query, language);
+        }
+        logger.trace("Executing query with a fetch size of {0}: {1}", fetchSize, query);
+        try {
+            final ModeShapeRestClient client = this.restClient;
+            org.modeshape.jdbc.rest.QueryResult firstPage = client.query(query, language, 0, fetchSize);
+            return new HttpQueryResult(firstPage, fetchSize, offset -> client.query(query, language, offset, fetchSize),
+                                       prefetchExecutor());
+        } catch (Exception e) {
+            throw new RepositoryException(e.getMessage(), e);
+        }
+    }
+
+    private synchronized ExecutorService prefetchExecutor() {
+        if (prefetchExecutor == null) {
+            // daemon threads, so that result sets which are never closed don't prevent the JVM from exiting ...
+            prefetchExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "modeshape-jdbc-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return prefetchExecutor;
+    }
+
     @Override
     public String explain( String query,
                            String language ) throws RepositoryException {
@@ -215,6 +261,12 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
     @Override
     public void close() {
         super.close();
+        synchronized (this) {
+            if (prefetchExecutor != null) {
+                prefetchExecutor.shutdownNow();
+                prefetchExecutor = null;
+            }
+        }
         restClient = null;
         nodeTypes.set(null);
         repository.set(null);
@@ -126,7 +126,28 @@ public final class ModeShapeRestClient {
      */
     public QueryResult query( String query,
                               String queryLanguage ) {
+        return query(query, queryLanguage, -1, -1);
+    }
+
+    /**
+     * Runs a query in the specified language against the repository from {@code repoUrl}, returning only a range of the rows of
+     * the result.
+     *
+     * @param query a {@code String}, never {@code null}
+     * @param queryLanguage the language of the query, never {@code null}
+     * @param offset the number of rows to skip, or a negative number if no rows should be skipped
+     * @param limit the maximum number of rows to return, or a negative number if all the rows should be returned
+     * @return a {@link QueryResult} instance, never {@code null}
+     * @see javax.jcr.query.Query
+     */
+    public QueryResult query( String query,
+                              String queryLanguage,
+                              long offset,
+                              long limit ) {
         String url = jsonRestClient.appendToURL(QUERY_METHOD);
+        if (offset > 0 || limit >= 0) {
+            url = url + "?offset=" + Math.max(0, offset) + "&limit=" + limit;
+        }
         String contentType = contentTypeForQueryLanguage(queryLanguage);
         JSONRestClient.Response response = jsonRestClient.postStream(new ByteArrayInputStream(query.getBytes()), url, contentType);
         if (!response.isOK()) {
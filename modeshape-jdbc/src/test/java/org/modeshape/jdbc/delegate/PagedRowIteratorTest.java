@@ -0,0 +1,198 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jdbc.delegate;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
+import javax.jcr.query.RowIterator;
+import org.codehaus.jettison.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jdbc.rest.QueryResult;
+import org.modeshape.jdbc.rest.QueryResults;
+
+/**
+ * Unit test for the paged rows of {@link HttpQueryResult}, whose pages are read by a stub page loader. Unlike the other tests
+ * of the HTTP driver, it does not need a running REST service.
+ */
+public class PagedRowIteratorTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    private List<Long> loadedOffsets;
+    private List<Runnable> pendingTasks;
+
+    @Before
+    public void beforeEach() {
+        loadedOffsets = new ArrayList<>();
+        pendingTasks = new ArrayList<>();
+    }
+
+    protected LongFunction<QueryResult> pageLoader( final long rowCount ) {
+        return offset -> {
+            loadedOffsets.add(offset);
+            try {
+                return QueryResults.withIds(offset, Math.max(0, Math.min(PAGE_SIZE, rowCount - offset)));
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    protected HttpQueryResult pagedResult( long rowCount,
+                                           LongFunction<QueryResult> pageLoader,
+                                           Executor executor ) throws JSONException {
+        return new HttpQueryResult(QueryResults.withIds(0, Math.min(PAGE_SIZE, rowCount)), PAGE_SIZE, pageLoader, executor);
+    }
+
+    protected HttpQueryResult pagedResult( long rowCount ) throws JSONException {
+        // reads the pages in the calling thread ...
+        return pagedResult(rowCount, pageLoader(rowCount), Runnable::run);
+    }
+
+    protected long id( RowIterator rows ) throws Exception {
+        return Long.parseLong(rows.nextRow().getValue("id").getString());
+    }
+
+    protected void assertIds( RowIterator rows,
+                              long firstId,
+                              long lastId ) throws Exception {
+        for (long expected = firstId; expected <= lastId; expected++) {
+            assertThat(rows.hasNext(), is(true));
+            assertThat(rows.getPosition(), is(expected));
+            assertThat(id(rows), is(expected));
+        }
+    }
+
+    @Test
+    public void shouldIterateAcrossPageBoundaries() throws Exception {
+        RowIterator rows = pagedResult(7).getRows();
+        assertIds(rows, 0, 6);
+        assertThat(rows.hasNext(), is(false));
+        assertThat(loadedOffsets, is(Arrays.asList(3L, 6L)));
+    }
+
+    @Test
+    public void shouldReadEmptyLastPageWhenRowCountIsMultipleOfPageSize() throws Exception {
+        RowIterator rows = pagedResult(6).getRows();
+        assertIds(rows, 0, 5);
+        assertThat(rows.hasNext(), is(false));
+        assertThat(rows.getSize(), is(6L));
+        assertThat(loadedOffsets, is(Arrays.asList(3L, 6L)));
+        try {
+            rows.nextRow();
+            fail("Should not return a row past the end of the result");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldNotReadMorePagesWhenFirstPageIsNotFull() throws Exception {
+        RowIterator rows = pagedResult(2).getRows();
+        assertThat(rows.getSize(), is(2L));
+        assertIds(rows, 0, 1);
+        assertThat(rows.hasNext(), is(false));
+        assertThat(loadedOffsets.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSkipAcrossPages() throws Exception {
+        RowIterator rows = pagedResult(10).getRows();
+        assertThat(id(rows), is(0L));
+        rows.skip(5);
+        assertThat(rows.getPosition(), is(6L));
+        assertThat(id(rows), is(6L));
+        rows.skip(2);
+        assertThat(id(rows), is(9L));
+        assertThat(rows.hasNext(), is(false));
+    }
+
+    @Test( expected = NoSuchElementException.class )
+    public void shouldNotSkipPastEndOfRows() throws Exception {
+        RowIterator rows = pagedResult(7).getRows();
+        rows.skip(8);
+    }
+
+    @Test
+    public void shouldNotKnowSizeUntilLastPageIsRead() throws Exception {
+        RowIterator rows = pagedResult(7).getRows();
+        assertThat(rows.getSize(), is(-1L));
+        assertIds(rows, 0, 5);
+        assertThat(rows.getSize(), is(-1L));
+        assertThat(rows.hasNext(), is(true));
+        assertThat(rows.getSize(), is(7L));
+    }
+
+    @Test
+    public void shouldPropagateExceptionOfPageLoader() throws Exception {
+        LongFunction<QueryResult> failingLoader = offset -> {
+            throw new IllegalStateException("Unable to read the page at " + offset);
+        };
+        RowIterator rows = pagedResult(7, failingLoader, Runnable::run).getRows();
+        assertIds(rows, 0, 2);
+        try {
+            rows.hasNext();
+            fail("Should propagate the exception of the page loader");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("Unable to read the page at 3"));
+        }
+    }
+
+    @Test
+    public void shouldCancelPendingPageWhenClosed() throws Exception {
+        HttpQueryResult result = pagedResult(7, pageLoader(7), pendingTasks::add);
+        RowIterator rows = result.getRows();
+        assertThat(pendingTasks.size(), is(1));
+        result.close();
+        // the cancelled read is not performed, even once the executor gets to it ...
+        pendingTasks.forEach(Runnable::run);
+        assertThat(loadedOffsets.isEmpty(), is(true));
+        assertThat(rows.hasNext(), is(false));
+    }
+
+    @Test
+    public void shouldReadNextPageInBackground() throws Exception {
+        RowIterator rows = pagedResult(7, pageLoader(7), pendingTasks::add).getRows();
+        assertThat(pendingTasks.size(), is(1));
+        pendingTasks.remove(0).run();
+        assertThat(loadedOffsets, is(Arrays.asList(3L)));
+        assertIds(rows, 0, 3);
+        // moving to the second page starts reading the third one ...
+        assertThat(pendingTasks.size(), is(1));
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void shouldNotIterateOverPagedRowsTwice() throws Exception {
+        HttpQueryResult result = pagedResult(7);
+        result.getRows();
+        result.getRows();
+    }
+
+    @Test
+    public void shouldIterateOverUnpagedRowsSeveralTimes() throws Exception {
+        HttpQueryResult result = new HttpQueryResult(QueryResults.withIds(0, 5));
+        assertIds(result.getRows(), 0, 4);
+        assertIds(result.getRows(), 0, 4);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jdbc.rest;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Creates {@link QueryResult} instances for tests, without a ModeShape REST service.
+ */
+public final class QueryResults {
+
+    private QueryResults() {
+    }
+
+    /**
+     * Creates a query result with a single "id" column, whose rows have consecutive ids.
+     *
+     * @param firstId the id of the first row
+     * @param rowCount the number of rows
+     * @return the query result; never {@code null}
+     * @throws JSONException if the JSON representation of the result cannot be built
+     */
+    public static QueryResult withIds( long firstId,
+                                       long rowCount ) throws JSONException {
+        JSONObject columns = new JSONObject();
+        columns.put("id", "STRING");
+        JSONArray rows = new JSONArray();
+        for (long id = firstId; id < firstId + rowCount; id++) {
+            rows.put(new JSONObject().put("id", Long.toString(id)));
+        }
+        JSONObject object = new JSONObject();
+        object.put("columns", columns);
+        object.put("rows", rows);
+        return new QueryResult(object);
+    }
+}
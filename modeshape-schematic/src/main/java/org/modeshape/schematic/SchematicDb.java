@@ -17,6 +17,8 @@ package org.modeshape.schematic;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import org.modeshape.schematic.annotation.RequiresTransaction;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.schematic.document.EditableDocument;
@@ -52,6 +54,41 @@ public interface SchematicDb extends TransactionListener, Lifecycle, Lockable {
      * @return a {@link List} instance, never {@code null}
      */
     List<String> keys();
+
+    /**
+     * Performs the given action for each key present in the DB, without requiring all the keys to be held in memory at the same
+     * time. This should be preferred over {@link #keys()} by callers which only need to visit the keys once, since it allows
+     * implementations to stream the keys from the underlying storage.
+     * <p>
+     * If this method is called within an existing transaction, it should take into account the transient transactional context
+     * (i.e. any local but not yet committed changes)
+     * </p>
+     *
+     * @param action a {@link Consumer} which will be called for each key; never {@code null}
+     */
+    default void forEachKey(Consumer<String> action) {
+        keys().forEach(action);
+    }
+
+    /**
+     * Performs the given action for each key present in the DB and its document, which represents the full
+     * {@link SchematicEntry} document (just like {@link #get(String)}). Implementations should read the documents along with
+     * the keys from the underlying storage, rather than first collecting the keys and then loading each document.
+     * <p>
+     * If this method is called within an existing transaction, it should take into account the transient transactional context
+     * (i.e. any local but not yet committed changes)
+     * </p>
+     *
+     * @param action a {@link BiConsumer} which will be called for each key and document; never {@code null}
+     */
+    default void forEach(BiConsumer<String, Document> action) {
+        forEachKey(key -> {
+            Document document = get(key);
+            if (document != null) {
+                action.accept(key, document);
+            }
+        });
+    }
     
     /**
      * Get the document with the supplied key. This will represent the full {@link SchematicEntry} document if one exists. 
@@ -175,6 +212,36 @@ public interface SchematicDb extends TransactionListener, Lifecycle, Lockable {
         return get(key) != null;
     }
 
+    /**
+     * Signals that the entries with the supplied keys have been changed outside of this DB instance (e.g. by another process
+     * in a cluster), so that any state this instance caches for them is discarded. The default implementation does nothing,
+     * since DBs do not cache any state outside of transactions by default.
+     *
+     * @param keys the keys of the changed entries; may not be null
+     */
+    default void invalidate( Collection<String> keys ) {
+    }
+
+    /**
+     * Signals that any of the entries may have been changed outside of this DB instance, so that all the state this instance
+     * caches is discarded. The default implementation does nothing.
+     *
+     * @see #invalidate(Collection)
+     */
+    default void invalidateAll() {
+    }
+
+    /**
+     * Registers a listener which is notified each time this DB looks up an entry in the state it caches outside of
+     * transactions, so that the hits and misses can be recorded. The default implementation does nothing, since DBs do not
+     * cache any state outside of transactions by default.
+     *
+     * @param listener the listener, which accepts {@code true} for each hit and {@code false} for each miss; may be null if
+     *        the lookups should no longer be reported
+     */
+    default void setCacheLookupListener( Consumer<Boolean> listener ) {
+    }
+
     /**
      * Store the supplied document. This document is expected to be a full entry document, which contains both a "metadata"
      * and "content" section.
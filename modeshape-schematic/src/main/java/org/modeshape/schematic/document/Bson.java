@@ -27,9 +27,11 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.SimpleTimeZone;
+import java.util.UUID;
 import java.util.regex.Pattern;
 import org.modeshape.schematic.internal.document.BsonReader;
 import org.modeshape.schematic.internal.document.BsonWriter;
+import org.modeshape.schematic.internal.document.LazyDocument;
 
 /**
  * A utility class for working with BSON documents.
@@ -201,6 +203,37 @@ public class Bson {
         return SHARED_READER.read(input);
     }
 
+    /**
+     * Wrap the binary BSON representation in the given range of bytes with a read-only {@link Document} which decodes fields only
+     * when they are accessed. Nested documents share the same bytes, which therefore must not be changed afterwards.
+     * <p>
+     * The resulting document cannot be edited directly: use {@link Document#clone()} or {@link Document#edit(boolean) edit(true)}
+     * to obtain a fully decoded copy which can be changed.
+     * </p>
+     *
+     * @param bytes the bytes; may not be null
+     * @param offset the offset of the document in {@code bytes}
+     * @param length the number of bytes available for the document
+     * @return the lazily decoded {@link Document}; never null
+     * @throws IllegalArgumentException if the range does not start with a valid BSON document length
+     */
+    public static Document readLazily( byte[] bytes,
+                                       int offset,
+                                       int length ) {
+        return new LazyDocument(bytes, offset, length);
+    }
+
+    /**
+     * Checks whether the given document was created via {@link #readLazily(byte[], int, int)} (or is a document nested in one),
+     * and is therefore read-only.
+     *
+     * @param document the document; may be null
+     * @return {@code true} if the document is decoded lazily, {@code false} otherwise
+     */
+    public static boolean isLazy( Document document ) {
+        return document instanceof LazyDocument;
+    }
+
     /**
      * Get the {@link Type} constant that describes the type of value for the given field name.
      * 
@@ -230,4 +263,49 @@ public class Bson {
         if (value instanceof MaxKey) return Type.MAXKEY;
         return Type.UNDEFINED;
     }
+
+    /**
+     * Estimate the number of bytes that the standard BSON binary form of the supplied value would occupy, without actually
+     * serializing the value. Strings are assumed to contain mostly single-byte characters, so the result is an approximation
+     * suitable for sizing caches and buffers rather than an exact length.
+     *
+     * @param value the BSON value or {@link Document}; may be null
+     * @return the estimated number of bytes; never negative
+     */
+    public static long estimateSize( Object value ) {
+        if (value == null || value instanceof Null || value instanceof MinKey || value instanceof MaxKey) return 0L;
+        if (value instanceof String) return 4L + ((String)value).length() + 1L;
+        if (value instanceof Symbol) return 4L + ((Symbol)value).getSymbol().length() + 1L;
+        if (value instanceof Boolean) return 1L;
+        if (value instanceof Integer) return 4L;
+        if (value instanceof Long || value instanceof Double || value instanceof Float) return 8L;
+        if (value instanceof Date || value instanceof Timestamp) return 8L;
+        if (value instanceof ObjectId) return 12L;
+        if (value instanceof UUID) return 4L + 1L + 16L;
+        if (value instanceof Binary) return 4L + 1L + ((Binary)value).length();
+        if (value instanceof Pattern) return ((Pattern)value).pattern().length() + 1L + 4L;
+        if (value instanceof CodeWithScope) {
+            CodeWithScope code = (CodeWithScope)value;
+            return 4L + 4L + code.getCode().length() + 1L + estimateSize(code.getScope());
+        }
+        if (value instanceof Code) return 4L + ((Code)value).getCode().length() + 1L;
+        // a lazily-read document already knows its exact size ...
+        if (value instanceof LazyDocument) return ((LazyDocument)value).byteLength();
+        if (value instanceof Document) {
+            long size = 4L + 1L;
+            for (Document.Field field : ((Document)value).fields()) {
+                size += 1L + field.getName().length() + 1L + estimateSize(field.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Iterable) {
+            long size = 4L + 1L;
+            int index = 0;
+            for (Object element : (Iterable<?>)value) {
+                size += 1L + Integer.toString(index++).length() + 1L + estimateSize(element);
+            }
+            return size;
+        }
+        return 8L;
+    }
 }
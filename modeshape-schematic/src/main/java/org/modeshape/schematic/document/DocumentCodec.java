@@ -0,0 +1,70 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.document;
+
+import java.io.IOException;
+
+/**
+ * A codec which converts {@link Document documents} to and from the binary form in which they are persisted. 
+ * <p>
+ * Codecs only deal with the encoded payload; {@link DocumentCodecs} prefixes the payload with a small header containing the 
+ * {@link #id() id} of the codec, so that data written by different codecs (or data written before codecs were introduced) 
+ * can always be read back. Implementations must therefore be thread-safe and must always use the same id.
+ * </p>
+ * <p>
+ * Custom implementations can be configured by their fully qualified class name (see {@link DocumentCodecs#forName(String)}) 
+ * in which case they must have a public no-arg constructor and use an id which does not clash with any of the 
+ * {@link DocumentCodecs built-in codecs}.
+ * </p>
+ *
+ * @since 5.5
+ */
+public interface DocumentCodec {
+
+    /**
+     * Returns the id of this codec, which is stored in the header of each encoded document.
+     *
+     * @return the id of the codec
+     */
+    byte id();
+
+    /**
+     * Returns the name of this codec.
+     *
+     * @return the name, never {@code null}
+     */
+    String name();
+
+    /**
+     * Encodes a document.
+     *
+     * @param document the document; may not be null
+     * @return the encoded payload, never {@code null}
+     * @throws IOException if the document cannot be encoded
+     */
+    byte[] encode( Document document ) throws IOException;
+
+    /**
+     * Decodes a document previously encoded by this codec.
+     *
+     * @param bytes the array containing the encoded payload; may not be null
+     * @param offset the offset of the payload in the array
+     * @param length the length of the payload
+     * @return the document, never {@code null}
+     * @throws IOException if the payload cannot be decoded
+     */
+    Document decode( byte[] bytes, int offset, int length ) throws IOException;
+}
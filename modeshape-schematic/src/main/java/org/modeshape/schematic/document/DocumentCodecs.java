@@ -0,0 +1,248 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.modeshape.schematic.internal.document.BsonDocumentCodec;
+import org.modeshape.schematic.internal.document.DeflateDocumentCodec;
+import org.modeshape.schematic.internal.document.GzipDocumentCodec;
+
+/**
+ * A utility class for working with {@link DocumentCodec codecs}, which is used by the persistence providers to write and read
+ * documents.
+ * <p>
+ * Each encoded document starts with a 4 byte header: the two magic bytes {@code 'M','S'}, the {@link DocumentCodec#id() id} of 
+ * the codec and {@code 0xFF}. When read as the little-endian length prefix of a BSON document the header would represent a 
+ * negative length, so it can never be confused with a plain BSON document; it also can't be confused with GZIP data which 
+ * always starts with {@code 0x1F}. This allows data written before codecs were used, or by a different codec, to still be 
+ * read when the codec configuration changes.
+ * </p>
+ *
+ * @since 5.5
+ */
+public final class DocumentCodecs {
+
+    /**
+     * The codec which stores the plain BSON form of documents.
+     */
+    public static final DocumentCodec NONE = new BsonDocumentCodec();
+
+    /**
+     * The codec which GZIP-compresses the BSON form of documents.
+     */
+    public static final DocumentCodec GZIP = new GzipDocumentCodec();
+
+    /**
+     * The codec which compresses the BSON form of documents via DEFLATE, without a dictionary.
+     */
+    public static final DocumentCodec DEFLATE = new DeflateDocumentCodec();
+
+    /**
+     * The maximum useful size of a dictionary, which is the size of the DEFLATE window.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int HEADER_LENGTH = 4;
+
+    private static final byte MAGIC_1 = 'M';
+    private static final byte MAGIC_2 = 'S';
+    private static final byte HEADER_END = (byte) 0xFF;
+    private static final int MAX_DICTIONARY_STRING_LENGTH = 128;
+
+    private static final Map<String, DocumentCodec> BUILT_IN_BY_NAME = new HashMap<>();
+    private static final Map<Byte, DocumentCodec> BUILT_IN_BY_ID = new HashMap<>();
+
+    static {
+        for (DocumentCodec codec : Arrays.asList(NONE, GZIP, DEFLATE)) {
+            BUILT_IN_BY_NAME.put(codec.name(), codec);
+            BUILT_IN_BY_ID.put(codec.id(), codec);
+        }
+    }
+
+    private DocumentCodecs() {
+    }
+
+    /**
+     * Returns the codec with the given name. This is either the name of one of the built-in codecs ({@code none}, {@code gzip} 
+     * or {@code deflate}) or the fully-qualified name of a custom {@link DocumentCodec} implementation which has a public no-arg
+     * constructor.
+     *
+     * @param name the name of the codec; may not be null
+     * @return the codec, never {@code null}
+     * @throws IllegalArgumentException if there isn't any codec with the given name
+     */
+    public static DocumentCodec forName( String name ) {
+        DocumentCodec builtIn = BUILT_IN_BY_NAME.get(name.toLowerCase());
+        if (builtIn != null) {
+            return builtIn;
+        }
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Class<?> codecClass = Class.forName(name, true, classLoader != null ? classLoader : DocumentCodecs.class.getClassLoader());
+            return (DocumentCodec) codecClass.newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown document codec: " + name, e);
+        }
+    }
+
+    /**
+     * Returns a DEFLATE codec which uses the given preset dictionary.
+     *
+     * @param dictionary the dictionary, usually created via {@link #trainDictionary(Iterable, int)}; may not be null
+     * @return the codec, never {@code null}
+     */
+    public static DocumentCodec deflateWithDictionary( byte[] dictionary ) {
+        return new DeflateDocumentCodec(dictionary);
+    }
+
+    /**
+     * Returns the codec described by the configuration of a persistence provider.
+     *
+     * @param name the name of the codec (see {@link #forName(String)}); may be null if a dictionary file is given, in which case 
+     * {@code deflate} is used
+     * @param dictionaryFile the path to a file containing a preset dictionary for the {@code deflate} codec; may be null
+     * @return the codec, never {@code null}
+     * @throws IOException if the dictionary file cannot be read
+     * @throws IllegalArgumentException if the codec is unknown or if a dictionary is given for a codec other than {@code deflate}
+     */
+    public static DocumentCodec fromConfiguration( String name, String dictionaryFile ) throws IOException {
+        if (dictionaryFile == null) {
+            return forName(name != null ? name : NONE.name());
+        }
+        if (name != null && !DEFLATE.name().equalsIgnoreCase(name)) {
+            throw new IllegalArgumentException("A dictionary can only be used with the '" + DEFLATE.name() + "' codec");
+        }
+        return deflateWithDictionary(Files.readAllBytes(Paths.get(dictionaryFile)));
+    }
+
+    /**
+     * Encodes a document using the given codec, prefixing the payload with the codec header.
+     *
+     * @param document the document; may not be null
+     * @param codec the codec; may not be null
+     * @return the encoded document, never {@code null}
+     * @throws IOException if the document cannot be encoded
+     */
+    public static byte[] encode( Document document, DocumentCodec codec ) throws IOException {
+        byte[] payload = codec.encode(document);
+        byte[] result = new byte[HEADER_LENGTH + payload.length];
+        result[0] = MAGIC_1;
+        result[1] = MAGIC_2;
+        result[2] = codec.id();
+        result[3] = HEADER_END;
+        System.arraycopy(payload, 0, result, HEADER_LENGTH, payload.length);
+        return result;
+    }
+
+    /**
+     * Decodes a document. If the bytes have a codec header, the codec with that id is used: either the given codec or one of the 
+     * built-in codecs. Otherwise, the bytes are assumed to have been written before codecs were used, by the legacy codec.
+     *
+     * @param bytes the encoded document; may not be null
+     * @param codec the codec which is currently configured; may not be null
+     * @param legacyCodec the codec used to decode bytes without a header; may not be null
+     * @return the document, never {@code null}
+     * @throws IOException if the document cannot be decoded
+     */
+    public static Document decode( byte[] bytes, DocumentCodec codec, DocumentCodec legacyCodec ) throws IOException {
+        if (!hasHeader(bytes)) {
+            return legacyCodec.decode(bytes, 0, bytes.length);
+        }
+        byte id = bytes[2];
+        DocumentCodec actualCodec = codec.id() == id ? codec : BUILT_IN_BY_ID.get(id);
+        if (actualCodec == null) {
+            throw new IOException("The document was written by an unknown codec with the id " + id);
+        }
+        return actualCodec.decode(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+    }
+
+    /**
+     * Checks whether the given bytes start with a codec header.
+     *
+     * @param bytes the bytes; may not be null
+     * @return {@code true} if the bytes were written via {@link #encode(Document, DocumentCodec)}, {@code false} otherwise
+     */
+    public static boolean hasHeader( byte[] bytes ) {
+        return bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC_1 && bytes[1] == MAGIC_2 && bytes[3] == HEADER_END;
+    }
+
+    /**
+     * Builds a preset dictionary from a sample of documents. The dictionary contains the field names and short string values 
+     * which occur most often in the sample (weighted by their length), with the most valuable ones placed at the end of the 
+     * dictionary where they are cheapest to refer to.
+     *
+     * @param samples a sample of documents similar to the ones which will be encoded; may not be null
+     * @param maxSize the maximum size of the dictionary, which should not be larger than {@link #MAX_DICTIONARY_SIZE}
+     * @return the dictionary, never {@code null}
+     */
+    public static byte[] trainDictionary( Iterable<? extends Document> samples, int maxSize ) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document sample : samples) {
+            countStrings(sample, counts);
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        // only strings which occur more than once are worth having in the dictionary
+        entries.removeIf(entry -> entry.getValue() < 2);
+        entries.sort((entry1, entry2) -> Long.compare(weight(entry2), weight(entry1)));
+
+        // take the most valuable strings until the dictionary is full and then write them in reverse order
+        int size = 0;
+        int limit = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+        List<byte[]> selected = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            byte[] bytes = (entry.getKey() + '\0').getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > limit) {
+                continue;
+            }
+            selected.add(bytes);
+            size += bytes.length;
+        }
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            byte[] bytes = selected.get(i);
+            dictionary.write(bytes, 0, bytes.length);
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static long weight( Map.Entry<String, Integer> entry ) {
+        return (long) entry.getKey().length() * entry.getValue();
+    }
+
+    private static void countStrings( Object value, Map<String, Integer> counts ) {
+        if (value instanceof Array) {
+            for (Object item : (Array) value) {
+                countStrings(item, counts);
+            }
+        } else if (value instanceof Document) {
+            for (Document.Field field : ((Document) value).fields()) {
+                counts.merge(field.getName(), 1, Integer::sum);
+                countStrings(field.getValue(), counts);
+            }
+        } else if (value instanceof String && ((String) value).length() <= MAX_DICTIONARY_STRING_LENGTH) {
+            counts.merge((String) value, 1, Integer::sum);
+        }
+    }
+}
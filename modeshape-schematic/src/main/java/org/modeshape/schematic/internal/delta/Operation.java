@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 import org.modeshape.schematic.annotation.Immutable;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.schematic.document.Path;
+import org.modeshape.schematic.internal.document.LazyDocument;
 import org.modeshape.schematic.internal.document.MutableDocument;
 
 /**
@@ -59,7 +60,14 @@ public abstract class Operation {
         for (String fieldName : parentPath) {
             assert parent != null : "Unexpected to find path " + parentPath + " in " + delegate + ". Unable to apply operation "
                                     + this;
-            parent = (MutableDocument)parent.getDocument(fieldName);
+            Document child = parent.getDocument(fieldName);
+            if (child instanceof LazyDocument) {
+                // lazily-read documents can't be changed, so replace it with an equal copy which can be ...
+                MutableDocument copy = ((LazyDocument)child).materialize();
+                parent.put(fieldName, copy);
+                child = copy;
+            }
+            parent = (MutableDocument)child;
         }
         return parent;
     }
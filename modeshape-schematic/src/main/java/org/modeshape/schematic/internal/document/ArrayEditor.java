@@ -598,6 +598,12 @@ public class ArrayEditor implements EditableArray {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, index, factory);
         }
+        if (doc instanceof LazyDocument) {
+            // lazily-read documents can't be changed, so replace it with an equal copy which can be ...
+            MutableDocument copy = ((LazyDocument)doc).materialize();
+            array.setValue(index, copy);
+            return createEditableDocument(copy, index, factory);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, index, factory);
     }
@@ -0,0 +1,55 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.IOException;
+import org.modeshape.schematic.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+
+/**
+ * A {@link DocumentCodec} which stores documents in their plain BSON form, without any compression.
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class BsonDocumentCodec implements DocumentCodec {
+
+    public static final byte ID = 0;
+    public static final String NAME = "none";
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode( Document document ) throws IOException {
+        return Bson.write(document);
+    }
+
+    @Override
+    public Document decode( byte[] bytes, int offset, int length ) throws IOException {
+        // the bytes are never reused by the callers, so the fields can be decoded lazily straight from them ...
+        return Bson.readLazily(bytes, offset, length);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.modeshape.schematic.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+
+/**
+ * A {@link DocumentCodec} which compresses the BSON form of documents using the fastest DEFLATE level, optionally primed with a 
+ * preset dictionary. 
+ * <p>
+ * Unlike {@link GzipDocumentCodec}, this codec reuses its {@link Deflater} and {@link Inflater} instances (which are expensive 
+ * to create for the small documents ModeShape usually stores) and doesn't write any GZIP headers or trailers. When a dictionary 
+ * containing strings which are common to most documents (e.g. field names, node types and namespaces) is used, even very small
+ * documents compress well since the compressor can refer to the dictionary from the very first byte.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class DeflateDocumentCodec implements DocumentCodec {
+
+    public static final byte ID = 2;
+    public static final byte DICTIONARY_ID = 3;
+    public static final String NAME = "deflate";
+
+    private static final int MAX_POOLED_INSTANCES = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int BUFFER_SIZE = 4096;
+
+    private final byte[] dictionary;
+    private final long dictionaryChecksum;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a new codec which doesn't use a dictionary.
+     */
+    public DeflateDocumentCodec() {
+        this(null);
+    }
+
+    /**
+     * Creates a new codec which uses the given preset dictionary. Documents encoded with a dictionary can only be decoded by a 
+     * codec using the same dictionary.
+     * 
+     * @param dictionary the dictionary; may be null if no dictionary should be used
+     */
+    public DeflateDocumentCodec( byte[] dictionary ) {
+        this.dictionary = dictionary != null && dictionary.length > 0 ? Arrays.copyOf(dictionary, dictionary.length) : null;
+        if (this.dictionary != null) {
+            Adler32 checksum = new Adler32();
+            checksum.update(this.dictionary);
+            this.dictionaryChecksum = checksum.getValue();
+        } else {
+            this.dictionaryChecksum = 0;
+        }
+    }
+
+    @Override
+    public byte id() {
+        return dictionary != null ? DICTIONARY_ID : ID;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode( Document document ) throws IOException {
+        byte[] bson = Bson.write(document);
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(bson);
+            deflater.finish();
+            // the output is very rarely larger than the input, but it's allowed to grow if needed
+            byte[] output = new byte[bson.length + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return Arrays.copyOf(output, length);
+        } finally {
+            release(deflater, deflaters);
+        }
+    }
+
+    @Override
+    public Document decode( byte[] bytes, int offset, int length ) throws IOException {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(bytes, offset, length);
+            byte[] output = new byte[Math.max(BUFFER_SIZE, length * 4)];
+            int outputLength = 0;
+            while (!inflater.finished()) {
+                if (outputLength == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int inflated = inflater.inflate(output, outputLength, output.length - outputLength);
+                outputLength += inflated;
+                if (inflated == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (dictionary == null || (inflater.getAdler() & 0xFFFFFFFFL) != dictionaryChecksum) {
+                            throw new IOException("The document was compressed using a different dictionary");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Unexpected end of compressed document");
+                    }
+                }
+            }
+            // the document keeps a reference to the bytes, so don't retain any unused part of the buffer ...
+            byte[] bson = outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+            return Bson.readLazily(bson, 0, outputLength);
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            release(inflater, inflaters);
+        }
+    }
+
+    private static void release( Deflater deflater, Queue<Deflater> pool ) {
+        deflater.reset();
+        if (pool.size() < MAX_POOLED_INSTANCES) {
+            pool.offer(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    private static void release( Inflater inflater, Queue<Inflater> pool ) {
+        inflater.reset();
+        if (pool.size() < MAX_POOLED_INSTANCES) {
+            pool.offer(inflater);
+        } else {
+            inflater.end();
+        }
+    }
+}
@@ -625,6 +625,12 @@ public class DocumentEditor implements EditableDocument {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, fieldName, factory);
         }
+        if (doc instanceof LazyDocument) {
+            // lazily-read documents can't be changed, so replace it with an equal copy which can be ...
+            MutableDocument copy = ((LazyDocument)doc).materialize();
+            document.put(fieldName, copy);
+            return createEditableDocument(copy, fieldName, factory);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, fieldName, factory);
     }
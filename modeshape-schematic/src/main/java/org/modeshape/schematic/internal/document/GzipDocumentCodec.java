@@ -0,0 +1,75 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.modeshape.schematic.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+
+/**
+ * A {@link DocumentCodec} which GZIP-compresses the BSON form of documents. This is the format used by the persistence providers
+ * before codecs were introduced, so it is mostly useful for reading existing data.
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class GzipDocumentCodec implements DocumentCodec {
+
+    public static final byte ID = 1;
+    public static final String NAME = "gzip";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode( Document document ) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bos)) {
+            Bson.write(document, out);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public Document decode( byte[] bytes, int offset, int length ) throws IOException {
+        ByteArrayOutputStream bson = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, length * 4));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bson.write(buffer, 0, read);
+            }
+        }
+        return Bson.readLazily(bson.toByteArray(), 0, bson.size());
+    }
+}
@@ -0,0 +1,717 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+import org.modeshape.schematic.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Editor;
+import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.document.MaxKey;
+import org.modeshape.schematic.document.MinKey;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.Symbol;
+import org.modeshape.schematic.internal.io.BsonDataInput;
+
+/**
+ * A read-only {@link Document} which is backed directly by the BSON bytes it was read from. Nothing is decoded when the document
+ * is created: the offsets of the fields are indexed the first time any field is accessed, and each value is decoded (and then
+ * kept) only when it is requested. Nested documents are themselves lazy documents over a range of the same bytes, so reading a
+ * single property of a large node does not require building the whole in-memory tree.
+ * <p>
+ * The bytes must not be changed after they are handed to this document. Operations which produce a changed document, like
+ * {@link #clone()} and {@link #with(String, Object)}, return fully decoded {@link BasicDocument} instances, while
+ * {@link #editable()} and {@link #edit(boolean) edit(false)} are not supported.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class LazyDocument implements Document {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of fields above which a hash-based lookup is used for field names, rather than a scan of the names.
+     */
+    private static final int MAX_FIELDS_TO_SCAN = 8;
+
+    private static final DocumentValueFactory VALUES = BsonReader.VALUE_FACTORY;
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private transient volatile Index index;
+
+    /**
+     * Creates a new document over the BSON representation in the given range of bytes.
+     *
+     * @param bytes the bytes; may not be null
+     * @param offset the offset of the document's length prefix in {@code bytes}
+     * @param length the number of bytes in the range, which must contain the whole document
+     * @throws IllegalArgumentException if the range is not valid or does not start with a valid document length
+     */
+    public LazyDocument( byte[] bytes,
+                         int offset,
+                         int length ) {
+        if (offset < 0 || length < 5 || offset + length > bytes.length) {
+            throw new IllegalArgumentException("Invalid BSON document range [" + offset + "," + (offset + length) + ")");
+        }
+        int docLength = readInt(bytes, offset);
+        if (docLength < 5 || docLength > length) {
+            throw new IllegalArgumentException("Invalid BSON document length " + docLength + " at offset " + offset);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = docLength;
+    }
+
+    /**
+     * Returns the number of bytes in the BSON representation of this document.
+     *
+     * @return the length in bytes
+     */
+    public int byteLength() {
+        return length;
+    }
+
+    /**
+     * Checks whether the fields of this document have already been indexed.
+     *
+     * @return {@code true} if the fields have been indexed, or {@code false} if no field has been accessed yet
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    @Override
+    public Object get( String name ) {
+        Index index = index();
+        int i = index.indexOf(name);
+        return i < 0 ? null : index.value(i);
+    }
+
+    @Override
+    public boolean containsField( String name ) {
+        return index().indexOf(name) >= 0;
+    }
+
+    @Override
+    public boolean containsAll( Document document ) {
+        if (document == null) {
+            return true;
+        }
+        for (Field field : document.fields()) {
+            if (!BsonUtils.valuesAreEqual(get(field.getName()), field.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return index().keys();
+    }
+
+    @Override
+    public int size() {
+        return index().names.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // an empty document only has the length and the terminator ...
+        return length == 5;
+    }
+
+    @Override
+    public Map<String, ?> toMap() {
+        Index index = index();
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i != index.names.length; ++i) {
+            map.put(index.names[i], index.value(i));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public Iterable<Field> fields() {
+        return () -> {
+            final Index index = index();
+            return new Iterator<Field>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < index.names.length;
+                }
+
+                @Override
+                public Field next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    int i = next++;
+                    return new ImmutableField(index.names[i], index.value(i));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        };
+    }
+
+    @Override
+    public Boolean getBoolean( String name ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? (Boolean)value : null;
+    }
+
+    @Override
+    public boolean getBoolean( String name,
+                               boolean defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? ((Boolean)value).booleanValue() : defaultValue;
+    }
+
+    @Override
+    public Integer getInteger( String name ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? (Integer)value : null;
+    }
+
+    @Override
+    public int getInteger( String name,
+                           int defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? ((Integer)value).intValue() : defaultValue;
+    }
+
+    @Override
+    public Long getLong( String name ) {
+        Object value = get(name);
+        if (value instanceof Long) return (Long)value;
+        if (value instanceof Integer) return ((Integer)value).longValue();
+        return null;
+    }
+
+    @Override
+    public long getLong( String name,
+                         long defaultValue ) {
+        Object value = get(name);
+        if (value instanceof Long) return ((Long)value).longValue();
+        if (value instanceof Integer) return ((Integer)value).longValue();
+        return defaultValue;
+    }
+
+    @Override
+    public Double getDouble( String name ) {
+        Object value = get(name);
+        return (value instanceof Double) ? (Double)value : null;
+    }
+
+    @Override
+    public double getDouble( String name,
+                             double defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Double) ? ((Double)value).doubleValue() : defaultValue;
+    }
+
+    @Override
+    public Number getNumber( String name ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : null;
+    }
+
+    @Override
+    public Number getNumber( String name,
+                             Number defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : defaultValue;
+    }
+
+    @Override
+    public Date getDate( String name ) {
+        Object value = get(name);
+        return (value instanceof Date) ? (Date)value : null;
+    }
+
+    @Override
+    public String getString( String name ) {
+        return getString(name, null);
+    }
+
+    @Override
+    public String getString( String name,
+                             String defaultValue ) {
+        Object value = get(name);
+        if (value instanceof String) return (String)value;
+        if (value instanceof Symbol) return ((Symbol)value).getSymbol();
+        return defaultValue;
+    }
+
+    @Override
+    public List<?> getArray( String name ) {
+        Object value = get(name);
+        return (value instanceof List) ? (List<?>)value : null;
+    }
+
+    @Override
+    public Document getDocument( String name ) {
+        Object value = get(name);
+        return (value instanceof Document) ? (Document)value : null;
+    }
+
+    @Override
+    public boolean isNull( String name ) {
+        return get(name) instanceof Null;
+    }
+
+    @Override
+    public boolean isNullOrMissing( String name ) {
+        return Null.matches(get(name));
+    }
+
+    @Override
+    public MaxKey getMaxKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MaxKey) ? (MaxKey)value : null;
+    }
+
+    @Override
+    public MinKey getMinKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MinKey) ? (MinKey)value : null;
+    }
+
+    @Override
+    public Code getCode( String name ) {
+        Object value = get(name);
+        return (value instanceof Code) ? (Code)value : null;
+    }
+
+    @Override
+    public CodeWithScope getCodeWithScope( String name ) {
+        Object value = get(name);
+        return (value instanceof CodeWithScope) ? (CodeWithScope)value : null;
+    }
+
+    @Override
+    public ObjectId getObjectId( String name ) {
+        Object value = get(name);
+        return (value instanceof ObjectId) ? (ObjectId)value : null;
+    }
+
+    @Override
+    public Binary getBinary( String name ) {
+        Object value = get(name);
+        return (value instanceof Binary) ? (Binary)value : null;
+    }
+
+    @Override
+    public Symbol getSymbol( String name ) {
+        Object value = get(name);
+        if (value instanceof Symbol) return (Symbol)value;
+        if (value instanceof String) return new Symbol((String)value);
+        return null;
+    }
+
+    @Override
+    public Pattern getPattern( String name ) {
+        Object value = get(name);
+        return (value instanceof Pattern) ? (Pattern)value : null;
+    }
+
+    @Override
+    public UUID getUuid( String name ) {
+        return getUuid(name, null);
+    }
+
+    @Override
+    public UUID getUuid( String name,
+                         UUID defaultValue ) {
+        Object value = get(name);
+        if (value instanceof UUID) {
+            return (UUID)value;
+        }
+        if (value instanceof String) {
+            try {
+                return UUID.fromString((String)value);
+            } catch (IllegalArgumentException e) {
+                // do nothing ...
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getType( String name ) {
+        return Bson.getTypeForValue(get(name));
+    }
+
+    @Override
+    public MutableDocument clone() {
+        return materialize();
+    }
+
+    @Override
+    public Document with( Map<String, Object> changedFields ) {
+        return materialize().with(changedFields);
+    }
+
+    @Override
+    public Document with( String fieldName,
+                          Object newValue ) {
+        return materialize().with(fieldName, newValue);
+    }
+
+    @Override
+    public Document with( ValueTransformer transformer ) {
+        BasicDocument decoded = materialize();
+        Document result = decoded.with(transformer);
+        return result == decoded ? this : result;
+    }
+
+    @Override
+    public Document withVariablesReplaced( Properties properties ) {
+        return materialize().withVariablesReplaced(properties);
+    }
+
+    @Override
+    public Document withVariablesReplacedWithSystemProperties() {
+        return materialize().withVariablesReplacedWithSystemProperties();
+    }
+
+    @Override
+    public Editor edit( boolean clone ) {
+        if (!clone) {
+            throw new UnsupportedOperationException("Lazily-read BSON documents can only be edited via a copy");
+        }
+        // the decoded document is already a copy ...
+        return materialize().edit(false);
+    }
+
+    @Override
+    public EditableDocument editable() {
+        throw new UnsupportedOperationException("Lazily-read BSON documents can only be edited via a copy");
+    }
+
+    @Override
+    public int hashCode() {
+        // the same as the hash code of a BasicDocument with the same fields ...
+        int hash = 0;
+        for (Field field : fields()) {
+            Object value = field.getValue();
+            hash += field.getName().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof LazyDocument) {
+            LazyDocument that = (LazyDocument)obj;
+            if (this.length == that.length && rangeEquals(that)) {
+                return true;
+            }
+        }
+        if (obj instanceof Document && !(obj instanceof Iterable)) {
+            Document that = (Document)obj;
+            if (this.size() != that.size()) {
+                return false;
+            }
+            for (Field thisField : fields()) {
+                if (!BsonUtils.valuesAreEqual(thisField.getValue(), that.get(thisField.getName()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return Json.write(this);
+    }
+
+    /**
+     * Decodes the whole document, including all nested documents and arrays.
+     *
+     * @return the fully-decoded copy of this document; never null
+     */
+    public BasicDocument materialize() {
+        try {
+            BsonReader.Reader reader = newReader(offset);
+            reader.startDocument();
+            return (BasicDocument)reader.endDocument();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to decode BSON document", e);
+        }
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        // serialize the same way as a decoded document ...
+        return materialize();
+    }
+
+    private boolean rangeEquals( LazyDocument that ) {
+        for (int i = 0; i != length; ++i) {
+            if (this.bytes[this.offset + i] != that.bytes[that.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Index index() {
+        Index index = this.index;
+        if (index == null) {
+            index = new Index();
+            this.index = index;
+        }
+        return index;
+    }
+
+    private BsonReader.Reader newReader( int position ) {
+        ByteArrayInputStream stream = new ByteArrayInputStream(bytes, position, offset + length - position);
+        return new BsonReader.Reader(new BsonDataInput(new DataInputStream(stream)), VALUES);
+    }
+
+    private Object decode( byte type,
+                           int nameOffset,
+                           int valueOffset ) {
+        switch (type) {
+            case Bson.Type.STRING:
+                return VALUES.createString(readString(valueOffset));
+            case Bson.Type.DOCUMENT:
+                return new LazyDocument(bytes, valueOffset, readInt(bytes, valueOffset));
+            case Bson.Type.INT32:
+                return VALUES.createInt(readInt(bytes, valueOffset));
+            case Bson.Type.INT64:
+                return VALUES.createLong(readLong(valueOffset));
+            case Bson.Type.DOUBLE:
+                return VALUES.createDouble(Double.longBitsToDouble(readLong(valueOffset)));
+            case Bson.Type.BOOLEAN:
+                return VALUES.createBoolean(bytes[valueOffset] != 0);
+            case Bson.Type.DATETIME:
+                return VALUES.createDate(readLong(valueOffset));
+            case Bson.Type.NULL:
+                return VALUES.createNull();
+            case Bson.Type.UNDEFINED:
+            case Bson.Type.DBPOINTER:
+                return null;
+            default:
+                // let the regular reader decode the less common (and the complex) values ...
+                try {
+                    BasicDocument holder = new BasicDocument(1);
+                    newReader(nameOffset).readElement(type, holder);
+                    return holder.values().iterator().next();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to decode BSON value", e);
+                }
+        }
+    }
+
+    private String readString( int valueOffset ) {
+        // the length includes the zero-byte terminator ...
+        int byteLength = readInt(bytes, valueOffset) - 1;
+        return new String(bytes, valueOffset + 4, byteLength, StandardCharsets.UTF_8);
+    }
+
+    private int readCStringEnd( int position ) {
+        int end = offset + length;
+        while (position < end && bytes[position] != Bson.END_OF_STRING) {
+            ++position;
+        }
+        if (position == end) {
+            throw new IllegalStateException("Unterminated BSON string in document at offset " + offset);
+        }
+        return position;
+    }
+
+    private int valueLength( byte type,
+                             int valueOffset ) {
+        switch (type) {
+            case Bson.Type.DOUBLE:
+            case Bson.Type.DATETIME:
+            case Bson.Type.INT64:
+            case Bson.Type.TIMESTAMP:
+                return 8;
+            case Bson.Type.INT32:
+                return 4;
+            case Bson.Type.BOOLEAN:
+                return 1;
+            case Bson.Type.OBJECTID:
+                return 12;
+            case Bson.Type.NULL:
+            case Bson.Type.UNDEFINED:
+            case Bson.Type.MINKEY:
+            case Bson.Type.MAXKEY:
+                return 0;
+            case Bson.Type.STRING:
+            case Bson.Type.SYMBOL:
+            case Bson.Type.JAVASCRIPT:
+                return 4 + readInt(bytes, valueOffset);
+            case Bson.Type.DOCUMENT:
+            case Bson.Type.ARRAY:
+            case Bson.Type.JAVASCRIPT_WITH_SCOPE:
+                return readInt(bytes, valueOffset);
+            case Bson.Type.BINARY:
+                return 4 + 1 + readInt(bytes, valueOffset);
+            case Bson.Type.REGEX:
+                int flagsEnd = readCStringEnd(readCStringEnd(valueOffset) + 1);
+                return flagsEnd + 1 - valueOffset;
+            case Bson.Type.DBPOINTER:
+                return 4 + readInt(bytes, valueOffset) + 12;
+            default:
+                throw new IllegalStateException("Unknown BSON type " + type + " in document at offset " + offset);
+        }
+    }
+
+    private long readLong( int position ) {
+        return (readInt(bytes, position) & 0xFFFFFFFFL) | ((long)readInt(bytes, position + 4) << 32);
+    }
+
+    private static int readInt( byte[] bytes,
+                                int position ) {
+        // BSON is little-endian ...
+        return (bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8 | (bytes[position + 2] & 0xFF) << 16
+               | (bytes[position + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * The offsets of the fields, which is built with a single pass over the bytes and is immutable except for the decoded values.
+     */
+    private final class Index {
+        private final String[] names;
+        private final byte[] types;
+        private final int[] nameOffsets;
+        private final int[] valueOffsets;
+        private final Map<String, Integer> positionsByName;
+        private final AtomicReferenceArray<Object> values;
+        private volatile Set<String> keys;
+
+        protected Index() {
+            int capacity = 8;
+            String[] names = new String[capacity];
+            byte[] types = new byte[capacity];
+            int[] nameOffsets = new int[capacity];
+            int[] valueOffsets = new int[capacity];
+            int count = 0;
+            int position = offset + 4;
+            int end = offset + length - 1;
+            while (position < end) {
+                byte type = bytes[position];
+                if (type == Bson.END_OF_DOCUMENT) break;
+                int nameOffset = position + 1;
+                int nameEnd = readCStringEnd(nameOffset);
+                int valueOffset = nameEnd + 1;
+                if (count == capacity) {
+                    capacity *= 2;
+                    names = Arrays.copyOf(names, capacity);
+                    types = Arrays.copyOf(types, capacity);
+                    nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+                    valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+                }
+                names[count] = new String(bytes, nameOffset, nameEnd - nameOffset, StandardCharsets.UTF_8);
+                types[count] = type;
+                nameOffsets[count] = nameOffset;
+                valueOffsets[count] = valueOffset;
+                ++count;
+                position = valueOffset + valueLength(type, valueOffset);
+            }
+            if (position > end) {
+                throw new IllegalStateException("Malformed BSON document at offset " + offset);
+            }
+            this.names = Arrays.copyOf(names, count);
+            this.types = Arrays.copyOf(types, count);
+            this.nameOffsets = Arrays.copyOf(nameOffsets, count);
+            this.valueOffsets = Arrays.copyOf(valueOffsets, count);
+            this.values = new AtomicReferenceArray<>(count);
+            if (count > MAX_FIELDS_TO_SCAN) {
+                positionsByName = new HashMap<>(count * 2);
+                for (int i = 0; i != count; ++i) {
+                    positionsByName.put(this.names[i], i);
+                }
+            } else {
+                positionsByName = null;
+            }
+        }
+
+        protected int indexOf( String name ) {
+            if (positionsByName != null) {
+                Integer position = positionsByName.get(name);
+                return position != null ? position : -1;
+            }
+            // as with a map, the last occurrence of a name wins ...
+            for (int i = names.length - 1; i >= 0; --i) {
+                if (names[i].equals(name)) return i;
+            }
+            return -1;
+        }
+
+        protected Object value( int i ) {
+            Object value = values.get(i);
+            if (value == null) {
+                value = decode(types[i], nameOffsets[i], valueOffsets[i]);
+                // concurrent readers decode equal values, so it doesn't matter which one is kept ...
+                if (value != null) values.lazySet(i, value);
+            }
+            return value;
+        }
+
+        protected Set<String> keys() {
+            Set<String> keys = this.keys;
+            if (keys == null) {
+                Set<String> names = new LinkedHashSet<>(this.names.length * 2);
+                Collections.addAll(names, this.names);
+                keys = Collections.unmodifiableSet(names);
+                this.keys = keys;
+            }
+            return keys;
+        }
+    }
+}
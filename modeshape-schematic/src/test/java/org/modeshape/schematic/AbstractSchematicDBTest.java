@@ -20,7 +20,10 @@ import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -185,6 +188,58 @@ public abstract class AbstractSchematicDBTest {
         assertFalse(db.containsKey(entry.id()));
     }
 
+    @Test
+    public void shouldIterateOverKeysInsideAndOutsideTransaction() throws Exception {
+        List<SchematicEntry> persisted = randomEntries(3);
+        simulateTransaction(() -> {
+            persisted.forEach(entry -> db.put(entry.id(), entry.content()));
+            return null;
+        });
+        Set<String> keys = new TreeSet<>();
+        db.forEachKey(keys::add);
+        assertEquals(new TreeSet<>(db.keys()), keys);
+
+        db.txStarted("0");
+        SchematicEntry removed = persisted.get(0);
+        db.remove(removed.id());
+        SchematicEntry added = randomEntries(1).get(0);
+        db.put(added.id(), added.content());
+        List<String> keysInTx = new ArrayList<>();
+        db.forEachKey(keysInTx::add);
+        assertFalse(keysInTx.contains(removed.id()));
+        assertTrue(keysInTx.contains(added.id()));
+        assertTrue(keysInTx.contains(persisted.get(1).id()));
+        db.txRolledback("0");
+    }
+
+    @Test
+    public void shouldIterateOverDocumentsInsideAndOutsideTransaction() throws Exception {
+        List<SchematicEntry> persisted = randomEntries(3);
+        simulateTransaction(() -> {
+            persisted.forEach(entry -> db.put(entry.id(), entry.content()));
+            return null;
+        });
+        Map<String, Document> documents = new HashMap<>();
+        db.forEach(documents::put);
+        assertEquals(new TreeSet<>(db.keys()), new TreeSet<>(documents.keySet()));
+        persisted.forEach(entry -> {
+            Document document = documents.get(entry.id());
+            assertEquals(entry.content(), SchematicEntry.fromDocument(document).content());
+        });
+
+        db.txStarted("0");
+        SchematicEntry removed = persisted.get(0);
+        db.remove(removed.id());
+        SchematicEntry added = randomEntries(1).get(0);
+        db.put(added.id(), added.content());
+        Map<String, Document> documentsInTx = new HashMap<>();
+        db.forEach(documentsInTx::put);
+        assertFalse(documentsInTx.containsKey(removed.id()));
+        assertEquals(added.content(), SchematicEntry.fromDocument(documentsInTx.get(added.id())).content());
+        assertTrue(documentsInTx.containsKey(persisted.get(1).id()));
+        db.txRolledback("0");
+    }
+
     @Test
     public void shouldRemoveAllDocuments() throws Exception {
         int count = 3;
@@ -51,6 +51,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
 import org.modeshape.schematic.document.Code;
 import org.modeshape.schematic.document.CodeWithScope;
 import org.modeshape.schematic.document.Document;
@@ -358,6 +359,18 @@ public class BsonReadingAndWritingTest {
         assertRoundtrip(document);
     }
 
+    @Test
+    public void shouldEstimateSizeOfAsciiDocumentAsWrittenLength() throws Exception {
+        BasicDocument doc = new BasicDocument("name", "Joe", "age", 35, "created", new Date(), "flag", true);
+        doc.put("nested", new BasicDocument("key", "value", "count", 42L));
+        doc.put("children", new BasicArray("a", "bb", new BasicDocument("ccc", 3.0d)));
+        doc.put("data", new Binary(new byte[] {1, 2, 3}));
+        assertEquals(writer.write(doc).length, Bson.estimateSize(doc));
+
+        Document largeDoc = Json.read(resource("json/sample-large-modeshape-doc.json"));
+        assertEquals(writer.write(largeDoc).length, Bson.estimateSize(largeDoc));
+    }
+
     protected String readFile(String filePath) throws IOException {
         InputStreamReader reader = new InputStreamReader(resource(filePath));
         StringBuilder stringBuilder = new StringBuilder();
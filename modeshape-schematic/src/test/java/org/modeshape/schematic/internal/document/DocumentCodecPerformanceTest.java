@@ -0,0 +1,107 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.junit.Assert.assertEquals;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
+import org.modeshape.schematic.document.Json;
+
+/**
+ * Compares the encoding and decoding throughput and the resulting sizes of the different {@link DocumentCodec codecs}, for both 
+ * small node documents and large ModeShape documents.
+ */
+@Ignore
+public class DocumentCodecPerformanceTest {
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+
+    @Test
+    public void shouldCompareCodecsForSmallDocuments() throws Exception {
+        List<Document> documents = DocumentCodecTest.nodeDocuments(2000);
+        compareCodecs("small node documents", documents, documents.subList(0, 200));
+    }
+
+    @Test
+    public void shouldCompareCodecsForLargeDocuments() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (String resource : new String[] { "json/sample-large-modeshape-doc.json", "json/sample-large-modeshape-doc2.json" }) {
+            try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resource)) {
+                documents.add(Json.read(stream));
+            }
+        }
+        compareCodecs("large ModeShape documents", documents, documents);
+    }
+
+    private void compareCodecs( String description, List<Document> documents, List<Document> samples ) throws Exception {
+        byte[] dictionary = DocumentCodecs.trainDictionary(samples, DocumentCodecs.MAX_DICTIONARY_SIZE);
+        System.out.println(description + " (" + documents.size() + " documents, dictionary of " + dictionary.length + " bytes)");
+        run("none", DocumentCodecs.NONE, documents);
+        run("gzip", DocumentCodecs.GZIP, documents);
+        run("deflate", DocumentCodecs.DEFLATE, documents);
+        run("deflate with dictionary", DocumentCodecs.deflateWithDictionary(dictionary), documents);
+    }
+
+    private void run( String name, DocumentCodec codec, List<Document> documents ) throws Exception {
+        List<byte[]> encoded = new ArrayList<>(documents.size());
+        long size = 0;
+        for (Document document : documents) {
+            byte[] bytes = DocumentCodecs.encode(document, codec);
+            encoded.add(bytes);
+            size += bytes.length;
+        }
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            encodeAll(codec, documents);
+            decodeAll(codec, encoded);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            encodeAll(codec, documents);
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            decodeAll(codec, encoded);
+        }
+        long decodeNanos = System.nanoTime() - start;
+        long operations = (long) RUNS * documents.size();
+        System.out.println(String.format("  %-25s size: %10d bytes, encode: %8.2f ops/ms, decode: %8.2f ops/ms", name, size,
+                                         operations / (encodeNanos / 1000000d), operations / (decodeNanos / 1000000d)));
+    }
+
+    private void encodeAll( DocumentCodec codec, List<Document> documents ) throws Exception {
+        for (Document document : documents) {
+            DocumentCodecs.encode(document, codec);
+        }
+    }
+
+    private void decodeAll( DocumentCodec codec, List<byte[]> encoded ) throws Exception {
+        int count = 0;
+        for (byte[] bytes : encoded) {
+            if (DocumentCodecs.decode(bytes, codec, DocumentCodecs.NONE) != null) {
+                count++;
+            }
+        }
+        assertEquals(encoded.size(), count);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
+import org.modeshape.schematic.document.Json;
+
+public class DocumentCodecTest {
+
+    @Test
+    public void shouldRoundTripDocumentsWithEachCodec() throws Exception {
+        byte[] dictionary = DocumentCodecs.trainDictionary(nodeDocuments(50), DocumentCodecs.MAX_DICTIONARY_SIZE);
+        for (DocumentCodec codec : new DocumentCodec[] { DocumentCodecs.NONE, DocumentCodecs.GZIP, DocumentCodecs.DEFLATE,
+                DocumentCodecs.deflateWithDictionary(dictionary) }) {
+            for (Document document : nodeDocuments(10)) {
+                byte[] bytes = DocumentCodecs.encode(document, codec);
+                assertTrue(DocumentCodecs.hasHeader(bytes));
+                assertEquals(document, DocumentCodecs.decode(bytes, codec, DocumentCodecs.NONE));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadDocumentsWrittenWithoutHeader() throws Exception {
+        Document document = nodeDocuments(1).get(0);
+        byte[] plain = Bson.write(document);
+        byte[] gzipped = DocumentCodecs.GZIP.encode(document);
+        assertFalse(DocumentCodecs.hasHeader(plain));
+        assertFalse(DocumentCodecs.hasHeader(gzipped));
+        assertEquals(document, DocumentCodecs.decode(plain, DocumentCodecs.DEFLATE, DocumentCodecs.NONE));
+        assertEquals(document, DocumentCodecs.decode(gzipped, DocumentCodecs.DEFLATE, DocumentCodecs.GZIP));
+    }
+
+    @Test
+    public void shouldReadDocumentsWrittenByAnotherBuiltInCodec() throws Exception {
+        Document document = nodeDocuments(1).get(0);
+        byte[] bytes = DocumentCodecs.encode(document, DocumentCodecs.GZIP);
+        assertEquals(document, DocumentCodecs.decode(bytes, DocumentCodecs.DEFLATE, DocumentCodecs.NONE));
+    }
+
+    @Test
+    public void shouldNotReadDocumentsWrittenWithAnotherDictionary() throws Exception {
+        List<Document> documents = nodeDocuments(20);
+        DocumentCodec codec = DocumentCodecs.deflateWithDictionary(DocumentCodecs.trainDictionary(documents, 1024));
+        DocumentCodec otherCodec = DocumentCodecs.deflateWithDictionary("some other dictionary".getBytes());
+        byte[] bytes = DocumentCodecs.encode(documents.get(0), codec);
+        try {
+            DocumentCodecs.decode(bytes, otherCodec, DocumentCodecs.NONE);
+            fail("Should not decode documents compressed with a different dictionary");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldCompressSmallDocumentsBetterWithDictionary() throws Exception {
+        List<Document> documents = nodeDocuments(100);
+        DocumentCodec dictionaryCodec = DocumentCodecs.deflateWithDictionary(
+                DocumentCodecs.trainDictionary(documents.subList(0, 50), DocumentCodecs.MAX_DICTIONARY_SIZE));
+        long withoutDictionary = 0;
+        long withDictionary = 0;
+        for (Document document : documents.subList(50, 100)) {
+            withoutDictionary += DocumentCodecs.DEFLATE.encode(document).length;
+            withDictionary += dictionaryCodec.encode(document).length;
+        }
+        assertTrue(withDictionary < withoutDictionary);
+    }
+
+    @Test
+    public void shouldReturnBuiltInCodecsByName() throws Exception {
+        assertEquals(DocumentCodecs.NONE, DocumentCodecs.forName("none"));
+        assertEquals(DocumentCodecs.GZIP, DocumentCodecs.forName("GZIP"));
+        assertEquals(DocumentCodecs.DEFLATE, DocumentCodecs.forName("deflate"));
+        assertEquals(BsonDocumentCodec.class, DocumentCodecs.forName(BsonDocumentCodec.class.getName()).getClass());
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldNotReturnUnknownCodec() throws Exception {
+        DocumentCodecs.forName("unknown");
+    }
+
+    protected static List<Document> nodeDocuments( int count ) throws Exception {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String parentKey = "87f4b1b2317f1bmode:root" + UUID.randomUUID();
+            String key = "87f4b1b2317f1b" + UUID.randomUUID();
+            documents.add(Json.read("{ \"metadata\" : { \"id\" : \"" + key + "\" }, \"content\" : { " +
+                                    "\"key\" : \"" + key + "\", \"parent\" : \"" + parentKey + "\", " +
+                                    "\"properties\" : { \"http://www.jcp.org/jcr/1.0\" : { " +
+                                    "\"primaryType\" : { \"$name\" : \"nt:unstructured\" }, " +
+                                    "\"created\" : { \"$date\" : \"2016-10-12T10:10:10.000Z\" }, " +
+                                    "\"createdBy\" : \"<modeshape-worker>\", " +
+                                    "\"mixinTypes\" : [ { \"$name\" : \"mix:referenceable\" } ] }, " +
+                                    "\"\" : { \"title\" : \"Node " + i + "\", \"counter\" : " + i + " } }, " +
+                                    "\"children\" : [ ], \"childrenInfo\" : { \"count\" : 0 } } }"));
+        }
+        return documents;
+    }
+}
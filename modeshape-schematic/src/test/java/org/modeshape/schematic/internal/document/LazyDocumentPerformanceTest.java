@@ -0,0 +1,116 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.junit.Assert.assertNotNull;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+
+/**
+ * Compares the cost of loading node documents and the heap they retain when they are decoded eagerly by {@link BsonReader} and
+ * when they are {@link Bson#readLazily(byte[], int, int) read lazily}. Loading a node only accesses the fields which a cached
+ * node needs first (the key, the parent and the primary type), just like the first access to a node in a workspace cache.
+ */
+@Ignore
+public class LazyDocumentPerformanceTest {
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+    private static final int RETAINED_DOCUMENTS = 20000;
+
+    private interface Loader {
+        Document load( byte[] bytes ) throws Exception;
+    }
+
+    private static final Loader EAGER = bytes -> Bson.read(new ByteArrayInputStream(bytes));
+    private static final Loader LAZY = bytes -> Bson.readLazily(bytes, 0, bytes.length);
+
+    @Test
+    public void shouldCompareNodeLoadCost() throws Exception {
+        List<byte[]> encoded = encode(DocumentCodecTest.nodeDocuments(2000));
+        System.out.println("Loading " + encoded.size() + " node documents");
+        run("eager", EAGER, encoded);
+        run("lazy", LAZY, encoded);
+    }
+
+    @Test
+    public void shouldCompareRetainedHeap() throws Exception {
+        List<byte[]> encoded = encode(DocumentCodecTest.nodeDocuments(RETAINED_DOCUMENTS));
+        System.out.println("Retaining " + encoded.size() + " loaded node documents");
+        retain("eager", EAGER, encoded);
+        retain("lazy", LAZY, encoded);
+    }
+
+    private List<byte[]> encode( List<Document> documents ) throws Exception {
+        List<byte[]> encoded = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            encoded.add(Bson.write(document));
+        }
+        return encoded;
+    }
+
+    private void run( String name, Loader loader, List<byte[]> encoded ) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            loadAll(loader, encoded, null);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            loadAll(loader, encoded, null);
+        }
+        long nanos = System.nanoTime() - start;
+        long operations = (long)RUNS * encoded.size();
+        System.out.println(String.format("  %-6s load: %8.2f ops/ms", name, operations / (nanos / 1000000d)));
+    }
+
+    private void retain( String name, Loader loader, List<byte[]> encoded ) throws Exception {
+        List<Document> loaded = new ArrayList<>(encoded.size());
+        long before = usedMemory();
+        // the lazy documents reference the bytes, so copy them to only count what's retained because of the documents ...
+        List<byte[]> copies = new ArrayList<>(encoded.size());
+        for (byte[] bytes : encoded) {
+            copies.add(bytes.clone());
+        }
+        loadAll(loader, copies, loaded);
+        copies = null;
+        long after = usedMemory();
+        System.out.println(String.format("  %-6s retained: %8d bytes per node", name, (after - before) / loaded.size()));
+        assertNotNull(loaded.get(0));
+    }
+
+    private void loadAll( Loader loader, List<byte[]> encoded, List<Document> loaded ) throws Exception {
+        for (byte[] bytes : encoded) {
+            Document content = loader.load(bytes).getDocument("content");
+            assertNotNull(content.getString("key"));
+            assertNotNull(content.getString("parent"));
+            assertNotNull(content.getDocument("properties").getDocument("http://www.jcp.org/jcr/1.0").getDocument("primaryType"));
+            if (loaded != null) loaded.add(content);
+        }
+    }
+
+    private long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.document.MaxKey;
+import org.modeshape.schematic.document.MinKey;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.Symbol;
+import org.modeshape.schematic.document.Timestamp;
+
+public class LazyDocumentTest {
+
+    private static Document readLazily( Document document ) throws Exception {
+        byte[] bytes = Bson.write(document);
+        return Bson.readLazily(bytes, 0, bytes.length);
+    }
+
+    private static Document readEagerly( Document document ) throws Exception {
+        return Bson.read(new ByteArrayInputStream(Bson.write(document)));
+    }
+
+    private static Document documentWithAllTypes() {
+        BasicDocument nested = new BasicDocument("name", "nested", "count", 3);
+        BasicDocument doc = new BasicDocument();
+        doc.put("string", "a string with unicode \u00e9\u4e2d");
+        doc.put("int", 42);
+        doc.put("long", Long.MAX_VALUE);
+        doc.put("double", 3.14d);
+        doc.put("boolean", true);
+        doc.put("date", new Date(1234567890L));
+        doc.put("null", Null.getInstance());
+        doc.put("uuid", UUID.randomUUID());
+        doc.put("binary", new Binary(new byte[] { 1, 2, 3, 4 }));
+        doc.put("objectId", new ObjectId(300, 200, 9, 15));
+        doc.put("symbol", new Symbol("sym"));
+        doc.put("pattern", Pattern.compile("[a-z]+", Pattern.CASE_INSENSITIVE));
+        doc.put("code", new Code("function() {}"));
+        doc.put("codeWithScope", new CodeWithScope("function() {}", new BasicDocument("x", 1)));
+        doc.put("timestamp", new Timestamp(100, 5));
+        doc.put("minKey", MinKey.getInstance());
+        doc.put("maxKey", MaxKey.getInstance());
+        doc.put("array", new BasicArray(Arrays.<Object>asList("a", 1, new BasicDocument("inArray", true))));
+        doc.put("document", nested);
+        doc.put("empty", new BasicDocument());
+        return doc;
+    }
+
+    @Test
+    public void shouldReadTheSameValuesAsTheRegularReader() throws Exception {
+        Document original = documentWithAllTypes();
+        Document eager = readEagerly(original);
+        Document lazy = readLazily(original);
+        assertTrue(Bson.isLazy(lazy));
+        assertEquals(eager.size(), lazy.size());
+        assertEquals(eager.keySet(), lazy.keySet());
+        for (Document.Field field : eager.fields()) {
+            Object eagerValue = field.getValue();
+            Object lazyValue = lazy.get(field.getName());
+            assertTrue(field.getName() + ": " + eagerValue + " != " + lazyValue, BsonUtils.valuesAreEqual(eagerValue, lazyValue));
+        }
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertEquals(Json.write(eager), Json.write(lazy));
+    }
+
+    @Test
+    public void shouldHaveTheSameHashCodeAsTheRegularDocument() throws Exception {
+        for (Document document : DocumentCodecTest.nodeDocuments(5)) {
+            assertEquals(readEagerly(document).hashCode(), readLazily(document).hashCode());
+        }
+    }
+
+    @Test
+    public void shouldReadLargeDocumentsLikeTheRegularReader() throws Exception {
+        for (String resource : new String[] { "json/sample-large-modeshape-doc.json", "json/sample-large-modeshape-doc2.json" }) {
+            try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resource)) {
+                Document document = Json.read(stream);
+                assertEquals(readEagerly(document), readLazily(document));
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotIndexFieldsUntilAccessed() throws Exception {
+        LazyDocument lazy = (LazyDocument)readLazily(documentWithAllTypes());
+        assertFalse(lazy.isIndexed());
+        assertEquals(Integer.valueOf(42), lazy.getInteger("int"));
+        assertTrue(lazy.isIndexed());
+        Document nested = lazy.getDocument("document");
+        assertTrue(Bson.isLazy(nested));
+        assertFalse(((LazyDocument)nested).isIndexed());
+        assertEquals("nested", nested.getString("name"));
+        assertSame(nested, lazy.getDocument("document"));
+    }
+
+    @Test
+    public void shouldApplyTheSameConversionsAsBasicDocument() throws Exception {
+        Document lazy = readLazily(documentWithAllTypes());
+        assertEquals(Long.valueOf(42), lazy.getLong("int"));
+        assertEquals("sym", lazy.getString("symbol"));
+        assertEquals(new Symbol("a string with unicode \u00e9\u4e2d"), lazy.getSymbol("string"));
+        assertNull(lazy.getInteger("string"));
+        assertEquals(7, lazy.getInteger("missing", 7));
+        assertTrue(lazy.isNull("null"));
+        assertTrue(lazy.isNullOrMissing("missing"));
+        assertFalse(lazy.containsField("missing"));
+        assertEquals(Bson.Type.DOCUMENT, lazy.getType("document"));
+        assertTrue(lazy.getDocument("empty").isEmpty());
+    }
+
+    @Test
+    public void shouldEstimateSizeAsTheNumberOfBytes() throws Exception {
+        Document original = documentWithAllTypes();
+        byte[] bytes = Bson.write(original);
+        assertEquals(bytes.length, Bson.estimateSize(Bson.readLazily(bytes, 0, bytes.length)));
+    }
+
+    @Test
+    public void shouldCloneIntoAnEditableDocument() throws Exception {
+        Document lazy = readLazily(documentWithAllTypes());
+        Document clone = lazy.clone();
+        assertFalse(Bson.isLazy(clone));
+        assertFalse(Bson.isLazy(clone.getDocument("document")));
+        assertEquals(lazy, clone);
+        EditableDocument editable = clone.editable();
+        editable.getDocument("document").setString("name", "changed");
+        assertEquals("changed", clone.getDocument("document").getString("name"));
+        assertEquals("nested", lazy.getDocument("document").getString("name"));
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void shouldNotAllowEditingInPlace() throws Exception {
+        readLazily(documentWithAllTypes()).editable();
+    }
+
+    @Test
+    public void shouldEditLazyDocumentsNestedInEditableDocuments() throws Exception {
+        Document nested = readLazily(documentWithAllTypes()).getDocument("document");
+        BasicDocument parent = new BasicDocument("child", nested);
+        EditableDocument editable = new DocumentEditor(parent);
+        editable.getDocument("child").setNumber("count", 4);
+        assertFalse(Bson.isLazy(parent.getDocument("child")));
+        assertEquals(4, parent.getDocument("child").getInteger("count", 0));
+        assertEquals(3, nested.getInteger("count", 0));
+    }
+
+    @Test
+    public void shouldDecodeLazilyWithEachCodec() throws Exception {
+        Document document = DocumentCodecTest.nodeDocuments(1).get(0);
+        for (DocumentCodec codec : new DocumentCodec[] { DocumentCodecs.NONE, DocumentCodecs.GZIP, DocumentCodecs.DEFLATE }) {
+            Document decoded = DocumentCodecs.decode(DocumentCodecs.encode(document, codec), codec, DocumentCodecs.NONE);
+            assertTrue(Bson.isLazy(decoded));
+            assertEquals(document, decoded);
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldNotAcceptInvalidLength() throws Exception {
+        Bson.readLazily(new byte[] { 100, 0, 0, 0, 0 }, 0, 5);
+    }
+}
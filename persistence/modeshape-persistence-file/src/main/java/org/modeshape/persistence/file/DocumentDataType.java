@@ -0,0 +1,108 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.persistence.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.ObjectDataType;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
+
+/**
+ * MVStore {@link DataType} which writes {@link Document documents} using a {@link DocumentCodec} instead of Java serialization.
+ * <p>
+ * Values which were written by the default {@link ObjectDataType} (i.e. before a codec was configured) can still be read, 
+ * since they always start with a different tag than the one used by this type.
+ * </p>
+ *
+ * @since 5.5
+ */
+final class DocumentDataType implements DataType {
+
+    // not used by any of the ObjectDataType tags
+    private static final byte CODEC_TAG = (byte) 0xFF;
+    private static final int DOCUMENT_OVERHEAD_IN_BYTES = 64;
+
+    private final DocumentCodec codec;
+    private final ObjectDataType legacyType;
+
+    protected DocumentDataType( DocumentCodec codec ) {
+        this.codec = codec;
+        this.legacyType = new ObjectDataType();
+    }
+
+    @Override
+    public int compare( Object a, Object b ) {
+        return legacyType.compare(a, b);
+    }
+
+    @Override
+    public int getMemory( Object obj ) {
+        if (!(obj instanceof Document)) {
+            return legacyType.getMemory(obj);
+        }
+        long size = DOCUMENT_OVERHEAD_IN_BYTES + Bson.estimateSize(obj);
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    @Override
+    public void write( WriteBuffer buff, Object obj ) {
+        if (!(obj instanceof Document)) {
+            legacyType.write(buff, obj);
+            return;
+        }
+        try {
+            byte[] bytes = DocumentCodecs.encode((Document) obj, codec);
+            buff.put(CODEC_TAG).putVarInt(bytes.length).put(bytes);
+        } catch (IOException e) {
+            throw new FileProviderException(e);
+        }
+    }
+
+    @Override
+    public void write( WriteBuffer buff, Object[] obj, int len, boolean key ) {
+        for (int i = 0; i < len; i++) {
+            write(buff, obj[i]);
+        }
+    }
+
+    @Override
+    public Object read( ByteBuffer buff ) {
+        if (buff.get(buff.position()) != CODEC_TAG) {
+            return legacyType.read(buff);
+        }
+        buff.get();
+        byte[] bytes = new byte[DataUtils.readVarInt(buff)];
+        buff.get(bytes);
+        try {
+            return DocumentCodecs.decode(bytes, codec, DocumentCodecs.NONE);
+        } catch (IOException e) {
+            throw new FileProviderException(e);
+        }
+    }
+
+    @Override
+    public void read( ByteBuffer buff, Object[] obj, int len, boolean key ) {
+        for (int i = 0; i < len; i++) {
+            obj[i] = read(buff);
+        }
+    }
+}
@@ -25,15 +25,20 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.db.TransactionStore;
+import org.h2.mvstore.type.ObjectDataType;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.schematic.SchematicDb;
 import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.Bson;
 import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
 import org.modeshape.schematic.document.EditableDocument;
 
 /**
@@ -51,6 +56,7 @@ public class FileDb implements SchematicDb {
 
     private final boolean compress;
     private final String path;
+    private final DocumentCodec codec;
     
     private final ConcurrentMap<String, TransactionStore.TransactionMap<String, Document>> transactionalContentById = new ConcurrentHashMap<>();
 
@@ -59,17 +65,22 @@ public class FileDb implements SchematicDb {
     private TransactionStore.TransactionMap<String, Document> persistedContent;
     
     protected static FileDb inMemory(boolean compress) {
-        return new FileDb(null, compress);
+        return new FileDb(null, compress, null);
     }    
 
     protected static FileDb onDisk(boolean compress, String path) {
+        return onDisk(compress, path, null);
+    }    
+
+    protected static FileDb onDisk(boolean compress, String path, DocumentCodec codec) {
         path = Objects.requireNonNull(path, "The 'path' configuration parameter is required by the FS persistence provider");
-        return new FileDb(path, compress);
+        return new FileDb(path, compress, codec);
     }    
     
-    private FileDb( String path, boolean compress ) {
+    private FileDb( String path, boolean compress, DocumentCodec codec ) {
         this.path = path;
         this.compress = compress;
+        this.codec = codec;
     }
 
     @Override
@@ -89,6 +100,27 @@ public class FileDb implements SchematicDb {
         return keys;
     }
 
+    @Override
+    public void forEachKey( Consumer<String> action ) {
+        // walk the MVStore cursor directly instead of copying all the keys first; a transactional map already sees both the 
+        // committed content and the local changes, so there's no need to also iterate over the persisted content
+        TransactionStore.TransactionMap<String, Document> txContent = transactionalContent(false);
+        TransactionStore.TransactionMap<String, Document> actualContent = txContent != null ? txContent : persistedContent;
+        actualContent.keyIterator(actualContent.firstKey()).forEachRemaining(action);
+    }
+
+    @Override
+    public void forEach( BiConsumer<String, Document> action ) {
+        // the cursor reads each document along with its key, so the documents don't have to be looked up by key
+        TransactionStore.TransactionMap<String, Document> txContent = transactionalContent(false);
+        TransactionStore.TransactionMap<String, Document> actualContent = txContent != null ? txContent : persistedContent;
+        actualContent.entryIterator(actualContent.firstKey()).forEachRemaining(entry -> {
+            if (entry.getValue() != null) {
+                action.accept(entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
     @Override
     public Document get( String key ) {
         LOGGER.debug("reading {0}", key);
@@ -146,6 +178,11 @@ public class FileDb implements SchematicDb {
                 throw new FileProviderException("cannot write new value for the first time");
             }
         }
+        if (Bson.isLazy(SchematicEntry.content(existingTxDoc))) {
+            // documents read from the store are read-only, so edit a decoded copy instead
+            existingTxDoc = existingTxDoc.clone();
+            txContent.put(key, existingTxDoc);
+        }
         
         return SchematicEntry.content(existingTxDoc).editable();
     }
@@ -202,7 +239,15 @@ public class FileDb implements SchematicDb {
         this.txStore.init();
         // start a new transaction (which has READ_COMMITTED isolation) which will give us the view of the latest persisted data
         TransactionStore.Transaction tx = this.txStore.begin();
-        this.persistedContent = tx.openMap(REPOSITORY_CONTENT);
+        this.persistedContent = openContent(tx);
+    }
+
+    private TransactionStore.TransactionMap<String, Document> openContent(TransactionStore.Transaction tx) {
+        if (codec == null) {
+            // use the default (Java serialization) for the values
+            return tx.openMap(REPOSITORY_CONTENT);
+        }
+        return tx.openMap(REPOSITORY_CONTENT, new ObjectDataType(), new DocumentDataType(codec));
     }
 
     @Override
@@ -223,7 +268,7 @@ public class FileDb implements SchematicDb {
         }
         ACTIVE_TX_ID.set(id);
         if (!this.transactionalContentById.containsKey(id)) {
-            TransactionStore.TransactionMap<String, Document> transactionMap = this.txStore.begin().openMap(REPOSITORY_CONTENT);
+            TransactionStore.TransactionMap<String, Document> transactionMap = openContent(this.txStore.begin());
             this.transactionalContentById.put(id, transactionMap);
         }
     }
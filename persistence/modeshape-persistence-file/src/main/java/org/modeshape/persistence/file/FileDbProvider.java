@@ -15,9 +15,12 @@
  */
 package org.modeshape.persistence.file;
 
+import java.io.IOException;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.schematic.SchematicDbProvider;
 import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
 
 /**
  * {@link org.modeshape.schematic.SchematicDbProvider} implementation for storing repository data on the FS and in memory.
@@ -31,6 +34,8 @@ public class FileDbProvider implements SchematicDbProvider<FileDb> {
     public static final String TYPE_FILE = "file";
     public static final String PATH_FIELD = "path";
     public static final String COMPRESS_FIELD = "compress";
+    public static final String CODEC_FIELD = "codec";
+    public static final String CODEC_DICTIONARY_FIELD = "codecDictionary";
     
     private static final Logger LOGGER = Logger.getLogger(FileDbProvider.class);
 
@@ -43,8 +48,22 @@ public class FileDbProvider implements SchematicDbProvider<FileDb> {
             boolean compress = configuration.getBoolean(COMPRESS_FIELD, true);
             String path = configuration.getString(PATH_FIELD, null);
             LOGGER.debug("Returning new disk schematic DB at {0}...", path);
-            return FileDb.onDisk(compress, path);
+            return FileDb.onDisk(compress, path, codec(configuration));
         }
         return null;
     }
+
+    private DocumentCodec codec( Document configuration ) {
+        String codecName = configuration.getString(CODEC_FIELD, null);
+        String dictionaryFile = configuration.getString(CODEC_DICTIONARY_FIELD, null);
+        if (codecName == null && dictionaryFile == null) {
+            // keep storing documents via Java serialization
+            return null;
+        }
+        try {
+            return DocumentCodecs.fromConfiguration(codecName, dictionaryFile);
+        } catch (IOException e) {
+            throw new FileProviderException(e);
+        }
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.persistence.file;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.schematic.AbstractSchematicDBTest;
+import org.modeshape.schematic.SchematicDb;
+import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.DocumentCodecs;
+
+/**
+ * Unit test for {@link FileDb} when data is stored on disk using a {@link org.modeshape.schematic.document.DocumentCodec}.
+ */
+public class FileDbDiskCodecTest extends AbstractSchematicDBTest {
+    
+    private static final SchematicDb DB = FileDb.onDisk(false, "target/fstest-codec", DocumentCodecs.DEFLATE);
+
+    @Override
+    protected SchematicDb getDb() throws Exception {
+        return DB;
+    }
+
+    @Override
+    public void after() throws Exception {
+        simulateTransaction(() -> {
+            db.removeAll();
+            return null;
+        });
+        super.after();
+    }
+
+    @Test
+    public void shouldReadDocumentsWrittenWithoutCodec() throws Exception {
+        String path = "target/fstest-legacy";
+        FileUtil.delete(path);
+        SchematicEntry entry = randomEntries(1).get(0);
+        SchematicDb legacyDb = FileDb.onDisk(false, path);
+        legacyDb.start();
+        try {
+            legacyDb.txStarted("0");
+            legacyDb.put(entry.id(), entry.content());
+            legacyDb.txCommitted("0");
+        } finally {
+            legacyDb.stop();
+        }
+
+        SchematicDb codecDb = FileDb.onDisk(false, path, DocumentCodecs.DEFLATE);
+        codecDb.start();
+        try {
+            assertEquals(entry.content(), codecDb.getEntry(entry.id()).content());
+        } finally {
+            codecDb.stop();
+        }
+    }
+}
@@ -15,10 +15,8 @@
  */
 package org.modeshape.persistence.relational;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -27,15 +25,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.logging.Logger;
-import org.modeshape.schematic.document.Bson;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodecs;
 
 /**
  * Default implementation for the {@link Statements} interface which applies to all databases.
@@ -96,15 +95,34 @@ public class DefaultStatements implements Statements {
     @Override
     public List<String> getAllIds(Connection connection) throws SQLException {
         logTableInfo("Returning all ids from {0}");
+        List<String> result = new ArrayList<>();
+        forEachId(connection, result::add);
+        return result;
+    }
+
+    @Override
+    public void forEachId( Connection connection, Consumer<String> action ) throws SQLException {
+        logTableInfo("Iterating over all ids from {0}");
         try (PreparedStatement ps = connection.prepareStatement(statements.get(GET_ALL_IDS))) {
-            List<String> result = new ArrayList<>();
             ps.setFetchSize(config.fetchSize());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    result.add(rs.getString(1));                    
+                    action.accept(rs.getString(1));                    
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachDocument( Connection connection, BiConsumer<String, Document> action ) throws SQLException {
+        logTableInfo("Iterating over all documents from {0}");
+        try (PreparedStatement ps = connection.prepareStatement(statements.get(GET_ALL_CONTENTS))) {
+            ps.setFetchSize(config.fetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(rs.getString(1), readDocument(rs.getBinaryStream(2)));
                 }
             }
-            return result;
         }
     }
 
@@ -257,8 +275,10 @@ public class DefaultStatements implements Statements {
     }
 
     protected Document readDocument(InputStream is) {
-        try (InputStream contentStream = config.compress() ? new GZIPInputStream(is) : is) {
-            return Bson.read(contentStream);
+        try (InputStream contentStream = is) {
+            byte[] bytes = IoUtil.readBytes(contentStream);
+            // documents written by a codec are prefixed with its id, while those without a prefix were written by the legacy codec
+            return DocumentCodecs.decode(bytes, config.codec(), config.legacyCodec());
         } catch (IOException e) {
             throw new RelationalProviderException(e);
         }
@@ -266,11 +286,7 @@ public class DefaultStatements implements Statements {
 
     protected byte[] writeDocument(Document content)  {
         try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            try (OutputStream out = config.compress() ? new GZIPOutputStream(bos) : bos) {
-                Bson.write(content, out);
-            }
-            return bos.toByteArray();
+            return config.hasCodec() ? DocumentCodecs.encode(content, config.codec()) : config.legacyCodec().encode(content);
         } catch (IOException e) {
             throw new RelationalProviderException(e);
         }
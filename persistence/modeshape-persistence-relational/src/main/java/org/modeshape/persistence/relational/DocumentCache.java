@@ -0,0 +1,238 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.persistence.relational;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Document;
+
+/**
+ * A bounded cache of committed documents which is shared by all the threads using a {@link RelationalDb}. The cache is bounded by
+ * the estimated number of bytes used by its documents and evicts the least recently used ones first.
+ * <p>
+ * A document read from the database is only placed into the cache if no entries were invalidated while it was being read. This
+ * prevents a reader which raced with a committing transaction from placing the old value into the cache after that transaction's
+ * changes have been invalidated.
+ * </p>
+ *
+ * @since 5.5
+ */
+@ThreadSafe
+public final class DocumentCache {
+
+    /**
+     * The estimated number of bytes used by a cache entry in addition to its document and key.
+     */
+    protected static final int ENTRY_OVERHEAD_IN_BYTES = 64;
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<String, CachedDocument> documentsById;
+    private final AtomicLong invalidations;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private volatile Consumer<Boolean> lookupListener;
+    private long sizeInBytes;
+
+    protected DocumentCache( long maxSizeInBytes ) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.documentsById = new LinkedHashMap<>(16, 0.75f, true);
+        this.invalidations = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns a marker which must be obtained before a document is read from the database and then passed to
+     * {@link #put(String, Document, long)}.
+     *
+     * @return the marker; never negative
+     */
+    protected long readMarker() {
+        return invalidations.get();
+    }
+
+    /**
+     * Returns the cached document with the given id.
+     *
+     * @param id the id of the document; may not be null
+     * @return the cached document or {@code null} if there isn't one
+     */
+    protected Document get( String id ) {
+        CachedDocument cached;
+        synchronized (documentsById) {
+            cached = documentsById.get(id);
+        }
+        Consumer<Boolean> listener = lookupListener;
+        if (listener != null) {
+            listener.accept(cached != null);
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.document;
+    }
+
+    /**
+     * Sets the listener which is notified of each lookup made by {@link #get(String)}.
+     *
+     * @param listener the listener, which accepts {@code true} for each hit and {@code false} for each miss; may be null
+     */
+    protected void setLookupListener( Consumer<Boolean> listener ) {
+        this.lookupListener = listener;
+    }
+
+    /**
+     * Places a document which was read from the database into the cache, unless any entries were invalidated since the read
+     * started or the document alone exceeds the size of the cache.
+     *
+     * @param id the id of the document; may not be null
+     * @param document the document; may not be null
+     * @param readMarker the value returned by {@link #readMarker()} before the document was read
+     */
+    protected void put( String id, Document document, long readMarker ) {
+        long weight = ENTRY_OVERHEAD_IN_BYTES + 2L * id.length() + Bson.estimateSize(document);
+        if (weight > maxSizeInBytes) {
+            return;
+        }
+        synchronized (documentsById) {
+            // check under the lock, since invalidations are also made under the lock
+            if (invalidations.get() != readMarker) {
+                return;
+            }
+            CachedDocument previous = documentsById.put(id, new CachedDocument(document, weight));
+            if (previous != null) {
+                sizeInBytes -= previous.weight;
+            }
+            sizeInBytes += weight;
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        for (Iterator<CachedDocument> iterator = documentsById.values().iterator();
+             sizeInBytes > maxSizeInBytes && iterator.hasNext(); ) {
+            sizeInBytes -= iterator.next().weight;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes the documents with the given ids from the cache.
+     *
+     * @param ids the ids of the documents; may not be null
+     */
+    protected void invalidate( Collection<String> ids ) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (documentsById) {
+            invalidations.incrementAndGet();
+            for (String id : ids) {
+                CachedDocument removed = documentsById.remove(id);
+                if (removed != null) {
+                    sizeInBytes -= removed.weight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the documents from the cache.
+     */
+    protected void invalidateAll() {
+        synchronized (documentsById) {
+            invalidations.incrementAndGet();
+            documentsById.clear();
+            sizeInBytes = 0;
+        }
+    }
+
+    /**
+     * Returns the number of documents currently held by the cache.
+     *
+     * @return the number of documents; never negative
+     */
+    public int size() {
+        synchronized (documentsById) {
+            return documentsById.size();
+        }
+    }
+
+    /**
+     * Returns the estimated number of bytes used by the documents currently held by the cache.
+     *
+     * @return the estimated size; never negative
+     */
+    public long sizeInBytes() {
+        synchronized (documentsById) {
+            return sizeInBytes;
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found a cached document.
+     *
+     * @return the number of hits; never negative
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a cached document.
+     *
+     * @return the number of misses; never negative
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of documents which were removed from the cache because it was full.
+     *
+     * @return the number of evictions; never negative
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentCache[size=" + size() + ", bytes=" + sizeInBytes() + ", hits=" + hitCount() + ", misses=" + missCount() +
+               ", evictions=" + evictionCount() + "]";
+    }
+
+    private static final class CachedDocument {
+        private final Document document;
+        private final long weight;
+
+        private CachedDocument( Document document, long weight ) {
+            this.document = document;
+            this.weight = weight;
+        }
+    }
+}
@@ -28,8 +28,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -38,6 +41,7 @@ import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.schematic.SchematicDb;
 import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.Bson;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.schematic.document.EditableDocument;
 
@@ -56,6 +60,7 @@ public class RelationalDb implements SchematicDb {
     private final RelationalDbConfig config;
     private final Statements statements;
     private final TransactionalCaches transactionalCaches;
+    private final DocumentCache documentCache;
 
     protected RelationalDb(Document configDoc) {
         this.connectionsByTxId = new ConcurrentHashMap<>();
@@ -65,6 +70,7 @@ public class RelationalDb implements SchematicDb {
         DatabaseType dbType = dsManager.dbType();
         this.statements = createStatements(dbType);
         this.transactionalCaches = new TransactionalCaches();
+        this.documentCache = config.cacheEnabled() ? new DocumentCache(config.cacheSize() * 1024L * 1024L) : null;
     }
 
     private Statements createStatements(DatabaseType dbType) {
@@ -112,6 +118,9 @@ public class RelationalDb implements SchematicDb {
         
         // and clear the caches
         transactionalCaches.stop();
+        if (documentCache != null) {
+            documentCache.invalidateAll();
+        }
     }
 
     private void cleanupConnections() {
@@ -160,12 +169,87 @@ public class RelationalDb implements SchematicDb {
         persistedKeys.addAll(transactionalCaches.documentKeys());
         return persistedKeys.stream().filter(id -> !transactionalCaches.isRemoved(id)).collect(Collectors.toList());
     }
+
+    @Override
+    public void forEachKey( Consumer<String> action ) {
+        if (!TransactionsHolder.hasActiveTransaction()) {
+            // there is no active tx so stream the persistent view
+            runWithStreamingConnection(connection -> statements.forEachId(connection, action));
+            return;
+        }
+        // there is an active transaction, so skip the keys which have been removed or changed in the tx and then
+        // add the transient keys
+        Set<String> transactionalKeys = transactionalCaches.documentKeys();
+        runWithStreamingConnection(connection -> statements.forEachId(connection, id -> {
+            if (!transactionalKeys.contains(id) && !transactionalCaches.isRemoved(id)) {
+                action.accept(id);
+            }
+        }));
+        transactionalKeys.forEach(action);
+    }
+
+    @Override
+    public void forEach( BiConsumer<String, Document> action ) {
+        if (!TransactionsHolder.hasActiveTransaction()) {
+            // there is no active tx so stream the persistent view, without going through the shared document cache
+            runWithStreamingConnection(connection -> statements.forEachDocument(connection, action));
+            return;
+        }
+        // there is an active transaction, so skip the documents which have been removed or changed in the tx and then
+        // add the transient documents
+        Set<String> transactionalKeys = transactionalCaches.documentKeys();
+        runWithStreamingConnection(connection -> statements.forEachDocument(connection, (id, document) -> {
+            if (!transactionalKeys.contains(id) && !transactionalCaches.isRemoved(id)) {
+                action.accept(id, document);
+            }
+        }));
+        transactionalKeys.forEach(id -> {
+            Document document = transactionalCaches.getForWriting(id);
+            if (document != null) {
+                action.accept(id, document);
+            }
+        });
+    }
+
+    private void runWithStreamingConnection( SQLConsumer operation ) {
+        if (TransactionsHolder.hasActiveTransaction()) {
+            // the connection of the active transaction is never in auto-commit mode
+            runWithConnection(connection -> {
+                operation.execute(connection);
+                return null;
+            }, true);
+            return;
+        }
+        // the connection is not auto-commit since some drivers (e.g. PostgreSQL) otherwise ignore the fetch size and read the
+        // entire result set into memory
+        try (Connection connection = newConnection(false, true)) {
+            try {
+                operation.execute(connection);
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new RelationalProviderException(e);
+        }
+    }
     
     @Override
     public Document get(String key) {
         if (!TransactionsHolder.hasActiveTransaction()) {
-            // there is no active tx, so use a local read-only connection
-            return runWithConnection(connection -> statements.getById(connection, key), true);
+            // there is no active tx, so look in the shared cache or use a local read-only connection
+            if (documentCache == null) {
+                return runWithConnection(connection -> statements.getById(connection, key), true);
+            }
+            Document cachedDocument = documentCache.get(key);
+            if (cachedDocument != null) {
+                return cachedDocument;
+            }
+            long readMarker = documentCache.readMarker();
+            Document doc = runWithConnection(connection -> statements.getById(connection, key), true);
+            if (doc != null) {
+                documentCache.put(key, doc, readMarker);
+            }
+            return doc;
         }
        
         // there is an active transaction so: 
@@ -193,6 +277,9 @@ public class RelationalDb implements SchematicDb {
 
     @Override
     public List<SchematicEntry> load(Collection<String> keys) {
+        if (documentCache != null && !TransactionsHolder.hasActiveTransaction()) {
+            return loadThroughCache(keys);
+        }
         List<SchematicEntry> alreadyChangedInTransaction = Collections.emptyList();
         List<String> alreadyChangedKeys = new ArrayList<>();
         if (TransactionsHolder.hasActiveTransaction()) {
@@ -227,6 +314,30 @@ public class RelationalDb implements SchematicDb {
         return results;
     }
 
+    private List<SchematicEntry> loadThroughCache(Collection<String> keys) {
+        List<SchematicEntry> results = new ArrayList<>(keys.size());
+        List<String> notCachedKeys = new ArrayList<>();
+        for (String key : keys) {
+            Document cachedDocument = documentCache.get(key);
+            if (cachedDocument != null) {
+                results.add(SchematicEntry.fromDocument(cachedDocument));
+            } else {
+                notCachedKeys.add(key);
+            }
+        }
+        if (notCachedKeys.isEmpty()) {
+            return results;
+        }
+        long readMarker = documentCache.readMarker();
+        Function<Document, SchematicEntry> documentParser = document -> {
+            SchematicEntry entry = SchematicEntry.fromDocument(document);
+            documentCache.put(entry.id(), document, readMarker);
+            return entry;
+        };
+        results.addAll(runWithConnection(connection -> statements.load(connection, notCachedKeys, documentParser), true));
+        return results;
+    }
+
     @Override
     public boolean lockForWriting( List<String> locks ) {
         if (locks.isEmpty()) {
@@ -258,6 +369,10 @@ public class RelationalDb implements SchematicDb {
             // it's the first time we're editing this document as part of this tx so store this document for writing...
             entryDocument = transactionalCaches.putForWriting(key, entry.source());
         }
+        if (Bson.isLazy(SchematicEntry.content(entryDocument))) {
+            // documents read from the database are read-only, so edit a decoded copy instead
+            entryDocument = transactionalCaches.putForWriting(key, entryDocument.clone());
+        }
         return SchematicEntry.content(entryDocument).editable(); 
     }
 
@@ -280,13 +395,43 @@ public class RelationalDb implements SchematicDb {
 
     @Override
     public void removeAll() {
-        runWithConnection(statements::removeAll, false);
+        try {
+            runWithConnection(statements::removeAll, false);
+        } finally {
+            if (documentCache != null) {
+                documentCache.invalidateAll();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate( Collection<String> keys ) {
+        if (documentCache != null) {
+            documentCache.invalidate(keys);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        if (documentCache != null) {
+            documentCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void setCacheLookupListener( Consumer<Boolean> listener ) {
+        if (documentCache != null) {
+            documentCache.setLookupListener(listener);
+        }
     }
 
     @Override
     public boolean containsKey(String key) {
         if (!TransactionsHolder.hasActiveTransaction()) {
-            // if there is no active tx, just search the DB directly
+            // if there is no active tx, just search the shared cache or the DB directly
+            if (documentCache != null && documentCache.get(key) != null) {
+                return true;
+            }
             return runWithConnection(connection -> statements.exists(connection, key), true);
         }
         // else look first in the caches for any transient / changed state
@@ -357,10 +502,20 @@ public class RelationalDb implements SchematicDb {
             return;
         }
         Map<String, Document> writeCache = cache.writeCache();
-        Map<String, Document> readCache = cache.readCache();
+        try {
+            persistChanges(tlConnection, txId, writeCache, cache.readCache());
+        } finally {
+            // discard the previous values of the changed documents from the shared cache, even if the commit failed since
+            // the outcome may not be known
+            if (documentCache != null) {
+                documentCache.invalidate(writeCache.keySet());
+            }
+        }
+    }
 
+    private void persistChanges(Connection tlConnection, String txId, Map<String, Document> writeCache,
+                                Map<String, Document> readCache) throws SQLException {
         logDebug("Committing the active connection for transaction {0} with the changes: {1}", txId, writeCache);
-        Statements.BatchUpdate batchUpdate = statements.batchUpdate(tlConnection);
         Map<String, Document> toInsert = new HashMap<>();
         Map<String, Document> toUpdate = new HashMap<>();
         List<String> toRemove = new ArrayList<>();
@@ -374,6 +529,7 @@ public class RelationalDb implements SchematicDb {
             }
         });
 
+        Statements.BatchUpdate batchUpdate = statements.batchUpdate(tlConnection);
         try {
             batchUpdate.insert(toInsert);
             batchUpdate.update(toUpdate);
@@ -428,6 +584,10 @@ public class RelationalDb implements SchematicDb {
         return connection;
     }
     
+    protected DocumentCache documentCache() {
+        return documentCache;
+    }
+
     protected RelationalDbConfig config() {
         return config;
     }
@@ -497,4 +657,9 @@ public class RelationalDb implements SchematicDb {
     private interface SQLFunction<R>  {
         R execute(Connection connection) throws SQLException;
     }
+
+    @FunctionalInterface
+    private interface SQLConsumer {
+        void execute(Connection connection) throws SQLException;
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.modeshape.persistence.relational;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -22,6 +23,8 @@ import java.util.concurrent.TimeUnit;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.schematic.Schematic;
 import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodec;
+import org.modeshape.schematic.document.DocumentCodecs;
 import org.modeshape.schematic.document.EditableDocument;
 
 /**
@@ -46,10 +49,14 @@ public final class RelationalDbConfig {
     public static final String PASSWORD = "password";
     public static final String DATASOURCE_JNDI_NAME = "dataSourceJndiName";
     public static final String POOL_SIZE = "poolSize";
+    public static final String CODEC = "codec";
+    public static final String CODEC_DICTIONARY = "codecDictionary";
+    public static final String CACHE_SIZE = "cacheSizeInMB";
     
     protected static final List<String> ALL_FIELDS = Arrays.asList(Schematic.TYPE_FIELD, DROP_ON_EXIT, CREATE_ON_START, TABLE_NAME,
                                                                    FETCH_SIZE, COMPRESS, CONNECTION_URL, DRIVER, USERNAME,
-                                                                   PASSWORD, DATASOURCE_JNDI_NAME, POOL_SIZE);
+                                                                   PASSWORD, DATASOURCE_JNDI_NAME, POOL_SIZE, CODEC,
+                                                                   CODEC_DICTIONARY, CACHE_SIZE);
     
     protected static final String DEFAULT_CONNECTION_URL = "jdbc:h2:mem:modeshape;DB_CLOSE_DELAY=0;MVCC=TRUE";
     protected static final String DEFAULT_DRIVER = "org.h2.Driver";
@@ -60,6 +67,7 @@ public final class RelationalDbConfig {
     protected static final String DEFAULT_MIN_IDLE = "1";
     protected static final String DEFAULT_IDLE_TIMEOUT = String.valueOf(TimeUnit.MINUTES.toMillis(1));
     protected static final int DEFAULT_FETCH_SIZE = 1000;
+    protected static final int DEFAULT_CACHE_SIZE = 0;
     
     private final Document config;
     private final boolean createOnStart;
@@ -69,6 +77,9 @@ public final class RelationalDbConfig {
     private final boolean compress;
     private final String connectionUrl;
     private final String datasourceJNDIName; 
+    private final int cacheSize;
+    private final DocumentCodec codec;
+    private final DocumentCodec legacyCodec;
     
     protected RelationalDbConfig(Document document) {
         this.config = document;
@@ -79,6 +90,17 @@ public final class RelationalDbConfig {
         this.fetchSize = propertyAsInt(config, FETCH_SIZE, DEFAULT_FETCH_SIZE);
         this.compress = propertyAsBoolean(config, COMPRESS, false);
         this.connectionUrl = config.getString(CONNECTION_URL, DEFAULT_CONNECTION_URL);
+        this.cacheSize = propertyAsInt(config, CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        // documents which don't have a codec header were written before codecs were introduced, based on the 'compress' flag
+        this.legacyCodec = compress ? DocumentCodecs.GZIP : DocumentCodecs.NONE;
+        String codecName = config.getString(CODEC, null);
+        String codecDictionary = config.getString(CODEC_DICTIONARY, null);
+        try {
+            this.codec = codecName != null || codecDictionary != null ? 
+                         DocumentCodecs.fromConfiguration(codecName, codecDictionary) : null;
+        } catch (IOException e) {
+            throw new RelationalProviderException(e);
+        }
     }
 
     protected boolean isDatasourceManaged() {
@@ -133,6 +155,26 @@ public final class RelationalDbConfig {
     protected boolean compress() {
         return compress;
     }
+
+    protected boolean hasCodec() {
+        return codec != null;
+    }
+
+    protected DocumentCodec codec() {
+        return codec != null ? codec : legacyCodec;
+    }
+
+    protected DocumentCodec legacyCodec() {
+        return legacyCodec;
+    }
+
+    protected boolean cacheEnabled() {
+        return cacheSize > 0;
+    }
+
+    protected int cacheSize() {
+        return cacheSize;
+    }
     
     private String propertyAsString(Document document, String fieldName, String defaultValue) {
         Object value = document.get(fieldName);
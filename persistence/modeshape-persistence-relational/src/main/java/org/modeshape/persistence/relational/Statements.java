@@ -20,6 +20,8 @@ import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import org.modeshape.schematic.document.Document;
 
@@ -37,6 +39,7 @@ public interface Statements {
     String CREATE_TABLE = "create_table";
     String DELETE_TABLE = "delete_table";
     String GET_ALL_IDS = "get_all_ids";
+    String GET_ALL_CONTENTS = "get_all_contents";
     String GET_BY_ID = "get_by_id";
     String CONTENT_EXISTS = "content_exists";
     String INSERT_CONTENT = "insert_content";
@@ -74,6 +77,32 @@ public interface Statements {
      */
     List<String> getAllIds(Connection connection) throws SQLException;
 
+    /**
+     * Performs the given action for each id from a table, reading the ids from the database in chunks of
+     * {@link RelationalDbConfig#fetchSize()} rather than collecting all of them first.
+     * <p>
+     * Note that some drivers (e.g. PostgreSQL) will only use a cursor when the connection is not in auto-commit mode.
+     * </p>
+     *
+     * @param connection a {@link Connection} instance; may not be null
+     * @param action a {@link Consumer} which will be called for each id; may not be null
+     * @throws SQLException if the operation fails.
+     */
+    void forEachId(Connection connection, Consumer<String> action) throws SQLException;
+
+    /**
+     * Performs the given action for each id and document from a table, reading them from the database in chunks of
+     * {@link RelationalDbConfig#fetchSize()} with a single query, rather than collecting all of them first.
+     * <p>
+     * Note that some drivers (e.g. PostgreSQL) will only use a cursor when the connection is not in auto-commit mode.
+     * </p>
+     *
+     * @param connection a {@link Connection} instance; may not be null
+     * @param action a {@link BiConsumer} which will be called for each id and document; may not be null
+     * @throws SQLException if the operation fails.
+     */
+    void forEachDocument(Connection connection, BiConsumer<String, Document> action) throws SQLException;
+
     /**
      * Searches for a document with a certain id.
      *
@@ -0,0 +1,109 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.persistence.relational;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.EditableDocument;
+
+/**
+ * Unit test for {@link DocumentCache}.
+ */
+public class DocumentCacheTest {
+
+    private static EditableDocument document( int index ) {
+        EditableDocument document = Schematic.newDocument();
+        document.setNumber("index", index);
+        document.setString("value", "some document content");
+        return document;
+    }
+
+    private static long weight( String id, EditableDocument document ) {
+        return DocumentCache.ENTRY_OVERHEAD_IN_BYTES + 2L * id.length() + Bson.estimateSize(document);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedDocumentsWhenFull() {
+        long weight = weight("0", document(0));
+        DocumentCache cache = new DocumentCache(3 * weight);
+        for (int i = 0; i < 3; i++) {
+            cache.put(String.valueOf(i), document(i), cache.readMarker());
+        }
+        assertEquals(3, cache.size());
+        assertEquals(3 * weight, cache.sizeInBytes());
+        // touch the first document so that the second one is the least recently used
+        assertNotNull(cache.get("0"));
+        cache.put("3", document(3), cache.readMarker());
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.get("1"));
+        assertNotNull(cache.get("0"));
+        assertNotNull(cache.get("3"));
+    }
+
+    @Test
+    public void shouldNotCacheDocumentsReadBeforeAnInvalidation() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        long readMarker = cache.readMarker();
+        cache.invalidate(Collections.singletonList("1"));
+        cache.put("1", document(1), readMarker);
+        assertNull(cache.get("1"));
+        cache.put("1", document(1), cache.readMarker());
+        assertNotNull(cache.get("1"));
+    }
+
+    @Test
+    public void shouldNotCacheDocumentsLargerThanTheCache() {
+        DocumentCache cache = new DocumentCache(16);
+        cache.put("1", document(1), cache.readMarker());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldTrackHitsAndMisses() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        cache.put("1", document(1), cache.readMarker());
+        cache.get("1");
+        cache.get("2");
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.sizeInBytes());
+    }
+
+    @Test
+    public void shouldReportLookupsToListener() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        List<Boolean> lookups = new ArrayList<>();
+        cache.setLookupListener(lookups::add);
+        cache.put("1", document(1), cache.readMarker());
+        cache.get("1");
+        cache.get("2");
+        assertEquals(Arrays.asList(true, false), lookups);
+        cache.setLookupListener(null);
+        cache.get("1");
+        assertEquals(2, lookups.size());
+    }
+}
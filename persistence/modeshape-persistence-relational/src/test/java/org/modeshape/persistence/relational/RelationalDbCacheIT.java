@@ -0,0 +1,110 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.persistence.relational;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.SchematicDb;
+import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Json;
+
+/**
+ * Integration test for {@link RelationalDb} configured to cache the documents read outside of transactions in a shared
+ * {@link DocumentCache}.
+ */
+public class RelationalDbCacheIT extends RelationalDbIT {
+
+    @Override
+    protected SchematicDb getDb() throws Exception {
+        EditableDocument config = Json.read(RelationalDbCacheIT.class.getClassLoader().getResourceAsStream("db-config.json"))
+                                      .withVariablesReplacedWithSystemProperties()
+                                      .edit(true);
+        config.setNumber(RelationalDbConfig.CACHE_SIZE, 1);
+        return Schematic.getDb(config);
+    }
+
+    private DocumentCache documentCache() {
+        return ((RelationalDb) db).documentCache();
+    }
+
+    @Test
+    public void shouldReadDocumentsOutsideTransactionsFromCache() throws Exception {
+        SchematicEntry entry = writeSingleEntry();
+        Document first = db.get(entry.id());
+        assertNotNull(first);
+        long hits = documentCache().hitCount();
+        assertSame(first, db.get(entry.id()));
+        assertEquals(hits + 1, documentCache().hitCount());
+        assertTrue(db.containsKey(entry.id()));
+    }
+
+    @Test
+    public void shouldInvalidateCachedDocumentsWhenTransactionsCommit() throws Exception {
+        SchematicEntry entry = writeSingleEntry();
+        assertEquals(DEFAULT_CONTENT, db.getEntry(entry.id()).content());
+
+        simulateTransaction(() -> {
+            db.editContent(entry.id(), false).setString("cached", "no");
+            return null;
+        });
+        assertEquals("no", db.getEntry(entry.id()).content().getString("cached"));
+
+        simulateTransaction(() -> db.remove(entry.id()));
+        assertNull(db.get(entry.id()));
+        assertEquals(0, documentCache().size());
+    }
+
+    @Test
+    public void shouldLoadDocumentsThroughCache() throws Exception {
+        List<SchematicEntry> entries = randomEntries(10);
+        simulateTransaction(() -> {
+            entries.forEach(entry -> db.putEntry(entry.source()));
+            return null;
+        });
+        List<String> ids = entries.stream().map(SchematicEntry::id).collect(Collectors.toList());
+        db.get(ids.get(0));
+        assertEquals(1, documentCache().size());
+
+        List<SchematicEntry> loaded = db.load(new ArrayList<>(ids));
+        assertEquals(ids.size(), loaded.size());
+        assertTrue(loaded.stream().map(SchematicEntry::id).collect(Collectors.toList()).containsAll(ids));
+        assertEquals(ids.size(), documentCache().size());
+    }
+
+    @Test
+    public void shouldInvalidateDocumentsChangedByOtherProcesses() throws Exception {
+        SchematicEntry entry = writeSingleEntry();
+        db.get(entry.id());
+        assertEquals(1, documentCache().size());
+        db.invalidate(Collections.singletonList(entry.id()));
+        assertEquals(0, documentCache().size());
+
+        db.get(entry.id());
+        db.invalidateAll();
+        assertEquals(0, documentCache().size());
+    }
+}
@@ -20,9 +20,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
 import org.junit.Test;
 import org.modeshape.common.database.DatabaseType;
 import org.modeshape.schematic.Schematic;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentCodecs;
 import org.modeshape.schematic.document.ParsingException;
 import org.modeshape.schematic.internal.annotation.FixFor;
 import org.modeshape.schematic.internal.document.BasicDocument;
@@ -49,6 +53,7 @@ public class RelationalProviderTest {
         assertEquals(RelationalDbConfig.DEFAULT_TABLE_NAME, config.tableName());
         assertEquals(RelationalDbConfig.DEFAULT_FETCH_SIZE, config.fetchSize());
         assertFalse(config.compress());
+        assertFalse(config.cacheEnabled());
         
         DataSourceManager dsManager = db.dsManager();
         assertNotNull(dsManager);
@@ -78,6 +83,24 @@ public class RelationalProviderTest {
         assertEquals((long) Integer.valueOf(RelationalDbConfig.DEFAULT_IDLE_TIMEOUT), dataSource.getIdleTimeout());
     }
     
+    @Test
+    public void shouldConfigureDocumentCodec() throws Exception {
+        BasicDocument configDocument = new BasicDocument(Schematic.TYPE_FIELD, RelationalDbConfig.ALIAS1,
+                                                         RelationalDbConfig.CODEC, "deflate");
+        RelationalDb db = Schematic.getDb(configDocument);
+        RelationalDbConfig config = db.config();
+        assertTrue(config.hasCodec());
+        assertEquals(DocumentCodecs.DEFLATE, config.codec());
+        assertEquals(DocumentCodecs.NONE, config.legacyCodec());
+
+        // documents written before the codec was configured should still be readable
+        DefaultStatements statements = new DefaultStatements(config, Collections.emptyMap());
+        Document document = new BasicDocument("field", "value");
+        byte[] legacyBytes = DocumentCodecs.NONE.encode(document);
+        assertEquals(document, statements.readDocument(new ByteArrayInputStream(legacyBytes)));
+        assertEquals(document, statements.readDocument(new ByteArrayInputStream(statements.writeDocument(document))));
+    }
+    
     @Test
     @FixFor("MODE-2674")
     public void shouldAllowCustomHikariPassthroughProperties() throws ParsingException {
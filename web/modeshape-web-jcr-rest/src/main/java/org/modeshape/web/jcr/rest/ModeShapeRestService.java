@@ -18,7 +18,6 @@ package org.modeshape.web.jcr.rest;
 
 import java.io.File;
 import java.io.InputStream;
-import javax.jcr.Binary;
 import javax.jcr.Property;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
@@ -37,6 +36,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import org.codehaus.jettison.json.JSONException;
@@ -287,9 +287,11 @@ public final class ModeShapeRestService {
 
     /**
      * Retrieves the binary content of the binary property at the given path, allowing 2 extra (optional) parameters: the
-     * mime-type and the content-disposition of the binary value.
+     * mime-type and the content-disposition of the binary value. Conditional requests are supported using the SHA-1 hash of the
+     * binary as entity tag, and a single byte range of the content can be requested with the "Range" header.
      *
      * @param request a non-null {@link HttpServletRequest} request
+     * @param requestContext a non-null JAX-RS {@link Request}, used to evaluate the conditional headers of the request
      * @param repositoryName a non-null {@link String} representing the name of a repository.
      * @param workspaceName a non-null {@link String} representing the name of a workspace.
      * @param path a non-null {@link String} representing the absolute path to a binary property.
@@ -305,6 +307,7 @@ public final class ModeShapeRestService {
     @Path( "{repositoryName}/{workspaceName}/" + RestHelper.BINARY_METHOD_NAME + "{path:.+}" )
     @Produces( {MediaType.TEXT_HTML, MediaType.TEXT_PLAIN, MediaType.APPLICATION_JSON} )
     public Response getBinary( @Context HttpServletRequest request,
+                               @Context Request requestContext,
                                @PathParam( "repositoryName" ) String repositoryName,
                                @PathParam( "workspaceName" ) String workspaceName,
                                @PathParam( "path" ) String path,
@@ -315,7 +318,6 @@ public final class ModeShapeRestService {
             return Response.status(Response.Status.NOT_FOUND)
                            .entity(new RestException("The property " + binaryProperty.getPath() + " is not a binary")).build();
         }
-        Binary binary = binaryProperty.getBinary();
         if (StringUtil.isBlank(mimeType)) {
             mimeType = binaryHandler.getDefaultMimeType(binaryProperty);
         }
@@ -323,7 +325,7 @@ public final class ModeShapeRestService {
             contentDisposition = binaryHandler.getDefaultContentDisposition(binaryProperty);
         }
 
-        return Response.ok(binary.getStream(), mimeType).header("Content-Disposition", contentDisposition).build();
+        return binaryHandler.getBinaryContent(request, requestContext, binaryProperty, mimeType, contentDisposition);
     }
 
     /**
@@ -16,30 +16,62 @@
 
 package org.modeshape.web.jcr.rest.filter;
 
+import java.io.IOException;
 import javax.jcr.Session;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
 import org.modeshape.jcr.api.Logger;
 import org.modeshape.web.jcr.WebLogger;
 import org.modeshape.web.jcr.rest.handler.AbstractHandler;
+import org.modeshape.web.jcr.rest.model.RestNode;
+import org.modeshape.web.jcr.rest.model.RestQueryResult;
 
 /**
  * {@link ContainerResponseFilter} implementation which will always close an active {@link Session} instance, if such an instance
  * has been opened during a request.
+ * <p>
+ * Responses which still read from the session while they are written (e.g. query results whose rows are pulled lazily, or
+ * node subgraphs whose children are read lazily) keep the session open until they have been written, this class also being
+ * the {@link WriterInterceptor} which closes it then.
+ * </p>
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
 @Provider
-public class CleanupFilter implements ContainerResponseFilter {
+public class CleanupFilter implements ContainerResponseFilter, WriterInterceptor {
 
     private static final Logger LOGGER = WebLogger.getLogger(CleanupFilter.class);
 
     @Override
     public void filter( ContainerRequestContext requestContext,
                         ContainerResponseContext responseContext ) {
+        if (requiresActiveSession(responseContext.getEntity())) {
+            LOGGER.trace("Deferring cleanup until the response has been written...");
+            return;
+        }
         LOGGER.trace("Executing cleanup filter...");
         AbstractHandler.cleanupActiveSession();
     }
+
+    @Override
+    public void aroundWriteTo( WriterInterceptorContext context ) throws IOException, WebApplicationException {
+        try {
+            context.proceed();
+        } finally {
+            LOGGER.trace("Executing cleanup after writing the response...");
+            AbstractHandler.cleanupActiveSession();
+        }
+    }
+
+    private boolean requiresActiveSession( Object entity ) {
+        if (entity instanceof RestNode) {
+            return ((RestNode)entity).hasPendingChildren();
+        }
+        return entity instanceof RestQueryResult && ((RestQueryResult)entity).hasPendingRows();
+    }
 }
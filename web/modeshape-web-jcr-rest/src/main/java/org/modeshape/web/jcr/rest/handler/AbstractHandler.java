@@ -19,6 +19,7 @@ import static org.modeshape.web.jcr.rest.RestHelper.BINARY_METHOD_NAME;
 import static org.modeshape.web.jcr.rest.RestHelper.ITEMS_METHOD_NAME;
 import static org.modeshape.web.jcr.rest.RestHelper.URL_ENCODER;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import javax.jcr.Item;
 import javax.jcr.Node;
@@ -90,11 +91,20 @@ public abstract class AbstractHandler {
         if (ACTIVE_SESSION.get() == null) {
             Session session = RepositoryManager.getSession(request, repositoryNameFor(rawRepositoryName), workspaceNameFor(
                     rawWorkspaceName));
-            ACTIVE_SESSION.set(session);
+            setActiveSession(session);
         }
         return ACTIVE_SESSION.get();
     }
 
+    /**
+     * Sets the session which is used by the handlers for the current request, until {@link #cleanupActiveSession()} is called.
+     * 
+     * @param session the session; may not be null
+     */
+    static void setActiveSession( Session session ) {
+        ACTIVE_SESSION.set(session);
+    }
+
     /**
      * Cleans up any resources related to {@link AbstractHandler#ACTIVE_SESSION}
      */
@@ -306,23 +316,54 @@ public abstract class AbstractHandler {
             restNode.addJcrProperty(createRestProperty(session, property, baseUrl));
         }
 
+        if (depth != 0) {
+            // the subgraph is only read while the node is written, so that it doesn't have to be held in memory ...
+            restNode.setPendingChildren(pendingChildren(session, node, baseUrl, depth > 0 ? depth - 1 : -1));
+            return restNode;
+        }
+
         // add the children
         for (NodeIterator nodeIterator = node.getNodes(); nodeIterator.hasNext();) {
             Node childNode = nodeIterator.nextNode();
-            RestNode restChild = null;
-            if (depth > 0) {
-                restChild = createRestNode(session, childNode, baseUrl, depth - 1);
-            } else if (depth < 0) {
-                restChild = createRestNode(session, childNode, baseUrl, -1);
-            } else {
-                String childUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(childNode.getPath()));
-                restChild = new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl);
-            }
-            restNode.addChild(restChild);
+            String childUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(childNode.getPath()));
+            restNode.addChild(new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl));
         }
         return restNode;
     }
 
+    private Iterator<RestNode> pendingChildren( final Session session,
+                                                final Node node,
+                                                final String baseUrl,
+                                                final int childDepth ) throws RepositoryException {
+        final NodeIterator nodeIterator = node.getNodes();
+        return new Iterator<RestNode>() {
+            @Override
+            public boolean hasNext() {
+                return nodeIterator.hasNext();
+            }
+
+            @Override
+            public RestNode next() {
+                Node childNode = nodeIterator.nextNode();
+                try {
+                    return createRestNode(session, childNode, baseUrl, childDepth);
+                } catch (RepositoryException | RuntimeException e) {
+                    // the status and part of the subgraph have already been sent, so the response can't be completed ...
+                    logger.error(e, "Cannot read the child nodes of '{0}' while writing them to the response", pathOf(node));
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private String pathOf( Node node ) {
+        try {
+            return node.getPath();
+        } catch (RepositoryException e) {
+            return node.toString();
+        }
+    }
+
     private RestProperty createRestProperty( Session session,
                                              Property property,
                                              String baseUrl ) throws RepositoryException {
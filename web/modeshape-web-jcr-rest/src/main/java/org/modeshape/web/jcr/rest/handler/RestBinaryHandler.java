@@ -19,6 +19,7 @@ package org.modeshape.web.jcr.rest.handler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import javax.jcr.Binary;
 import javax.jcr.Node;
@@ -27,9 +28,15 @@ import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.modeshape.common.util.ByteRange;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.web.jcr.rest.model.RestItem;
@@ -101,6 +108,88 @@ public final class RestBinaryHandler extends AbstractHandler {
         }
     }
 
+    /**
+     * Returns the response which contains the content of a binary property, taking into account the conditional headers (e.g.
+     * "If-None-Match" and "If-Modified-Since") and the "Range" header of the request. The SHA-1 hash of the binary value is used
+     * as its strong entity tag, and the "jcr:lastModified" property of the node which owns the binary, if any, as its
+     * modification date.
+     *
+     * @param request a non-null {@link HttpServletRequest} request
+     * @param requestContext a non-null JAX-RS {@link Request}, used to evaluate the preconditions
+     * @param binaryProperty a non-null binary {@link Property}
+     * @param mimeType a non-null {@link String}, the mime-type of the response
+     * @param contentDisposition a non-null {@link String}, the content disposition of the response
+     * @return a {@link Response} which contains either the whole content, a single range of it, or no content at all if the
+     *         preconditions of the request are not met.
+     * @throws RepositoryException if any JCR related operation involving the binary property fail.
+     */
+    public Response getBinaryContent( HttpServletRequest request,
+                                      Request requestContext,
+                                      Property binaryProperty,
+                                      String mimeType,
+                                      String contentDisposition ) throws RepositoryException {
+        Binary binary = binaryProperty.getBinary();
+        EntityTag eTag = entityTag(binary);
+        Date lastModified = lastModified(binaryProperty);
+
+        Response.ResponseBuilder notModified = null;
+        if (eTag != null && lastModified != null) {
+            notModified = requestContext.evaluatePreconditions(lastModified, eTag);
+        } else if (eTag != null) {
+            notModified = requestContext.evaluatePreconditions(eTag);
+        } else if (lastModified != null) {
+            notModified = requestContext.evaluatePreconditions(lastModified);
+        }
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        ByteRange range = ByteRange.requested(request.getHeader("Range"), request.getHeader("If-Range"),
+                                              eTag != null ? "\"" + eTag.getValue() + "\"" : null, lastModified,
+                                              binary.getSize());
+        Response.ResponseBuilder builder;
+        if (range == null) {
+            builder = Response.ok(content(binary, 0, -1), mimeType);
+        } else if (!range.isSatisfiable()) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                           .header("Content-Range", range.getContentRange())
+                           .build();
+        } else {
+            builder = Response.status(Response.Status.PARTIAL_CONTENT)
+                              .entity(content(binary, range.getFirst(), range.getLength()))
+                              .type(mimeType)
+                              .header("Content-Range", range.getContentRange())
+                              .header(HttpHeaders.CONTENT_LENGTH, range.getLength());
+        }
+        if (eTag != null) {
+            builder.tag(eTag);
+        }
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder.header("Accept-Ranges", "bytes").header("Content-Disposition", contentDisposition).build();
+    }
+
+    private EntityTag entityTag( Binary binary ) {
+        String hash = binary instanceof org.modeshape.jcr.api.Binary ? ((org.modeshape.jcr.api.Binary)binary).getHexHash() : null;
+        return StringUtil.isBlank(hash) ? null : new EntityTag(hash);
+    }
+
+    private Date lastModified( Property binaryProperty ) throws RepositoryException {
+        Node owner = binaryProperty.getParent();
+        return owner.hasProperty(JcrConstants.JCR_LAST_MODIFIED) ? owner.getProperty(JcrConstants.JCR_LAST_MODIFIED).getDate()
+                                                                         .getTime() : null;
+    }
+
+    private StreamingOutput content( Binary binary,
+                                     final long offset,
+                                     final long length ) throws RepositoryException {
+        // open the stream right away, since the session is closed before the content is written ...
+        final InputStream stream = binary.getStream();
+        // file-based binaries are transferred through channels, without reading what precedes the range ...
+        return output -> IoUtil.copy(stream, output, offset, length);
+    }
+
     /**
      * Updates the {@link Property property} at the given path with the content from the given {@link InputStream}.
      *
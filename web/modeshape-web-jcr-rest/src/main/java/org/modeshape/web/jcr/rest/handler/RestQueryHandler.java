@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.jcr.Node;
@@ -97,7 +98,7 @@ public final class RestQueryHandler extends AbstractHandler {
 
         String baseUrl = RestHelper.repositoryUrl(request);
 
-        setRows(offset, limit, session, result, restQueryResult, columnNames, baseUrl);
+        setRows(offset, limit, session, result, restQueryResult, columnNames, baseUrl, language, statement);
 
         return restQueryResult;
     }
@@ -143,28 +144,48 @@ public final class RestQueryHandler extends AbstractHandler {
 
     private void setRows( long offset,
                           long limit,
-                          Session session,
-                          QueryResult result,
-                          RestQueryResult restQueryResult,
-                          String[] columnNames,
-                          String baseUrl ) throws RepositoryException {
-        RowIterator resultRows = result.getRows();
+                          final Session session,
+                          final QueryResult result,
+                          final RestQueryResult restQueryResult,
+                          final String[] columnNames,
+                          final String baseUrl,
+                          final String language,
+                          final String statement ) throws RepositoryException {
+        final RowIterator resultRows = result.getRows();
         if (offset > 0) {
             resultRows.skip(offset);
         }
-        if (limit < 0) {
-            limit = Long.MAX_VALUE;
-        }
+        final long maxRows = limit < 0 ? Long.MAX_VALUE : limit;
 
-        while (resultRows.hasNext() && limit > 0) {
-            limit--;
-            Row resultRow = resultRows.nextRow();
+        // the rows are only read while the result is written, so that they don't have to be held in memory ...
+        restQueryResult.setPendingRows(new Iterator<RestQueryResult.RestRow>() {
+            private long remaining = maxRows;
 
-            RestQueryResult.RestRow restRow = createRestRow(session, result, restQueryResult, columnNames, baseUrl, resultRow);
-            createLinksFromNodePaths(result, baseUrl, resultRow, restRow);
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 && resultRows.hasNext();
+            }
 
-            restQueryResult.addRow(restRow);
-        }
+            @Override
+            public RestQueryResult.RestRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                try {
+                    Row resultRow = resultRows.nextRow();
+                    RestQueryResult.RestRow restRow = createRestRow(session, result, restQueryResult, columnNames, baseUrl,
+                                                                    resultRow);
+                    createLinksFromNodePaths(result, baseUrl, resultRow, restRow);
+                    return restRow;
+                } catch (RepositoryException | RuntimeException e) {
+                    // the status and the first rows have already been sent, so the response can't be completed ...
+                    logger.error(e, "Cannot read the next row of the {0} query '{1}' while writing the rows to the response",
+                                 language, statement);
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
     }
 
     private void createLinksFromNodePaths( QueryResult result,
@@ -0,0 +1,198 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * A writer which streams JSON text directly to an underlying {@link Writer}, without first building a tree of {@link JSONObject}
+ * instances. Strings are escaped exactly like Jettison does, so the output is the same as the {@code toString()} of the
+ * equivalent {@link JSONObject}.
+ * <p>
+ * This writer does not check that the structure it writes is well formed; callers are expected to pair each
+ * {@link #beginObject()} with an {@link #endObject()}, each {@link #beginArray()} with an {@link #endArray()}, and to write a
+ * {@link #name(String) name} before each value within an object.
+ * </p>
+ */
+public final class JSONStreamWriter {
+
+    private final Writer writer;
+    private final Deque<boolean[]> scopes = new ArrayDeque<>();
+    private boolean afterName;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param writer a {@code non-null} {@link Writer} to which the JSON text is written
+     */
+    public JSONStreamWriter( Writer writer ) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a JSON object.
+     *
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     */
+    public JSONStreamWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        scopes.push(new boolean[] {true});
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     */
+    public JSONStreamWriter endObject() throws IOException {
+        scopes.pop();
+        writer.write('}');
+        return this;
+    }
+
+    /**
+     * Starts a JSON array.
+     *
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     */
+    public JSONStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        scopes.push(new boolean[] {true});
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     */
+    public JSONStreamWriter endArray() throws IOException {
+        scopes.pop();
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next field of the current JSON object.
+     *
+     * @param name a {@code non-null} string
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     */
+    public JSONStreamWriter name( String name ) throws IOException {
+        beforeValue();
+        writer.write(JSONObject.quote(name));
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a field of the current JSON object.
+     *
+     * @param name a {@code non-null} string
+     * @param value the value of the field; see {@link #value(Object)}
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     * @throws JSONException if the value cannot be converted to JSON
+     */
+    public JSONStreamWriter field( String name,
+                                   Object value ) throws IOException, JSONException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a value, which can be a string, number, boolean, {@code null}, {@link Collection}, {@link Map}, Jettison
+     * {@link JSONObject} or {@link JSONArray}, {@link JSONStreamable} or {@link JSONAble}. Any other value is written as its
+     * string representation.
+     *
+     * @param value the value; may be null
+     * @return this instance
+     * @throws IOException if the text cannot be written
+     * @throws JSONException if the value cannot be converted to JSON
+     */
+    public JSONStreamWriter value( Object value ) throws IOException, JSONException {
+        if (value instanceof JSONStreamable) {
+            ((JSONStreamable)value).writeJSON(this);
+        } else if (value instanceof JSONAble) {
+            raw(((JSONAble)value).toJSON().toString());
+        } else if (value instanceof Collection<?>) {
+            beginArray();
+            for (Object element : (Collection<?>)value) {
+                value(element);
+            }
+            endArray();
+        } else if (value instanceof Map<?, ?>) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                name(String.valueOf(entry.getKey())).value(entry.getValue());
+            }
+            endObject();
+        } else if (value == null || value instanceof Boolean || value instanceof JSONObject || value instanceof JSONArray) {
+            raw(String.valueOf(value));
+        } else if (value instanceof Number) {
+            raw(JSONObject.numberToString((Number)value));
+        } else {
+            raw(JSONObject.quote(value.toString()));
+        }
+        return this;
+    }
+
+    private void raw( String json ) throws IOException {
+        beforeValue();
+        writer.write(json);
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            // this is the value of a field, whose name has already been written ...
+            afterName = false;
+            return;
+        }
+        boolean[] first = scopes.peek();
+        if (first != null) {
+            if (first[0]) {
+                first[0] = false;
+            } else {
+                writer.write(',');
+            }
+        }
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if the underlying writer cannot be flushed
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
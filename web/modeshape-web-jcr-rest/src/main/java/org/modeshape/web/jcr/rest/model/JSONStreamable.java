@@ -0,0 +1,35 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.modeshape.web.jcr.rest.model;
+
+import java.io.IOException;
+import org.codehaus.jettison.json.JSONException;
+
+/**
+ * An extension of {@link JSONAble} implemented by objects which can write their JSON representation directly to a stream,
+ * without building it in memory first.
+ */
+public interface JSONStreamable extends JSONAble {
+    /**
+     * Writes the JSON representation of this object, which must be the same as that returned by {@link #toJSON()}.
+     * 
+     * @param writer a {@code non-null} {@link JSONStreamWriter}
+     * @throws IOException if the JSON cannot be written
+     * @throws JSONException if conversion to JSON is not possible.
+     */
+    public void writeJSON( JSONStreamWriter writer ) throws IOException, JSONException;
+}
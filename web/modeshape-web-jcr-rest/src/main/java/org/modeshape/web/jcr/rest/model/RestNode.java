@@ -16,7 +16,10 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,7 +33,7 @@ import org.modeshape.common.collection.Collections;
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RestNode extends RestItem {
+public final class RestNode extends RestItem implements JSONStreamable {
 
     public static final String SELF_FIELD_NAME = "self";
     public static final String UP_FIELD_NAME = "up";
@@ -45,6 +48,7 @@ public final class RestNode extends RestItem {
     private final List<RestProperty> jcrProperties;
     private final List<RestNode> children;
     private final Map<String, String> customProperties;
+    private Iterator<RestNode> pendingChildren;
     protected final String id;
 
     /**
@@ -77,6 +81,29 @@ public final class RestNode extends RestItem {
         return this;
     }
 
+    /**
+     * Sets the source of the children of this node which follow those {@link #addChild(RestNode) added} so far. The children
+     * are only pulled from the iterator when this node is written, so that a large subgraph doesn't have to be held in memory.
+     * The names of these children must be unique, since they are written as soon as they are pulled.
+     * 
+     * @param children a {@code non-null} {@link Iterator} of {@link RestNode} instances
+     * @return this rest node.
+     */
+    public RestNode setPendingChildren( Iterator<RestNode> children ) {
+        this.pendingChildren = children;
+        return this;
+    }
+
+    /**
+     * Returns whether this node has children which have not yet been pulled from the iterator passed to
+     * {@link #setPendingChildren(Iterator)}.
+     * 
+     * @return {@code true} if there are children which are only read when this node is written
+     */
+    public boolean hasPendingChildren() {
+        return pendingChildren != null;
+    }
+
     /**
      * Adds a new jcr property to this node.
      * 
@@ -103,6 +130,14 @@ public final class RestNode extends RestItem {
 
     @Override
     public JSONObject toJSON() throws JSONException {
+        if (pendingChildren != null) {
+            // this node is being converted to a tree anyway, so keep the children in case it is converted again ...
+            Iterator<RestNode> pending = pendingChildren;
+            pendingChildren = null;
+            while (pending.hasNext()) {
+                children.add(pending.next());
+            }
+        }
         JSONObject node = new JSONObject();
 
         // do these first so that they appear first in the JSON ...
@@ -117,6 +152,76 @@ public final class RestNode extends RestItem {
         return node;
     }
 
+    @Override
+    public void writeJSON( JSONStreamWriter writer ) throws IOException, JSONException {
+        // the fields of a node are few, so collect them first to keep the same semantics as JSONObject.put ...
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putField(fields, SELF_FIELD_NAME, url);
+        putField(fields, UP_FIELD_NAME, parentUrl);
+        putField(fields, ID_FIELD_NAME, id);
+        for (Map.Entry<String, String> customProperty : customProperties.entrySet()) {
+            if (isReservedField(customProperty.getKey())) continue; // skip
+            putField(fields, customProperty.getKey(), customProperty.getValue());
+        }
+        for (RestProperty restProperty : jcrProperties) {
+            if (isReservedField(restProperty.name)) continue; // skip
+            if (restProperty.isMultiValue()) {
+                putField(fields, restProperty.name, restProperty.getValues());
+            } else if (restProperty.getValue() != null) {
+                putField(fields, restProperty.name, restProperty.getValue());
+            }
+        }
+
+        writer.beginObject();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            writer.field(field.getKey(), field.getValue());
+        }
+        boolean hasChildren = false;
+        if (!children.isEmpty()) {
+            // children with the same name replace each other, like in toJSON ...
+            Map<String, RestNode> childrenByName = new LinkedHashMap<>();
+            for (RestNode child : this.children) {
+                childrenByName.put(child.name, child);
+            }
+            for (RestNode child : childrenByName.values()) {
+                hasChildren = writeChild(writer, child, hasChildren);
+            }
+        }
+        if (pendingChildren != null) {
+            Iterator<RestNode> pending = pendingChildren;
+            pendingChildren = null;
+            while (pending.hasNext()) {
+                hasChildren = writeChild(writer, pending.next(), hasChildren);
+            }
+        }
+        if (hasChildren) {
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private boolean writeChild( JSONStreamWriter writer,
+                                RestNode child,
+                                boolean hasChildren ) throws IOException, JSONException {
+        if (!hasChildren) {
+            // only write the children if there are any, like in toJSON ...
+            writer.name(CHILDREN_FIELD_NAME).beginObject();
+        }
+        writer.name(child.name);
+        child.writeJSON(writer);
+        return true;
+    }
+
+    private void putField( Map<String, Object> fields,
+                           String name,
+                           Object value ) {
+        if (value == null) {
+            fields.remove(name);
+        } else {
+            fields.put(name, value);
+        }
+    }
+
     private boolean isReservedField( String fieldName ) {
         return RESERVED_FIELD_NAMES.contains(fieldName);
     }
@@ -16,8 +16,10 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,9 +33,10 @@ import org.modeshape.common.util.StringUtil;
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RestQueryResult implements JSONAble {
+public final class RestQueryResult implements JSONStreamable {
     private final Map<String, String> columns;
     private final List<RestRow> rows;
+    private Iterator<RestRow> pendingRows;
 
     /**
      * Creates an empty instance
@@ -69,8 +72,38 @@ public final class RestQueryResult implements JSONAble {
         return this;
     }
 
+    /**
+     * Sets the source of the rows of this result which follow those {@link #addRow(RestRow) added} so far. The rows are only
+     * pulled from the iterator when this result is written, so that they don't all have to be held in memory.
+     * 
+     * @param rows a {@code non-null} {@link Iterator} of {@link RestRow} instances
+     * @return this instance
+     */
+    public RestQueryResult setPendingRows( Iterator<RestRow> rows ) {
+        this.pendingRows = rows;
+        return this;
+    }
+
+    /**
+     * Returns whether this result has rows which have not yet been pulled from the iterator passed to
+     * {@link #setPendingRows(Iterator)}.
+     * 
+     * @return {@code true} if there are rows which are only read when this result is written
+     */
+    public boolean hasPendingRows() {
+        return pendingRows != null;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
+        if (pendingRows != null) {
+            // this result is being converted to a tree anyway, so keep the rows in case it is converted again ...
+            Iterator<RestRow> pending = pendingRows;
+            pendingRows = null;
+            while (pending.hasNext()) {
+                rows.add(pending.next());
+            }
+        }
         JSONObject result = new JSONObject();
         if (!columns.isEmpty()) {
             result.put("columns", columns);
@@ -85,7 +118,41 @@ public final class RestQueryResult implements JSONAble {
         return result;
     }
 
-    public class RestRow implements JSONAble {
+    @Override
+    public void writeJSON( JSONStreamWriter writer ) throws IOException, JSONException {
+        writer.beginObject();
+        if (!columns.isEmpty()) {
+            writer.field("columns", columns);
+        }
+        boolean hasRows = false;
+        for (RestRow row : this.rows) {
+            hasRows = writeRow(writer, row, hasRows);
+        }
+        if (pendingRows != null) {
+            Iterator<RestRow> pending = pendingRows;
+            pendingRows = null;
+            while (pending.hasNext()) {
+                hasRows = writeRow(writer, pending.next(), hasRows);
+            }
+        }
+        if (hasRows) {
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private boolean writeRow( JSONStreamWriter writer,
+                              RestRow row,
+                              boolean hasRows ) throws IOException, JSONException {
+        if (!hasRows) {
+            // only write the rows if there are any, like in toJSON ...
+            writer.name("rows").beginArray();
+        }
+        row.writeJSON(writer);
+        return true;
+    }
+
+    public class RestRow implements JSONStreamable {
         private final Map<String, Object> values;
 
         public RestRow() {
@@ -111,5 +178,10 @@ public final class RestQueryResult implements JSONAble {
         public JSONObject toJSON() {
             return new JSONObject(values);
         }
+
+        @Override
+        public void writeJSON( JSONStreamWriter writer ) throws IOException, JSONException {
+            writer.value(values);
+        }
     }
 }
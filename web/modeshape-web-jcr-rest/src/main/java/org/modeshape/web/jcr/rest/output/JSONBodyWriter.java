@@ -17,11 +17,16 @@
 package org.modeshape.web.jcr.rest.output;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -34,10 +39,12 @@ import org.codehaus.jettison.json.JSONException;
 import org.jboss.resteasy.spi.WriterException;
 import org.jboss.resteasy.util.Types;
 import org.modeshape.web.jcr.rest.model.JSONAble;
+import org.modeshape.web.jcr.rest.model.JSONStreamWriter;
 
 /**
  * Implementation of {@link MessageBodyWriter} which writes a {@link JSONAble} or a {@link Collection Collection<JSONAble>} instances to
- * a response, producing {@link MediaType#APPLICATION_JSON}.
+ * a response, producing {@link MediaType#APPLICATION_JSON}. The JSON is streamed to the response as it is produced, so its
+ * length is not known up front.
  *
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
@@ -52,6 +59,10 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
                          Type genericType,
                          Annotation[] annotations,
                          MediaType mediaType ) {
+        if (isStreaming()) {
+            // computing the size would mean building the whole response in memory ...
+            return -1;
+        }
         try {
             if (isJSONAble(type)) {
                 return getString((JSONAble)object).getBytes().length;
@@ -93,7 +104,16 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
                          Annotation[] annotations,
                          MediaType mediaType,
                          MultivaluedMap<String, Object> httpHeaders,
-                         OutputStream entityStream ) throws WebApplicationException {
+                         OutputStream entityStream ) throws IOException, WebApplicationException {
+        if (isStreaming()) {
+            if (!isJSONAble(type) && !isJSONAbleCollection(type, genericType)) {
+                return;
+            }
+            httpHeaders.putSingle("Content-Type", mediaType.toString() + ";charset=utf-8");
+            stream(object, type, new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8)));
+            return;
+        }
+
         String content;
         try {
             if (isJSONAble(type)) {
@@ -117,6 +137,42 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
         }
     }
 
+    /**
+     * Returns whether this writer streams the JSON representation of the written objects, or whether it builds the whole
+     * representation in memory first via {@link #getString(JSONAble)}.
+     *
+     * @return {@code true} if the JSON is streamed
+     */
+    protected boolean isStreaming() {
+        return true;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void stream( Object object,
+                         Class<?> type,
+                         Writer writer ) throws IOException {
+        JSONStreamWriter jsonWriter = new JSONStreamWriter(writer);
+        try {
+            if (isJSONAble(type)) {
+                jsonWriter.value(object);
+            } else {
+                jsonWriter.beginArray();
+                for (JSONAble jsonAble : (Collection<JSONAble>)object) {
+                    jsonWriter.value(jsonAble);
+                }
+                jsonWriter.endArray();
+            }
+        } catch (JSONException e) {
+            throw new WriterException(e);
+        } catch (RuntimeException e) {
+            // The content which is read while it is written (e.g. lazily read query rows) could not be read, but the status has
+            // already been sent. Rather than ending the JSON as if it were complete, abort the response so that the client
+            // sees that it is truncated ...
+            throw new IOException("The JSON response could not be completed", e);
+        }
+        jsonWriter.flush();
+    }
+
     protected String getString( JSONAble jsonAble ) throws JSONException {
         return jsonAble.toJSON().toString();
     }
@@ -35,6 +35,12 @@ public class TextBodyWriter extends JSONBodyWriter {
 
     private static final int TEXT_INDENT_FACTOR = 2;
 
+    @Override
+    protected boolean isStreaming() {
+        // the text representation is indented, which Jettison only does on a whole tree ...
+        return false;
+    }
+
     @Override
     protected String getString( JSONAble jsonAble ) throws JSONException {
         if (jsonAble instanceof Stringable) {
@@ -0,0 +1,177 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.handler;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.Binary;
+import org.modeshape.jcr.api.JcrConstants;
+
+/**
+ * Unit test for the range and conditional requests answered by {@link RestBinaryHandler#getBinaryContent}.
+ */
+public class RestBinaryHandlerTest {
+
+    private static final String CONTENT = "0123456789";
+    private static final String HASH = "abc";
+    private static final Date LAST_MODIFIED = new Date(1500000000000L);
+
+    private RestBinaryHandler handler;
+    private Property binaryProperty;
+    private Map<String, String> headers;
+
+    @Before
+    public void beforeEach() throws Exception {
+        handler = new RestBinaryHandler();
+        headers = new HashMap<>();
+
+        Binary binary = mock(Binary.class);
+        when(binary.getHexHash()).thenReturn(HASH);
+        when(binary.getSize()).thenReturn((long)CONTENT.length());
+        when(binary.getStream()).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT.getBytes()));
+
+        Calendar lastModified = Calendar.getInstance();
+        lastModified.setTime(LAST_MODIFIED);
+        Property lastModifiedProperty = mock(Property.class);
+        when(lastModifiedProperty.getDate()).thenReturn(lastModified);
+        Node owner = mock(Node.class);
+        when(owner.hasProperty(JcrConstants.JCR_LAST_MODIFIED)).thenReturn(true);
+        when(owner.getProperty(JcrConstants.JCR_LAST_MODIFIED)).thenReturn(lastModifiedProperty);
+
+        binaryProperty = mock(Property.class);
+        when(binaryProperty.getBinary()).thenReturn(binary);
+        when(binaryProperty.getParent()).thenReturn(owner);
+    }
+
+    protected static String httpDate( Date date ) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC));
+    }
+
+    protected Response getBinaryContent() throws Exception {
+        MockHttpRequest mockRequest = MockHttpRequest.get("/repo/ws/binary/file/jcr:content/jcr:data");
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            mockRequest.header(header.getKey(), header.getValue());
+            when(request.getHeader(header.getKey())).thenReturn(header.getValue());
+        }
+        RequestImpl requestContext = new RequestImpl(mockRequest, new MockHttpResponse());
+        return handler.getBinaryContent(request, requestContext, binaryProperty, "text/plain", "attachment;filename=file");
+    }
+
+    protected String body( Response response ) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput)response.getEntity()).write(output);
+        return new String(output.toByteArray());
+    }
+
+    @Test
+    public void shouldReturnWholeContent() throws Exception {
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(200));
+        assertThat(body(response), is(CONTENT));
+        assertThat(response.getHeaderString("ETag"), is("\"" + HASH + "\""));
+        assertThat(response.getHeaderString("Accept-Ranges"), is("bytes"));
+    }
+
+    @Test
+    public void shouldReturnPartialContentForRange() throws Exception {
+        headers.put("Range", "bytes=2-5");
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(206));
+        assertThat(body(response), is("2345"));
+        assertThat(response.getHeaderString("Content-Range"), is("bytes 2-5/10"));
+    }
+
+    @Test
+    public void shouldReturnPartialContentForSuffixRange() throws Exception {
+        headers.put("Range", "bytes=-3");
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(206));
+        assertThat(body(response), is("789"));
+        assertThat(response.getHeaderString("Content-Range"), is("bytes 7-9/10"));
+    }
+
+    @Test
+    public void shouldReturnPartialContentWhenIfRangeMatches() throws Exception {
+        headers.put("Range", "bytes=5-");
+        headers.put("If-Range", "\"" + HASH + "\"");
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(206));
+        assertThat(body(response), is("56789"));
+    }
+
+    @Test
+    public void shouldReturnWholeContentWhenIfRangeDoesNotMatch() throws Exception {
+        headers.put("Range", "bytes=5-");
+        headers.put("If-Range", "\"other\"");
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(200));
+        assertThat(body(response), is(CONTENT));
+    }
+
+    @Test
+    public void shouldReturnRangeNotSatisfiable() throws Exception {
+        headers.put("Range", "bytes=10-");
+        Response response = getBinaryContent();
+        assertThat(response.getStatus(), is(416));
+        assertThat(response.getHeaderString("Content-Range"), is("bytes */10"));
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenEntityTagMatches() throws Exception {
+        headers.put("If-None-Match", "\"" + HASH + "\"");
+        assertThat(getBinaryContent().getStatus(), is(304));
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenNotModifiedSince() throws Exception {
+        headers.put("If-Modified-Since", httpDate(LAST_MODIFIED));
+        assertThat(getBinaryContent().getStatus(), is(304));
+    }
+
+    @Test
+    public void shouldFailPreconditionWhenEntityTagDoesNotMatch() throws Exception {
+        headers.put("If-Match", "\"other\"");
+        assertThat(getBinaryContent().getStatus(), is(412));
+    }
+
+    @Test
+    public void shouldFailPreconditionWhenModifiedSince() throws Exception {
+        headers.put("If-Unmodified-Since", httpDate(new Date(LAST_MODIFIED.getTime() - 60000L)));
+        assertThat(getBinaryContent().getStatus(), is(412));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.handler;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.query.Query;
+import org.modeshape.jcr.api.query.QueryResult;
+import org.modeshape.web.jcr.rest.filter.CleanupFilter;
+import org.modeshape.web.jcr.rest.model.JSONStreamWriter;
+import org.modeshape.web.jcr.rest.model.RestQueryResult;
+import org.modeshape.web.jcr.rest.output.JSONBodyWriter;
+
+/**
+ * Unit test for {@link RestQueryHandler}, which checks that the rows of a query result are only read while the result is written
+ * and that the session is only closed once that has been done.
+ */
+public class RestQueryHandlerTest {
+
+    private Session session;
+    private QueryResult queryResult;
+    private CountingRowIterator rows;
+    private HttpServletRequest request;
+
+    @Before
+    public void beforeEach() throws Exception {
+        rows = new CountingRowIterator(10);
+        queryResult = mock(QueryResult.class);
+        when(queryResult.getColumnNames()).thenReturn(new String[0]);
+        when(queryResult.getSelectorNames()).thenReturn(new String[] {"s"});
+        when(queryResult.getRows()).thenReturn(rows);
+
+        Query query = mock(Query.class);
+        when(query.execute()).thenReturn(queryResult);
+        QueryManager queryManager = mock(QueryManager.class);
+        when(queryManager.createQuery(anyString(), anyString())).thenReturn(query);
+        Workspace workspace = mock(Workspace.class);
+        when(workspace.getQueryManager()).thenReturn(queryManager);
+        session = mock(Session.class);
+        when(session.getWorkspace()).thenReturn(workspace);
+        AbstractHandler.setActiveSession(session);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/modeshape-rest/repo/default/query"));
+    }
+
+    @After
+    public void afterEach() {
+        AbstractHandler.cleanupActiveSession();
+    }
+
+    @Test
+    public void shouldReadRowsWhileWritingAndCloseSessionAfterwards() throws Exception {
+        final RestQueryResult result = new RestQueryHandler().executeQuery(request, "repo", "default",
+                                                                          Query.JCR_SQL2,
+                                                                          "SELECT * FROM [nt:base] AS s", 2, 5, null);
+        assertThat(rows.pulled, is(0));
+        assertThat(result.hasPendingRows(), is(true));
+
+        // the response filter runs before the body is written, so it must leave the session open ...
+        CleanupFilter cleanupFilter = new CleanupFilter();
+        ContainerResponseContext responseContext = mock(ContainerResponseContext.class);
+        when(responseContext.getEntity()).thenReturn(result);
+        cleanupFilter.filter(mock(ContainerRequestContext.class), responseContext);
+        verify(session, never()).logout();
+
+        final StringWriter output = new StringWriter();
+        WriterInterceptorContext writerContext = mock(WriterInterceptorContext.class);
+        doAnswer(invocation -> {
+            result.writeJSON(new JSONStreamWriter(output));
+            // the rows are read while the session is still open ...
+            verify(session, never()).logout();
+            return null;
+        }).when(writerContext).proceed();
+        cleanupFilter.aroundWriteTo(writerContext);
+
+        verify(session).logout();
+        assertThat(rows.pulled, is(5));
+        JSONArray writtenRows = new JSONObject(output.toString()).getJSONArray("rows");
+        assertThat(writtenRows.length(), is(5));
+        assertThat(writtenRows.getJSONObject(0).getString("mode:uri"),
+                   is("http://localhost/modeshape-rest/repo/default/items/node2"));
+    }
+
+    @Test
+    public void shouldCloseSessionAfterWritingEvenIfReadingRowsFails() throws Exception {
+        final RestQueryResult result = new RestQueryHandler().executeQuery(request, "repo", "default",
+                                                                          Query.JCR_SQL2,
+                                                                          "SELECT * FROM [nt:base] AS s", 0, -1, null);
+        rows.failAt = 3;
+        WriterInterceptorContext writerContext = mock(WriterInterceptorContext.class);
+        doAnswer(invocation -> {
+            result.writeJSON(new JSONStreamWriter(new StringWriter()));
+            return null;
+        }).when(writerContext).proceed();
+        try {
+            new CleanupFilter().aroundWriteTo(writerContext);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(session).logout();
+    }
+
+    @Test
+    public void shouldAbortResponseIfReadingRowsFails() throws Exception {
+        RestQueryResult result = new RestQueryHandler().executeQuery(request, "repo", "default", Query.JCR_SQL2,
+                                                                    "SELECT * FROM [nt:base] AS s", 0, -1, null);
+        rows.failAt = 3;
+        try {
+            new JSONBodyWriter().writeTo(result, RestQueryResult.class, RestQueryResult.class, new Annotation[0],
+                                         MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<String, Object>(),
+                                         new ByteArrayOutputStream());
+            fail("The response should have been aborted");
+        } catch (IOException e) {
+            // expected, rather than writing the JSON as if all the rows had been read ...
+        }
+        assertThat(rows.pulled, is(3));
+    }
+
+    @Test
+    public void shouldCloseSessionInResponseFilterIfRowsAreNotPending() throws Exception {
+        ContainerResponseContext responseContext = mock(ContainerResponseContext.class);
+        when(responseContext.getEntity()).thenReturn(new RestQueryResult());
+        new CleanupFilter().filter(mock(ContainerRequestContext.class), responseContext);
+        verify(session).logout();
+    }
+
+    /**
+     * A {@link RowIterator} over nodes named {@code node0}, {@code node1} ..., which counts the rows which have been read.
+     */
+    private static final class CountingRowIterator implements RowIterator {
+        private final List<Row> rows = new ArrayList<>();
+        private int position;
+        private int pulled;
+        private int failAt = -1;
+
+        private CountingRowIterator( int size ) throws Exception {
+            for (int i = 0; i != size; ++i) {
+                Row row = mock(Row.class);
+                when(row.getNode()).thenReturn(mock(Node.class));
+                when(row.getPath()).thenReturn("/node" + i);
+                rows.add(row);
+            }
+        }
+
+        @Override
+        public Row nextRow() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (position == failAt) {
+                throw new IllegalStateException("Cannot read row " + position);
+            }
+            pulled++;
+            return rows.get(position++);
+        }
+
+        @Override
+        public void skip( long skipNum ) {
+            position += skipNum;
+        }
+
+        @Override
+        public long getSize() {
+            return rows.size();
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < rows.size();
+        }
+
+        @Override
+        public Object next() {
+            return nextRow();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
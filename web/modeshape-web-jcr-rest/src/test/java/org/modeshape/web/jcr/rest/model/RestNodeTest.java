@@ -0,0 +1,144 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.model;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RestNode}, which checks that the streamed JSON is the same as the JSON built in memory.
+ */
+public class RestNodeTest {
+
+    private static final String BASE_URL = "http://localhost:8080/modeshape-rest/repo/default/items";
+
+    @Test
+    public void shouldStreamNodeWithoutPropertiesOrChildren() throws Exception {
+        assertStreamedJSONIsTheSame(node("", "/"));
+    }
+
+    @Test
+    public void shouldStreamNestedChildren() throws Exception {
+        RestNode root = node("", "/");
+        RestNode child = node("child", "/child");
+        RestNode grandChild = node("grandChild", "/child/grandChild");
+        grandChild.addChild(node("leaf", "/child/grandChild/leaf"));
+        child.addChild(grandChild);
+        root.addChild(child).addChild(node("other", "/other"));
+        assertStreamedJSONIsTheSame(root);
+    }
+
+    @Test
+    public void shouldStreamSameNameSiblingsLikeTheTree() throws Exception {
+        RestNode root = node("", "/");
+        root.addChild(node("sns", "/sns[1]")).addChild(node("sns", "/sns[2]"));
+        assertStreamedJSONIsTheSame(root);
+    }
+
+    @Test
+    public void shouldStreamSingleAndMultiValuedProperties() throws Exception {
+        RestNode node = node("node", "/node");
+        node.addJcrProperty(property("jcr:primaryType", false, "nt:unstructured"));
+        node.addJcrProperty(property("multi", true, "a", "b", "c"));
+        node.addJcrProperty(property("multiWithOneValue", true, "a"));
+        node.addJcrProperty(property("multiWithoutValues", true));
+        node.addJcrProperty(property("singleWithoutValue", false));
+        node.addCustomProperty("custom", "value");
+        node.addChild(node("child", "/node/child").addJcrProperty(property("multi", true, "x", "y")));
+        assertStreamedJSONIsTheSame(node);
+    }
+
+    @Test
+    public void shouldSkipReservedFieldNamesLikeTheTree() throws Exception {
+        RestNode node = node("node", "/node");
+        node.addJcrProperty(property(RestNode.SELF_FIELD_NAME, false, "self"));
+        node.addJcrProperty(property(RestNode.CHILDREN_FIELD_NAME, true, "children"));
+        node.addCustomProperty(RestNode.ID_FIELD_NAME, "id");
+        node.addCustomProperty("custom", "value");
+        assertStreamedJSONIsTheSame(node);
+    }
+
+    @Test
+    public void shouldEscapeNamesAndValuesLikeTheTree() throws Exception {
+        RestNode node = node("n\"o\\de", "/n\"o\\de");
+        node.addJcrProperty(property("quotes", false, "\"quoted\" and 'single'"));
+        node.addJcrProperty(property("controls", false, "line1\nline2\r\ttab\b\f\u0001"));
+        node.addJcrProperty(property("markup", true, "</script>", "a/b", "\\"));
+        node.addJcrProperty(property("unicode", false, "\u00e9\u4e2d\u2028\ud83d\ude00"));
+        node.addJcrProperty(property("we\"ird\nname", false, "value"));
+        node.addCustomProperty("custom\t", "\u007f");
+        node.addChild(node("ch\"ild\n", "/n\"o\\de/ch\"ild\n"));
+        assertStreamedJSONIsTheSame(node);
+    }
+
+    @Test
+    public void shouldStreamPendingChildrenLikeTheTreeOfAddedChildren() throws Exception {
+        RestNode leaf = node("leaf", "/child/leaf").addJcrProperty(property("prop", false, "value"));
+        RestNode child = node("child", "/child").addChild(leaf);
+        RestNode expected = node("", "/").addChild(child).addChild(node("other", "/other"));
+
+        RestNode pendingChild = node("child", "/child").setPendingChildren(Arrays.asList(node("leaf", "/child/leaf")
+                .addJcrProperty(property("prop", false, "value"))).iterator());
+        RestNode root = node("", "/").setPendingChildren(Arrays.asList(pendingChild, node("other", "/other")).iterator());
+        assertThat(root.hasPendingChildren(), is(true));
+
+        StringWriter output = new StringWriter();
+        root.writeJSON(new JSONStreamWriter(output));
+        assertThat(output.toString(), is(expected.toJSON().toString()));
+        assertThat(root.hasPendingChildren(), is(false));
+    }
+
+    @Test
+    public void shouldKeepPendingChildrenWhenConvertedToTree() throws Exception {
+        RestNode root = node("", "/").setPendingChildren(Arrays.asList(node("child", "/child")).iterator());
+        JSONObject first = root.toJSON();
+        assertThat(root.hasPendingChildren(), is(false));
+        assertThat(root.toJSON().toString(), is(first.toString()));
+        assertStreamedJSONIsTheSame(root);
+    }
+
+    @Test
+    public void shouldStreamCollectionOfNodesAsArray() throws Exception {
+        RestNode first = node("first", "/first").addJcrProperty(property("prop", false, "1"));
+        RestNode second = node("second", "/second").addChild(node("child", "/second/child"));
+        StringWriter output = new StringWriter();
+        new JSONStreamWriter(output).value(Arrays.asList(first, second));
+        assertThat(output.toString(), is("[" + first.toJSON() + "," + second.toJSON() + "]"));
+    }
+
+    private RestNode node( String name,
+                           String path ) {
+        return new RestNode(name, "id-" + path, BASE_URL + path, BASE_URL + path.substring(0, path.lastIndexOf('/')));
+    }
+
+    private RestProperty property( String name,
+                                   boolean multiValued,
+                                   String... values ) {
+        return new RestProperty(name, BASE_URL + "/" + name, BASE_URL, values.length == 0 ? Collections.<String>emptyList()
+                                                                                          : Arrays.asList(values), multiValued);
+    }
+
+    private void assertStreamedJSONIsTheSame( RestNode node ) throws Exception {
+        StringWriter output = new StringWriter();
+        node.writeJSON(new JSONStreamWriter(output));
+        assertThat(output.toString(), is(node.toJSON().toString()));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.model;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RestQueryResult}, which checks that the streamed JSON is the same as the JSON built in memory.
+ */
+public class RestQueryResultTest {
+
+    @Test
+    public void shouldStreamEmptyResult() throws Exception {
+        assertStreamedJSONIsTheSame(new RestQueryResult());
+        assertStreamedJSONIsTheSame(new RestQueryResult().addColumn("col1", "STRING"));
+    }
+
+    @Test
+    public void shouldStreamColumnsAndRows() throws Exception {
+        RestQueryResult result = new RestQueryResult().addColumn("s.col1", "STRING").addColumn("s.col2", "LONG");
+        for (RestQueryResult.RestRow row : rows(result, 3)) {
+            result.addRow(row);
+        }
+        assertStreamedJSONIsTheSame(result);
+    }
+
+    @Test
+    public void shouldStreamPendingRowsLikeAddedRows() throws Exception {
+        RestQueryResult added = new RestQueryResult().addColumn("s.col1", "STRING");
+        List<RestQueryResult.RestRow> addedRows = rows(added, 5);
+        addedRows.forEach(added::addRow);
+
+        RestQueryResult pending = new RestQueryResult().addColumn("s.col1", "STRING");
+        List<RestQueryResult.RestRow> pendingRows = rows(pending, 5);
+        pending.addRow(pendingRows.get(0));
+        pending.setPendingRows(pendingRows.subList(1, pendingRows.size()).iterator());
+        assertThat(pending.hasPendingRows(), is(true));
+
+        assertThat(stream(pending), is(added.toJSON().toString()));
+        assertThat(pending.hasPendingRows(), is(false));
+    }
+
+    @Test
+    public void shouldStreamEmptyPendingRowsLikeNoRows() throws Exception {
+        RestQueryResult result = new RestQueryResult().addColumn("s.col1", "STRING");
+        String expected = result.toJSON().toString();
+        result.setPendingRows(new ArrayList<RestQueryResult.RestRow>().iterator());
+        assertThat(stream(result), is(expected));
+    }
+
+    @Test
+    public void shouldPullPendingRowsOnlyWhileStreaming() throws Exception {
+        RestQueryResult result = new RestQueryResult();
+        final List<RestQueryResult.RestRow> rows = rows(result, 3);
+        final StringWriter output = new StringWriter();
+        final List<Integer> outputLengthsWhenPulled = new ArrayList<>();
+        result.setPendingRows(new Iterator<RestQueryResult.RestRow>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows.size();
+            }
+
+            @Override
+            public RestQueryResult.RestRow next() {
+                outputLengthsWhenPulled.add(output.getBuffer().length());
+                return rows.get(index++);
+            }
+        });
+        assertThat(outputLengthsWhenPulled.isEmpty(), is(true));
+
+        result.writeJSON(new JSONStreamWriter(output));
+        assertThat(outputLengthsWhenPulled.size(), is(3));
+        // each row has been written before the next one was pulled ...
+        assertThat(outputLengthsWhenPulled.get(1) > outputLengthsWhenPulled.get(0), is(true));
+        assertThat(outputLengthsWhenPulled.get(2) > outputLengthsWhenPulled.get(1), is(true));
+    }
+
+    @Test
+    public void shouldEscapeValuesLikeTheTree() throws Exception {
+        RestQueryResult result = new RestQueryResult().addColumn("s.\"col\"", "STRING");
+        RestQueryResult.RestRow row = result.new RestRow();
+        row.addValue("s.\"col\"", "va\"lue\\ with\nnew line, </tag> and \u0002 \u00e9");
+        row.addValue("multi", Arrays.asList("a\"", "b\\", "c\t"));
+        result.addRow(row);
+        assertStreamedJSONIsTheSame(result);
+    }
+
+    private List<RestQueryResult.RestRow> rows( RestQueryResult result,
+                                                int count ) {
+        List<RestQueryResult.RestRow> rows = new ArrayList<>();
+        for (int i = 0; i != count; ++i) {
+            RestQueryResult.RestRow row = result.new RestRow();
+            row.addValue("s.col1", "value" + i);
+            row.addValue("s.col2", i);
+            row.addValue("s.multi", Arrays.asList("a" + i, "b" + i));
+            row.addValue("mode:uri", "http://localhost/items/node" + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private String stream( RestQueryResult result ) throws Exception {
+        StringWriter output = new StringWriter();
+        result.writeJSON(new JSONStreamWriter(output));
+        return output.toString();
+    }
+
+    private void assertStreamedJSONIsTheSame( RestQueryResult result ) throws Exception {
+        assertThat(stream(result), is(result.toJSON().toString()));
+    }
+}
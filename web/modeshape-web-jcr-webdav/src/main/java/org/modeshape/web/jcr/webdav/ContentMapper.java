@@ -67,6 +67,16 @@ public interface ContentMapper {
      */
     long getResourceLength( Node node ) throws RepositoryException, IOException;
 
+    /**
+     * @param node the node to check; may not be null
+     * @return the hexadecimal SHA-1 hash of the file content for the node, which is used as its strong entity tag; null if the
+     *         node maps to a WebDAV folder or the hash is not known
+     * @throws RepositoryException if the node cannot be accessed
+     */
+    default String getResourceHash( Node node ) throws RepositoryException {
+        return null;
+    }
+
     /**
      * @param node the node to check; may not be null
      * @return the date at which the file was last modified; null if node is a folder
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.servlet.ServletContext;
@@ -124,6 +125,15 @@ public class DefaultContentMapper implements ContentMapper {
         return node.getProperty(CONTENT_NODE_NAME + "/" + DATA_PROP_NAME).getLength();
     }
 
+    @Override
+    public String getResourceHash( Node node ) throws RepositoryException {
+        if (!node.hasNode(CONTENT_NODE_NAME)) {
+            return null;
+        }
+        Binary binary = node.getProperty(CONTENT_NODE_NAME + "/" + DATA_PROP_NAME).getBinary();
+        return binary instanceof org.modeshape.jcr.api.Binary ? ((org.modeshape.jcr.api.Binary)binary).getHexHash() : null;
+    }
+
     @Override
     public Date getLastModified( Node node ) throws RepositoryException {
         if (!node.hasNode(CONTENT_NODE_NAME)) return null;
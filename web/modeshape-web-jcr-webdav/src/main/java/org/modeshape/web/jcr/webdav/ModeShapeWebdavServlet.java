@@ -100,6 +100,16 @@ public class ModeShapeWebdavServlet extends WebdavServlet {
         this.contentMapper.initialize(getServletContext());
     }
 
+    @Override
+    protected int getResourceLockStripeDepth() {
+        boolean configured = getInitParameter(LOCK_STRIPE_DEPTH_PARAMETER) != null;
+        if (!configured && requestResolver instanceof SingleRepositoryRequestResolver) {
+            // the paths don't contain the repository and workspace names, so the top-level resources determine the stripes
+            return 1;
+        }
+        return super.getResourceLockStripeDepth();
+    }
+
     @Override
     public void init() throws ServletException {
         constructRequestResolver();
@@ -365,6 +365,7 @@ public class ModeShapeWebdavStore implements IWebdavStore {
                 ob.setCreationDate(createDate);
                 ob.setLastModified(contentMapper.getLastModified(node));
                 ob.setResourceLength(contentMapper.getResourceLength(node));
+                ob.setContentHash(contentMapper.getResourceHash(node));
             } else {
                 ob.setNullResource(true);
             }
@@ -0,0 +1,74 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.webdav;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.modeshape.webdav.WebdavServlet;
+import org.modeshape.webdav.locking.ResourceLocks;
+
+public class ModeShapeWebdavServletTest {
+
+    private ModeShapeWebdavServlet servlet;
+
+    @Mock
+    private ServletConfig config;
+    @Mock
+    private ServletContext context;
+
+    @Before
+    public void beforeEach() {
+        MockitoAnnotations.initMocks(this);
+        when(config.getServletContext()).thenReturn(context);
+        when(config.getInitParameter("rootpath")).thenReturn(".");
+        servlet = new ModeShapeWebdavServlet();
+    }
+
+    protected void useSingleRepositoryResolver() {
+        String resolverClassName = SingleRepositoryRequestResolver.class.getName();
+        when(context.getInitParameter(ModeShapeWebdavServlet.INIT_REQUEST_RESOLVER_CLASS_NAME)).thenReturn(resolverClassName);
+        when(context.getInitParameter(SingleRepositoryRequestResolver.INIT_REPOSITORY_NAME)).thenReturn("repo");
+        when(context.getInitParameter(SingleRepositoryRequestResolver.INIT_WORKSPACE_NAME)).thenReturn("default");
+    }
+
+    @Test
+    public void shouldStripeLocksBelowRepositoryAndWorkspaceByDefault() throws Exception {
+        servlet.init(config);
+        assertThat(servlet.getResourceLockStripeDepth(), is(ResourceLocks.DEFAULT_STRIPE_DEPTH));
+    }
+
+    @Test
+    public void shouldStripeLocksByTopLevelResourceWithSingleRepositoryResolver() throws Exception {
+        useSingleRepositoryResolver();
+        servlet.init(config);
+        assertThat(servlet.getResourceLockStripeDepth(), is(1));
+    }
+
+    @Test
+    public void shouldUseConfiguredLockStripeDepth() throws Exception {
+        useSingleRepositoryResolver();
+        when(config.getInitParameter(WebdavServlet.LOCK_STRIPE_DEPTH_PARAMETER)).thenReturn("2");
+        servlet.init(config);
+        assertThat(servlet.getResourceLockStripeDepth(), is(2));
+    }
+}
@@ -25,6 +25,7 @@ public class StoredObject {
     private Date creationDate;
     private long contentLength;
     private String mimeType;
+    private String contentHash;
 
     private boolean isNullRessource;
 
@@ -109,6 +110,25 @@ public class StoredObject {
         this.contentLength = l;
     }
 
+    /**
+     * Gets the hash of the resource content, which is used as a strong entity tag. Can be NULL if the store doesn't know the hash
+     * of the content, in which case a weak entity tag is derived from the length and the date of the last modification.
+     * 
+     * @return the hash of the resource content
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Sets the hash of the resource content, which must change whenever the content changes
+     * 
+     * @param contentHash the hash of the resource content
+     */
+    public void setContentHash( String contentHash ) {
+        this.contentHash = contentHash;
+    }
+
     /**
      * Gets the state of the resource
      * 
@@ -131,6 +151,7 @@ public class StoredObject {
         // this.content = null;
         this.contentLength = 0;
         this.mimeType = null;
+        this.contentHash = null;
     }
 
     /**
@@ -62,13 +62,11 @@ public class WebDavServletBean extends HttpServlet {
     protected static MessageDigest MD5_HELPER;
 
     private static final boolean READ_ONLY = false;
-    protected final ResourceLocks resLocks;
+    protected ResourceLocks resLocks;
     protected IWebdavStore store;
     private Map<String, IMethodExecutor> methodMap = new HashMap<String, IMethodExecutor>();
 
     public WebDavServletBean() {
-        resLocks = new ResourceLocks();
-
         try {
             MD5_HELPER = MessageDigest.getInstance("MD5");
         } catch (NoSuchAlgorithmException e) {
@@ -84,6 +82,7 @@ public class WebDavServletBean extends HttpServlet {
                       boolean lazyFolderCreationOnPut ) throws ServletException {
 
         this.store = store;
+        this.resLocks = new ResourceLocks(ResourceLocks.DEFAULT_STRIPE_COUNT, getResourceLockStripeDepth());
 
         IMimeTyper mimeTyper = new IMimeTyper() {
             @Override
@@ -112,6 +111,17 @@ public class WebDavServletBean extends HttpServlet {
         register("*NO*IMPL*", new DoNotImplemented(READ_ONLY));
     }
 
+    /**
+     * Returns the number of path segments which determine the stripe guarding the locks of a resource, which should cover the
+     * segments that are shared by most of the resources (e.g. the repository and workspace names).
+     * 
+     * @return the stripe depth
+     * @see ResourceLocks#ResourceLocks(int, int)
+     */
+    protected int getResourceLockStripeDepth() {
+        return ResourceLocks.DEFAULT_STRIPE_DEPTH;
+    }
+
     @Override
     public void destroy() {
         if (store != null) {
@@ -32,6 +32,7 @@ public class WebdavServlet extends WebDavServletBean {
 
     private static final long serialVersionUID = 1L;
     private static final String ROOTPATH_PARAMETER = "rootpath";
+    public static final String LOCK_STRIPE_DEPTH_PARAMETER = "lock-stripe-depth";
 
     @Override
     public void init() throws ServletException {
@@ -57,6 +58,12 @@ public class WebdavServlet extends WebDavServletBean {
         super.init(webdavStore, dftIndexFile, insteadOf404, noContentLengthHeader, lazyFolderCreationOnPut);
     }
 
+    @Override
+    protected int getResourceLockStripeDepth() {
+        int stripeDepth = getIntInitParameter(LOCK_STRIPE_DEPTH_PARAMETER);
+        return stripeDepth > 0 ? stripeDepth : super.getResourceLockStripeDepth();
+    }
+
     private int getIntInitParameter( String key ) {
         return getInitParameter(key) == null ? -1 : Integer.parseInt(getInitParameter(key));
     }
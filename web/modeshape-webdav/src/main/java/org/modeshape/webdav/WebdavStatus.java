@@ -56,6 +56,11 @@ public class WebdavStatus {
      */
     public static final int SC_NO_CONTENT = HttpServletResponse.SC_NO_CONTENT;
 
+    /**
+     * Status code (206) indicating that the server has fulfilled the partial GET request for the resource.
+     */
+    public static final int SC_PARTIAL_CONTENT = HttpServletResponse.SC_PARTIAL_CONTENT;
+
     /**
      * Status code (301) indicating that the resource has permanently moved to a new location, and that future references should
      * use a new URI with their requests.
@@ -149,6 +154,11 @@ public class WebdavStatus {
      */
     public static final int SC_UNSUPPORTED_MEDIA_TYPE = 415;
 
+    /**
+     * Status code (416) indicating that the server cannot serve the requested byte range.
+     */
+    public static final int SC_REQUESTED_RANGE_NOT_SATISFIABLE = HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+
     /**
      * The 424 (Failed Dependency) status code means that the method could not be performed on the resource because the requested
      * action depended on another action and that action failed. For example, if a command in a PROPPATCH method fails then, at
@@ -203,6 +213,7 @@ public class WebdavStatus {
         addStatusCodeMap(SC_CREATED, "Created");
         addStatusCodeMap(SC_ACCEPTED, "Accepted");
         addStatusCodeMap(SC_NO_CONTENT, "No Content");
+        addStatusCodeMap(SC_PARTIAL_CONTENT, "Partial Content");
         addStatusCodeMap(SC_MOVED_PERMANENTLY, "Moved Permanently");
         addStatusCodeMap(SC_MOVED_TEMPORARILY, "Moved Temporarily");
         addStatusCodeMap(SC_NOT_MODIFIED, "Not Modified");
@@ -220,6 +231,7 @@ public class WebdavStatus {
         addStatusCodeMap(SC_PRECONDITION_FAILED, "Precondition Failed");
         addStatusCodeMap(SC_REQUEST_TOO_LONG, "Request Too Long");
         addStatusCodeMap(SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported Media Type");
+        addStatusCodeMap(SC_REQUESTED_RANGE_NOT_SATISFIABLE, "Requested Range Not Satisfiable");
         // WebDav Status Codes
         addStatusCodeMap(SC_MULTI_STATUS, "Multi-Status");
         addStatusCodeMap(SC_UNPROCESSABLE_ENTITY, "Unprocessable Entity");
@@ -34,6 +34,8 @@ public class LockedObject {
 
     private String id;
 
+    private final int stripe;
+
     /**
      * Describing the depth of a locked collection. If the locked resource is not a collection, depth is 0 / doesn't matter.
      */
@@ -42,7 +44,7 @@ public class LockedObject {
     /**
      * Describing the timeout of a locked object (ms)
      */
-    protected long expiresAt;
+    protected volatile long expiresAt;
 
     /**
      * owner of the lock. shared locks can have multiple owners. is null if no owner is present
@@ -77,15 +79,9 @@ public class LockedObject {
         this.path = path;
         id = UUID.randomUUID().toString();
         resourceLocks = resLocks;
+        stripe = resLocks.stripeOf(path);
 
-        if (!temporary) {
-            resourceLocks.locks.put(path, this);
-            resourceLocks.locksByID.put(id, this);
-        } else {
-            resourceLocks.tempLocks.put(path, this);
-            resourceLocks.tempLocksByID.put(id, this);
-        }
-        resourceLocks.cleanupCounter++;
+        resourceLocks.addLockedObject(this, temporary);
     }
 
     /**
@@ -156,11 +152,12 @@ public class LockedObject {
     }
 
     /**
-     * adds a new child lock to this lock
+     * adds a new child lock to this lock. This is synchronized since the children of the root can be changed by operations on
+     * unrelated resources, which don't otherwise exclude each other.
      * 
      * @param newChild new child
      */
-    public void addChild( LockedObject newChild ) {
+    public synchronized void addChild( LockedObject newChild ) {
         if (children == null) {
             children = new LockedObject[0];
         }
@@ -172,34 +169,47 @@ public class LockedObject {
     }
 
     /**
-     * deletes this Lock object. assumes that it has no children and no owners (does not check this itself)
+     * removes a child lock from this lock
+     * 
+     * @param child the child
+     * @return true if this lock had children when called, even if the given child was not one of them
      */
-    public void removeLockedObject() {
-        if (this != resourceLocks.root && !this.getPath().equals("/")) {
-
-            int size = parent.children.length;
-            for (int i = 0; i < size; i++) {
-                if (parent.children[i].equals(this)) {
-                    LockedObject[] newChildren = new LockedObject[size - 1];
-                    for (int i2 = 0; i2 < (size - 1); i2++) {
-                        if (i2 < i) {
-                            newChildren[i2] = parent.children[i2];
-                        } else {
-                            newChildren[i2] = parent.children[i2 + 1];
-                        }
-                    }
-                    if (newChildren.length != 0) {
-                        parent.children = newChildren;
+    private synchronized boolean removeChild( LockedObject child ) {
+        if (children == null) {
+            return false;
+        }
+        int size = children.length;
+        for (int i = 0; i < size; i++) {
+            if (children[i].equals(child)) {
+                LockedObject[] newChildren = new LockedObject[size - 1];
+                for (int i2 = 0; i2 < (size - 1); i2++) {
+                    if (i2 < i) {
+                        newChildren[i2] = children[i2];
                     } else {
-                        parent.children = null;
+                        newChildren[i2] = children[i2 + 1];
                     }
-                    break;
                 }
+                if (newChildren.length != 0) {
+                    children = newChildren;
+                } else {
+                    children = null;
+                }
+                break;
             }
+        }
+        return true;
+    }
+
+    /**
+     * deletes this Lock object. assumes that it has no children and no owners (does not check this itself)
+     */
+    public void removeLockedObject() {
+        if (this != resourceLocks.root && !this.getPath().equals("/")) {
+
+            parent.removeChild(this);
 
             // removing from hashtable
-            resourceLocks.locksByID.remove(getID());
-            resourceLocks.locks.remove(getPath());
+            resourceLocks.removeLockedObject(this, false);
 
             // now the garbage collector has some work to do
         }
@@ -211,30 +221,9 @@ public class LockedObject {
     public void removeTempLockedObject() {
         if (this != resourceLocks.tempRoot) {
             // removing from tree
-            if (parent != null && parent.children != null) {
-                int size = parent.children.length;
-                for (int i = 0; i < size; i++) {
-                    if (parent.children[i].equals(this)) {
-                        LockedObject[] newChildren = new LockedObject[size - 1];
-                        for (int i2 = 0; i2 < (size - 1); i2++) {
-                            if (i2 < i) {
-                                newChildren[i2] = parent.children[i2];
-                            } else {
-                                newChildren[i2] = parent.children[i2 + 1];
-                            }
-                        }
-                        if (newChildren.length != 0) {
-                            parent.children = newChildren;
-                        } else {
-                            parent.children = null;
-                        }
-                        break;
-                    }
-                }
-
+            if (parent != null && parent.removeChild(this)) {
                 // removing from hashtable
-                resourceLocks.tempLocksByID.remove(getID());
-                resourceLocks.tempLocks.remove(getPath());
+                resourceLocks.removeLockedObject(this, true);
 
                 // now the garbage collector has some work to do
             }
@@ -359,6 +348,15 @@ public class LockedObject {
         return owner;
     }
 
+    /**
+     * Gets the index of the stripe of the {@link ResourceLocks} which guards the LockedObject
+     * 
+     * @return the stripe, or -1 for the root
+     */
+    int getStripe() {
+        return stripe;
+    }
+
     /**
      * Gets the path for the LockedObject
      * 
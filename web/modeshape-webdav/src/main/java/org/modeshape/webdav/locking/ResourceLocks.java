@@ -16,8 +16,13 @@
 
 package org.modeshape.webdav.locking;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.webdav.ITransaction;
 import org.modeshape.webdav.exceptions.LockFailedException;
@@ -25,11 +30,30 @@ import org.modeshape.webdav.exceptions.LockFailedException;
 /**
  * simple locking management for concurrent data access, NOT the webdav locking. ( could that be used instead? ) IT IS ACTUALLY
  * USED FOR DOLOCK
+ * <p>
+ * Locks can only conflict with locks on the same resource or on its ancestors or descendants. The locked objects are therefore
+ * guarded by a fixed number of stripes, chosen by the ancestor of each resource at the "stripe depth", so that resources in
+ * unrelated subtrees can be locked and unlocked concurrently. The resources above the stripe depth are the common ancestors of
+ * several stripes (e.g. the repository and workspace of each path under the default request resolver), so operations on them,
+ * and those which walk the whole tree, hold all of the stripes, while their locked objects are shared by the operations holding
+ * any of the stripes.
+ * </p>
  * 
  * @author re
  */
 public class ResourceLocks implements IResourceLocks {
 
+    /**
+     * The default number of stripes.
+     */
+    public static final int DEFAULT_STRIPE_COUNT = 64;
+
+    /**
+     * The default number of path segments which determine the stripe of a resource, i.e. the repository name, the workspace name
+     * and the name of the top-level resource in the workspace.
+     */
+    public static final int DEFAULT_STRIPE_DEPTH = 3;
+
     private static Logger LOG = Logger.getLogger(ResourceLocks.class);
 
     /**
@@ -37,27 +61,27 @@ public class ResourceLocks implements IResourceLocks {
      */
     private final int cleanupLimit = 100000;
 
-    protected int cleanupCounter = 0;
+    protected final AtomicInteger cleanupCounter = new AtomicInteger();
 
     /**
      * keys: path value: LockedObject from that path
      */
-    protected Hashtable<String, LockedObject> locks = new Hashtable<String, LockedObject>();
+    protected ConcurrentMap<String, LockedObject> locks = new ConcurrentHashMap<String, LockedObject>();
 
     /**
      * keys: id value: LockedObject from that id
      */
-    protected Hashtable<String, LockedObject> locksByID = new Hashtable<String, LockedObject>();
+    protected ConcurrentMap<String, LockedObject> locksByID = new ConcurrentHashMap<String, LockedObject>();
 
     /**
      * keys: path value: Temporary LockedObject from that path
      */
-    protected Hashtable<String, LockedObject> tempLocks = new Hashtable<String, LockedObject>();
+    protected ConcurrentMap<String, LockedObject> tempLocks = new ConcurrentHashMap<String, LockedObject>();
 
     /**
      * keys: id value: Temporary LockedObject from that id
      */
-    protected Hashtable<String, LockedObject> tempLocksByID = new Hashtable<String, LockedObject>();
+    protected ConcurrentMap<String, LockedObject> tempLocksByID = new ConcurrentHashMap<String, LockedObject>();
 
     // REMEMBER TO REMOVE UNUSED LOCKS FROM THE HASHTABLE AS WELL
 
@@ -67,19 +91,124 @@ public class ResourceLocks implements IResourceLocks {
 
     private boolean temporary = true;
 
+    private final Stripe[] stripes;
+
+    private final int stripeDepth;
+
+    /**
+     * guards the creation of the LockedObjects above the stripe depth, which can be generated concurrently by operations holding
+     * different stripes
+     */
+    private final Object sharedLockedObjectsMonitor = new Object();
+
     public ResourceLocks() {
+        this(DEFAULT_STRIPE_COUNT, DEFAULT_STRIPE_DEPTH);
+    }
+
+    /**
+     * @param stripeCount the number of stripes guarding the locked objects, which is rounded up to a power of two; a single
+     *        stripe serializes all of the operations
+     * @param stripeDepth the number of path segments which determine the stripe of a resource; resources with fewer segments
+     *        are guarded by all of the stripes
+     */
+    public ResourceLocks( int stripeCount,
+                          int stripeDepth ) {
+        this.stripeDepth = Math.max(1, stripeDepth);
+        int count = Integer.highestOneBit(Math.max(1, stripeCount));
+        if (count < stripeCount) {
+            count <<= 1;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
         root = new LockedObject(this, "/", true);
         tempRoot = new LockedObject(this, "/", false);
     }
 
+    /**
+     * Returns the stripe guarding the resource at the given path, which is determined by its ancestor at the stripe depth.
+     * 
+     * @param path the path
+     * @return the index of the stripe, or -1 if the path is above the stripe depth and all the stripes are needed
+     */
+    protected int stripeOf( String path ) {
+        int start = path.startsWith("/") ? 1 : 0;
+        if (start == path.length()) {
+            return -1;
+        }
+        int end = start - 1;
+        for (int segment = 0; segment != stripeDepth; ++segment) {
+            if (end == path.length()) {
+                return -1;
+            }
+            end = path.indexOf('/', end + 1);
+            if (end == -1) {
+                end = path.length();
+            }
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+
+    private int lockStripe( String path ) {
+        int stripe = stripeOf(path);
+        if (stripe == -1) {
+            lockAllStripes();
+        } else {
+            stripes[stripe].lock();
+        }
+        return stripe;
+    }
+
+    private void unlockStripe( int stripe ) {
+        if (stripe == -1) {
+            unlockAllStripes();
+        } else {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private void lockAllStripes() {
+        // always in the same order, to avoid deadlocks
+        for (Stripe stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
     @Override
-    public synchronized boolean lock( ITransaction transaction,
-                                      String path,
-                                      String owner,
-                                      boolean exclusive,
-                                      int depth,
-                                      int timeout,
-                                      boolean temporary ) throws LockFailedException {
+    public boolean lock( ITransaction transaction,
+                         String path,
+                         String owner,
+                         boolean exclusive,
+                         int depth,
+                         int timeout,
+                         boolean temporary ) throws LockFailedException {
+        int stripe = lockStripe(path);
+        try {
+            return doLock(transaction, path, owner, exclusive, depth, timeout, temporary);
+        } finally {
+            unlockStripe(stripe);
+        }
+    }
+
+    private boolean doLock( ITransaction transaction,
+                            String path,
+                            String owner,
+                            boolean exclusive,
+                            int depth,
+                            int timeout,
+                            boolean temporary ) {
 
         LockedObject lo = null;
 
@@ -118,84 +247,128 @@ public class ResourceLocks implements IResourceLocks {
     }
 
     @Override
-    public synchronized boolean unlock( ITransaction transaction,
-                                        String id,
-                                        String owner ) {
-
-        if (locksByID.containsKey(id)) {
-            String path = locksByID.get(id).getPath();
-            if (locks.containsKey(path)) {
-                LockedObject lo = locks.get(path);
-                lo.removeLockedObjectOwner(owner);
+    public boolean unlock( ITransaction transaction,
+                           String id,
+                           String owner ) {
+
+        LockedObject lockedObject = locksByID.get(id);
+        if (lockedObject == null) {
+            // nothing to unlock (e.g. the lock already expired), so don't block all the stripes for it
+            return true;
+        }
+        // only the locked objects guarded by this stripe are checked for timeouts below
+        String path = lockedObject.getPath();
+        int stripe = lockStripe(path);
+        try {
+            // the lock may have been removed (e.g. because it expired) before the stripe was obtained
+            lockedObject = locksByID.get(id);
+            if (lockedObject != null) {
+                if (locks.containsKey(path)) {
+                    LockedObject lo = locks.get(path);
+                    lo.removeLockedObjectOwner(owner);
+
+                    if (lo.children == null && lo.owner == null) {
+                        lo.removeLockedObject();
+                    }
 
-                if (lo.children == null && lo.owner == null) {
-                    lo.removeLockedObject();
+                } else {
+                    // there is no lock at that path. someone tried to unlock it
+                    // anyway. could point to a problem
+                    LOG.trace("org.modeshape.web.webdav.locking.ResourceLocks.unlock(): no lock for path " + path);
+                    return false;
                 }
-
-            } else {
-                // there is no lock at that path. someone tried to unlock it
-                // anyway. could point to a problem
-                LOG.trace("org.modeshape.web.webdav.locking.ResourceLocks.unlock(): no lock for path " + path);
-                return false;
             }
+            checkTimeouts(stripe, !temporary);
+        } finally {
+            unlockStripe(stripe);
+        }
 
-            if (cleanupCounter > cleanupLimit) {
-                cleanupCounter = 0;
-                cleanLockedObjects(root, !temporary);
-            }
+        if (lockedObject != null) {
+            cleanupIfNeeded(root, !temporary);
         }
-        checkTimeouts(transaction, !temporary);
 
         return true;
 
     }
 
     @Override
-    public synchronized void unlockTemporaryLockedObjects( ITransaction transaction,
-                                                           String path,
-                                                           String owner ) {
-        if (tempLocks.containsKey(path)) {
-            LockedObject lo = tempLocks.get(path);
-            lo.removeLockedObjectOwner(owner);
+    public void unlockTemporaryLockedObjects( ITransaction transaction,
+                                              String path,
+                                              String owner ) {
+        int stripe = lockStripe(path);
+        try {
+            if (tempLocks.containsKey(path)) {
+                LockedObject lo = tempLocks.get(path);
+                lo.removeLockedObjectOwner(owner);
 
-        } else {
-            // there is no lock at that path. someone tried to unlock it
-            // anyway. could point to a problem
-            LOG.trace("org.modeshape.web.webdav.locking.ResourceLocks.unlock(): no lock for path " + path);
-        }
+            } else {
+                // there is no lock at that path. someone tried to unlock it
+                // anyway. could point to a problem
+                LOG.trace("org.modeshape.web.webdav.locking.ResourceLocks.unlock(): no lock for path " + path);
+            }
 
-        if (cleanupCounter > cleanupLimit) {
-            cleanupCounter = 0;
-            cleanLockedObjects(tempRoot, temporary);
+            checkTimeouts(stripe, temporary);
+        } finally {
+            unlockStripe(stripe);
         }
 
-        checkTimeouts(transaction, temporary);
+        cleanupIfNeeded(tempRoot, temporary);
 
     }
 
     @Override
     public void checkTimeouts( ITransaction transaction,
                                boolean temporary ) {
-        if (!temporary) {
-            Enumeration<LockedObject> lockedObjects = locks.elements();
-            while (lockedObjects.hasMoreElements()) {
-                LockedObject currentLockedObject = lockedObjects.nextElement();
+        lockAllStripes();
+        try {
+            checkTimeouts(-1, temporary);
+        } finally {
+            unlockAllStripes();
+        }
+    }
 
-                if (currentLockedObject.expiresAt < System.currentTimeMillis()) {
-                    currentLockedObject.removeLockedObject();
-                }
-            }
+    /**
+     * removes the expired LockedObjects guarded by the given stripe, which must be held by the caller
+     * 
+     * @param stripe the index of the stripe, or -1 if all the stripes are held and all the LockedObjects should be checked
+     * @param temporary Check timeout on temporary or real locks
+     */
+    private void checkTimeouts( int stripe,
+                                boolean temporary ) {
+        long now = System.currentTimeMillis();
+        Map<String, LockedObject> lockedObjects;
+        if (stripe == -1) {
+            lockedObjects = temporary ? tempLocks : locks;
         } else {
-            Enumeration<LockedObject> lockedObjects = tempLocks.elements();
-            while (lockedObjects.hasMoreElements()) {
-                LockedObject currentLockedObject = lockedObjects.nextElement();
-
-                if (currentLockedObject.expiresAt < System.currentTimeMillis()) {
+            lockedObjects = temporary ? stripes[stripe].tempLocks : stripes[stripe].locks;
+        }
+        // copied, since removing a LockedObject changes the map
+        for (LockedObject currentLockedObject : new ArrayList<LockedObject>(lockedObjects.values())) {
+            if (currentLockedObject.expiresAt < now) {
+                if (temporary) {
                     currentLockedObject.removeTempLockedObject();
+                } else {
+                    currentLockedObject.removeLockedObject();
                 }
             }
         }
+    }
 
+    private void cleanupIfNeeded( LockedObject root,
+                                  boolean temporary ) {
+        if (cleanupCounter.get() <= cleanupLimit) {
+            return;
+        }
+        // the cleanup walks the whole tree, so it needs all the stripes
+        lockAllStripes();
+        try {
+            if (cleanupCounter.get() > cleanupLimit) {
+                cleanupCounter.set(0);
+                cleanLockedObjects(root, temporary);
+            }
+        } finally {
+            unlockAllStripes();
+        }
     }
 
     @Override
@@ -252,6 +425,49 @@ public class ResourceLocks implements IResourceLocks {
         return null;
     }
 
+    /**
+     * registers a new LockedObject, which is called while holding the stripe guarding it
+     * 
+     * @param lo the LockedObject
+     * @param temporary whether the LockedObject is temporary or not
+     */
+    void addLockedObject( LockedObject lo,
+                          boolean temporary ) {
+        if (temporary) {
+            tempLocks.put(lo.getPath(), lo);
+            tempLocksByID.put(lo.getID(), lo);
+        } else {
+            locks.put(lo.getPath(), lo);
+            locksByID.put(lo.getID(), lo);
+        }
+        if (lo.getStripe() != -1) {
+            Stripe stripe = stripes[lo.getStripe()];
+            (temporary ? stripe.tempLocks : stripe.locks).put(lo.getPath(), lo);
+        }
+        cleanupCounter.incrementAndGet();
+    }
+
+    /**
+     * unregisters a LockedObject, which is called while holding the stripe guarding it
+     * 
+     * @param lo the LockedObject
+     * @param temporary whether the LockedObject is temporary or not
+     */
+    void removeLockedObject( LockedObject lo,
+                             boolean temporary ) {
+        if (temporary) {
+            tempLocksByID.remove(lo.getID());
+            tempLocks.remove(lo.getPath());
+        } else {
+            locksByID.remove(lo.getID());
+            locks.remove(lo.getPath());
+        }
+        if (lo.getStripe() != -1) {
+            Stripe stripe = stripes[lo.getStripe()];
+            (temporary ? stripe.tempLocks : stripe.locks).remove(lo.getPath());
+        }
+    }
+
     /**
      * generates real LockedObjects for the resource at path and its parent folders. does not create new LockedObjects if they
      * already exist
@@ -260,6 +476,15 @@ public class ResourceLocks implements IResourceLocks {
      * @return the LockedObject for path.
      */
     private LockedObject generateLockedObjects( String path ) {
+        if (stripeOf(path) == -1) {
+            synchronized (sharedLockedObjectsMonitor) {
+                return doGenerateLockedObjects(path);
+            }
+        }
+        return doGenerateLockedObjects(path);
+    }
+
+    private LockedObject doGenerateLockedObjects( String path ) {
         if (!locks.containsKey(path)) {
             LockedObject returnObject = new LockedObject(this, path, !temporary);
             String parentPath = getParentPath(path);
@@ -282,6 +507,15 @@ public class ResourceLocks implements IResourceLocks {
      * @return the LockedObject for path.
      */
     private LockedObject generateTempLockedObjects( String path ) {
+        if (stripeOf(path) == -1) {
+            synchronized (sharedLockedObjectsMonitor) {
+                return doGenerateTempLockedObjects(path);
+            }
+        }
+        return doGenerateTempLockedObjects(path);
+    }
+
+    private LockedObject doGenerateTempLockedObjects( String path ) {
         if (!tempLocks.containsKey(path)) {
             LockedObject returnObject = new LockedObject(this, path, temporary);
             String parentPath = getParentPath(path);
@@ -362,4 +596,14 @@ public class ResourceLocks implements IResourceLocks {
         return path.substring(0, slash);
     }
 
+    /**
+     * a lock guarding the LockedObjects below some of the resources at the stripe depth, which also keeps track of them so that their
+     * timeouts can be checked without looking at all the other LockedObjects
+     */
+    private static final class Stripe extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        protected final Map<String, LockedObject> locks = new HashMap<String, LockedObject>();
+        protected final Map<String, LockedObject> tempLocks = new HashMap<String, LockedObject>();
+    }
 }
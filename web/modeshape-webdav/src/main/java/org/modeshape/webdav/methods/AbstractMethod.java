@@ -233,10 +233,13 @@ public abstract class AbstractMethod implements IMethodExecutor {
     /**
      * Get the ETag associated with a file.
      * 
-     * @param so StoredObject to get resourceLength, lastModified and a hashCode of StoredObject
-     * @return the ETag
+     * @param so StoredObject to get the content hash, or the resourceLength and lastModified, of
+     * @return the ETag, which is strong only if the hash of the content is known
      */
     protected String getETag( StoredObject so ) {
+        if (so != null && so.isResource() && so.getContentHash() != null) {
+            return "\"" + so.getContentHash() + "\"";
+        }
 
         String resourceLength = "";
         String lastModified = "";
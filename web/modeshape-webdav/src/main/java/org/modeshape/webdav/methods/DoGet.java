@@ -24,6 +24,7 @@ import java.util.Locale;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.modeshape.common.i18n.TextI18n;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.webdav.IMimeTyper;
 import org.modeshape.webdav.ITransaction;
 import org.modeshape.webdav.IWebdavStore;
@@ -47,6 +48,15 @@ public class DoGet extends DoHead {
     protected void doBody( ITransaction transaction,
                            HttpServletResponse resp,
                            String path ) {
+        doBody(transaction, resp, path, 0, -1);
+    }
+
+    @Override
+    protected void doBody( ITransaction transaction,
+                           HttpServletResponse resp,
+                           String path,
+                           long offset,
+                           long length ) {
 
         try {
             StoredObject so = store.getStoredObject(transaction, path);
@@ -63,12 +73,8 @@ public class DoGet extends DoHead {
             OutputStream out = resp.getOutputStream();
             InputStream in = store.getResourceContent(transaction, path);
             try {
-                int read = -1;
-                byte[] copyBuffer = new byte[BUF_SIZE];
-
-                while ((read = in.read(copyBuffer, 0, copyBuffer.length)) != -1) {
-                    out.write(copyBuffer, 0, read);
-                }
+                // file-based content is transferred through channels, without reading what precedes the range ...
+                IoUtil.copy(in, out, offset, length);
             } finally {
                 // flushing causes a IOE if a file is opened on the webserver
                 // client disconnected before server finished sending response
@@ -18,6 +18,7 @@ package org.modeshape.webdav.methods;
 import java.io.IOException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.modeshape.common.util.ByteRange;
 import org.modeshape.webdav.IMimeTyper;
 import org.modeshape.webdav.ITransaction;
 import org.modeshape.webdav.IWebdavStore;
@@ -91,12 +92,13 @@ public class DoHead extends AbstractMethod {
 
             if (resourceLocks.lock(transaction, path, tempLockOwner, false, 0, TEMP_TIMEOUT, TEMPORARY)) {
                 try {
-                    String eTagMatch = req.getHeader("If-None-Match");
-                    if (eTagMatch != null) {
-                        if (eTagMatch.equals(getETag(so))) {
-                            resp.setStatus(WebdavStatus.SC_NOT_MODIFIED);
-                            return;
-                        }
+                    if (isPreconditionFailed(req, so)) {
+                        resp.sendError(WebdavStatus.SC_PRECONDITION_FAILED);
+                        return;
+                    }
+                    if (isNotModified(req, so)) {
+                        resp.setStatus(WebdavStatus.SC_NOT_MODIFIED);
+                        return;
                     }
 
                     if (so.isResource()) {
@@ -113,13 +115,29 @@ public class DoHead extends AbstractMethod {
                             resp.addHeader("ETag", eTag);
 
                             long resourceLength = so.getResourceLength();
+                            long bodyLength = resourceLength;
+
+                            ByteRange range = ByteRange.requested(req.getHeader("Range"), req.getHeader("If-Range"), eTag,
+                                                                  so.getLastModified(), resourceLength);
+                            if (resourceLength > 0) {
+                                resp.setHeader("Accept-Ranges", "bytes");
+                            }
+                            if (range != null) {
+                                resp.setHeader("Content-Range", range.getContentRange());
+                                if (!range.isSatisfiable()) {
+                                    resp.sendError(WebdavStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                                    return;
+                                }
+                                bodyLength = range.getLength();
+                                resp.setStatus(WebdavStatus.SC_PARTIAL_CONTENT);
+                            }
 
                             if (contentLength == 1) {
-                                if (resourceLength > 0) {
-                                    if (resourceLength <= Integer.MAX_VALUE) {
-                                        resp.setContentLength((int)resourceLength);
+                                if (bodyLength > 0) {
+                                    if (bodyLength <= Integer.MAX_VALUE) {
+                                        resp.setContentLength((int)bodyLength);
                                     } else {
-                                        resp.setHeader("content-length", "" + resourceLength);
+                                        resp.setHeader("content-length", "" + bodyLength);
                                         // is "content-length" the right header?
                                         // is long a valid format?
                                     }
@@ -137,7 +155,11 @@ public class DoHead extends AbstractMethod {
                                 }
                             }
 
-                            doBody(transaction, resp, path);
+                            if (range != null) {
+                                doBody(transaction, resp, path, range.getFirst(), bodyLength);
+                            } else {
+                                doBody(transaction, resp, path);
+                            }
                         }
                     } else {
                         folderBody(transaction, path, resp, req);
@@ -164,6 +186,80 @@ public class DoHead extends AbstractMethod {
 
     }
 
+    /**
+     * Determines whether the client requires a different representation of the resource than the current one, based on the
+     * "If-Match" header or, in its absence, the "If-Unmodified-Since" header of the request.
+     * 
+     * @param req the request
+     * @param so the stored object; may not be null
+     * @return true if a "412 Precondition Failed" response should be sent
+     */
+    protected boolean isPreconditionFailed( HttpServletRequest req,
+                                            StoredObject so ) {
+        String eTagMatch = req.getHeader("If-Match");
+        if (eTagMatch != null) {
+            String eTag = getETag(so);
+            for (String candidate : eTagMatch.split(",")) {
+                candidate = candidate.trim();
+                // the strong comparison is used, so weak tags never match ...
+                if (candidate.equals("*") || (!eTag.startsWith("W/") && candidate.equals(eTag))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (so.isResource() && so.getLastModified() != null) {
+            long unmodifiedSince = getDateHeader(req, "If-Unmodified-Since");
+            // HTTP dates have a precision of one second ...
+            return unmodifiedSince >= 0 && so.getLastModified().getTime() / 1000 > unmodifiedSince / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the client already has the current representation of the resource, based on the "If-None-Match" header
+     * or, in its absence, the "If-Modified-Since" header of the request.
+     * 
+     * @param req the request
+     * @param so the stored object; may not be null
+     * @return true if a "304 Not Modified" response should be sent
+     */
+    protected boolean isNotModified( HttpServletRequest req,
+                                     StoredObject so ) {
+        String eTagMatch = req.getHeader("If-None-Match");
+        if (eTagMatch != null) {
+            String eTag = getETag(so);
+            for (String candidate : eTagMatch.split(",")) {
+                candidate = candidate.trim();
+                // the weak comparison is used for GET and HEAD ...
+                if (candidate.equals("*") || weakETag(candidate).equals(weakETag(eTag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (so.isResource() && so.getLastModified() != null) {
+            long modifiedSince = getDateHeader(req, "If-Modified-Since");
+            // HTTP dates have a precision of one second ...
+            return modifiedSince >= 0 && so.getLastModified().getTime() / 1000 <= modifiedSince / 1000;
+        }
+        return false;
+    }
+
+    private static String weakETag( String eTag ) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private static long getDateHeader( HttpServletRequest req,
+                                       String name ) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            // not a valid date, so the header is ignored ...
+            return -1;
+        }
+    }
+
     @SuppressWarnings( "unused" )
     protected void folderBody( ITransaction transaction,
                                String path,
@@ -178,4 +274,13 @@ public class DoHead extends AbstractMethod {
                            String path ) throws IOException {
         // no body for HEAD
     }
+
+    @SuppressWarnings( "unused" )
+    protected void doBody( ITransaction transaction,
+                           HttpServletResponse resp,
+                           String path,
+                           long offset,
+                           long length ) throws IOException {
+        // no body for HEAD
+    }
 }
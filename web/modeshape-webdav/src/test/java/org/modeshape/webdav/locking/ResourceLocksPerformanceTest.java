@@ -0,0 +1,81 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.webdav.locking;
+
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the throughput of concurrent clients locking resources in unrelated subtrees, which is what most WebDAV methods do
+ * with temporary locks, when the locks are guarded by a single stripe (as if all of the operations were synchronized) and by the
+ * default number of stripes.
+ */
+@Ignore
+public class ResourceLocksPerformanceTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 200000;
+    private static final int RUNS = 5;
+
+    protected boolean print = true;
+
+    @Test
+    public void shouldLockUnrelatedSubtreesConcurrently() throws Exception {
+        for (int run = 0; run != RUNS; ++run) {
+            long single = measure(new ResourceLocks(1, ResourceLocks.DEFAULT_STRIPE_DEPTH));
+            long striped = measure(new ResourceLocks());
+            if (print) {
+                System.out.println("Run " + run + ": single stripe " + single + " ops/s, " + ResourceLocks.DEFAULT_STRIPE_COUNT
+                                   + " stripes " + striped + " ops/s");
+            }
+        }
+    }
+
+    protected long measure( final ResourceLocks locks ) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> clients = new ArrayList<>();
+            for (int i = 0; i != THREADS; ++i) {
+                // the paths of the default request resolver, where all the resources share the repository and workspace
+                final String folder = "/repo/ws/folder" + i;
+                final String owner = "owner" + i;
+                clients.add(() -> {
+                    for (int op = 0; op != OPERATIONS_PER_THREAD; ++op) {
+                        String path = folder + "/file" + (op % 100);
+                        assertTrue(locks.lock(null, path, owner, false, 0, 10, true));
+                        locks.unlockTemporaryLockedObjects(null, path, owner);
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(clients)) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            return (long)THREADS * OPERATIONS_PER_THREAD * 1000000000L / nanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.webdav.locking;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceLocksTest {
+
+    private static final int INFINITY = -1;
+    private static final int TIMEOUT = 60;
+
+    private ResourceLocks locks;
+
+    @Before
+    public void beforeEach() {
+        locks = new ResourceLocks();
+    }
+
+    @Test
+    public void shouldGuardResourcesOfSameSubtreeWithSameStripe() {
+        int stripe = locks.stripeOf("/repo/ws/folder");
+        assertThat(stripe, is(not(-1)));
+        assertThat(locks.stripeOf("/repo/ws/folder/child"), is(stripe));
+        assertThat(locks.stripeOf("/repo/ws/folder/child/grandchild"), is(stripe));
+    }
+
+    @Test
+    public void shouldGuardResourcesAboveStripeDepthWithAllStripes() {
+        assertThat(locks.stripeOf("/"), is(-1));
+        assertThat(locks.stripeOf("/repo"), is(-1));
+        assertThat(locks.stripeOf("/repo/ws"), is(-1));
+    }
+
+    @Test
+    public void shouldUseStripeDepth() {
+        ResourceLocks shallowLocks = new ResourceLocks(ResourceLocks.DEFAULT_STRIPE_COUNT, 1);
+        int stripe = shallowLocks.stripeOf("/folder");
+        assertThat(stripe, is(not(-1)));
+        assertThat(shallowLocks.stripeOf("/folder/child"), is(stripe));
+        assertThat(shallowLocks.stripeOf("/"), is(-1));
+    }
+
+    @Test
+    public void shouldStripeSingleRepositoryPathsByTopLevelResource() throws Exception {
+        // without the repository and workspace names, the paths are striped by their top-level resources
+        ResourceLocks singleRepositoryLocks = new ResourceLocks(ResourceLocks.DEFAULT_STRIPE_COUNT, 1);
+        int stripe = singleRepositoryLocks.stripeOf("/folder/file");
+        assertThat(stripe, is(not(-1)));
+        assertThat(singleRepositoryLocks.stripeOf("/folder"), is(stripe));
+        assertThat(singleRepositoryLocks.stripeOf("/other/file"), is(not(-1)));
+
+        assertThat(singleRepositoryLocks.exclusiveLock(null, "/folder/file", "owner1", 0, TIMEOUT), is(true));
+        assertThat(singleRepositoryLocks.exclusiveLock(null, "/other/file", "owner2", 0, TIMEOUT), is(true));
+        assertThat(singleRepositoryLocks.exclusiveLock(null, "/folder", "owner2", INFINITY, TIMEOUT), is(false));
+        assertThat(singleRepositoryLocks.exclusiveLock(null, "/", "owner2", INFINITY, TIMEOUT), is(false));
+
+        String id = singleRepositoryLocks.getLockedObjectByPath(null, "/folder/file").getID();
+        assertThat(singleRepositoryLocks.unlock(null, id, "owner1"), is(true));
+        assertThat(singleRepositoryLocks.exclusiveLock(null, "/folder", "owner2", INFINITY, TIMEOUT), is(true));
+    }
+
+    @Test
+    public void shouldIgnoreUnlockOfUnknownLock() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner1", 0, TIMEOUT), is(true));
+        assertThat(locks.unlock(null, "unknown", "owner1"), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner2", 0, TIMEOUT), is(false));
+    }
+
+    @Test
+    public void shouldLockResourcesInUnrelatedSubtrees() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner1", 0, TIMEOUT), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/b/file", "owner2", 0, TIMEOUT), is(true));
+    }
+
+    @Test
+    public void shouldNotLockDescendantOfExclusivelyLockedResource() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a", "owner1", INFINITY, TIMEOUT), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/b/file", "owner2", 0, TIMEOUT), is(false));
+    }
+
+    @Test
+    public void shouldNotLockDescendantOfExclusivelyLockedResourceAboveStripeDepth() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws", "owner1", INFINITY, TIMEOUT), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner2", 0, TIMEOUT), is(false));
+        assertThat(locks.exclusiveLock(null, "/repo/other/a/file", "owner2", 0, TIMEOUT), is(true));
+    }
+
+    @Test
+    public void shouldNotLockAncestorOfExclusivelyLockedResource() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/b/file", "owner1", 0, TIMEOUT), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a", "owner2", INFINITY, TIMEOUT), is(false));
+        assertThat(locks.exclusiveLock(null, "/repo/ws", "owner2", INFINITY, TIMEOUT), is(false));
+        assertThat(locks.exclusiveLock(null, "/", "owner2", INFINITY, TIMEOUT), is(false));
+    }
+
+    @Test
+    public void shouldAllowSharedLocksOnSameResource() throws Exception {
+        assertThat(locks.sharedLock(null, "/repo/ws/a/file", "owner1", 0, TIMEOUT), is(true));
+        assertThat(locks.sharedLock(null, "/repo/ws/a/file", "owner2", 0, TIMEOUT), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner3", 0, TIMEOUT), is(false));
+    }
+
+    @Test
+    public void shouldLockResourceAgainOnceUnlocked() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner1", 0, TIMEOUT), is(true));
+        String id = locks.getLockedObjectByPath(null, "/repo/ws/a/file").getID();
+        assertThat(locks.unlock(null, id, "owner1"), is(true));
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner2", 0, TIMEOUT), is(true));
+    }
+
+    @Test
+    public void shouldIgnoreUnlockOfRemovedLock() throws Exception {
+        assertThat(locks.exclusiveLock(null, "/repo/ws/a/file", "owner1", 0, TIMEOUT), is(true));
+        String id = locks.getLockedObjectByPath(null, "/repo/ws/a/file").getID();
+        assertThat(locks.unlock(null, id, "owner1"), is(true));
+        assertThat(locks.getLockedObjectByID(null, id), is(nullValue()));
+        assertThat(locks.unlock(null, id, "owner1"), is(true));
+    }
+
+    @Test
+    public void shouldLockResourceAgainOnceTemporaryLockIsReleased() throws Exception {
+        assertThat(locks.lock(null, "/repo/ws/a/file", "owner1", true, 0, TIMEOUT, true), is(true));
+        assertThat(locks.lock(null, "/repo/ws/a/file", "owner2", true, 0, TIMEOUT, true), is(false));
+        locks.unlockTemporaryLockedObjects(null, "/repo/ws/a/file", "owner1");
+        assertThat(locks.lock(null, "/repo/ws/a/file", "owner2", true, 0, TIMEOUT, true), is(true));
+    }
+}
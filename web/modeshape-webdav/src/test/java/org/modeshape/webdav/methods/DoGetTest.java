@@ -0,0 +1,110 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.webdav.methods;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.webdav.locking.ResourceLocks;
+
+/**
+ * Unit test for the range and conditional requests answered by {@link DoGet}, which also runs all of the {@link DoHeadTest}
+ * tests against {@link DoGet}.
+ */
+public class DoGetTest extends DoHeadTest {
+
+    private ByteArrayOutputStream body;
+
+    @Override
+    @Before
+    public void beforeEach() throws Exception {
+        super.beforeEach();
+        body = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write( int b ) throws IOException {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener( WriteListener writeListener ) {
+            }
+        });
+    }
+
+    @Override
+    protected DoHead newMethod() {
+        return new DoGet(store, null, null, new ResourceLocks(), mimeTyper, 1);
+    }
+
+    protected String body() {
+        return new String(body.toByteArray());
+    }
+
+    @Test
+    public void shouldWriteWholeContent() throws Exception {
+        execute();
+        assertThat(body(), is(CONTENT));
+    }
+
+    @Test
+    public void shouldWriteRange() throws Exception {
+        headers.put("Range", "bytes=2-5");
+        execute();
+        assertThat(body(), is("2345"));
+    }
+
+    @Test
+    public void shouldWriteSuffixRange() throws Exception {
+        headers.put("Range", "bytes=-3");
+        execute();
+        assertThat(body(), is("789"));
+    }
+
+    @Test
+    public void shouldWriteWholeContentForSeveralRanges() throws Exception {
+        headers.put("Range", "bytes=0-1,5-6");
+        execute();
+        assertThat(body(), is(CONTENT));
+    }
+
+    @Test
+    public void shouldNotWriteContentWhenNotModified() throws Exception {
+        headers.put("If-None-Match", "\"" + HASH + "\"");
+        execute();
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    public void shouldNotWriteContentWhenPreconditionFails() throws Exception {
+        headers.put("If-Match", "\"other\"");
+        execute();
+        verify(response, never()).getOutputStream();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.webdav.methods;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayInputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.webdav.IMimeTyper;
+import org.modeshape.webdav.ITransaction;
+import org.modeshape.webdav.IWebdavStore;
+import org.modeshape.webdav.StoredObject;
+import org.modeshape.webdav.WebdavStatus;
+import org.modeshape.webdav.locking.ResourceLocks;
+
+/**
+ * Unit test for the range and conditional requests answered by {@link DoHead}.
+ */
+public class DoHeadTest {
+
+    protected static final String PATH = "/repo/ws/file.txt";
+    protected static final String CONTENT = "0123456789";
+    protected static final String HASH = "abc";
+    protected static final Date LAST_MODIFIED = new Date(1500000000000L);
+
+    protected IWebdavStore store;
+    protected IMimeTyper mimeTyper;
+    protected ITransaction transaction;
+    protected HttpServletRequest request;
+    protected HttpServletResponse response;
+    protected Map<String, String> headers;
+
+    @Before
+    public void beforeEach() throws Exception {
+        StoredObject so = new StoredObject();
+        so.setFolder(false);
+        so.setLastModified(LAST_MODIFIED);
+        so.setCreationDate(LAST_MODIFIED);
+        so.setResourceLength(CONTENT.length());
+        so.setContentHash(HASH);
+
+        transaction = mock(ITransaction.class);
+        store = mock(IWebdavStore.class);
+        when(store.getStoredObject(transaction, PATH)).thenReturn(so);
+        when(store.getResourceContent(transaction, PATH)).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT.getBytes()));
+        mimeTyper = mock(IMimeTyper.class);
+        when(mimeTyper.getMimeType(transaction, PATH)).thenReturn("text/plain");
+
+        headers = new HashMap<>();
+        request = mock(HttpServletRequest.class);
+        when(request.getPathInfo()).thenReturn(PATH);
+        when(request.getHeader(anyString())).thenAnswer(invocation -> headers.get(invocation.getArguments()[0]));
+        when(request.getDateHeader(anyString())).thenAnswer(invocation -> {
+            String value = headers.get(invocation.getArguments()[0]);
+            return value == null ? -1L : ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                                                      .toEpochMilli();
+        });
+        response = mock(HttpServletResponse.class);
+    }
+
+    protected DoHead newMethod() {
+        return new DoHead(store, null, null, new ResourceLocks(), mimeTyper, 1);
+    }
+
+    protected void execute() throws Exception {
+        newMethod().execute(transaction, request, response);
+    }
+
+    protected static String httpDate( Date date ) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldReturnWholeContentHeaders() throws Exception {
+        execute();
+        verify(response, never()).setStatus(anyInt());
+        verify(response, never()).sendError(anyInt());
+        verify(response).addHeader("ETag", "\"" + HASH + "\"");
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        verify(response).setContentLength(CONTENT.length());
+    }
+
+    @Test
+    public void shouldReturnPartialContentForRange() throws Exception {
+        headers.put("Range", "bytes=2-5");
+        execute();
+        verify(response).setStatus(WebdavStatus.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 2-5/10");
+        verify(response).setContentLength(4);
+    }
+
+    @Test
+    public void shouldReturnPartialContentForSuffixRange() throws Exception {
+        headers.put("Range", "bytes=-3");
+        execute();
+        verify(response).setStatus(WebdavStatus.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 7-9/10");
+        verify(response).setContentLength(3);
+    }
+
+    @Test
+    public void shouldReturnPartialContentWhenIfRangeMatchesDate() throws Exception {
+        headers.put("Range", "bytes=5-");
+        headers.put("If-Range", httpDate(LAST_MODIFIED));
+        execute();
+        verify(response).setStatus(WebdavStatus.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 5-9/10");
+    }
+
+    @Test
+    public void shouldReturnWholeContentWhenIfRangeDoesNotMatch() throws Exception {
+        headers.put("Range", "bytes=5-");
+        headers.put("If-Range", "\"other\"");
+        execute();
+        verify(response, never()).setStatus(WebdavStatus.SC_PARTIAL_CONTENT);
+        verify(response, never()).setHeader(eq("Content-Range"), anyString());
+        verify(response).setContentLength(CONTENT.length());
+    }
+
+    @Test
+    public void shouldReturnRangeNotSatisfiable() throws Exception {
+        headers.put("Range", "bytes=10-");
+        execute();
+        verify(response).setHeader("Content-Range", "bytes */10");
+        verify(response).sendError(WebdavStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenEntityTagMatches() throws Exception {
+        headers.put("If-None-Match", "\"other\", \"" + HASH + "\"");
+        execute();
+        verify(response).setStatus(WebdavStatus.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenNotModifiedSince() throws Exception {
+        headers.put("If-Modified-Since", httpDate(LAST_MODIFIED));
+        execute();
+        verify(response).setStatus(WebdavStatus.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void shouldFailPreconditionWhenEntityTagDoesNotMatch() throws Exception {
+        headers.put("If-Match", "\"other\"");
+        execute();
+        verify(response).sendError(WebdavStatus.SC_PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void shouldFailPreconditionWhenModifiedSince() throws Exception {
+        headers.put("If-Unmodified-Since", httpDate(new Date(LAST_MODIFIED.getTime() - 60000L)));
+        execute();
+        verify(response).sendError(WebdavStatus.SC_PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void shouldNotFailPreconditionWhenEntityTagMatches() throws Exception {
+        headers.put("If-Match", "\"" + HASH + "\"");
+        execute();
+        verify(response, never()).sendError(anyInt());
+        verify(response).addHeader("ETag", "\"" + HASH + "\"");
+    }
+}